@@ -17,6 +17,7 @@ package au.gov.digitalhealth.lingo.configuration;
 
 import au.gov.digitalhealth.lingo.auth.helper.AuthHelper;
 import au.gov.digitalhealth.lingo.log.SnowstormLogger;
+import au.gov.digitalhealth.lingo.service.BranchWriteQueue;
 import au.gov.digitalhealth.lingo.util.AuthSnowstormLogger;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.DeserializationFeature;
@@ -39,6 +40,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.http.codec.json.JacksonJsonEncoder;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
@@ -131,6 +133,21 @@ public class ApiWebConfiguration {
         .build();
   }
 
+  /**
+   * Identifies Snowstorm writes by the user and IMS cookie they are sent with, so that combined
+   * writes are only ever sent with the credentials of the user who made them.
+   */
+  @Bean
+  public BranchWriteQueue.CallerIdentity branchWriteCallerIdentity() {
+    return () -> {
+      Authentication authentication = authHelper.getAuthentication();
+      if (authentication == null || authentication.getCredentials() == null) {
+        return null;
+      }
+      return List.of(authentication.getName(), authentication.getCredentials());
+    };
+  }
+
   @Bean
   public WebClient authoringPlatformApiClient(
       @Value("${ihtsdo.ap.api.url}") String authoringServiceUrl,
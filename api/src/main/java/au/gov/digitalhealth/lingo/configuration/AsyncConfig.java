@@ -19,14 +19,11 @@ import java.util.concurrent.Executor;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.aop.interceptor.SimpleAsyncUncaughtExceptionHandler;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.web.context.request.RequestAttributes;
-import org.springframework.web.context.request.RequestContextHolder;
 
 @Configuration
 @EnableAsync
@@ -50,34 +47,88 @@ public class AsyncConfig implements AsyncConfigurer {
     executor.setThreadNamePrefix("async-");
 
     // This decorator preserves request context for all async tasks
-    executor.setTaskDecorator(
-        task -> {
-          RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
-          Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-          return () -> {
-            RequestAttributes oldAttributes = RequestContextHolder.getRequestAttributes();
-            Authentication oldAuthentication =
-                SecurityContextHolder.getContext().getAuthentication();
-            try {
-              if (attributes != null) {
-                RequestContextHolder.setRequestAttributes(attributes);
-              }
-              if (authentication != null) {
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-              }
-              task.run();
-            } finally {
-              RequestContextHolder.setRequestAttributes(oldAttributes);
-              SecurityContextHolder.getContext().setAuthentication(oldAuthentication);
-            }
-          };
-        });
+    executor.setTaskDecorator(new RequestContextTaskDecorator());
 
     executor.initialize();
     return executor;
   }
 
+  /**
+   * Runs bulk calculation tasks. Tasks block on Snowstorm and the name generator, so they get
+   * threads of their own rather than sharing a work-stealing pool.
+   */
+  @Bean(defaultCandidate = false)
+  public ThreadPoolTaskExecutor bulkCalculationExecutor(
+      @Value("${snomio.bulk-calculation.parallelism:16}") int parallelism) {
+    return boundedExecutor("bulk-calc-", parallelism);
+  }
+
+  /**
+   * Runs streamed bulk calculations while the request thread writes their events. The calculations
+   * hand their node generation to {@link #bulkCalculationExecutor}, so they never wait on a thread
+   * of their own pool.
+   */
+  @Bean(defaultCandidate = false)
+  public ThreadPoolTaskExecutor calculationStreamExecutor(
+      @Value("${snomio.bulk-calculation.streams:8}") int streams) {
+    return boundedExecutor("calc-stream-", streams);
+  }
+
+  /**
+   * Runs the blocking calls to the name generator for interactive calculations, so the number of
+   * those calls in flight at once is bounded however many calculations are running.
+   */
+  @Bean(defaultCandidate = false)
+  public ThreadPoolTaskExecutor nameGenerationExecutor(
+      @Value("${snomio.nameGenerator.parallelism:8}") int parallelism) {
+    return boundedExecutor("name-gen-", parallelism);
+  }
+
+  /**
+   * Runs the name generator calls of bulk calculations, kept apart from {@link
+   * #nameGenerationExecutor} so a large bulk calculation cannot hold up interactive ones.
+   */
+  @Bean(defaultCandidate = false)
+  public ThreadPoolTaskExecutor bulkNameGenerationExecutor(
+      @Value("${snomio.nameGenerator.bulk-parallelism:4}") int parallelism) {
+    return boundedExecutor("name-gen-bulk-", parallelism);
+  }
+
+  /**
+   * Runs the ECL lookups that build the name generator routing index for a branch. The request that
+   * needs the index waits for them, so they always run with a live request context.
+   */
+  @Bean(defaultCandidate = false)
+  public ThreadPoolTaskExecutor nameGeneratorIndexExecutor(
+      @Value("${snomio.name-generators.index-parallelism:4}") int parallelism) {
+    return boundedExecutor("name-gen-index-", parallelism);
+  }
+
+  /**
+   * Imports the batches of a ticket import, each in a transaction of its own, as the user who asked
+   * for the import.
+   */
+  @Bean(defaultCandidate = false)
+  public ThreadPoolTaskExecutor ticketImportExecutor(
+      @Value("${snomio.import.workers:4}") int workers) {
+    return boundedExecutor("ticket-import-", workers);
+  }
+
+  /**
+   * A fixed number of threads that carry the submitting request's context. Tasks queue for a free
+   * thread, so no more than {@code poolSize} of them block at once. The executors are not default
+   * candidates for injection, so Spring Boot's own task executor is still configured.
+   */
+  static ThreadPoolTaskExecutor boundedExecutor(String threadNamePrefix, int poolSize) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(Math.max(1, poolSize));
+    executor.setMaxPoolSize(Math.max(1, poolSize));
+    executor.setThreadNamePrefix(threadNamePrefix);
+    executor.setDaemon(true);
+    executor.setTaskDecorator(new RequestContextTaskDecorator());
+    return executor;
+  }
+
   // Exception handler for async tasks
   @Override
   public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
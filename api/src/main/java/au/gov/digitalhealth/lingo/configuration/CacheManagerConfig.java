@@ -23,6 +23,8 @@ import static au.gov.digitalhealth.lingo.util.CacheConstants.DESCRIPTION_VALIDAT
 import static au.gov.digitalhealth.lingo.util.CacheConstants.FHIR_CONCEPTS;
 import static au.gov.digitalhealth.lingo.util.CacheConstants.JIRA_USERS_CACHE;
 import static au.gov.digitalhealth.lingo.util.CacheConstants.PREFERRED_TERM_MAX_LENGTH;
+import static au.gov.digitalhealth.lingo.util.CacheConstants.PRODUCT_CALCULATION_CACHE;
+import static au.gov.digitalhealth.lingo.util.CacheConstants.PRODUCT_LEVEL_CALCULATION_CACHE;
 import static au.gov.digitalhealth.lingo.util.CacheConstants.SNOWSTORM_BROWSER_CONCEPTS;
 import static au.gov.digitalhealth.lingo.util.CacheConstants.SNOWSTORM_CONCEPT;
 import static au.gov.digitalhealth.lingo.util.CacheConstants.SNOWSTORM_CONCEPTS_BY_IDS;
@@ -35,6 +37,7 @@ import static au.gov.digitalhealth.lingo.util.CacheConstants.SNOWSTORM_HIST_ASSO
 import static au.gov.digitalhealth.lingo.util.CacheConstants.SNOWSTORM_REFSET_MEMBERS;
 import static au.gov.digitalhealth.lingo.util.CacheConstants.SNOWSTORM_RELATIONSHIPS;
 import static au.gov.digitalhealth.lingo.util.CacheConstants.SNOWSTORM_STATUS_CACHE;
+import static au.gov.digitalhealth.lingo.util.CacheConstants.TICKET_SEARCH_CACHE;
 import static au.gov.digitalhealth.lingo.util.CacheConstants.UNIT_NUMERATOR_DENOMINATOR_CACHE;
 import static au.gov.digitalhealth.lingo.util.CacheConstants.USERS_CACHE;
 import static au.gov.digitalhealth.lingo.util.CacheConstants.VALIDATION_EXCLUDED_SUBSTANCES;
@@ -114,6 +117,14 @@ public class CacheManagerConfig {
         SNOWSTORM_HIST_ASSOC_FOR_BRANCH,
         FHIR_CONCEPTS);
 
+    // Calculated product summaries, keyed by details + branch head timestamp so commits invalidate
+    register(manager, spec(Duration.ofMinutes(10), 500), PRODUCT_CALCULATION_CACHE);
+    // ... and the per contained product part of them, reused when only part of a package changes
+    register(manager, spec(Duration.ofMinutes(10), 2_000), PRODUCT_LEVEL_CALCULATION_CACHE);
+
+    // Ticket ids found by backlog searches, keyed by a generation that moves on every ticket change
+    register(manager, spec(Duration.ofMinutes(10), 2_000), TICKET_SEARCH_CACHE);
+
     // Task list from AP (evicted on configurable schedule)
     register(manager, spec(Duration.ofMinutes(30), 1_000), ALL_TASKS_CACHE);
 
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.function.ToDoubleFunction;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Publishes hit, miss and put counts for each Hibernate second-level cache region (configured in
+ * {@code ehcache.xml}) and for the query cache as {@code snomio.hibernate.cache.*} metrics, tagged
+ * with the region. Nothing is published unless {@code hibernate.generate_statistics} is set.
+ */
+@Configuration
+public class HibernateCacheMetricsConfig {
+
+  @Bean
+  public MeterBinder hibernateCacheMetrics(EntityManagerFactory entityManagerFactory) {
+    return registry -> {
+      Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      if (!statistics.isStatisticsEnabled()) {
+        return;
+      }
+      for (String region : statistics.getSecondLevelCacheRegionNames()) {
+        CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+        if (regionStatistics != null) {
+          register(registry, "hit", region, regionStatistics, CacheRegionStatistics::getHitCount);
+          register(registry, "miss", region, regionStatistics, CacheRegionStatistics::getMissCount);
+          register(registry, "put", region, regionStatistics, CacheRegionStatistics::getPutCount);
+        }
+      }
+      register(registry, "hit", "query", statistics, Statistics::getQueryCacheHitCount);
+      register(registry, "miss", "query", statistics, Statistics::getQueryCacheMissCount);
+      register(registry, "put", "query", statistics, Statistics::getQueryCachePutCount);
+    };
+  }
+
+  private static <T> void register(
+      MeterRegistry registry, String result, String region, T source, ToDoubleFunction<T> count) {
+    FunctionCounter.builder("snomio.hibernate.cache." + result, source, count)
+        .tag("region", region)
+        .register(registry);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.configuration;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Carries the submitting thread's request attributes and authentication over to the thread that
+ * runs the task, restoring the worker's previous context afterwards. Request-scoped beans (e.g.
+ * {@code RequestScopedBranchTimestampService}) and the authenticated Snowstorm client both depend
+ * on this context, so every executor that runs request work must decorate its tasks with this.
+ */
+public class RequestContextTaskDecorator implements TaskDecorator {
+
+  @Override
+  public Runnable decorate(Runnable task) {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+    return () -> {
+      RequestAttributes oldAttributes = RequestContextHolder.getRequestAttributes();
+      Authentication oldAuthentication = SecurityContextHolder.getContext().getAuthentication();
+      try {
+        if (attributes != null) {
+          RequestContextHolder.setRequestAttributes(attributes);
+        }
+        if (authentication != null) {
+          SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+        task.run();
+      } finally {
+        RequestContextHolder.setRequestAttributes(oldAttributes);
+        SecurityContextHolder.getContext().setAuthentication(oldAuthentication);
+      }
+    };
+  }
+}
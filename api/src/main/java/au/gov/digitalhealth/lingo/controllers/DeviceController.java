@@ -19,6 +19,7 @@ import au.gov.digitalhealth.lingo.aspect.LogExecutionTime;
 import au.gov.digitalhealth.lingo.product.ProductCreationDetails;
 import au.gov.digitalhealth.lingo.product.ProductSummary;
 import au.gov.digitalhealth.lingo.product.ProductUpdateDetails;
+import au.gov.digitalhealth.lingo.product.bulk.BulkProductCreationDetails;
 import au.gov.digitalhealth.lingo.product.details.DeviceProductDetails;
 import au.gov.digitalhealth.lingo.product.details.PackageDetails;
 import au.gov.digitalhealth.lingo.service.DeviceService;
@@ -30,6 +31,7 @@ import au.gov.digitalhealth.lingo.validation.AuthoringValidation;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.groups.Default;
+import java.util.List;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import org.springframework.http.HttpStatus;
@@ -100,6 +102,23 @@ public class DeviceController {
     }
   }
 
+  @LogExecutionTime
+  @PostMapping("/{branch}/devices/product/bulk")
+  public ResponseEntity<List<ProductSummary>> createDeviceProductsFromAtomicData(
+      @PathVariable String branch,
+      @RequestBody @Valid
+          BulkProductCreationDetails<@Valid DeviceProductDetails> bulkCreationDetails)
+      throws InterruptedException {
+    taskManagerService.validateTaskState(branch);
+    try {
+      return new ResponseEntity<>(
+          productCreationService.createProductsFromAtomicData(branch, bulkCreationDetails),
+          HttpStatus.CREATED);
+    } catch (CompletionException ex) {
+      throw (ex.getCause() instanceof RuntimeException runtimeEx) ? runtimeEx : ex;
+    }
+  }
+
   @LogExecutionTime
   @PutMapping("/{branch}/devices/product/{productId}")
   public ResponseEntity<ProductSummary> updateDeviceProductFromAtomioData(
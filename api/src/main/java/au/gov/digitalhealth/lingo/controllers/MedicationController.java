@@ -23,8 +23,10 @@ import au.gov.digitalhealth.lingo.product.ProductCreationDetails;
 import au.gov.digitalhealth.lingo.product.ProductPackSizes;
 import au.gov.digitalhealth.lingo.product.ProductSummary;
 import au.gov.digitalhealth.lingo.product.ProductUpdateDetails;
+import au.gov.digitalhealth.lingo.product.bulk.BrandPackSizeCalculationEvent;
 import au.gov.digitalhealth.lingo.product.bulk.BrandPackSizeCreationDetails;
 import au.gov.digitalhealth.lingo.product.bulk.BulkProductAction;
+import au.gov.digitalhealth.lingo.product.bulk.BulkProductCreationDetails;
 import au.gov.digitalhealth.lingo.product.details.MedicationProductDetails;
 import au.gov.digitalhealth.lingo.product.details.PackageDetails;
 import au.gov.digitalhealth.lingo.service.BrandPackSizeService;
@@ -35,6 +37,8 @@ import au.gov.digitalhealth.lingo.service.ProductUpdateService;
 import au.gov.digitalhealth.lingo.service.TaskManagerService;
 import au.gov.digitalhealth.lingo.service.validators.ValidationResult;
 import au.gov.digitalhealth.lingo.validation.AuthoringValidation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.groups.Default;
@@ -42,13 +46,18 @@ import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.ErrorResponseException;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -65,6 +74,8 @@ public class MedicationController {
   private final BrandPackSizeService brandPackSizeService;
   private final ProductUpdateService productUpdateService;
   private final ProductCalculationServiceFactory productCalculationServiceFactory;
+  private final ObjectMapper objectMapper;
+  private final Executor calculationStreamExecutor;
 
   MedicationController(
       MedicationService medicationService,
@@ -73,7 +84,9 @@ public class MedicationController {
       ProductCreationService productCreationService,
       BrandPackSizeService brandPackSizeService,
       ProductUpdateService productUpdateService,
-      ProductCalculationServiceFactory productCalculationServiceFactory) {
+      ProductCalculationServiceFactory productCalculationServiceFactory,
+      ObjectMapper objectMapper,
+      @Qualifier("calculationStreamExecutor") Executor calculationStreamExecutor) {
     this.medicationService = medicationService;
     this.fieldBindingConfiguration = fieldBindingConfiguration;
     this.taskManagerService = taskManagerService;
@@ -81,6 +94,8 @@ public class MedicationController {
     this.brandPackSizeService = brandPackSizeService;
     this.productUpdateService = productUpdateService;
     this.productCalculationServiceFactory = productCalculationServiceFactory;
+    this.objectMapper = objectMapper;
+    this.calculationStreamExecutor = calculationStreamExecutor;
   }
 
   @LogExecutionTime
@@ -171,6 +186,23 @@ public class MedicationController {
     }
   }
 
+  @LogExecutionTime
+  @PostMapping("/{branch}/medications/product/bulk")
+  public ResponseEntity<List<ProductSummary>> createMedicationProductsFromAtomicData(
+      @PathVariable String branch,
+      @RequestBody @Valid
+          BulkProductCreationDetails<@Valid MedicationProductDetails> bulkCreationDetails)
+      throws InterruptedException {
+    taskManagerService.validateTaskState(branch);
+    try {
+      return new ResponseEntity<>(
+          productCreationService.createProductsFromAtomicData(branch, bulkCreationDetails),
+          HttpStatus.CREATED);
+    } catch (CompletionException ex) {
+      throw (ex.getCause() instanceof RuntimeException runtimeEx) ? runtimeEx : ex;
+    }
+  }
+
   @LogExecutionTime
   @PutMapping("/{branch}/medications/product/{productId}")
   public ResponseEntity<ProductSummary> updateMedicationProductFromAtomioData(
@@ -288,4 +320,59 @@ public class MedicationController {
     taskManagerService.validateTaskState(branch);
     return brandPackSizeService.calculateNewBrandPackSizes(branch, brandPackSizeCreationDetails);
   }
+
+  /**
+   * Streaming variant of {@code $calculateNewBrandPackSizes}. Writes newline-delimited JSON {@link
+   * BrandPackSizeCalculationEvent}s: one {@code PARTIAL} event per brand/pack size combination as
+   * soon as it has been calculated, then a final {@code SUMMARY} event carrying the same merged
+   * summary the non-streaming endpoint returns. A failure before the first event is reported as a
+   * normal problem response; after that it is reported as an {@code ERROR} event.
+   *
+   * <p>The calculation runs on the calculation stream executor with this request's context while
+   * the request thread writes the events, so only one thread ever writes to the response and the
+   * request stays open, keeping request-scoped state valid, until the calculation is done. If the
+   * client disconnects the calculation's remaining work is cancelled and nothing more is written.
+   */
+  @LogExecutionTime
+  @PostMapping(
+      value = "/{branch}/medications/product/$calculateNewBrandPackSizes/stream",
+      produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public void streamNewBrandPackSizeMedicationProducts(
+      @PathVariable String branch,
+      @RequestBody @Valid BrandPackSizeCreationDetails brandPackSizeCreationDetails,
+      HttpServletResponse response)
+      throws InterruptedException {
+    taskManagerService.validateTaskState(branch);
+
+    NdjsonEventStream events = new NdjsonEventStream(response, objectMapper);
+    CompletableFuture<ProductSummary> calculation =
+        CompletableFuture.supplyAsync(
+            () ->
+                brandPackSizeService.calculateNewBrandPackSizes(
+                    branch,
+                    brandPackSizeCreationDetails,
+                    partial -> events.send(BrandPackSizeCalculationEvent.partial(partial))),
+            calculationStreamExecutor);
+    if (!events.writeUntilDone(calculation)) {
+      return;
+    }
+
+    ProductSummary summary;
+    try {
+      summary = calculation.join();
+    } catch (CompletionException ex) {
+      RuntimeException cause = ex.getCause() instanceof RuntimeException runtimeEx ? runtimeEx : ex;
+      if (!events.isStarted()) {
+        throw cause;
+      }
+      events.write(
+          BrandPackSizeCalculationEvent.error(
+              cause instanceof ErrorResponseException problem
+                  ? problem.getBody()
+                  : ProblemDetail.forStatusAndDetail(
+                      HttpStatus.INTERNAL_SERVER_ERROR, cause.getMessage())));
+      return;
+    }
+    events.write(BrandPackSizeCalculationEvent.summary(summary));
+  }
 }
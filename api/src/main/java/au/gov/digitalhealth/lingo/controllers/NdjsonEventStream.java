@@ -0,0 +1,160 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import lombok.extern.java.Log;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+/**
+ * Streams newline-delimited JSON events to a response. Events can be sent from any thread; they are
+ * serialised as they are sent and written, in order, by the one thread that calls {@link
+ * #writeUntilDone(CompletableFuture)} or {@link #write(Object)}.
+ *
+ * <p>At most a fixed number of sent events wait to be written; once that many are waiting {@link
+ * #send(Object)} blocks, so a slow client slows the work producing them rather than the events
+ * piling up in memory. Events written directly are serialised straight to the response.
+ *
+ * <p>Once a write fails, because the client has gone, nothing more is written and {@link
+ * #send(Object)} throws a {@link CancellationException} so the work producing the events stops.
+ */
+@Log
+class NdjsonEventStream {
+
+  /** The number of sent events that can wait to be written before senders block. */
+  static final int MAX_PENDING_EVENTS = 64;
+
+  private static final byte[] DONE = new byte[0];
+
+  private final HttpServletResponse response;
+  private final ObjectMapper objectMapper;
+  // the writer never closes the response, the container does once the request is done
+  private final ObjectWriter eventWriter;
+  private final BlockingQueue<byte[]> events;
+  private final Semaphore pendingEvents;
+  private volatile boolean disconnected;
+  private boolean started;
+
+  NdjsonEventStream(HttpServletResponse response, ObjectMapper objectMapper) {
+    this(response, objectMapper, MAX_PENDING_EVENTS);
+  }
+
+  NdjsonEventStream(HttpServletResponse response, ObjectMapper objectMapper, int maxPendingEvents) {
+    this.response = response;
+    this.objectMapper = objectMapper;
+    this.eventWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    // one more than the senders can fill, for the end of the stream
+    this.events = new LinkedBlockingQueue<>(maxPendingEvents + 1);
+    this.pendingEvents = new Semaphore(maxPendingEvents);
+  }
+
+  /**
+   * Queues an event to be written by the writing thread, waiting while the most events allowed are
+   * already waiting.
+   */
+  void send(Object event) {
+    if (disconnected) {
+      throw new CancellationException("Client disconnected");
+    }
+    try {
+      pendingEvents.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while waiting to send an event");
+    }
+    if (disconnected) {
+      pendingEvents.release();
+      throw new CancellationException("Client disconnected");
+    }
+    events.add(serialise(event));
+  }
+
+  /**
+   * Writes the events sent until {@code work} completes, then returns whether the client is still
+   * connected. Events sent after a write fails are dropped.
+   */
+  boolean writeUntilDone(CompletableFuture<?> work) throws InterruptedException {
+    work.whenComplete((result, e) -> events.add(DONE));
+    byte[] event;
+    while ((event = events.take()) != DONE) {
+      pendingEvents.release();
+      byte[] serialised = event;
+      writeEvent(out -> out.write(serialised));
+    }
+    return !disconnected;
+  }
+
+  /**
+   * Writes an event straight away, serialising it directly to the response, unless the client has
+   * disconnected.
+   */
+  void write(Object event) {
+    writeEvent(out -> eventWriter.writeValue(out, event));
+  }
+
+  /** Whether anything has been written, after which failures can only be reported as events. */
+  boolean isStarted() {
+    return started;
+  }
+
+  private void writeEvent(EventWriter event) {
+    if (disconnected) {
+      return;
+    }
+    try {
+      if (!started) {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        started = true;
+      }
+      OutputStream out = response.getOutputStream();
+      event.writeTo(out);
+      out.write('\n');
+      out.flush();
+    } catch (IOException e) {
+      disconnected = true;
+      log.info("Client disconnected from event stream: " + e.getMessage());
+    }
+  }
+
+  private byte[] serialise(Object event) {
+    try {
+      return objectMapper.writeValueAsBytes(event);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @FunctionalInterface
+  private interface EventWriter {
+    void writeTo(OutputStream out) throws IOException;
+  }
+}
@@ -22,6 +22,10 @@ public class TicketImportProblem extends LingoProblem {
     super("ticket-import-problem", "Ticket Import Failure", HttpStatus.NOT_FOUND, message);
   }
 
+  public TicketImportProblem(String message, HttpStatus status) {
+    super("ticket-import-problem", "Ticket Import Failure", status, message);
+  }
+
   public TicketImportProblem() {
     super("ticket-import-problem", "Ticket Import Failure", HttpStatus.INTERNAL_SERVER_ERROR);
   }
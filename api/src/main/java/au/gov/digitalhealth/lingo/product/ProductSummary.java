@@ -34,11 +34,11 @@ import au.gov.digitalhealth.lingo.product.details.properties.NonDefiningProperty
 import au.gov.digitalhealth.lingo.util.SnowstormDtoUtil;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.google.common.collect.Sets;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -186,6 +186,41 @@ public class ProductSummary implements Serializable {
         .collect(Collectors.toSet());
   }
 
+  /**
+   * Creates a new summary holding {@code root} as its subject plus every node reachable from it by
+   * following edges, and the edges between those nodes. The nodes themselves are shared, not
+   * copied.
+   */
+  public ProductSummary subgraph(Node root) {
+    ProductSummary subgraph = new ProductSummary();
+    synchronized (edges) {
+      synchronized (nodes) {
+        Map<String, Node> nodesById =
+            nodes.stream().collect(Collectors.toMap(Node::getConceptId, n -> n, (a, b) -> a));
+        Map<String, List<Edge>> edgesBySource =
+            edges.stream().collect(Collectors.groupingBy(Edge::getSource));
+
+        Set<String> visited = new HashSet<>();
+        List<String> toVisit = new ArrayList<>(List.of(root.getConceptId()));
+        while (!toVisit.isEmpty()) {
+          String id = toVisit.remove(toVisit.size() - 1);
+          if (visited.add(id)) {
+            Node node = nodesById.get(id);
+            if (node != null) {
+              subgraph.nodes.add(node);
+            }
+            for (Edge edge : edgesBySource.getOrDefault(id, List.of())) {
+              subgraph.edges.add(edge);
+              toVisit.add(edge.getTarget());
+            }
+          }
+        }
+      }
+    }
+    subgraph.subjects.add(root);
+    return subgraph;
+  }
+
   public String getSingleTargetOfTypeWithLabel(String source, String nodeLabel, String edgeLabel) {
     Set<String> target = getTargetsOfTypeWithLabel(source, nodeLabel, edgeLabel);
     if (target.size() != 1) {
@@ -666,10 +701,18 @@ public class ProductSummary implements Serializable {
     nodes.addAll(rebuilt);
   }
 
+  /**
+   * Merges new concepts that have the same axioms into one node, redirecting edges and
+   * relationships from the removed duplicates to the node that is kept.
+   *
+   * @return the temporary id of each removed duplicate mapped to the id of the node that replaced
+   *     it
+   */
   @JsonIgnore
-  public void deduplicateNewNodes(ModelConfiguration modelConfiguration) {
+  public Map<String, String> deduplicateNewNodes(ModelConfiguration modelConfiguration) {
     synchronized (nodes) {
       Map<Node, Set<Node>> deduplicatedNodes = new HashMap<>();
+      Map<String, String> replacedIds = new HashMap<>();
 
       nodes.stream()
           .filter(Node::isNewConcept)
@@ -703,18 +746,34 @@ public class ProductSummary implements Serializable {
           (key, duplicates) -> {
             duplicates.forEach(
                 duplicate -> {
+                  replacedIds.put(duplicate.getConceptId(), key.getConceptId());
                   nodes.remove(duplicate);
                   replaceEdges(duplicate, key);
                   updateRelationships(duplicate, key);
                 });
-            if (!Sets.intersection(duplicates, subjects).isEmpty()) {
-              subjects.removeAll(duplicates);
-              subjects.add(key);
-            }
           });
 
+      // Nodes hash on their content, which the merge above changes, so subjects are remapped by
+      // id rather than looked up in the set. Subjects that were duplicates become one subject.
+      Map<String, Node> nodesById =
+          nodes.stream().collect(Collectors.toMap(Node::getConceptId, n -> n, (a, b) -> a));
+      synchronized (subjects) {
+        List<Node> remappedSubjects =
+            subjects.stream()
+                .map(
+                    subject ->
+                        nodesById.getOrDefault(
+                            replacedIds.getOrDefault(
+                                subject.getConceptId(), subject.getConceptId()),
+                            subject))
+                .toList();
+        subjects.clear();
+        subjects.addAll(remappedSubjects);
+      }
+
       mergeMultivaluedProperties(modelConfiguration);
       checkNodesForMismatchedProperties(modelConfiguration);
+      return replacedIds;
     }
   }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.product.bulk;
+
+import au.gov.digitalhealth.lingo.product.ProductSummary;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.http.ProblemDetail;
+
+/**
+ * One line of the streamed {@code $calculateNewBrandPackSizes} response. A calculation emits a
+ * {@link Type#PARTIAL} event per brand/pack size combination as soon as it has been calculated,
+ * followed by exactly one {@link Type#SUMMARY} or {@link Type#ERROR} event.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BrandPackSizeCalculationEvent {
+
+  public enum Type {
+    /**
+     * The nodes and edges reachable from one new subject. Partial summaries are not deduplicated
+     * against each other - the final summary is authoritative.
+     */
+    PARTIAL,
+    /** The merged, deduplicated summary, identical to the non-streamed response. */
+    SUMMARY,
+    /** The calculation failed after streaming started; no summary will follow. */
+    ERROR
+  }
+
+  private Type type;
+
+  private ProductSummary summary;
+
+  private ProblemDetail problem;
+
+  public static BrandPackSizeCalculationEvent partial(ProductSummary summary) {
+    return new BrandPackSizeCalculationEvent(Type.PARTIAL, summary, null);
+  }
+
+  public static BrandPackSizeCalculationEvent summary(ProductSummary summary) {
+    return new BrandPackSizeCalculationEvent(Type.SUMMARY, summary, null);
+  }
+
+  public static BrandPackSizeCalculationEvent error(ProblemDetail problem) {
+    return new BrandPackSizeCalculationEvent(Type.ERROR, null, problem);
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.product.bulk;
+
+import au.gov.digitalhealth.lingo.product.ProductCreationDetails;
+import au.gov.digitalhealth.lingo.product.details.ProductDetails;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request to create several products together, sharing one Snowstorm concept batch and one refset
+ * batch
+ *
+ * @param <T> product details type either #MedicationProductDetails or #DeviceProductDetails
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkProductCreationDetails<T extends ProductDetails> {
+  /** The products to create, each recorded against its own ticket */
+  @NotEmpty List<@Valid ProductCreationDetails<T>> products;
+}
@@ -76,6 +76,7 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 import lombok.extern.java.Log;
@@ -92,6 +93,7 @@ public class BrandPackSizeService {
   private final SnowstormClient snowstormClient;
   private final NameGenerationService nameGenerationService;
   private final NodeGeneratorService nodeGeneratorService;
+  private final BulkCalculationScheduler bulkCalculationScheduler;
   private final Models models;
 
   @Value("${snomio.decimal-scale}")
@@ -103,11 +105,13 @@ public class BrandPackSizeService {
       NameGenerationService nameGenerationService,
       NodeGeneratorService nodeGeneratorService,
       ProductSummaryService productSummaryService,
+      BulkCalculationScheduler bulkCalculationScheduler,
       Models models) {
     this.snowstormClient = snowstormClient;
     this.nameGenerationService = nameGenerationService;
     this.nodeGeneratorService = nodeGeneratorService;
     this.productSummaryService = productSummaryService;
+    this.bulkCalculationScheduler = bulkCalculationScheduler;
     this.models = models;
   }
 
@@ -220,7 +224,7 @@ public class BrandPackSizeService {
     }
   }
 
-  private static Node getGenericPackageNode(
+  private static CompletableFuture<Node> getGenericPackageNode(
       Map<Pair<BigDecimal, ModelLevelType>, Set<CompletableFuture<Node>>> genericPackageFutureMap,
       @NotNull BigDecimal packSize,
       ModelConfiguration modelConfiguration) {
@@ -236,10 +240,10 @@ public class BrandPackSizeService {
       throw new ProductAtomicDataValidationProblem(
           "Multiple leaf generic package nodes found for pack size " + packSize);
     }
-    return newMppNodes.iterator().next().join();
+    return newMppNodes.iterator().next();
   }
 
-  private static Node getBrandedProductNode(
+  private static CompletableFuture<Node> getBrandedProductNode(
       Map<Pair<String, ModelLevelType>, Set<CompletableFuture<Node>>> brandedProductFutureMap,
       SnowstormConceptMini brand,
       ModelLevelType level) {
@@ -252,7 +256,7 @@ public class BrandPackSizeService {
       throw new ProductAtomicDataValidationProblem(
           "Multiple leaf branded product nodes found for brand " + brand.getConceptId());
     }
-    return nodes.iterator().next().join();
+    return nodes.iterator().next();
   }
 
   private void addEdgesAndNodes(
@@ -382,6 +386,30 @@ public class BrandPackSizeService {
    */
   public ProductSummary calculateNewBrandPackSizes(
       String branch, BrandPackSizeCreationDetails brandPackSizeCreationDetails) {
+    return calculateNewBrandPackSizes(branch, brandPackSizeCreationDetails, partial -> {});
+  }
+
+  /**
+   * As {@link #calculateNewBrandPackSizes(String, BrandPackSizeCreationDetails)}, additionally
+   * passing the sub-summary for each brand/pack size combination to {@code partialResultListener}
+   * as soon as that combination has been calculated, so callers can stream results.
+   *
+   * <p>The listener is called from the bulk calculation scheduler's threads, one call at a time,
+   * while no other combination is being merged, so it may safely serialise the sub-summary but
+   * should not block. The sub-summaries are not deduplicated against each other; the returned
+   * summary is authoritative. If the listener throws, the calculation's remaining work is cancelled
+   * and the calculation fails.
+   *
+   * @param branch branch to lookup concepts in
+   * @param brandPackSizeCreationDetails details of the brand pack sizes to create
+   * @param partialResultListener receives one sub-summary per new brand/pack size combination
+   * @return ProductSummary representing the existing and new concepts required to create this
+   *     product
+   */
+  public ProductSummary calculateNewBrandPackSizes(
+      String branch,
+      BrandPackSizeCreationDetails brandPackSizeCreationDetails,
+      Consumer<ProductSummary> partialResultListener) {
 
     ModelConfiguration modelConfiguration = models.getModelConfiguration(branch);
 
@@ -439,7 +467,7 @@ public class BrandPackSizeService {
     assert concepts != null;
 
     NodeNameGenerator nameGenerator =
-        nameGenerationService.resolveNameGenerator(
+        nameGenerationService.resolveBulkNameGenerator(
             branch,
             () ->
                 concepts.values().stream()
@@ -522,7 +550,10 @@ public class BrandPackSizeService {
     }
 
     // get the CTPP, TPP, MPP and TPUU concepts and generate new concepts one per brand/pack
-    // combination
+    // combination - node generation runs on the bulk calculation scheduler rather than the shared
+    // @Async pool so large requests queue within their own job instead of exhausting it
+    BulkCalculationScheduler.Job job =
+        bulkCalculationScheduler.startJob(brandPackSizeCreationDetails.getProductId());
     Map<Pair<String, ModelLevelType>, Set<CompletableFuture<Node>>> brandedProductFutureMap =
         new HashMap<>();
     // IS_A relationships pointing at these are stripped when cloning so the orchestration
@@ -545,6 +576,7 @@ public class BrandPackSizeService {
                         k -> Collections.synchronizedSet(new HashSet<>()))
                     .add(
                         createNewBrandedProductNode(
+                                job,
                                 branch,
                                 concepts.get(node.getConceptId()),
                                 brand,
@@ -586,6 +618,7 @@ public class BrandPackSizeService {
                         k -> Collections.synchronizedSet(new HashSet<>()))
                     .add(
                         createNewGenericPackageNode(
+                                job,
                                 branch,
                                 packSize.getPackSize(),
                                 concepts.get(node.getConceptId()),
@@ -644,16 +677,18 @@ public class BrandPackSizeService {
                     + " and pack size "
                     + packSize);
           }
-          final Node newBrandedProductLeafNode =
+          // the branded package nodes depend on the new branded product, so they're chained onto
+          // it rather than joined here - this loop only builds the task graph
+          final CompletableFuture<Node> newBrandedProductLeafNodeFuture =
               newBrand
                   ? getBrandedProductNode(
                       brandedProductFutureMap, brand, leafBrandedProductNode.getModelLevel())
-                  : leafBrandedProductNode;
-          final Node newGenericPackageLeafNode =
+                  : CompletableFuture.completedFuture(leafBrandedProductNode);
+          final CompletableFuture<Node> newGenericPackageLeafNodeFuture =
               newPackSize
                   ? getGenericPackageNode(
                       genericPackageFutureMap, packSize.getPackSize(), modelConfiguration)
-                  : leafUnbrandedPackageNode;
+                  : CompletableFuture.completedFuture(leafUnbrandedPackageNode);
 
           Set<NonDefiningBase> unionOfBrandAndPackNonDefiningProperties =
               new HashSet<>(packSize.getNonDefiningProperties());
@@ -668,73 +703,94 @@ public class BrandPackSizeService {
                 }
                 newBrandedPackageNodeFutures.put(
                     type,
-                    createNewBrandedPackageNode(
-                        branch,
-                        packSize.getPackSize(),
-                        concepts.get(node.getConceptId()),
-                        brand,
-                        newBrandedProductLeafNode,
-                        atomicCache,
-                        unionOfBrandAndPackNonDefiningProperties,
-                        isDevice,
-                        modelConfiguration.getLevelOfType(type),
-                        nameGenerator));
+                    newBrandedProductLeafNodeFuture.thenCompose(
+                        newBrandedProductLeafNode ->
+                            createNewBrandedPackageNode(
+                                job,
+                                branch,
+                                packSize.getPackSize(),
+                                concepts.get(node.getConceptId()),
+                                brand,
+                                newBrandedProductLeafNode,
+                                atomicCache,
+                                unionOfBrandAndPackNonDefiningProperties,
+                                isDevice,
+                                modelConfiguration.getLevelOfType(type),
+                                nameGenerator)));
               });
 
+          List<CompletableFuture<Node>> dependencies =
+              new ArrayList<>(newBrandedPackageNodeFutures.values());
+          dependencies.add(newGenericPackageLeafNodeFuture);
+
           productSummaryFutures.add(
-              CompletableFuture.allOf(
-                      newBrandedPackageNodeFutures
-                          .values()
-                          .toArray(new CompletableFuture[newBrandedPackageNodeFutures.size()]))
+              CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0]))
                   .thenApply(
                       v -> {
-                        if (log.isLoggable(Level.FINE)) {
-                          log.fine(
-                              "Created product summary for brand "
-                                  + brand.getConceptId()
-                                  + " and pack size "
-                                  + packSize
-                                  + " new TPUU node "
-                                  + (newBrandedProductLeafNode != null
-                                      && newBrandedProductLeafNode.isNewConcept())
-                                  + " new MPP node "
-                                  + (newGenericPackageLeafNode != null
-                                      && newGenericPackageLeafNode.isNewConcept())
-                                  + " new branded package nodes "
-                                  + newBrandedPackageNodeFutures.entrySet().stream()
-                                      .map(
-                                          e ->
-                                              "new "
-                                                  + e.getKey()
-                                                  + " node "
-                                                  + e.getValue().join().getConceptId())
-                                      .collect(Collectors.joining(", ")));
-
-                          log.fine("Adding edges and nodes");
+                        // merges are serialised: new branded product nodes are shared between
+                        // combinations and have parents added here, and the listener must not
+                        // observe a node while another combination is still modifying it
+                        synchronized (productSummary) {
+                          final Node newBrandedProductLeafNode =
+                              newBrandedProductLeafNodeFuture.join();
+                          final Node newGenericPackageLeafNode =
+                              newGenericPackageLeafNodeFuture.join();
+                          if (log.isLoggable(Level.FINE)) {
+                            log.fine(
+                                "Created product summary for brand "
+                                    + brand.getConceptId()
+                                    + " and pack size "
+                                    + packSize
+                                    + " new TPUU node "
+                                    + (newBrandedProductLeafNode != null
+                                        && newBrandedProductLeafNode.isNewConcept())
+                                    + " new MPP node "
+                                    + (newGenericPackageLeafNode != null
+                                        && newGenericPackageLeafNode.isNewConcept())
+                                    + " new branded package nodes "
+                                    + newBrandedPackageNodeFutures.entrySet().stream()
+                                        .map(
+                                            e ->
+                                                "new "
+                                                    + e.getKey()
+                                                    + " node "
+                                                    + e.getValue().join().getConceptId())
+                                        .collect(Collectors.joining(", ")));
+
+                            log.fine("Adding edges and nodes");
+                          }
+
+                          addEdgesAndNodes(
+                              productSummary,
+                              brand,
+                              newBrandedProductLeafNode,
+                              newGenericPackageLeafNode,
+                              newBrandedPackageNodeFutures,
+                              brandedProductFutureMap,
+                              leafUnbrandedProductNode,
+                              modelConfiguration);
+
+                          Node subject =
+                              newBrandedPackageNodeFutures
+                                  .get(
+                                      modelConfiguration
+                                          .getLeafPackageModelLevel()
+                                          .getModelLevelType())
+                                  .join();
+
+                          log.info(
+                              "adding subject " + subject.getConceptId() + " to product summary");
+                          productSummary.addSubject(subject);
+                          try {
+                            partialResultListener.accept(productSummary.subgraph(subject));
+                          } catch (RuntimeException e) {
+                            // the listener can no longer take results, e.g. the client streaming
+                            // them has gone, so there is no point calculating the rest
+                            job.cancel();
+                            throw e;
+                          }
                         }
 
-                        addEdgesAndNodes(
-                            productSummary,
-                            brand,
-                            newBrandedProductLeafNode,
-                            newGenericPackageLeafNode,
-                            newBrandedPackageNodeFutures,
-                            brandedProductFutureMap,
-                            leafUnbrandedProductNode,
-                            modelConfiguration);
-
-                        Node subject =
-                            newBrandedPackageNodeFutures
-                                .get(
-                                    modelConfiguration
-                                        .getLeafPackageModelLevel()
-                                        .getModelLevelType())
-                                .join();
-
-                        log.info(
-                            "adding subject " + subject.getConceptId() + " to product summary");
-                        productSummary.addSubject(subject);
-
                         return productSummary;
                       }));
         } else {
@@ -765,6 +821,7 @@ public class BrandPackSizeService {
   }
 
   private CompletableFuture<Node> createNewBrandedPackageNode(
+      BulkCalculationScheduler.Job job,
       String branch,
       BigDecimal packSize,
       SnowstormConcept existingConcept,
@@ -789,33 +846,44 @@ public class BrandPackSizeService {
     String semanticTag =
         isDevice ? modelLevel.getDeviceSemanticTag() : modelLevel.getMedicineSemanticTag();
 
-    return nodeGeneratorService
-        .generateNodeAsync(
-            branch,
-            atomicCache,
-            newCtppRelationships,
-            Set.of(modelLevel.getReferenceSetIdentifier()),
-            modelLevel,
-            isDevice ? modelLevel.getDrugDeviceSemanticTag() : modelLevel.getMedicineSemanticTag(),
-            calculateReferenceSetMembers(
-                properties, models.getModelConfiguration(branch), modelLevel.getModelLevelType()),
-            calculateNonDefiningRelationships(
-                models.getModelConfiguration(branch), properties, modelLevel.getModelLevelType()),
-            Set.of(),
-            properties,
-            false,
-            false,
-            true,
-            true,
-            false)
-        .thenApply(
-            n -> {
-              nameGenerator.generate(atomicCache, semanticTag, n, modelConfiguration, List.of());
+    return job.submit(
+            () -> {
+              Node n =
+                  nodeGeneratorService.generateNode(
+                      branch,
+                      atomicCache,
+                      newCtppRelationships,
+                      Set.of(modelLevel.getReferenceSetIdentifier()),
+                      modelLevel,
+                      isDevice
+                          ? modelLevel.getDrugDeviceSemanticTag()
+                          : modelLevel.getMedicineSemanticTag(),
+                      calculateReferenceSetMembers(
+                          properties,
+                          models.getModelConfiguration(branch),
+                          modelLevel.getModelLevelType()),
+                      calculateNonDefiningRelationships(
+                          models.getModelConfiguration(branch),
+                          properties,
+                          modelLevel.getModelLevelType()),
+                      Set.of(),
+                      properties,
+                      false,
+                      false,
+                      true,
+                      true,
+                      false);
               return n;
-            });
+            })
+        .thenCompose(
+            n ->
+                nameGenerator
+                    .generateAsync(atomicCache, semanticTag, n, modelConfiguration, List.of())
+                    .thenApply(v -> n));
   }
 
   private CompletableFuture<Node> createNewGenericPackageNode(
+      BulkCalculationScheduler.Job job,
       String branch,
       BigDecimal packSize,
       SnowstormConcept mppConcept,
@@ -868,30 +936,40 @@ public class BrandPackSizeService {
     String semanticTag =
         isDevice ? modelLevel.getDrugDeviceSemanticTag() : modelLevel.getMedicineSemanticTag();
 
-    return nodeGeneratorService
-        .generateNodeAsync(
-            branch,
-            atomicCache,
-            relationships,
-            Set.of(modelLevel.getReferenceSetIdentifier()),
-            modelLevel,
-            isDevice ? modelLevel.getDrugDeviceSemanticTag() : modelLevel.getMedicineSemanticTag(),
-            calculateReferenceSetMembers(
-                properties, models.getModelConfiguration(branch), modelLevel.getModelLevelType()),
-            calculateNonDefiningRelationships(
-                models.getModelConfiguration(branch), properties, modelLevel.getModelLevelType()),
-            Set.of(),
-            properties,
-            false,
-            false,
-            true,
-            true,
-            false)
-        .thenApply(
-            n -> {
-              nameGenerator.generate(atomicCache, semanticTag, n, modelConfiguration, List.of());
+    return job.submit(
+            () -> {
+              Node n =
+                  nodeGeneratorService.generateNode(
+                      branch,
+                      atomicCache,
+                      relationships,
+                      Set.of(modelLevel.getReferenceSetIdentifier()),
+                      modelLevel,
+                      isDevice
+                          ? modelLevel.getDrugDeviceSemanticTag()
+                          : modelLevel.getMedicineSemanticTag(),
+                      calculateReferenceSetMembers(
+                          properties,
+                          models.getModelConfiguration(branch),
+                          modelLevel.getModelLevelType()),
+                      calculateNonDefiningRelationships(
+                          models.getModelConfiguration(branch),
+                          properties,
+                          modelLevel.getModelLevelType()),
+                      Set.of(),
+                      properties,
+                      false,
+                      false,
+                      true,
+                      true,
+                      false);
               return n;
-            });
+            })
+        .thenCompose(
+            n ->
+                nameGenerator
+                    .generateAsync(atomicCache, semanticTag, n, modelConfiguration, List.of())
+                    .thenApply(v -> n));
   }
 
   /**
@@ -947,6 +1025,7 @@ public class BrandPackSizeService {
   }
 
   private CompletableFuture<Node> createNewBrandedProductNode(
+      BulkCalculationScheduler.Job job,
       String branch,
       SnowstormConcept leafProductConcept,
       SnowstormConceptMini brand,
@@ -982,30 +1061,37 @@ public class BrandPackSizeService {
     String semanticTag =
         isDevice ? modelLevel.getDrugDeviceSemanticTag() : modelLevel.getMedicineSemanticTag();
 
-    return nodeGeneratorService
-        .generateNodeAsync(
-            branch,
-            atomicCache,
-            relationships,
-            Set.of(modelLevel.getReferenceSetIdentifier()),
-            modelLevel,
-            isDevice ? modelLevel.getDrugDeviceSemanticTag() : modelLevel.getMedicineSemanticTag(),
-            calculateReferenceSetMembers(
-                properties, models.getModelConfiguration(branch), modelLevel.getModelLevelType()),
-            calculateNonDefiningRelationships(
-                models.getModelConfiguration(branch), properties, modelLevel.getModelLevelType()),
-            Set.of(),
-            properties,
-            false,
-            false,
-            true,
-            DEFINED
-                .getValue()
-                .equals(
-                    SnowstormDtoUtil.getSingleAxiom(leafProductConcept).getDefinitionStatusId()),
-            false)
-        .thenApply(
-            n -> {
+    return job.submit(
+            () -> {
+              Node n =
+                  nodeGeneratorService.generateNode(
+                      branch,
+                      atomicCache,
+                      relationships,
+                      Set.of(modelLevel.getReferenceSetIdentifier()),
+                      modelLevel,
+                      isDevice
+                          ? modelLevel.getDrugDeviceSemanticTag()
+                          : modelLevel.getMedicineSemanticTag(),
+                      calculateReferenceSetMembers(
+                          properties,
+                          models.getModelConfiguration(branch),
+                          modelLevel.getModelLevelType()),
+                      calculateNonDefiningRelationships(
+                          models.getModelConfiguration(branch),
+                          properties,
+                          modelLevel.getModelLevelType()),
+                      Set.of(),
+                      properties,
+                      false,
+                      false,
+                      true,
+                      DEFINED
+                          .getValue()
+                          .equals(
+                              SnowstormDtoUtil.getSingleAxiom(leafProductConcept)
+                                  .getDefinitionStatusId()),
+                      false);
               if (modelConfiguration.isNameGeneratorSupportsStrengthFormat()
                   && n.isNewConcept()
                   && modelLevelType.equals(
@@ -1021,9 +1107,13 @@ public class BrandPackSizeService {
                   && !brandedProductName.isBlank()) {
                 n.getNewConceptDetails().setBrandedProductName(brandedProductName);
               }
-              nameGenerator.generate(atomicCache, semanticTag, n, modelConfiguration, List.of());
               return n;
-            });
+            })
+        .thenCompose(
+            n ->
+                nameGenerator
+                    .generateAsync(atomicCache, semanticTag, n, modelConfiguration, List.of())
+                    .thenApply(v -> n));
   }
 
   /**
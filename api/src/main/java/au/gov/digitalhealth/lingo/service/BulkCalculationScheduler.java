@@ -0,0 +1,225 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dedicated scheduler for bulk product calculations (e.g. one new node per brand/pack size
+ * combination).
+ *
+ * <p>Bulk calculations used to fan out through the shared {@code @Async} executor, whose bounded
+ * queue is sized for interactive work; a single request with dozens of brands and pack sizes could
+ * fill it and push the overflow onto caller-runs or rejection. Work submitted here instead runs on
+ * the separate {@code bulkCalculationExecutor}, so bulk requests never compete with interactive
+ * {@code @Async} calls for queue slots. Its threads are fixed in number and each task has one to
+ * itself, so tasks blocked on Snowstorm or the name generator cannot starve the rest.
+ *
+ * <p>Each request opens a {@link Job}. A job queues its tasks locally (unbounded, so nothing is
+ * rejected) and only releases its fair share of the pool's parallelism at a time - the configured
+ * parallelism divided by the number of active jobs, capped at {@code max-in-flight-per-job}. A job
+ * counts as active while it has queued or running tasks, so there is nothing to close. Two users
+ * running bulk calculations at the same time therefore progress side by side rather than one
+ * waiting for the other's whole backlog to drain.
+ *
+ * <p>Tasks must not block waiting on other tasks of the same job; express dependencies by composing
+ * the returned futures instead (e.g. {@code thenCompose(n -> job.submit(...))}).
+ */
+@Component
+@Log
+public class BulkCalculationScheduler {
+
+  static final String METRIC_PREFIX = "snomio.bulk.calculation";
+
+  private final Executor executor;
+  private final int parallelism;
+  private final int maxInFlightPerJob;
+  private final Set<Job> activeJobs = ConcurrentHashMap.newKeySet();
+  private final MeterRegistry meterRegistry;
+  private final Timer taskTimer;
+
+  public BulkCalculationScheduler(
+      @Value("${snomio.bulk-calculation.parallelism:16}") int parallelism,
+      @Value("${snomio.bulk-calculation.max-in-flight-per-job:8}") int maxInFlightPerJob,
+      @Qualifier("bulkCalculationExecutor") Executor executor,
+      MeterRegistry meterRegistry) {
+    this.parallelism = Math.max(1, parallelism);
+    this.maxInFlightPerJob = Math.max(1, maxInFlightPerJob);
+    this.executor = executor;
+    this.meterRegistry = meterRegistry;
+
+    Gauge.builder(METRIC_PREFIX + ".jobs.active", activeJobs, Set::size)
+        .description("Bulk calculation jobs currently in progress")
+        .register(meterRegistry);
+    Gauge.builder(
+            METRIC_PREFIX + ".tasks.queued",
+            activeJobs,
+            jobs -> jobs.stream().mapToInt(j -> j.pending.size()).sum())
+        .description("Bulk calculation tasks waiting for their job's share of the pool")
+        .register(meterRegistry);
+    Gauge.builder(
+            METRIC_PREFIX + ".tasks.running",
+            activeJobs,
+            jobs -> jobs.stream().mapToInt(j -> j.running.get()).sum())
+        .description("Bulk calculation tasks released to the pool")
+        .register(meterRegistry);
+    this.taskTimer =
+        Timer.builder(METRIC_PREFIX + ".task")
+            .description("Execution time of a single bulk calculation task")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Opens a new job for one bulk calculation request.
+   *
+   * @param name a short description used in logs, e.g. the product being extended
+   */
+  public Job startJob(String name) {
+    return new Job(name);
+  }
+
+  int fairShare() {
+    return Math.max(1, Math.min(maxInFlightPerJob, parallelism / Math.max(1, activeJobs.size())));
+  }
+
+  /** The task graph of a single bulk calculation request. */
+  public class Job {
+
+    private final String name;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger submitted = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile boolean cancelled;
+
+    private Job(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Queues a unit of work on this job. The executor runs the work with the request and security
+     * context of the thread that releases it, which belongs to the same request.
+     *
+     * @return a future completed with the work's result, or exceptionally if it threw
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+      CompletableFuture<T> future = new CompletableFuture<>();
+      Runnable task =
+          () -> {
+            Timer.Sample taskSample = Timer.start(meterRegistry);
+            try {
+              if (cancelled) {
+                throw new CancellationException("Bulk calculation " + name + " was cancelled");
+              }
+              T result = work.get();
+              completed.incrementAndGet();
+              future.complete(result);
+            } catch (Throwable e) {
+              failed.incrementAndGet();
+              future.completeExceptionally(e);
+            } finally {
+              taskSample.stop(taskTimer);
+              running.decrementAndGet();
+              dispatch();
+              updateActive();
+            }
+          };
+      submitted.incrementAndGet();
+      pending.add(task);
+      updateActive();
+      dispatch();
+      return future;
+    }
+
+    /**
+     * Stops the job's remaining work: tasks not yet started fail with a {@link
+     * CancellationException} instead of running. Tasks already running are left to finish.
+     */
+    public void cancel() {
+      cancelled = true;
+    }
+
+    /**
+     * Every change to the queued/running state is followed by a call to this method, and calls are
+     * serialised on the job, so the last call always sees the final state.
+     */
+    private synchronized void updateActive() {
+      if (pending.isEmpty() && running.get() == 0) {
+        if (activeJobs.remove(this)) {
+          log.fine(
+              () ->
+                  "Bulk calculation "
+                      + name
+                      + " drained after "
+                      + completed.get()
+                      + " of "
+                      + submitted.get()
+                      + " tasks ("
+                      + failed.get()
+                      + " failed)");
+        }
+      } else {
+        activeJobs.add(this);
+      }
+    }
+
+    private void dispatch() {
+      int limit = fairShare();
+      while (!pending.isEmpty()) {
+        int current = running.get();
+        if (current >= limit) {
+          return;
+        }
+        if (running.compareAndSet(current, current + 1)) {
+          Runnable next = pending.poll();
+          if (next == null) {
+            running.decrementAndGet();
+            return;
+          }
+          executor.execute(next);
+        }
+      }
+    }
+
+    public int getSubmitted() {
+      return submitted.get();
+    }
+
+    public int getCompleted() {
+      return completed.get();
+    }
+
+    public int getFailed() {
+      return failed.get();
+    }
+  }
+}
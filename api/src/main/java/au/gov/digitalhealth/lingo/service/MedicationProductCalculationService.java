@@ -146,6 +146,7 @@ public class MedicationProductCalculationService
   NodeGeneratorService nodeGeneratorService;
   Models models;
   ProductSummaryService productSummaryService;
+  ProductCalculationResultCache productCalculationResultCache;
   MedicationProductCalculationService self;
 
   @Value("${snomio.decimal-scale}")
@@ -162,6 +163,7 @@ public class MedicationProductCalculationService
       Models models,
       Map<String, MedicationDetailsValidator> medicationDetailsValidatorByQualifier,
       ProductSummaryService productSummaryService,
+      ProductCalculationResultCache productCalculationResultCache,
       @Lazy MedicationProductCalculationService self,
       FhirClient fhirClient) {
     this.snowstormClient = snowstormClient;
@@ -173,6 +175,7 @@ public class MedicationProductCalculationService
     this.models = models;
     this.medicationDetailsValidatorByQualifier = medicationDetailsValidatorByQualifier;
     this.productSummaryService = productSummaryService;
+    this.productCalculationResultCache = productCalculationResultCache;
     this.self = self;
     this.fhirClient = fhirClient;
   }
@@ -365,14 +368,17 @@ public class MedicationProductCalculationService
   public CompletableFuture<ProductSummary> calculateProductFromAtomicDataAsync(
       String branch, @Valid PackageDetails<@Valid MedicationProductDetails> packageDetails)
       throws ExecutionException, InterruptedException {
-    return CompletableFuture.completedFuture(
-        calculateProductFromAtomicData(branch, packageDetails));
+    // used by product updates, which change the nodes they get back, so nothing is reused
+    return CompletableFuture.completedFuture(calculateUncached(branch, packageDetails, false));
   }
 
   /**
    * Calculates the existing and new products required to create a product based on the product
    * details.
    *
+   * <p>Results are cached by {@link ProductCalculationResultCache}, so repeating a calculation for
+   * the same details on an unchanged branch returns a copy of the earlier result.
+   *
    * @param branch branch to lookup concepts in
    * @param packageDetails details of the product to create
    * @return ProductSummary representing the existing and new concepts required to create this
@@ -381,6 +387,18 @@ public class MedicationProductCalculationService
   public ProductSummary calculateProductFromAtomicData(
       String branch, @Valid PackageDetails<@Valid MedicationProductDetails> packageDetails)
       throws ExecutionException, InterruptedException {
+    return productCalculationResultCache.getOrCalculate(
+        branch,
+        packageDetails,
+        models.getModelConfiguration(branch),
+        () -> calculateUncached(branch, packageDetails, true));
+  }
+
+  private ProductSummary calculateUncached(
+      String branch,
+      PackageDetails<MedicationProductDetails> packageDetails,
+      boolean reuseContainedProducts)
+      throws ExecutionException, InterruptedException {
     // todo - this is a work around because the UI doesn't know which package to put the selected
     // identifiers in, so it puts them at the top level. They need to be cascaded down to the lower
     // level packages. It is possible this isn't enough if there are different packages with
@@ -396,7 +414,8 @@ public class MedicationProductCalculationService
             packageDetails.getIdPtMap(),
             AmtConstants.values(),
             SnomedConstants.values(),
-            NmpcConstants.values()));
+            NmpcConstants.values()),
+        reuseContainedProducts);
   }
 
   @Override
@@ -414,6 +433,8 @@ public class MedicationProductCalculationService
    * @param branch branch to lookup concepts in
    * @param packageDetails details of the product to create
    * @param atomicCache cache of existing concepts and their details to build for name generation
+   * @param reuseContainedProducts whether contained products may be copies of ones calculated
+   *     earlier, from the {@link ProductCalculationResultCache}
    * @return ProductSummary representing the existing and new concepts required to create this
    *     product
    * @throws ExecutionException
@@ -422,7 +443,8 @@ public class MedicationProductCalculationService
   private ProductSummary calculateCreatePackage(
       String branch,
       PackageDetails<MedicationProductDetails> packageDetails,
-      AtomicCache atomicCache)
+      AtomicCache atomicCache,
+      boolean reuseContainedProducts)
       throws ExecutionException, InterruptedException {
 
     ModelConfiguration modelConfiguration = models.getModelConfiguration(branch);
@@ -437,10 +459,10 @@ public class MedicationProductCalculationService
     validateInputData(branch, packageDetails, modelConfiguration).throwIfInvalid();
 
     final Map<PackageQuantity<MedicationProductDetails>, ProductSummary> innerPackageSummaries =
-        calculateContainedPackages(branch, packageDetails, atomicCache);
+        calculateContainedPackages(branch, packageDetails, atomicCache, reuseContainedProducts);
 
     final Map<ProductQuantity<MedicationProductDetails>, ProductSummary> innnerProductSummaries =
-        calculateContainedProducts(branch, packageDetails, atomicCache);
+        calculateContainedProducts(branch, packageDetails, atomicCache, reuseContainedProducts);
 
     calculateOuterPackageNodes(
         branch,
@@ -597,6 +619,7 @@ public class MedicationProductCalculationService
    * @param branch
    * @param packageDetails
    * @param atomicCache
+   * @param reuseContainedProducts whether a product may be a copy of one calculated earlier
    * @return A map of the contained products and their resultant ProductSummary to add to the
    *     overall ProductSummary
    * @throws ExecutionException
@@ -605,18 +628,36 @@ public class MedicationProductCalculationService
   private Map<ProductQuantity<MedicationProductDetails>, ProductSummary> calculateContainedProducts(
       String branch,
       PackageDetails<MedicationProductDetails> packageDetails,
-      AtomicCache atomicCache)
+      AtomicCache atomicCache,
+      boolean reuseContainedProducts)
       throws ExecutionException, InterruptedException {
     Map<ProductQuantity<MedicationProductDetails>, ProductSummary> innnerProductSummaries =
         new HashMap<>();
     for (ProductQuantity<MedicationProductDetails> productQuantity :
         packageDetails.getContainedProducts()) {
+      if (!reuseContainedProducts) {
+        innnerProductSummaries.put(
+            productQuantity,
+            createProduct(
+                branch,
+                productQuantity.getProductDetails(),
+                atomicCache,
+                packageDetails.getSelectedConceptIdentifiers()));
+        continue;
+      }
       ProductSummary innerProductSummary =
-          createProduct(
+          productCalculationResultCache.getOrCalculateProduct(
               branch,
               productQuantity.getProductDetails(),
+              packageDetails.getSelectedConceptIdentifiers(),
+              models.getModelConfiguration(branch),
               atomicCache,
-              packageDetails.getSelectedConceptIdentifiers());
+              () ->
+                  createProduct(
+                      branch,
+                      productQuantity.getProductDetails(),
+                      atomicCache,
+                      packageDetails.getSelectedConceptIdentifiers()));
       innnerProductSummaries.put(productQuantity, innerProductSummary);
     }
     return innnerProductSummaries;
@@ -628,6 +669,8 @@ public class MedicationProductCalculationService
    * @param branch
    * @param packageDetails
    * @param atomicCache
+   * @param reuseContainedProducts whether the packages' products may be copies of ones calculated
+   *     earlier
    * @return A map of the contained packages and their resultant ProductSummary to add to the outer
    *     ProductSummary
    * @throws ExecutionException
@@ -636,14 +679,16 @@ public class MedicationProductCalculationService
   private Map<PackageQuantity<MedicationProductDetails>, ProductSummary> calculateContainedPackages(
       String branch,
       PackageDetails<MedicationProductDetails> packageDetails,
-      AtomicCache atomicCache)
+      AtomicCache atomicCache,
+      boolean reuseContainedProducts)
       throws ExecutionException, InterruptedException {
     Map<PackageQuantity<MedicationProductDetails>, ProductSummary> innerPackageSummaries =
         new HashMap<>();
     for (PackageQuantity<MedicationProductDetails> packageQuantity :
         packageDetails.getContainedPackages()) {
       ProductSummary innerPackageSummary =
-          calculateCreatePackage(branch, packageQuantity.getPackageDetails(), atomicCache);
+          calculateCreatePackage(
+              branch, packageQuantity.getPackageDetails(), atomicCache, reuseContainedProducts);
       innerPackageSummaries.put(packageQuantity, innerPackageSummary);
     }
     return innerPackageSummaries;
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service;
+
+import au.gov.digitalhealth.lingo.configuration.model.ModelConfiguration;
+import au.gov.digitalhealth.lingo.exception.LingoProblem;
+import au.gov.digitalhealth.lingo.product.Node;
+import au.gov.digitalhealth.lingo.product.ProductSummary;
+import au.gov.digitalhealth.lingo.product.details.PackageDetails;
+import au.gov.digitalhealth.lingo.product.details.ProductDetails;
+import au.gov.digitalhealth.lingo.util.CacheConstants;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Caches calculated {@link ProductSummary} results so that repeated {@code $calculate} requests for
+ * the same product details are answered without re-running the calculation.
+ *
+ * <p>The key is a SHA-256 digest of a canonical form of the {@link PackageDetails} (object fields
+ * sorted by name, arrays treated as unordered), combined with the branch, the branch head timestamp
+ * and a fingerprint of the branch's {@link ModelConfiguration}. Any commit to the branch moves the
+ * head timestamp and so naturally invalidates every entry for that branch.
+ *
+ * <p>Results are stored as serialised JSON and deserialised on every read, so each caller gets its
+ * own deep copy and later changes to a returned summary can never leak into the cache.
+ *
+ * <p>The product levels of each contained product (MP, MPUU, TPUU and their equivalents) are also
+ * cached on their own, keyed by that product's details and the selected concept identifiers. When
+ * only part of a package changes, for example a pack size or one of several contained products, the
+ * unchanged products are reused and only the changed products and the package levels above them are
+ * recalculated.
+ *
+ * <p>The branch head timestamp comes from the request scoped {@link
+ * RequestScopedBranchTimestampService}; outside a request the cache is bypassed.
+ */
+@Component
+@Log
+public class ProductCalculationResultCache {
+
+  static final String HIT_METRIC = "snomio.product.calculation.cache.hit";
+  static final String MISS_METRIC = "snomio.product.calculation.cache.miss";
+  static final String PRODUCT_LEVEL_HIT_METRIC = "snomio.product.calculation.cache.product.hit";
+  static final String PRODUCT_LEVEL_MISS_METRIC = "snomio.product.calculation.cache.product.miss";
+
+  private final CacheManager cacheManager;
+  private final ObjectMapper objectMapper;
+  private final ObjectProvider<RequestScopedBranchTimestampService> branchTimestampService;
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter productLevelHits;
+  private final Counter productLevelMisses;
+
+  public ProductCalculationResultCache(
+      CacheManager cacheManager,
+      ObjectMapper objectMapper,
+      ObjectProvider<RequestScopedBranchTimestampService> branchTimestampService,
+      MeterRegistry meterRegistry) {
+    this.cacheManager = cacheManager;
+    this.objectMapper = objectMapper;
+    this.branchTimestampService = branchTimestampService;
+    this.hits = meterRegistry.counter(HIT_METRIC);
+    this.misses = meterRegistry.counter(MISS_METRIC);
+    this.productLevelHits = meterRegistry.counter(PRODUCT_LEVEL_HIT_METRIC);
+    this.productLevelMisses = meterRegistry.counter(PRODUCT_LEVEL_MISS_METRIC);
+  }
+
+  /**
+   * Returns a copy of the cached result for these details if there is one, otherwise runs the
+   * calculation and caches its result. The key is computed before the calculation runs, as the
+   * calculation may modify the package details it is given.
+   *
+   * @param branch branch the calculation is run against
+   * @param packageDetails details being calculated
+   * @param modelConfiguration model configuration of the branch
+   * @param calculation the calculation to run on a cache miss
+   * @return the calculated, or a copy of the cached, product summary
+   */
+  public ProductSummary getOrCalculate(
+      String branch,
+      PackageDetails<?> packageDetails,
+      ModelConfiguration modelConfiguration,
+      Calculation calculation)
+      throws ExecutionException, InterruptedException {
+    Cache cache = cacheManager.getCache(CacheConstants.PRODUCT_CALCULATION_CACHE);
+    if (cache == null || RequestContextHolder.getRequestAttributes() == null) {
+      return calculation.calculate();
+    }
+
+    String key = key(branch, packageDetails, modelConfiguration);
+    byte[] cached = cache.get(key, byte[].class);
+    if (cached != null) {
+      hits.increment();
+      log.fine(() -> "Product calculation cache hit for " + key);
+      return read(cached);
+    }
+
+    misses.increment();
+    ProductSummary productSummary = calculation.calculate();
+    cache.put(key, write(productSummary));
+    return productSummary;
+  }
+
+  /**
+   * Returns the product level summary for one contained product, reusing an earlier calculation of
+   * the same product details if there is one.
+   *
+   * <p>A reused summary was calculated with a different {@link AtomicCache}, so the temporary ids
+   * of its new concepts are renumbered from {@code atomicCache} to keep them unique within the
+   * current calculation, and the names of its nodes are registered with {@code atomicCache} so the
+   * package levels can be named from them exactly as if the product had just been calculated.
+   *
+   * @param branch branch the calculation is run against
+   * @param productDetails details of the contained product
+   * @param selectedConceptIdentifiers concepts the user selected where there were several options
+   * @param modelConfiguration model configuration of the branch
+   * @param atomicCache the atomic cache of the calculation the product is part of
+   * @param calculation the product calculation to run on a cache miss
+   * @return the calculated, or a renumbered copy of the cached, product summary
+   */
+  public ProductSummary getOrCalculateProduct(
+      String branch,
+      ProductDetails productDetails,
+      Set<String> selectedConceptIdentifiers,
+      ModelConfiguration modelConfiguration,
+      AtomicCache atomicCache,
+      Calculation calculation)
+      throws ExecutionException, InterruptedException {
+    Cache cache = cacheManager.getCache(CacheConstants.PRODUCT_LEVEL_CALCULATION_CACHE);
+    if (cache == null || RequestContextHolder.getRequestAttributes() == null) {
+      return calculation.calculate();
+    }
+
+    String key =
+        key(
+            branch,
+            modelConfiguration,
+            digest(objectMapper.valueToTree(productDetails)),
+            digest(objectMapper.valueToTree(selectedConceptIdentifiers)));
+    byte[] cached = cache.get(key, byte[].class);
+    if (cached != null) {
+      productLevelHits.increment();
+      log.fine(() -> "Product level calculation cache hit for " + key);
+      return readRenumbered(cached, atomicCache);
+    }
+
+    productLevelMisses.increment();
+    ProductSummary productSummary = calculation.calculate();
+    cache.put(key, write(productSummary));
+    return productSummary;
+  }
+
+  String key(
+      String branch, PackageDetails<?> packageDetails, ModelConfiguration modelConfiguration) {
+    return key(branch, modelConfiguration, digest(objectMapper.valueToTree(packageDetails)));
+  }
+
+  private String key(String branch, ModelConfiguration modelConfiguration, byte[]... digests) {
+    Long timestamp = branchTimestampService.getObject().getBranchTimestamp(branch);
+    StringBuilder key =
+        new StringBuilder(branch)
+            .append('|')
+            .append(timestamp)
+            .append('|')
+            .append(Integer.toHexString(modelConfiguration.hashCode()));
+    for (byte[] digest : digests) {
+      key.append('|').append(HexFormat.of().formatHex(digest));
+    }
+    return key.toString();
+  }
+
+  /**
+   * Digests a JSON tree independently of object field order and array element order. Array order is
+   * ignored because most collections in the product details are sets whose serialised order is not
+   * stable, and the calculation does not depend on the order of contained products or packages.
+   */
+  static byte[] digest(JsonNode node) {
+    MessageDigest messageDigest = sha256();
+    if (node.isObject()) {
+      messageDigest.update((byte) '{');
+      List<String> fieldNames = new ArrayList<>();
+      node.fieldNames().forEachRemaining(fieldNames::add);
+      fieldNames.sort(null);
+      for (String fieldName : fieldNames) {
+        messageDigest.update(fieldName.getBytes(StandardCharsets.UTF_8));
+        messageDigest.update(digest(node.get(fieldName)));
+      }
+    } else if (node.isArray()) {
+      messageDigest.update((byte) '[');
+      List<byte[]> elements = new ArrayList<>();
+      for (Iterator<JsonNode> it = node.elements(); it.hasNext(); ) {
+        elements.add(digest(it.next()));
+      }
+      elements.sort(Arrays::compare);
+      elements.forEach(messageDigest::update);
+    } else {
+      messageDigest.update((byte) node.getNodeType().ordinal());
+      messageDigest.update(node.asText().getBytes(StandardCharsets.UTF_8));
+    }
+    return messageDigest.digest();
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private byte[] write(ProductSummary productSummary) {
+    try {
+      return objectMapper.writeValueAsBytes(productSummary);
+    } catch (IOException e) {
+      throw new LingoProblem("Failed to serialise product summary for caching", e);
+    }
+  }
+
+  private ProductSummary readRenumbered(byte[] cached, AtomicCache atomicCache) {
+    try {
+      ProductSummary productSummary =
+          TemporaryIdRenumbering.readRenumbered(
+              objectMapper, objectMapper.readTree(cached), atomicCache::getNextId);
+
+      for (Node node : productSummary.getNodes()) {
+        if (node.getNewConceptDetails() != null
+            || (node.getConcept().getFsn() != null && node.getConcept().getPt() != null)) {
+          atomicCache.addFsnAndPt(
+              node.getConceptId(), node.getFullySpecifiedName(), node.getPreferredTerm());
+        }
+      }
+      return productSummary;
+    } catch (IOException e) {
+      throw new LingoProblem("Failed to read cached product summary", e);
+    }
+  }
+
+  private ProductSummary read(byte[] cached) {
+    try {
+      return objectMapper.readValue(cached, ProductSummary.class);
+    } catch (IOException e) {
+      throw new LingoProblem("Failed to read cached product summary", e);
+    }
+  }
+
+  /** A product calculation that may be skipped when its result is already cached. */
+  @FunctionalInterface
+  public interface Calculation {
+    ProductSummary calculate() throws ExecutionException, InterruptedException;
+  }
+}
@@ -56,9 +56,11 @@ import au.gov.digitalhealth.lingo.product.Node;
 import au.gov.digitalhealth.lingo.product.OriginalNode;
 import au.gov.digitalhealth.lingo.product.PrimitiveConceptCreationRequest;
 import au.gov.digitalhealth.lingo.product.ProductCreateUpdateDetails;
+import au.gov.digitalhealth.lingo.product.ProductCreationDetails;
 import au.gov.digitalhealth.lingo.product.ProductSummary;
 import au.gov.digitalhealth.lingo.product.bulk.BrandPackSizeCreationDetails;
 import au.gov.digitalhealth.lingo.product.bulk.BulkProductAction;
+import au.gov.digitalhealth.lingo.product.bulk.BulkProductCreationDetails;
 import au.gov.digitalhealth.lingo.product.details.ProductDetails;
 import au.gov.digitalhealth.lingo.service.identifier.IdentifierSource;
 import au.gov.digitalhealth.lingo.service.namegenerator.NameGenerationService;
@@ -73,6 +75,8 @@ import au.gov.digitalhealth.tickets.service.ModifiedGeneratedNameService;
 import au.gov.digitalhealth.tickets.service.TicketServiceImpl;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.groups.Default;
@@ -81,12 +85,17 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 import lombok.extern.java.Log;
@@ -103,6 +112,8 @@ import reactor.core.publisher.Mono;
 @Validated({AuthoringValidation.class, Default.class})
 public class ProductCreationService {
 
+  static final String STAGE_METRIC = "snomio.product.creation.stage";
+
   private final BlobStorageService blobStorageService;
   private final TicketServiceImpl ticketServiceImpl;
   SnowstormClient snowstormClient;
@@ -119,6 +130,8 @@ public class ProductCreationService {
 
   ExternalReferenceToBlobStorage externalReferenceToBlobStorage;
 
+  MeterRegistry meterRegistry;
+
   @Value("${product-creation.delete-partial-save-on-create:true}")
   private boolean deletePartialSaveOnCreate;
 
@@ -135,7 +148,8 @@ public class ProductCreationService {
       Models models,
       ExternalReferenceToBlobStorage externalReferenceToBlobStorage,
       BlobStorageService blobStorageService,
-      TicketServiceImpl ticketServiceImpl) {
+      TicketServiceImpl ticketServiceImpl,
+      MeterRegistry meterRegistry) {
     this.snowstormClient = snowstormClient;
     this.nameGenerationService = nameGenerationService;
     this.ticketService = ticketService;
@@ -149,6 +163,27 @@ public class ProductCreationService {
     this.externalReferenceToBlobStorage = externalReferenceToBlobStorage;
     this.blobStorageService = blobStorageService;
     this.ticketServiceImpl = ticketServiceImpl;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * The concept whose existing refset members are compared against an edited node's new members.
+   * This is the concept id the node will carry once the concept batch has run, so the lookup can be
+   * started before the batch.
+   */
+  static String refsetMemberLookupId(Node node) {
+    return node.isConceptEdit() ? node.getOriginalNode().getConceptId() : node.getConceptId();
+  }
+
+  private static <T> T await(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    }
   }
 
   private static void updateAxiomIdentifierReferences(
@@ -470,20 +505,6 @@ public class ProductCreationService {
                     .equals(newRelationship.getConcreteValue())));
   }
 
-  private static boolean isMatchingRefsetTypeAndAdditionalProperties(
-      SnowstormReferenceSetMember existingMember,
-      SnowstormReferenceSetMemberViewComponent newMember) {
-    final boolean bothNullOrEmpty =
-        (newMember.getAdditionalFields() == null || newMember.getAdditionalFields().isEmpty())
-            && (existingMember.getAdditionalFields() == null
-                || existingMember.getAdditionalFields().isEmpty());
-    return newMember.getRefsetId() != null
-        && newMember.getRefsetId().equals(existingMember.getRefsetId())
-        && (bothNullOrEmpty
-            || Objects.equals(
-                newMember.getAdditionalFields(), existingMember.getAdditionalFields()));
-  }
-
   /**
    * Creates a product from the provided BrandPackSizeCreationDetails
    *
@@ -525,10 +546,7 @@ public class ProductCreationService {
 
     BidiMap<String, String> idMap = createAndUpdate(branch, productSummary, true);
 
-    if (productSummaryClone != null) {
-      modifiedGeneratedNameService.createAndSaveModifiedGeneratedNames(
-          productSummaryClone, branch, idMap);
-    }
+    saveModifiedGeneratedNames(branch, productSummaryClone, idMap);
 
     BulkProductActionDto dto =
         BulkProductActionDto.builder()
@@ -536,10 +554,14 @@ public class ProductCreationService {
             .details(creationDetails.getDetails())
             .build();
 
-    dto.setName(ticketService.getNewBulkProductActionName(ticket.getId(), dto));
-    creationDetails.setPartialSaveName(dto.getName());
-
-    updateTicket(creationDetails, ticket, dto);
+    timeStage(
+        "ticket",
+        () -> {
+          dto.setName(ticketService.getNewBulkProductActionName(ticket.getId(), dto));
+          creationDetails.setPartialSaveName(dto.getName());
+          updateTicket(creationDetails, ticket, dto);
+          return null;
+        });
     return productSummary;
   }
 
@@ -587,31 +609,191 @@ public class ProductCreationService {
     TicketDtoExtended ticket = ticketService.findTicket(productCreationDetails.getTicketId());
 
     ProductSummary productSummary = productCreationDetails.getProductSummary();
-    ProductSummary productSummaryClone = null;
+    ProductSummary productSummaryClone =
+        cloneProductSummary(productSummary, models.getModelConfiguration(branch));
+
+    BidiMap<String, String> idMap = createAndUpdate(branch, productSummary, createOnly);
+
+    saveModifiedGeneratedNames(branch, productSummaryClone, idMap);
+
+    timeStage(
+        "ticket",
+        () -> {
+          updateTicket(
+              ticket,
+              productCreationDetails.toProductDto(),
+              productCreationDetails.getTicketProductId(),
+              branch);
+          return null;
+        });
+    return productSummary;
+  }
+
+  /**
+   * Creates several products in one pass. The new concepts of all the products are deduplicated,
+   * given identifiers from a single reservation and written with one concept batch and one refset
+   * batch, then each product is recorded on its ticket.
+   *
+   * @param branch branch to write the changes to
+   * @param bulkCreationDetails the products to create
+   * @return a ProductSummary for each product with its new concepts, in the order requested
+   */
+  public List<ProductSummary> createProductsFromAtomicData(
+      String branch,
+      @Valid BulkProductCreationDetails<@Valid ? extends ProductDetails> bulkCreationDetails)
+      throws InterruptedException {
+
+    snowstormClient.throwIfBranchLocked(branch);
+
+    final ModelConfiguration modelConfiguration = models.getModelConfiguration(branch);
+    final List<? extends ProductCreationDetails<? extends ProductDetails>> products =
+        bulkCreationDetails.getProducts();
+
+    // validate the tickets exist
+    Map<Long, TicketDtoExtended> tickets = new HashMap<>();
+    for (ProductCreationDetails<?> product : products) {
+      tickets.computeIfAbsent(product.getTicketId(), ticketService::findTicket);
+    }
+
+    // Each calculation numbers its new concepts from -1, so every product is given its own range
+    // of temporary ids before the summaries are combined.
+    AtomicInteger nextTemporaryId = new AtomicInteger(-1);
+    List<ProductSummary> productSummaries = new ArrayList<>();
+    List<ProductSummary> productSummaryClones = new ArrayList<>();
+    List<String> subjectIds = new ArrayList<>();
+    List<Set<String>> temporaryIds = new ArrayList<>();
+    ProductSummary combined = new ProductSummary();
+    for (ProductCreationDetails<?> product : products) {
+      ProductSummary productSummary;
+      try {
+        productSummary =
+            TemporaryIdRenumbering.readRenumbered(
+                objectMapper,
+                objectMapper.valueToTree(product.getProductSummary()),
+                nextTemporaryId::getAndDecrement);
+      } catch (JsonProcessingException e) {
+        throw new LingoProblem("Failed to renumber product summary for bulk creation", e);
+      }
+      productSummaries.add(productSummary);
+      productSummaryClones.add(cloneProductSummary(productSummary, modelConfiguration));
+      subjectIds.add(productSummary.getSingleSubject().getConceptId());
+      temporaryIds.add(
+          productSummary.getNodes().stream()
+              .filter(Node::isNewConcept)
+              .map(Node::getConceptId)
+              .collect(Collectors.toSet()));
+      combined.addSummary(productSummary);
+      combined.getSubjects().addAll(productSummary.getSubjects());
+    }
+
+    // products calculated separately will often share concepts, e.g. the same MP or MPUU
+    final Map<String, String> replacedIds = combined.deduplicateNewNodes(modelConfiguration);
+
+    BidiMap<String, String> idMap = createAndUpdate(branch, combined, true);
+
+    List<ProductSummary> createdProducts = new ArrayList<>();
+    for (int i = 0; i < products.size(); i++) {
+      ProductCreationDetails<?> product = products.get(i);
+
+      BidiMap<String, String> productIdMap = new DualHashBidiMap<>();
+      for (String temporaryId : temporaryIds.get(i)) {
+        String allocatedId = idMap.get(replacedIds.getOrDefault(temporaryId, temporaryId));
+        if (allocatedId != null && !productIdMap.containsValue(allocatedId)) {
+          productIdMap.put(temporaryId, allocatedId);
+        }
+      }
+      saveModifiedGeneratedNames(branch, productSummaryClones.get(i), productIdMap);
+
+      String subjectId = subjectIds.get(i);
+      Node subject =
+          combined.getNode(
+              idMap.getOrDefault(replacedIds.getOrDefault(subjectId, subjectId), subjectId));
+      if (subject == null) {
+        throw new LingoProblem(
+            "Subject concept " + subjectId + " not found after bulk product creation");
+      }
+      ProductSummary createdProduct = combined.subgraph(subject);
+      createdProducts.add(createdProduct);
+
+      product.setProductSummary(createdProduct);
+      timeStage(
+          "ticket",
+          () -> {
+            updateTicket(
+                tickets.get(product.getTicketId()),
+                product.toProductDto(),
+                product.getTicketProductId(),
+                branch);
+            return null;
+          });
+    }
+    return createdProducts;
+  }
+
+  /**
+   * Copies a summary for recording modified generated names, which compares the generated names
+   * from before creation with the names the concepts end up with.
+   */
+  private ProductSummary cloneProductSummary(
+      ProductSummary productSummary, ModelConfiguration modelConfiguration) {
     try {
-      productSummaryClone =
+      ProductSummary productSummaryClone =
           objectMapper.readValue(
               objectMapper.writeValueAsString(productSummary), ProductSummary.class);
       // Re-derive externalConcept on the clone — Jackson drops it on input (READ_ONLY) so the
       // clone would otherwise see external concepts as internal. See createAndUpdate's call.
-      normaliseExternalConceptFlag(productSummaryClone, models.getModelConfiguration(branch));
+      normaliseExternalConceptFlag(productSummaryClone, modelConfiguration);
+      return productSummaryClone;
     } catch (JsonProcessingException jsonProcessingException) {
       log.severe("Could not clone product summary - potentially missed ModifiedGeneratedNames");
+      return null;
     }
+  }
 
-    BidiMap<String, String> idMap = createAndUpdate(branch, productSummary, createOnly);
-
+  private void saveModifiedGeneratedNames(
+      String branch, ProductSummary productSummaryClone, BidiMap<String, String> idMap)
+      throws InterruptedException {
     if (productSummaryClone != null) {
-      modifiedGeneratedNameService.createAndSaveModifiedGeneratedNames(
-          productSummaryClone, branch, idMap);
+      timeStage(
+          "generated-names",
+          () -> {
+            modifiedGeneratedNameService.createAndSaveModifiedGeneratedNames(
+                productSummaryClone, branch, idMap);
+            return null;
+          });
     }
+  }
 
-    updateTicket(
-        ticket,
-        productCreationDetails.toProductDto(),
-        productCreationDetails.getTicketProductId(),
-        branch);
-    return productSummary;
+  /**
+   * Runs one stage of product creation, recording its latency against {@value #STAGE_METRIC} tagged
+   * with the stage name.
+   */
+  private <T> T timeStage(String stage, Stage<T> work) throws InterruptedException {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    try {
+      return work.run();
+    } finally {
+      long nanos =
+          sample.stop(
+              Timer.builder(STAGE_METRIC)
+                  .description("Latency of a stage of product creation")
+                  .tag("stage", stage)
+                  .register(meterRegistry));
+      if (log.isLoggable(Level.FINE)) {
+        log.fine(
+            "Product creation stage "
+                + stage
+                + " took "
+                + TimeUnit.NANOSECONDS.toMillis(nanos)
+                + " ms");
+      }
+    }
+  }
+
+  /** A unit of work timed by {@link #timeStage}. */
+  @FunctionalInterface
+  private interface Stage<T> {
+    T run() throws InterruptedException;
   }
 
   public SnowstormConceptMini createPrimitiveConcept(
@@ -913,10 +1095,18 @@ public class ProductCreationService {
             referenceSetMembers.block(),
             "Reference set members search response should not be null even if there are no members");
 
+    Map<String, List<SnowstormReferenceSetMember>> referenceSetMembersByConcept =
+        referenceSetMemberList.stream()
+            .collect(Collectors.groupingBy(SnowstormReferenceSetMember::getReferencedComponentId));
+
     for (Node node : nodesWithPropertyUpdates.values()) {
       Set<SnowstormReferenceSetMemberViewComponent> newReferenceSetMembers =
           calculateReferenceSetMembers(
               node.getNonDefiningProperties(), modelConfiguration, node.getModelLevel());
+      newReferenceSetMembers.forEach(
+          newMember -> newMember.setReferencedComponentId(node.getConceptId()));
+      List<SnowstormReferenceSetMember> existingMembers =
+          referenceSetMembersByConcept.getOrDefault(node.getConceptId(), List.of());
 
       Set<String> inScopeReferenceSetIds = new HashSet<>();
       final ModelLevel modelLevel = modelConfiguration.getLevelOfType(node.getModelLevel());
@@ -931,34 +1121,18 @@ public class ProductCreationService {
       inScopeReferenceSetIds.add(modelLevel.getReferenceSetIdentifier());
 
       // determine which reference set members to delete
-      referenceSetMemberList.stream()
-          .filter(
-              r -> TRUE.equals(r.getActive()) && inScopeReferenceSetIds.contains(r.getRefsetId()))
-          .filter(
-              existingMember ->
-                  existingMember.getReferencedComponentId().equals(node.getConceptId())
-                      && newReferenceSetMembers.stream()
-                          .noneMatch(
-                              newMember ->
-                                  isMatchingRefsetTypeAndAdditionalProperties(
-                                      existingMember, newMember)))
-          .forEach(referenceSetMembershipToDelete::add);
+      referenceSetMembershipToDelete.addAll(
+          RefsetMemberDiff.activeMembersNotRequired(
+              existingMembers.stream()
+                  .filter(r -> inScopeReferenceSetIds.contains(r.getRefsetId()))
+                  .toList(),
+              newReferenceSetMembers));
 
       // determine which reference set members to add
+      RefsetMemberDiff existingMemberDiff = RefsetMemberDiff.of(existingMembers);
       newReferenceSetMembers.stream()
-          .filter(
-              newMember ->
-                  referenceSetMemberList.stream()
-                      .noneMatch(
-                          existingMember ->
-                              existingMember.getReferencedComponentId().equals(node.getConceptId())
-                                  && isMatchingRefsetTypeAndAdditionalProperties(
-                                      existingMember, newMember)))
-          .forEach(
-              newReferenceSetMember -> {
-                newReferenceSetMember.setReferencedComponentId(node.getConceptId());
-                referenceSetMembershipToAdd.add(newReferenceSetMember);
-              });
+          .filter(newMember -> !existingMemberDiff.exists(node.getConceptId(), newMember))
+          .forEach(referenceSetMembershipToAdd::add);
     }
     if (!conceptsToUpdate.isEmpty()) {
       log.fine(
@@ -1036,14 +1210,23 @@ public class ProductCreationService {
       throws InterruptedException {
     ModelConfiguration modelConfiguration = models.getModelConfiguration(branch);
 
+    // The Snowstorm reads below only depend on the original concepts, so they are started here and
+    // run while identifiers are reserved. They are subscribed on this thread because the IMS
+    // cookie filter needs the request's security context.
+    final CompletableFuture<Map<String, SnowstormConcept>> editAndRetireConcepts =
+        getExistingConceptsToEditAndRetire(branch, nodeCreateOrder).toFuture();
+    final CompletableFuture<Map<String, List<SnowstormReferenceSetMember>>>
+        editNodeExistingRefsetMembers =
+            getEditNodeExistingRefsetMembers(branch, nodeCreateOrder).toFuture();
+
     final Deque<String> preallocatedIdentifiers =
-        getPreallocatedIdentifiers(branch, nodeCreateOrder);
+        timeStage("identifiers", () -> getPreallocatedIdentifiers(branch, nodeCreateOrder));
 
     boolean bulkCreate = !preallocatedIdentifiers.isEmpty();
     log.fine("Preparing concepts for creation, bulk create is " + bulkCreate);
 
     final Map<String, SnowstormConcept> editAndRetireConceptMap =
-        getExistingConceptsToEditAndRetire(branch, nodeCreateOrder);
+        timeStage("existing-concepts", () -> await(editAndRetireConcepts));
 
     // Unreleased originals on a retire-and-replace dispatch cannot be PUT-inactivated — Snowstorm
     // rejects that and we get a 500 from the upstream call. Instead we DELETE them after the bulk
@@ -1168,7 +1351,8 @@ public class ProductCreationService {
 
     if (bulkCreate) {
       log.info("Creating " + concepts.size() + " concepts with preallocated identifiers");
-      createdConcepts = snowstormClient.createUpdateBulkConcepts(branch, concepts);
+      createdConcepts =
+          timeStage("concepts", () -> snowstormClient.createUpdateBulkConcepts(branch, concepts));
     } else {
       createdConcepts = concepts.stream().map(SnowstormDtoUtil::toSnowstormConceptMini).toList();
     }
@@ -1202,14 +1386,30 @@ public class ProductCreationService {
           node.setConcept(conceptMap.get(allocatedIdentifier));
         });
 
-    createandUpdateRefsetMemberships(branch, nodeCreateOrder);
+    timeStage(
+        "refsets",
+        () -> {
+          createandUpdateRefsetMemberships(
+              branch, nodeCreateOrder, await(editNodeExistingRefsetMembers));
+          return null;
+        });
 
     // Refset cleanup has now removed the in-scope refset memberships of all retired concepts —
     // including the unreleased ones we deferred from inactivation. Delete those concepts now;
-    // Snowstorm's concept-delete cascades descriptions, axioms and relationships.
-    for (String conceptId : unreleasedOriginalsToDelete) {
-      log.fine("Deleting unreleased original concept " + conceptId + " on branch " + branch);
-      snowstormClient.deleteConcept(branch, conceptId);
+    // Snowstorm's concept-delete cascades descriptions, axioms and relationships. The deletes are
+    // independent of each other so they are issued together.
+    if (!unreleasedOriginalsToDelete.isEmpty()) {
+      log.fine(
+          "Deleting unreleased original concepts "
+              + unreleasedOriginalsToDelete
+              + " on branch "
+              + branch);
+      timeStage(
+          "delete-originals",
+          () -> {
+            snowstormClient.deleteConcepts(branch, unreleasedOriginalsToDelete);
+            return null;
+          });
     }
 
     nodeCreateOrder.forEach(
@@ -1224,7 +1424,7 @@ public class ProductCreationService {
     log.fine("Concepts created and refset members created");
   }
 
-  private Map<String, SnowstormConcept> getExistingConceptsToEditAndRetire(
+  private Mono<Map<String, SnowstormConcept>> getExistingConceptsToEditAndRetire(
       String branch, List<Node> nodeCreateOrder) {
     Set<String> editAndRetireConceptIds = new HashSet<>();
 
@@ -1241,8 +1441,35 @@ public class ProductCreationService {
 
     return snowstormClient
         .getBrowserConcepts(branch, editAndRetireConceptIds)
-        .collect(Collectors.toMap(SnowstormConcept::getConceptId, c -> c))
-        .block();
+        .collect(Collectors.toMap(SnowstormConcept::getConceptId, c -> c));
+  }
+
+  private Mono<Map<String, List<SnowstormReferenceSetMember>>> getEditNodeExistingRefsetMembers(
+      String branch, List<Node> nodeCreateOrder) {
+    final ModelConfiguration modelConfiguration = models.getModelConfiguration(branch);
+    final Set<Node> nodesToEdit =
+        nodeCreateOrder.stream()
+            .filter(n -> n.isConceptEdit() || n.isRetireAndReplaceWithExisting())
+            .collect(Collectors.toSet());
+    return snowstormClient
+        .getRefsetMembersMono(
+            branch,
+            nodesToEdit.stream().map(ProductCreationService::refsetMemberLookupId).toList(),
+            modelConfiguration.getInScopeReferenceSetIds(
+                nodesToEdit.stream().map(Node::getModelLevel).collect(Collectors.toSet())))
+        .map(
+            members ->
+                members.stream()
+                    .collect(
+                        Collectors.toMap(
+                            SnowstormReferenceSetMember::getReferencedComponentId,
+                            Collections::singletonList,
+                            (existing, replacement) -> {
+                              List<SnowstormReferenceSetMember> combined =
+                                  new ArrayList<>(existing);
+                              combined.addAll(replacement);
+                              return combined;
+                            })));
   }
 
   private Deque<String> getPreallocatedIdentifiers(String branch, List<Node> nodeCreateOrder)
@@ -1288,7 +1515,10 @@ public class ProductCreationService {
     return preallocatedIdentifiers;
   }
 
-  private void createandUpdateRefsetMemberships(String branch, List<Node> nodeCreateOrder)
+  private void createandUpdateRefsetMemberships(
+      String branch,
+      List<Node> nodeCreateOrder,
+      Map<String, List<SnowstormReferenceSetMember>> editNodeExistingRefsetMembers)
       throws InterruptedException {
     log.fine("Creating refset members");
 
@@ -1298,23 +1528,10 @@ public class ProductCreationService {
         nodeCreateOrder.stream()
             .filter(n -> n.isConceptEdit() || n.isRetireAndReplaceWithExisting())
             .collect(Collectors.toSet());
-    final Map<String, List<SnowstormReferenceSetMember>> editNodeExistingRefsetMembers =
-        snowstormClient
-            .getRefsetMembers(
-                branch,
-                nodesToEdit.stream().map(Node::getConceptId).toList(),
-                modelConfiguration.getInScopeReferenceSetIds(
-                    nodesToEdit.stream().map(Node::getModelLevel).collect(Collectors.toSet())))
-            .stream()
-            .collect(
-                Collectors.toMap(
-                    SnowstormReferenceSetMember::getReferencedComponentId,
-                    Collections::singletonList,
-                    (existing, replacement) -> {
-                      List<SnowstormReferenceSetMember> combined = new ArrayList<>(existing);
-                      combined.addAll(replacement);
-                      return combined;
-                    }));
+
+    final List<SnowstormReferenceSetMember> existingMembers =
+        editNodeExistingRefsetMembers.values().stream().flatMap(Collection::stream).toList();
+    final RefsetMemberDiff existingMemberDiff = RefsetMemberDiff.of(existingMembers);
 
     List<SnowstormReferenceSetMemberViewComponent> membersToCreate =
         new ArrayList<>(
@@ -1334,12 +1551,7 @@ public class ProductCreationService {
                         for (SnowstormReferenceSetMemberViewComponent newMember :
                             newRefsetMembers) {
                           newMember.setReferencedComponentId(n.getConcept().getConceptId());
-                          if (!editNodeExistingRefsetMembers.containsKey(n.getConceptId())
-                              || editNodeExistingRefsetMembers.get(n.getConceptId()).stream()
-                                  .noneMatch(
-                                      existingMember ->
-                                          isMatchingRefsetTypeAndAdditionalProperties(
-                                              existingMember, newMember))) {
+                          if (!existingMemberDiff.exists(n.getConceptId(), newMember)) {
                             refsetMembers.add(newMember);
                           }
                         }
@@ -1422,25 +1634,7 @@ public class ProductCreationService {
               .flatMap(Collection::stream)
               .collect(Collectors.toSet()));
       membersToDelete.addAll(
-          editNodeExistingRefsetMembers.values().stream()
-              .flatMap(Collection::stream)
-              .filter(
-                  existingRefset ->
-                      TRUE.equals(existingRefset.getActive())
-                          && requiredNewRefsetMembers.stream()
-                              .noneMatch(
-                                  newRefset ->
-                                      newRefset.getRefsetId() != null
-                                          && newRefset
-                                              .getRefsetId()
-                                              .equals(existingRefset.getRefsetId())
-                                          && Objects.equals(
-                                              newRefset.getReferencedComponentId(),
-                                              existingRefset.getReferencedComponentId())
-                                          && Objects.equals(
-                                              newRefset.getAdditionalFields(),
-                                              existingRefset.getAdditionalFields())))
-              .toList());
+          RefsetMemberDiff.activeMembersNotRequired(existingMembers, requiredNewRefsetMembers));
     }
 
     if (!membersToDelete.isEmpty()) {
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service;
+
+import static java.lang.Boolean.TRUE;
+
+import au.csiro.snowstorm_client.model.SnowstormReferenceSetMember;
+import au.csiro.snowstorm_client.model.SnowstormReferenceSetMemberViewComponent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Diffs reference set members by hashing each one on its reference set, referenced component and
+ * additional fields, so that finding the members to create and to remove is linear in the number of
+ * members rather than comparing every new member with every existing one.
+ *
+ * <p>Missing and empty additional fields are treated as the same, as they are by Snowstorm.
+ */
+final class RefsetMemberDiff {
+
+  private final Set<MemberKey> existing;
+
+  private RefsetMemberDiff(Set<MemberKey> existing) {
+    this.existing = existing;
+  }
+
+  /** Indexes the existing members, active or not. */
+  static RefsetMemberDiff of(Collection<SnowstormReferenceSetMember> existingMembers) {
+    Set<MemberKey> existing = new HashSet<>(existingMembers.size() * 2);
+    for (SnowstormReferenceSetMember member : existingMembers) {
+      existing.add(
+          MemberKey.of(
+              member.getRefsetId(),
+              member.getReferencedComponentId(),
+              member.getAdditionalFields()));
+    }
+    return new RefsetMemberDiff(existing);
+  }
+
+  /**
+   * Whether the new member already exists on the referenced component. A member without a reference
+   * set never matches.
+   */
+  boolean exists(String referencedComponentId, SnowstormReferenceSetMemberViewComponent member) {
+    return member.getRefsetId() != null
+        && existing.contains(
+            MemberKey.of(
+                member.getRefsetId(), referencedComponentId, member.getAdditionalFields()));
+  }
+
+  /** Returns the active existing members that none of the required members match. */
+  static List<SnowstormReferenceSetMember> activeMembersNotRequired(
+      Collection<SnowstormReferenceSetMember> existingMembers,
+      Collection<SnowstormReferenceSetMemberViewComponent> requiredMembers) {
+    Set<MemberKey> required = new HashSet<>(requiredMembers.size() * 2);
+    for (SnowstormReferenceSetMemberViewComponent member : requiredMembers) {
+      if (member.getRefsetId() != null) {
+        required.add(
+            MemberKey.of(
+                member.getRefsetId(),
+                member.getReferencedComponentId(),
+                member.getAdditionalFields()));
+      }
+    }
+    List<SnowstormReferenceSetMember> notRequired = new ArrayList<>();
+    for (SnowstormReferenceSetMember member : existingMembers) {
+      if (TRUE.equals(member.getActive())
+          && !required.contains(
+              MemberKey.of(
+                  member.getRefsetId(),
+                  member.getReferencedComponentId(),
+                  member.getAdditionalFields()))) {
+        notRequired.add(member);
+      }
+    }
+    return notRequired;
+  }
+
+  private record MemberKey(
+      String refsetId, String referencedComponentId, Map<String, String> additionalFields) {
+
+    static MemberKey of(
+        String refsetId, String referencedComponentId, Map<String, String> additionalFields) {
+      return new MemberKey(
+          refsetId,
+          referencedComponentId,
+          additionalFields == null || additionalFields.isEmpty() ? Map.of() : additionalFields);
+    }
+  }
+}
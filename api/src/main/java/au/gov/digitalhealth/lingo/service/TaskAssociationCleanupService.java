@@ -24,6 +24,7 @@ import au.gov.digitalhealth.tickets.repository.CommentRepository;
 import au.gov.digitalhealth.tickets.repository.StateRepository;
 import au.gov.digitalhealth.tickets.repository.TaskAssociationRepository;
 import au.gov.digitalhealth.tickets.repository.TicketRepository;
+import au.gov.digitalhealth.tickets.service.TicketBacklogViewService;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
@@ -47,18 +48,21 @@ public class TaskAssociationCleanupService {
   private final StateRepository stateRepository;
   private final CommentRepository commentRepository;
   private final TaskStatusProperties taskStatusProperties;
+  private final TicketBacklogViewService ticketBacklogViewService;
 
   public TaskAssociationCleanupService(
       TaskAssociationRepository taskAssociationRepository,
       TicketRepository ticketRepository,
       StateRepository stateRepository,
       CommentRepository commentRepository,
-      TaskStatusProperties taskStatusProperties) {
+      TaskStatusProperties taskStatusProperties,
+      TicketBacklogViewService ticketBacklogViewService) {
     this.taskAssociationRepository = taskAssociationRepository;
     this.ticketRepository = ticketRepository;
     this.stateRepository = stateRepository;
     this.commentRepository = commentRepository;
     this.taskStatusProperties = taskStatusProperties;
+    this.ticketBacklogViewService = ticketBacklogViewService;
   }
 
   @Transactional
@@ -85,6 +89,8 @@ public class TaskAssociationCleanupService {
           && taskStatusProperties.getCloseTicket().contains(status)
           && closedState.isPresent()) {
         ticketRepository.updateStateByTaskAssociation(association.getId(), closedState.get());
+        // A bulk update, so no entity events are raised for the ticket
+        ticketBacklogViewService.ticketChanged(association.getTicket().getId());
         log.info(
             "Closed ticket for taskId ["
                 + association.getTaskId()
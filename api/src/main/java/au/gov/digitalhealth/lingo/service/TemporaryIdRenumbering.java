@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service;
+
+import au.gov.digitalhealth.lingo.product.Node;
+import au.gov.digitalhealth.lingo.product.ProductSummary;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Gives the new concepts of a serialised {@link ProductSummary} fresh temporary ids. Every product
+ * calculation numbers its new concepts from -1, so summaries calculated separately must be
+ * renumbered before they can be combined.
+ */
+final class TemporaryIdRenumbering {
+
+  /** Fields of a serialised summary that may hold a reference to a new concept's temporary id. */
+  private static final Set<String> CONCEPT_REFERENCE_FIELDS =
+      Set.of("conceptId", "sourceId", "destinationId", "source", "target", "referencedComponentId");
+
+  private TemporaryIdRenumbering() {}
+
+  /**
+   * Reads a summary from its JSON tree, replacing the temporary id of each new concept, and every
+   * reference to it, with the next id from {@code nextId}. The tree is modified in place.
+   *
+   * @return the renumbered summary, with its subjects pointing at its own nodes
+   */
+  static ProductSummary readRenumbered(ObjectMapper objectMapper, JsonNode tree, IntSupplier nextId)
+      throws JsonProcessingException {
+    Map<String, String> idMap = new HashMap<>();
+    for (JsonNode node : tree.path("nodes")) {
+      JsonNode temporaryId = node.path("newConceptDetails").path("conceptId");
+      if (temporaryId.isNumber()) {
+        idMap.put(temporaryId.asText(), Integer.toString(nextId.getAsInt()));
+      }
+    }
+    renumber(tree, idMap);
+
+    ProductSummary productSummary = objectMapper.treeToValue(tree, ProductSummary.class);
+
+    // deserialisation creates separate instances for the subjects, point them back at the nodes
+    Set<String> subjectIds =
+        productSummary.getSubjects().stream().map(Node::getConceptId).collect(Collectors.toSet());
+    productSummary.getSubjects().clear();
+    productSummary.getNodes().stream()
+        .filter(n -> subjectIds.contains(n.getConceptId()))
+        .forEach(productSummary::addSubject);
+    return productSummary;
+  }
+
+  private static void renumber(JsonNode node, Map<String, String> idMap) {
+    if (node instanceof ObjectNode objectNode) {
+      for (String fieldName : CONCEPT_REFERENCE_FIELDS) {
+        JsonNode value = objectNode.get(fieldName);
+        if (value != null && value.isValueNode() && idMap.containsKey(value.asText())) {
+          String newId = idMap.get(value.asText());
+          if (value.isNumber()) {
+            objectNode.put(fieldName, Integer.parseInt(newId));
+          } else {
+            objectNode.put(fieldName, newId);
+          }
+        }
+      }
+    }
+    node.forEach(child -> renumber(child, idMap));
+  }
+}
@@ -18,11 +18,14 @@ package au.gov.digitalhealth.lingo.service.identifier;
 import au.gov.digitalhealth.lingo.exception.LingoProblem;
 import au.gov.digitalhealth.lingo.service.ServiceStatus.Status;
 import au.gov.digitalhealth.lingo.service.identifier.cis.CISClient;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 import lombok.extern.java.Log;
 import org.apache.commons.lang3.tuple.Pair;
@@ -34,7 +37,10 @@ import org.springframework.stereotype.Component;
 @Component
 @Log
 public class CachingIdentifierSource implements IdentifierSource {
-  private final Map<Pair<Integer, String>, IdentifierCache> reservedIds = new HashMap<>();
+  private final Map<Pair<Integer, String>, IdentifierCache> reservedIds = new ConcurrentHashMap<>();
+
+  private final MeterRegistry meterRegistry;
+  private final IdentifierReservationLedger ledger;
 
   @Value("${cis.api.url}")
   String cisApiUrl;
@@ -54,6 +60,9 @@ public class CachingIdentifierSource implements IdentifierSource {
   @Value("${cis.cache.size:50}")
   int cacheSize;
 
+  @Value("${cis.cache.max-size:400}")
+  int maxCacheSize;
+
   @Value("${cis.cache.refill.threshold:0.2}")
   float refillThreshold;
 
@@ -65,8 +74,13 @@ public class CachingIdentifierSource implements IdentifierSource {
 
   private IdentifierSource identifierSource = null;
 
+  public CachingIdentifierSource(MeterRegistry meterRegistry, IdentifierReservationLedger ledger) {
+    this.meterRegistry = meterRegistry;
+    this.ledger = ledger;
+  }
+
   @PostConstruct
-  public void init() throws InterruptedException {
+  public void init() {
     log.info("Initialising CachingIdentifierSource");
     if (cisApiUrl != null && !cisApiUrl.isBlank() && !cisApiUrl.equals("local")) {
       identifierSource =
@@ -78,9 +92,7 @@ public class CachingIdentifierSource implements IdentifierSource {
             int namespace = Integer.parseInt(parts[0]);
             String partitionId = parts[1];
             reservedIds.put(
-                Pair.of(namespace, partitionId),
-                new IdentifierCache(
-                    namespace, partitionId, cacheSize, refillThreshold, identifierSource));
+                Pair.of(namespace, partitionId), createCache(namespace, partitionId, cacheSize));
           });
 
       if (identifierSource.isReservationAvailable()) {
@@ -91,7 +103,7 @@ public class CachingIdentifierSource implements IdentifierSource {
                 + reservedIds.keySet().stream()
                     .map(k -> k.getLeft() + ":" + k.getRight())
                     .collect(Collectors.joining(", "))
-                + " caches preloaded with "
+                + " caches preloading with "
                 + cacheSize
                 + " identifiers.");
       } else {
@@ -105,22 +117,59 @@ public class CachingIdentifierSource implements IdentifierSource {
     }
   }
 
+  /**
+   * Starts a refill of each cache that has fallen below its threshold. Refills run without holding
+   * the scheduler thread, and failures are logged by the cache.
+   */
   @Scheduled(fixedDelayString = "${cis.cache.topup.interval:10000}")
-  public void topUp() throws InterruptedException {
+  public void topUp() {
     if (identifierSource != null && identifierSource.isReservationAvailable()) {
       log.finest("Topping up identifier caches");
+      reservedIds.values().forEach(IdentifierCache::topUp);
+    }
+  }
+
+  /**
+   * Keeps the reservation ledger in step with the caches: renews this instance's leases, drops
+   * stale reservations from the caches and releases them back to CIS, and picks up reservations
+   * left by instances that have stopped.
+   */
+  @Scheduled(fixedDelayString = "${cis.ledger.maintenance.interval:60000}")
+  public void maintainLedger() {
+    if (identifierSource == null) {
+      return;
+    }
+    try {
+      ledger.renewLeases();
+      ledger.releaseStale(identifierSource, this::discard);
       for (IdentifierCache cache : reservedIds.values()) {
-        try {
-          cache.topUp();
-        } catch (LingoProblem e) {
-          log.severe(
-              "Error topping up cache "
-                  + cache.getNamespaceId()
-                  + " "
-                  + cache.getPartitionId()
-                  + ": "
-                  + e.getMessage());
-        }
+        cache.preload(
+            ledger.claim(
+                cache.getNamespaceId(),
+                cache.getPartitionId(),
+                cache.getCapacity() - cache.size()));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      log.log(Level.WARNING, "Failed to maintain the identifier reservation ledger", e);
+    }
+  }
+
+  /** Takes the identifiers out of whichever caches hold them, returning those removed. */
+  private List<Long> discard(List<Long> identifiers) {
+    List<Long> discarded = new ArrayList<>();
+    reservedIds.values().forEach(cache -> discarded.addAll(cache.discard(identifiers)));
+    return discarded;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (identifierSource != null) {
+      try {
+        ledger.releaseLeases();
+      } catch (RuntimeException e) {
+        log.log(Level.WARNING, "Failed to release identifier reservation leases", e);
       }
     }
   }
@@ -151,18 +200,41 @@ public class CachingIdentifierSource implements IdentifierSource {
     Pair<Integer, String> key = Pair.of(namespace, partitionId);
 
     IdentifierCache cache =
-        reservedIds.computeIfAbsent(
-            key,
-            k ->
-                new IdentifierCache(
-                    namespace, partitionId, quantity, refillThreshold, identifierSource));
-
-    List<Long> identifiers = new ArrayList<>(quantity);
-
-    for (int i = 0; i < quantity; i++) {
-      identifiers.add(cache.getIdentifier());
+        reservedIds.computeIfAbsent(key, k -> createCache(namespace, partitionId, quantity));
+
+    List<Long> identifiers = cache.getIdentifiers(quantity);
+    // recorded before they are handed out so that a restart can never offer them again
+    try {
+      ledger.recordAssigned(identifiers);
+    } catch (RuntimeException e) {
+      cache.preload(identifiers);
+      throw new LingoProblem("Failed to record assigned identifiers", e);
     }
-
     return identifiers;
   }
+
+  /**
+   * Creates a cache whose reservations are recorded in the ledger, seeded with any reservations
+   * left in the ledger by a previous run.
+   */
+  private IdentifierCache createCache(int namespace, String partitionId, int minCapacity) {
+    IdentifierCache cache =
+        new IdentifierCache(
+            namespace,
+            partitionId,
+            minCapacity,
+            maxCacheSize,
+            refillThreshold,
+            new LedgerRecordingIdentifierSource(identifierSource, ledger),
+            meterRegistry);
+    try {
+      cache.preload(ledger.claim(namespace, partitionId, maxCacheSize));
+    } catch (RuntimeException e) {
+      log.log(
+          Level.WARNING,
+          "Failed to load reserved identifiers for " + namespace + ":" + partitionId,
+          e);
+    }
+    return cache;
+  }
 }
@@ -15,60 +15,242 @@
  */
 package au.gov.digitalhealth.lingo.service.identifier;
 
+import au.gov.digitalhealth.lingo.exception.LingoProblem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Deque;
-import java.util.NoSuchElementException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.Getter;
 import lombok.extern.java.Log;
+import reactor.core.publisher.Mono;
 
-@Getter
+/**
+ * A pool of identifiers reserved from CIS for one namespace and partition.
+ *
+ * <p>At most one reservation is in flight for a pool at a time. Callers that find the pool empty
+ * wait for that reservation instead of making their own, and a refill is started without waiting
+ * for it as soon as the pool falls below the refill threshold.
+ *
+ * <p>The capacity of the pool follows demand. It doubles, up to {@code maxCapacity}, whenever a
+ * caller finds the pool empty, and halves, down to {@code minCapacity}, each time the scheduled top
+ * up finds that nothing was taken since the previous one.
+ */
 @Log
 public class IdentifierCache {
+  static final String METRIC_PREFIX = "snomio.identifier.cache";
+
   @Getter private final int namespaceId;
   @Getter private final String partitionId;
+  @Getter private final int minCapacity;
   @Getter private final int maxCapacity;
-  @Getter private final float refilThreshold;
+  @Getter private final float refillThreshold;
 
   private final IdentifierSource source;
 
   private final Deque<Long> identifiers = new ConcurrentLinkedDeque<>();
+  // ConcurrentLinkedDeque.size() walks the whole deque, so the size is tracked alongside it
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong takenSinceTopUp = new AtomicLong();
+  private final AtomicBoolean ranDry = new AtomicBoolean();
+  private final AtomicReference<CompletableFuture<Void>> refill = new AtomicReference<>();
+  @Getter private volatile int capacity;
+
+  private final Timer refillTimer;
+  private final Counter waits;
 
   IdentifierCache(
       int namespaceId,
       String partitionId,
+      int minCapacity,
       int maxCapacity,
-      float refilThreshold,
-      IdentifierSource source) {
+      float refillThreshold,
+      IdentifierSource source,
+      MeterRegistry meterRegistry) {
     this.namespaceId = namespaceId;
     this.partitionId = partitionId;
-    this.maxCapacity = maxCapacity;
-    this.refilThreshold = refilThreshold;
+    this.minCapacity = minCapacity;
+    this.maxCapacity = Math.max(minCapacity, maxCapacity);
+    this.refillThreshold = refillThreshold;
     this.source = source;
+    this.capacity = minCapacity;
+
+    Tags tags = Tags.of("namespace", Integer.toString(namespaceId), "partition", partitionId);
+    Gauge.builder(METRIC_PREFIX + ".size", size, AtomicInteger::get)
+        .description("Identifiers reserved and waiting to be used")
+        .tags(tags)
+        .register(meterRegistry);
+    Gauge.builder(METRIC_PREFIX + ".capacity", this, IdentifierCache::getCapacity)
+        .description("Number of identifiers the pool is currently refilled to")
+        .tags(tags)
+        .register(meterRegistry);
+    this.refillTimer =
+        Timer.builder(METRIC_PREFIX + ".refill")
+            .description("Time taken to reserve a refill of identifiers from CIS")
+            .tags(tags)
+            .register(meterRegistry);
+    this.waits =
+        Counter.builder(METRIC_PREFIX + ".waits")
+            .description("Times a caller found the pool empty and waited for a refill")
+            .tags(tags)
+            .register(meterRegistry);
   }
 
-  public void topUp() throws InterruptedException {
+  /**
+   * Refills the pool if it has fallen below the refill threshold, shrinking it first if it has been
+   * idle since the last top up. The returned future completes when the pool has been refilled, and
+   * is the refill already running if there is one.
+   */
+  public CompletableFuture<Void> topUp() {
     log.finest("Top up check for identifiers in cache " + namespaceId + " " + partitionId);
-    if (identifiers.size() < (maxCapacity * refilThreshold)) {
-      int quantity = maxCapacity - identifiers.size();
-      log.fine(
-          "Reserving "
-              + quantity
-              + " more identifiers for cache "
-              + namespaceId
-              + " "
-              + partitionId);
-      identifiers.addAll(source.reserveIds(namespaceId, partitionId, quantity));
+    if (takenSinceTopUp.getAndSet(0) == 0 && capacity > minCapacity) {
+      capacity = Math.max(minCapacity, capacity / 2);
     }
+    return isBelowThreshold() ? refill(0) : CompletableFuture.completedFuture(null);
   }
 
   public Long getIdentifier() throws InterruptedException {
-    Long identifier = null;
+    return getIdentifiers(1).get(0);
+  }
+
+  /**
+   * Takes identifiers from the pool, waiting for a refill whenever it runs dry. If the refill fails
+   * the identifiers already taken are put back.
+   */
+  public List<Long> getIdentifiers(int quantity) throws InterruptedException {
+    List<Long> taken = new ArrayList<>(quantity);
+    try {
+      while (taken.size() < quantity) {
+        Long identifier = identifiers.pollFirst();
+        if (identifier != null) {
+          size.decrementAndGet();
+          takenSinceTopUp.incrementAndGet();
+          taken.add(identifier);
+        } else {
+          ranDry.set(true);
+          waits.increment();
+          await(refill(quantity - taken.size()));
+        }
+      }
+    } catch (InterruptedException | RuntimeException e) {
+      for (int i = taken.size() - 1; i >= 0; i--) {
+        identifiers.addFirst(taken.get(i));
+      }
+      size.addAndGet(taken.size());
+      takenSinceTopUp.addAndGet(-taken.size());
+      throw e;
+    }
+
+    if (isBelowThreshold()) {
+      refill(0);
+    }
+    return taken;
+  }
+
+  /** Adds identifiers reserved earlier, for example by a previous run, to the pool. */
+  public void preload(Collection<Long> reserved) {
+    identifiers.addAll(reserved);
+    size.addAndGet(reserved.size());
+  }
+
+  /**
+   * Removes identifiers from the pool if it holds them, so that they can be released.
+   *
+   * @return the identifiers removed, which can no longer be handed out
+   */
+  public List<Long> discard(Collection<Long> releasing) {
+    List<Long> discarded = new ArrayList<>();
+    for (Long identifier : releasing) {
+      if (identifiers.removeFirstOccurrence(identifier)) {
+        size.decrementAndGet();
+        discarded.add(identifier);
+      }
+    }
+    return discarded;
+  }
+
+  int size() {
+    return size.get();
+  }
+
+  private boolean isBelowThreshold() {
+    return size.get() < capacity * refillThreshold;
+  }
+
+  /**
+   * Returns the refill in flight, or starts a new one if there is none. A new refill reserves at
+   * least {@code shortfall} identifiers, and no thread is held while CIS processes it.
+   */
+  private CompletableFuture<Void> refill(int shortfall) {
+    while (true) {
+      CompletableFuture<Void> inFlight = refill.get();
+      if (inFlight != null) {
+        return inFlight;
+      }
+      CompletableFuture<Void> started = new CompletableFuture<>();
+      if (refill.compareAndSet(null, started)) {
+        reserve(shortfall)
+            .subscribe(
+                null,
+                e -> {
+                  log.warning(
+                      "Error refilling identifier cache "
+                          + namespaceId
+                          + " "
+                          + partitionId
+                          + ": "
+                          + e.getMessage());
+                  refill.set(null);
+                  started.completeExceptionally(e);
+                },
+                () -> {
+                  refill.set(null);
+                  started.complete(null);
+                });
+        return started;
+      }
+    }
+  }
+
+  private Mono<List<Long>> reserve(int shortfall) {
+    if (ranDry.getAndSet(false)) {
+      capacity = Math.min(maxCapacity, capacity * 2);
+    }
+    int quantity = Math.max(shortfall, capacity - size.get());
+    if (quantity <= 0) {
+      return Mono.empty();
+    }
+    log.fine(
+        "Reserving " + quantity + " more identifiers for cache " + namespaceId + " " + partitionId);
+    Timer.Sample sample = Timer.start();
+    return Mono.defer(() -> source.reserveIdsAsync(namespaceId, partitionId, quantity))
+        .doOnNext(
+            reserved -> {
+              sample.stop(refillTimer);
+              identifiers.addAll(reserved);
+              size.addAndGet(reserved.size());
+            });
+  }
+
+  private static void await(CompletableFuture<Void> refill) throws InterruptedException {
     try {
-      identifier = identifiers.pop();
-    } catch (NoSuchElementException e) {
-      topUp();
-      identifier = identifiers.pop();
+      refill.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new LingoProblem("Failed to reserve identifiers", e.getCause());
     }
-    return identifier;
   }
 }
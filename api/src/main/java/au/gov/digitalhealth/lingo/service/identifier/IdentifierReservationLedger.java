@@ -0,0 +1,205 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service.identifier;
+
+import au.gov.digitalhealth.lingo.exception.LingoProblem;
+import au.gov.digitalhealth.tickets.models.IdentifierReservation;
+import au.gov.digitalhealth.tickets.models.IdentifierReservation.Status;
+import au.gov.digitalhealth.tickets.repository.IdentifierReservationRepository;
+import jakarta.transaction.Transactional;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Durable record of the identifiers reserved from CIS, and whether each has since been assigned to
+ * a concept or released.
+ *
+ * <p>Reserved identifiers are leased to the running instance that holds them in memory. The lease
+ * is renewed while the instance runs and dropped when it shuts down, after which another instance
+ * (or the same one after a restart) can claim the identifiers rather than reserving new ones.
+ */
+@Service
+@Log
+public class IdentifierReservationLedger {
+
+  private final IdentifierReservationRepository repository;
+  private final TransactionTemplate transactionTemplate;
+  private final String holder = UUID.randomUUID().toString();
+  private final Duration lease;
+  private final Duration staleAfter;
+
+  public IdentifierReservationLedger(
+      IdentifierReservationRepository repository,
+      PlatformTransactionManager transactionManager,
+      @Value("${cis.ledger.lease-seconds:180}") int leaseSeconds,
+      @Value("${cis.ledger.stale-after-hours:168}") int staleAfterHours) {
+    this.repository = repository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.lease = Duration.ofSeconds(leaseSeconds);
+    this.staleAfter = Duration.ofHours(staleAfterHours);
+  }
+
+  @Transactional
+  public void recordReserved(int namespaceId, String partitionId, List<Long> identifiers) {
+    Instant now = Instant.now();
+    Instant leasedUntil = now.plus(lease);
+    for (Long identifier : identifiers) {
+      repository.insertReserved(identifier, namespaceId, partitionId, now, holder, leasedUntil);
+    }
+  }
+
+  @Transactional
+  public void recordAssigned(List<Long> identifiers) {
+    if (!identifiers.isEmpty()) {
+      repository.updateStatus(identifiers, Status.ASSIGNED, Instant.now());
+    }
+  }
+
+  /**
+   * Claims up to {@code limit} reserved identifiers that no running instance holds, oldest first.
+   * Identifiers older than the stale age are left for {@link #releaseStale(IdentifierSource)}.
+   */
+  @Transactional
+  public List<Long> claim(int namespaceId, String partitionId, int limit) {
+    if (limit <= 0) {
+      return List.of();
+    }
+    Instant now = Instant.now();
+    List<Long> identifiers =
+        repository.lockUnleased(namespaceId, partitionId, now.minus(staleAfter), now, limit);
+    if (!identifiers.isEmpty()) {
+      repository.lease(identifiers, holder, now.plus(lease));
+      log.info(
+          "Claimed "
+              + identifiers.size()
+              + " previously reserved identifiers for "
+              + namespaceId
+              + ":"
+              + partitionId);
+    }
+    return identifiers;
+  }
+
+  @Transactional
+  public void renewLeases() {
+    repository.renewLeases(holder, Status.RESERVED, Instant.now().plus(lease));
+  }
+
+  /** Lets the identifiers this instance holds be claimed straight away, for use on shutdown. */
+  @Transactional
+  public void releaseLeases() {
+    repository.renewLeases(holder, Status.RESERVED, Instant.now());
+  }
+
+  /**
+   * Releases reservations older than the stale age back to {@code source}, unless another running
+   * instance still holds them. Those this instance holds are only released once {@code discardHeld}
+   * has taken them out of its caches, and it returns the ones it removed; any it no longer has have
+   * been handed out and are left alone.
+   *
+   * <p>The reservations are marked released in a transaction that commits before CIS is called.
+   * Reservations the source fails to release go back to reserved, held by nobody, and are tried
+   * again next time.
+   *
+   * @return the identifiers released
+   */
+  public List<Long> releaseStale(IdentifierSource source, UnaryOperator<List<Long>> discardHeld)
+      throws InterruptedException {
+    Instant now = Instant.now();
+    List<IdentifierReservation> stale =
+        repository.findStale(Status.RESERVED, now.minus(staleAfter), holder, now);
+    if (stale.isEmpty()) {
+      return List.of();
+    }
+
+    Map<Boolean, List<Long>> byHeld =
+        stale.stream()
+            .collect(
+                Collectors.partitioningBy(
+                    reservation -> holder.equals(reservation.getHolder()),
+                    Collectors.mapping(IdentifierReservation::getId, Collectors.toList())));
+    List<Long> releasing = new ArrayList<>(byHeld.get(false));
+    if (!byHeld.get(true).isEmpty()) {
+      releasing.addAll(discardHeld.apply(byHeld.get(true)));
+    }
+    if (releasing.isEmpty()) {
+      return List.of();
+    }
+
+    Set<Long> marked =
+        new HashSet<>(
+            transactionTemplate.execute(
+                status -> {
+                  List<Long> locked = repository.lockReserved(releasing);
+                  if (!locked.isEmpty()) {
+                    repository.updateStatus(locked, Status.RELEASED, now);
+                  }
+                  return locked;
+                }));
+    Map<Integer, List<Long>> markedByNamespace =
+        stale.stream()
+            .filter(reservation -> marked.contains(reservation.getId()))
+            .collect(
+                Collectors.groupingBy(
+                    IdentifierReservation::getNamespaceId,
+                    Collectors.mapping(IdentifierReservation::getId, Collectors.toList())));
+
+    List<Long> released = new ArrayList<>();
+    for (Map.Entry<Integer, List<Long>> entry : markedByNamespace.entrySet()) {
+      try {
+        source.releaseIds(entry.getKey(), entry.getValue());
+        released.addAll(entry.getValue());
+      } catch (LingoProblem e) {
+        log.log(
+            Level.WARNING,
+            "Failed to release "
+                + entry.getValue().size()
+                + " stale identifier reservations for namespace "
+                + entry.getKey(),
+            e);
+        restoreReserved(entry.getValue(), now);
+      } catch (InterruptedException e) {
+        restoreReserved(entry.getValue(), now);
+        throw e;
+      }
+    }
+    if (!released.isEmpty()) {
+      log.info("Released " + released.size() + " stale identifier reservations");
+    }
+    return released;
+  }
+
+  private void restoreReserved(List<Long> identifiers, Instant now) {
+    transactionTemplate.executeWithoutResult(
+        status -> repository.updateStatus(identifiers, Status.RESERVED, now));
+  }
+}
@@ -18,6 +18,9 @@ package au.gov.digitalhealth.lingo.service.identifier;
 import au.gov.digitalhealth.lingo.exception.LingoProblem;
 import au.gov.digitalhealth.lingo.service.ServiceStatus.Status;
 import java.util.List;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 public interface IdentifierSource {
 
@@ -29,4 +32,26 @@ public interface IdentifierSource {
 
   List<Long> reserveIds(int namespace, String partitionId, int quantity)
       throws LingoProblem, InterruptedException;
+
+  /**
+   * Reserves identifiers without blocking the subscribing thread. Sources that can only reserve
+   * synchronously have the call moved onto the bounded elastic scheduler.
+   */
+  default Mono<List<Long>> reserveIdsAsync(int namespace, String partitionId, int quantity) {
+    return Mono.fromCallable(() -> reserveIds(namespace, partitionId, quantity))
+        .subscribeOn(Schedulers.boundedElastic());
+  }
+
+  /**
+   * Releases reserved identifiers that will not be used, so the source can hand them out again.
+   * Sources that cannot release identifiers fail.
+   */
+  default void releaseIds(int namespace, List<Long> identifiers)
+      throws LingoProblem, InterruptedException {
+    throw new LingoProblem(
+        "identifier-service",
+        "Identifier release not available",
+        HttpStatus.NOT_IMPLEMENTED,
+        "The identifier source cannot release identifiers.");
+  }
 }
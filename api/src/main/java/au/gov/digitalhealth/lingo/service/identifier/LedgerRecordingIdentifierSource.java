@@ -0,0 +1,89 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service.identifier;
+
+import au.gov.digitalhealth.lingo.exception.LingoProblem;
+import au.gov.digitalhealth.lingo.service.ServiceStatus.Status;
+import java.util.List;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Records every identifier reserved through the wrapped source in the {@link
+ * IdentifierReservationLedger}. A failure to record is logged and does not fail the reservation.
+ */
+@Log
+class LedgerRecordingIdentifierSource implements IdentifierSource {
+
+  private final IdentifierSource source;
+  private final IdentifierReservationLedger ledger;
+
+  LedgerRecordingIdentifierSource(IdentifierSource source, IdentifierReservationLedger ledger) {
+    this.source = source;
+    this.ledger = ledger;
+  }
+
+  @Override
+  public Status getStatus() {
+    return source.getStatus();
+  }
+
+  @Override
+  public boolean isReservationAvailable() {
+    return source.isReservationAvailable();
+  }
+
+  @Override
+  public List<Long> reserveIds(int namespace, String partitionId, int quantity)
+      throws LingoProblem, InterruptedException {
+    List<Long> identifiers = source.reserveIds(namespace, partitionId, quantity);
+    record(namespace, partitionId, identifiers);
+    return identifiers;
+  }
+
+  @Override
+  public Mono<List<Long>> reserveIdsAsync(int namespace, String partitionId, int quantity) {
+    return source
+        .reserveIdsAsync(namespace, partitionId, quantity)
+        .publishOn(Schedulers.boundedElastic())
+        .doOnNext(identifiers -> record(namespace, partitionId, identifiers));
+  }
+
+  @Override
+  public void releaseIds(int namespace, List<Long> identifiers)
+      throws LingoProblem, InterruptedException {
+    source.releaseIds(namespace, identifiers);
+  }
+
+  private void record(int namespace, String partitionId, List<Long> identifiers) {
+    try {
+      ledger.recordReserved(namespace, partitionId, identifiers);
+    } catch (RuntimeException e) {
+      log.log(
+          Level.WARNING,
+          "Failed to record "
+              + identifiers.size()
+              + " reserved identifiers for "
+              + namespace
+              + ":"
+              + partitionId
+              + " in the ledger",
+          e);
+    }
+  }
+}
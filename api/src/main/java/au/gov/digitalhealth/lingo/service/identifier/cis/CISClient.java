@@ -20,6 +20,7 @@ import au.gov.digitalhealth.lingo.exception.CISClientProblem;
 import au.gov.digitalhealth.lingo.exception.LingoProblem;
 import au.gov.digitalhealth.lingo.service.ServiceStatus.Status;
 import au.gov.digitalhealth.lingo.service.identifier.IdentifierSource;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -39,6 +40,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * Client for the CIS API. Based on
@@ -50,6 +53,8 @@ public class CISClient implements IdentifierSource {
   public static final String TOKEN_VAR_NAME = "token";
   public static final int STATUS_SUCCESS = 2;
   private static final int MAX_BULK_REQUEST = 1000;
+  private static final long INITIAL_POLL_INTERVAL_MILLIS = 100;
+  private static final long MAX_POLL_INTERVAL_MILLIS = 2000;
   private static final DateTimeFormatter formatter =
       DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
   private final String username;
@@ -58,7 +63,7 @@ public class CISClient implements IdentifierSource {
   private final WebClient client;
   private final int timeoutSeconds;
   List<Integer> backOffLevels;
-  private String token = "";
+  private volatile String token = "";
   private int backOffLevel;
   private long lastFailedReservationAttempt;
 
@@ -129,84 +134,137 @@ public class CISClient implements IdentifierSource {
   }
 
   protected void authenticate() {
-    Map<String, String> request = new HashMap<>();
-    request.put(TOKEN_VAR_NAME, token);
-    try {
-      client
-          .post()
-          .uri("/authenticate")
-          .contentType(MediaType.APPLICATION_JSON)
-          .bodyValue(request)
-          .retrieve()
-          .bodyToMono(Void.class)
-          .block();
-    } catch (WebClientResponseException e) {
-      if (e.getStatusCode() == HttpStatus.UNAUTHORIZED) {
-        log.warning("Failed to authenticate with CIS(401). Will retry the login ");
-        login();
-      } else {
-        log.severe("Failed to authenticate with CIS(other exceptions). " + e.getMessage());
-        throw e;
-      }
-    }
+    authenticateAsync().block();
   }
 
   protected void login() {
-    log.info("Logging in.");
-    Map<String, String> request = new HashMap<>();
-    request.put("username", username);
-    request.put("password", password);
-    Map<String, String> response =
-        client
-            .post()
-            .uri("/login")
-            .contentType(MediaType.APPLICATION_JSON)
-            .bodyValue(request)
-            .retrieve()
-            .bodyToMono(new ParameterizedTypeReference<Map<String, String>>() {})
-            .doOnError(
-                e -> {
-                  throw new CISClientProblem("Failed to login to CIS", e);
-                })
-            .block();
-    assert response != null;
-    token = response.get(TOKEN_VAR_NAME);
+    loginAsync().block();
+  }
+
+  private Mono<Void> authenticateAsync() {
+    return Mono.defer(
+        () -> {
+          Map<String, String> request = new HashMap<>();
+          request.put(TOKEN_VAR_NAME, token);
+          return client
+              .post()
+              .uri("/authenticate")
+              .contentType(MediaType.APPLICATION_JSON)
+              .bodyValue(request)
+              .retrieve()
+              .bodyToMono(Void.class)
+              .onErrorResume(
+                  WebClientResponseException.class,
+                  e -> {
+                    if (e.getStatusCode() == HttpStatus.UNAUTHORIZED) {
+                      log.warning("Failed to authenticate with CIS(401). Will retry the login ");
+                      return loginAsync();
+                    }
+                    log.severe(
+                        "Failed to authenticate with CIS(other exceptions). " + e.getMessage());
+                    return Mono.error(e);
+                  });
+        });
+  }
+
+  private Mono<Void> loginAsync() {
+    return Mono.defer(
+        () -> {
+          log.info("Logging in.");
+          Map<String, String> request = new HashMap<>();
+          request.put("username", username);
+          request.put("password", password);
+          return client
+              .post()
+              .uri("/login")
+              .contentType(MediaType.APPLICATION_JSON)
+              .bodyValue(request)
+              .retrieve()
+              .bodyToMono(new ParameterizedTypeReference<Map<String, String>>() {})
+              .doOnError(
+                  e -> {
+                    throw new CISClientProblem("Failed to login to CIS", e);
+                  })
+              .switchIfEmpty(Mono.error(() -> new CISClientProblem("Failed to login to CIS")))
+              .doOnNext(response -> token = response.get(TOKEN_VAR_NAME))
+              .then();
+        });
   }
 
   @LogExecutionTime
   @Override
   public List<Long> reserveIds(int namespace, String partitionId, int quantity)
-      throws LingoProblem, InterruptedException {
+      throws LingoProblem {
+    return reserveIdsAsync(namespace, partitionId, quantity).block();
+  }
 
+  /**
+   * Reserves identifiers without holding a thread while CIS works. Requests larger than {@link
+   * #MAX_BULK_REQUEST} are split into several bulk jobs submitted one after another, and each job
+   * is polled on the shared Reactor timer with an exponentially increasing interval.
+   */
+  @Override
+  public Mono<List<Long>> reserveIdsAsync(int namespace, String partitionId, int quantity) {
     if (inFailureBackoff()) {
       LocalDateTime backoffEndDateTime =
           LocalDateTime.ofInstant(
               Instant.ofEpochMilli(calculateBackoffEnd()), ZoneId.systemDefault());
-      throw new CISClientProblem(
-          "Failed to reserve identifiers, CIS unusable and backoff in effect ("
-              + this.backOffLevels.get(this.backOffLevel)
-              + " seconds) until "
-              + backoffEndDateTime.format(formatter));
+      return Mono.error(
+          new CISClientProblem(
+              "Failed to reserve identifiers, CIS unusable and backoff in effect ("
+                  + this.backOffLevels.get(this.backOffLevel)
+                  + " seconds) until "
+                  + backoffEndDateTime.format(formatter)));
     }
 
-    try {
-      authenticate();
-      List<Long> reservedIdentifiers = new ArrayList<>();
-      int requestQuantity = MAX_BULK_REQUEST;
-      while (reservedIdentifiers.size() < quantity) {
-        if (requestQuantity > quantity) {
-          requestQuantity = quantity - reservedIdentifiers.size();
-        }
-        CISGenerateRequest request =
-            new CISGenerateRequest(namespace, partitionId, requestQuantity, softwareName);
-        reservedIdentifiers.addAll(callCis("reserve", request, false));
-      }
-      clearFailedReservationAttempts();
-      return reservedIdentifiers;
-    } catch (LingoProblem | WebClientException e) {
-      registerFailedReservationAttempt(e);
-      throw new CISClientProblem("Failed to reserve identifiers", e);
+    List<Integer> requestQuantities = new ArrayList<>();
+    for (int remaining = quantity; remaining > 0; remaining -= MAX_BULK_REQUEST) {
+      requestQuantities.add(Math.min(remaining, MAX_BULK_REQUEST));
+    }
+
+    return authenticateAsync()
+        .thenMany(Flux.fromIterable(requestQuantities))
+        .concatMap(
+            requestQuantity ->
+                callCis(
+                    "reserve",
+                    new CISGenerateRequest(namespace, partitionId, requestQuantity, softwareName),
+                    false))
+        .flatMapIterable(identifiers -> identifiers)
+        .collectList()
+        .doOnSuccess(identifiers -> clearFailedReservationAttempts())
+        .onErrorMap(
+            e -> e instanceof LingoProblem || e instanceof WebClientException,
+            e -> {
+              registerFailedReservationAttempt((NestedRuntimeException) e);
+              return new CISClientProblem("Failed to reserve identifiers", e);
+            });
+  }
+
+  /** Releases reserved identifiers in bulk jobs of at most {@link #MAX_BULK_REQUEST}. */
+  @LogExecutionTime
+  @Override
+  public void releaseIds(int namespace, List<Long> identifiers) throws LingoProblem {
+    List<List<Long>> requests = new ArrayList<>();
+    for (int start = 0; start < identifiers.size(); start += MAX_BULK_REQUEST) {
+      requests.add(
+          identifiers.subList(start, Math.min(identifiers.size(), start + MAX_BULK_REQUEST)));
     }
+
+    authenticateAsync()
+        .thenMany(Flux.fromIterable(requests))
+        .concatMap(
+            sctids ->
+                executeBulkRequest(
+                        "release",
+                        new CISBulkRequest(
+                            namespace, sctids.stream().map(String::valueOf).toList(), softwareName),
+                        false)
+                    .flatMap(this::waitForJobToComplete))
+        .onErrorMap(
+            e -> e instanceof WebClientException,
+            e -> new CISClientProblem("Failed to release identifiers", e))
+        .blockLast();
   }
 
   private boolean inFailureBackoff() {
@@ -240,133 +298,107 @@ public class CISClient implements IdentifierSource {
     }
   }
 
-  private List<Long> callCis(
-      String operation, CISGenerateRequest request, boolean includeSchemeName)
-      throws LingoProblem, InterruptedException {
-    String bulkJobId = executeBulkRequest(operation, request, includeSchemeName);
-
-    waitForJobToComplete(bulkJobId);
-
-    return getSctIdsFromBulkJob(bulkJobId);
+  private Mono<List<Long>> callCis(
+      String operation, CISGenerateRequest request, boolean includeSchemeName) {
+    return executeBulkRequest(operation, request, includeSchemeName)
+        .flatMap(
+            bulkJobId -> waitForJobToComplete(bulkJobId).then(getSctIdsFromBulkJob(bulkJobId)));
   }
 
-  private List<Long> getSctIdsFromBulkJob(String bulkJobId) {
-    ResponseEntity<List<CISRecord>> recordsResponse =
-        client
-            .get()
-            .uri(
-                uriBuilder ->
-                    uriBuilder
-                        .path("/bulk/jobs/{jobId}/records")
-                        .queryParam(TOKEN_VAR_NAME, token)
-                        .build(bulkJobId))
-            .retrieve()
-            .toEntity(new ParameterizedTypeReference<List<CISRecord>>() {})
-            .doOnError(
-                e -> {
-                  throw new CISClientProblem("Failed to fetch records for job " + bulkJobId, e);
-                })
-            .block();
-
-    // this null checking looks clumsy but it was hard to get Sonar to stop complaining about it
-    if (recordsResponse != null) {
-      List<CISRecord> body = recordsResponse.getBody();
-      if (body != null) {
-        return body.stream().map(CISRecord::getSctidAsLong).toList();
-      }
-    }
-    throw new CISClientProblem("Failed to fetch records for job " + bulkJobId);
+  private Mono<List<Long>> getSctIdsFromBulkJob(String bulkJobId) {
+    return client
+        .get()
+        .uri(
+            uriBuilder ->
+                uriBuilder
+                    .path("/bulk/jobs/{jobId}/records")
+                    .queryParam(TOKEN_VAR_NAME, token)
+                    .build(bulkJobId))
+        .retrieve()
+        .toEntity(new ParameterizedTypeReference<List<CISRecord>>() {})
+        .doOnError(
+            e -> {
+              throw new CISClientProblem("Failed to fetch records for job " + bulkJobId, e);
+            })
+        .mapNotNull(ResponseEntity::getBody)
+        .map(body -> body.stream().map(CISRecord::getSctidAsLong).toList())
+        .switchIfEmpty(
+            Mono.error(() -> new CISClientProblem("Failed to fetch records for job " + bulkJobId)));
   }
 
-  private void waitForJobToComplete(String bulkJobId) throws InterruptedException {
-    long timeout = System.currentTimeMillis() + timeoutSeconds * 1000L;
-    CISBulkJobStatusResponse statusResponse;
-    do {
-      if (timeout < System.currentTimeMillis()) {
-        throw new CISClientProblem("Bulk job " + bulkJobId + " timed out.");
-      }
-      statusResponse =
-          client
-              .get()
-              .uri(
-                  uriBuilder ->
-                      uriBuilder
-                          .path("/bulk/jobs/{jobId}")
-                          .queryParam(TOKEN_VAR_NAME, token)
-                          .build(bulkJobId))
-              .retrieve()
-              .bodyToMono(CISBulkJobStatusResponse.class)
-              .doOnError(
-                  e -> {
-                    throw new CISClientProblem("Failed to fetch status for job " + bulkJobId, e);
-                  })
-              .block();
-
-      if (statusResponse == null || statusResponse.getStatus() == null) {
-        throw new CISClientProblem("Failed to fetch status for job " + bulkJobId);
-      }
-
-      Thread.sleep(500);
-
-    } while (Integer.parseInt(statusResponse.getStatus()) < STATUS_SUCCESS);
-
-    if (Integer.parseInt(statusResponse.getStatus()) != STATUS_SUCCESS) {
-      throw new CISClientProblem(
-          "Bulk identifier reservation job "
-              + bulkJobId
-              + " failed with status "
-              + statusResponse.getStatus()
-              + " due to "
-              + statusResponse.getLog());
-    }
+  /**
+   * Polls a bulk job until it finishes, waiting {@link #pollInterval(long)} between polls, and
+   * fails if it has not finished within the client timeout.
+   */
+  private Mono<Void> waitForJobToComplete(String bulkJobId) {
+    return getBulkJobStatus(bulkJobId)
+        .filter(statusResponse -> Integer.parseInt(statusResponse.getStatus()) >= STATUS_SUCCESS)
+        .repeatWhenEmpty(
+            attempts -> attempts.concatMap(attempt -> Mono.delay(pollInterval(attempt))))
+        .timeout(
+            Duration.ofSeconds(timeoutSeconds),
+            Mono.error(() -> new CISClientProblem("Bulk job " + bulkJobId + " timed out.")))
+        .flatMap(
+            statusResponse -> {
+              if (Integer.parseInt(statusResponse.getStatus()) != STATUS_SUCCESS) {
+                return Mono.error(
+                    new CISClientProblem(
+                        "Bulk identifier job "
+                            + bulkJobId
+                            + " failed with status "
+                            + statusResponse.getStatus()
+                            + " due to "
+                            + statusResponse.getLog()));
+              }
+              return Mono.empty();
+            });
   }
 
-  private String executeBulkRequest(
-      String operation, CISGenerateRequest request, boolean includeSchemeName) {
-    CISBulkRequestResponse responseBody;
-    if (includeSchemeName) {
-      responseBody =
-          client
-              .post()
-              .uri(
-                  uriBuilder ->
-                      uriBuilder
-                          .path("/sct/bulk/{operation}")
-                          .queryParam(TOKEN_VAR_NAME, token)
-                          .queryParam("schemeName", "SNOMEDID")
-                          .build(operation))
-              .bodyValue(request)
-              .retrieve()
-              .bodyToMono(CISBulkRequestResponse.class)
-              .doOnError(
-                  e -> {
-                    throw CISClientProblem.cisClientProblemForOperation(operation, e);
-                  })
-              .block();
-    } else {
-      responseBody =
-          client
-              .post()
-              .uri(
-                  uriBuilder ->
-                      uriBuilder
-                          .path("/sct/bulk/{operation}")
-                          .queryParam(TOKEN_VAR_NAME, token)
-                          .build(operation))
-              .bodyValue(request)
-              .retrieve()
-              .bodyToMono(CISBulkRequestResponse.class)
-              .doOnError(
-                  e -> {
-                    throw CISClientProblem.cisClientProblemForOperation(operation, e);
-                  })
-              .block();
-    }
+  private Mono<CISBulkJobStatusResponse> getBulkJobStatus(String bulkJobId) {
+    return client
+        .get()
+        .uri(
+            uriBuilder ->
+                uriBuilder
+                    .path("/bulk/jobs/{jobId}")
+                    .queryParam(TOKEN_VAR_NAME, token)
+                    .build(bulkJobId))
+        .retrieve()
+        .bodyToMono(CISBulkJobStatusResponse.class)
+        .doOnError(
+            e -> {
+              throw new CISClientProblem("Failed to fetch status for job " + bulkJobId, e);
+            })
+        .filter(statusResponse -> statusResponse.getStatus() != null)
+        .switchIfEmpty(
+            Mono.error(() -> new CISClientProblem("Failed to fetch status for job " + bulkJobId)));
+  }
 
-    if (responseBody == null || responseBody.getId() == null) {
-      throw CISClientProblem.cisClientProblemForOperation(operation);
-    }
+  static Duration pollInterval(long attempt) {
+    return Duration.ofMillis(
+        Math.min(MAX_POLL_INTERVAL_MILLIS, INITIAL_POLL_INTERVAL_MILLIS << Math.min(attempt, 16)));
+  }
 
-    return responseBody.getId();
+  private Mono<String> executeBulkRequest(
+      String operation, Object request, boolean includeSchemeName) {
+    return client
+        .post()
+        .uri(
+            uriBuilder -> {
+              uriBuilder.path("/sct/bulk/{operation}").queryParam(TOKEN_VAR_NAME, token);
+              if (includeSchemeName) {
+                uriBuilder.queryParam("schemeName", "SNOMEDID");
+              }
+              return uriBuilder.build(operation);
+            })
+        .bodyValue(request)
+        .retrieve()
+        .bodyToMono(CISBulkRequestResponse.class)
+        .doOnError(
+            e -> {
+              throw CISClientProblem.cisClientProblemForOperation(operation, e);
+            })
+        .mapNotNull(CISBulkRequestResponse::getId)
+        .switchIfEmpty(Mono.error(() -> CISClientProblem.cisClientProblemForOperation(operation)));
   }
 }
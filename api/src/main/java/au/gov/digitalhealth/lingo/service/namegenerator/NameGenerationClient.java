@@ -35,16 +35,35 @@ public class NameGenerationClient {
   public static final String GENERATED_NAME_UNAVAILABLE = "Generated name unavailable";
   WebClient client;
   ObjectMapper objectMapper;
+  NameGenerationResultStore resultStore;
 
   @Autowired
   public NameGenerationClient(
-      @Qualifier("nameGeneratorApiClient") WebClient namegenApiClient, ObjectMapper objectMapper) {
+      @Qualifier("nameGeneratorApiClient") WebClient namegenApiClient,
+      ObjectMapper objectMapper,
+      NameGenerationResultStore resultStore) {
     this.client = namegenApiClient;
     this.objectMapper = objectMapper;
+    this.resultStore = resultStore;
   }
 
+  /**
+   * Generates the FSN and PT for the spec. Results are cached in memory, and kept in the {@link
+   * NameGenerationResultStore} so that other instances and later recalculations can reuse them.
+   */
   @Cacheable(value = "nameGenerator", key = "#spec.toString()")
   public FsnAndPt generateNames(NameGeneratorSpec spec) {
+    return resultStore
+        .find(spec)
+        .orElseGet(
+            () -> {
+              FsnAndPt result = requestNames(spec);
+              resultStore.store(spec, result);
+              return result;
+            });
+  }
+
+  private FsnAndPt requestNames(NameGeneratorSpec spec) {
     final long startNanos = System.nanoTime();
     if (log.isLoggable(Level.FINE)) {
       log.fine("Name generator request body: " + writeJsonOrToString(spec));
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service.namegenerator;
+
+import static au.gov.digitalhealth.lingo.service.namegenerator.NameGenerationClient.GENERATED_NAME_UNAVAILABLE;
+
+import au.gov.digitalhealth.lingo.product.FsnAndPt;
+import au.gov.digitalhealth.lingo.product.NameGeneratorSpec;
+import au.gov.digitalhealth.tickets.repository.GeneratedNameRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.transaction.Transactional;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Durable store of name generator results, shared by every running instance and kept across
+ * restarts, so recalculations and re-opened tickets do not send the same spec to the name generator
+ * again.
+ *
+ * <p>Entries are keyed by a SHA-256 of the configured generator version and the spec as it is sent
+ * to the name generator. Changing {@code name.generator.version} therefore stops every existing
+ * entry from matching, and the scheduled maintenance deletes them along with all but the {@code
+ * name.generator.store.max-entries} most recently used entries. The store is disabled while no
+ * version is configured, as there would be no way to tell results of an older generator apart.
+ *
+ * <p>The store is an optimisation only: a failure to read or write it is logged and the name
+ * generator is called as before. Reads and writes run in a transaction of their own, so a failure
+ * rolls back only that transaction and never marks the caller's transaction rollback-only.
+ */
+@Service
+@Log
+public class NameGenerationResultStore {
+
+  static final String HIT_METRIC = "snomio.namegenerator.store.hit";
+  static final String MISS_METRIC = "snomio.namegenerator.store.miss";
+
+  /** How stale an entry's last use may get before a hit records the use again. */
+  private static final Duration TOUCH_INTERVAL = Duration.ofDays(1);
+
+  private final GeneratedNameRepository repository;
+  private final ObjectMapper objectMapper;
+  private final String generatorVersion;
+  private final int maxEntries;
+  private final Counter hits;
+  private final Counter misses;
+  private final TransactionTemplate transactionTemplate;
+
+  public NameGenerationResultStore(
+      GeneratedNameRepository repository,
+      ObjectMapper objectMapper,
+      @Value("${name.generator.version:}") String generatorVersion,
+      @Value("${name.generator.store.max-entries:200000}") int maxEntries,
+      MeterRegistry meterRegistry,
+      PlatformTransactionManager transactionManager) {
+    this.repository = repository;
+    this.objectMapper = objectMapper;
+    this.generatorVersion = generatorVersion == null ? "" : generatorVersion.trim();
+    this.maxEntries = maxEntries;
+    this.hits = meterRegistry.counter(HIT_METRIC);
+    this.misses = meterRegistry.counter(MISS_METRIC);
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  public boolean isEnabled() {
+    return !generatorVersion.isEmpty();
+  }
+
+  public Optional<FsnAndPt> find(NameGeneratorSpec spec) {
+    if (!isEnabled()) {
+      return Optional.empty();
+    }
+    try {
+      String specHash = hash(spec);
+      Optional<FsnAndPt> result =
+          transactionTemplate.execute(
+              status -> {
+                Optional<FsnAndPt> stored =
+                    repository
+                        .findById(specHash)
+                        .map(
+                            name -> FsnAndPt.builder().FSN(name.getFsn()).PT(name.getPt()).build());
+                if (stored.isPresent()) {
+                  Instant now = Instant.now();
+                  repository.touch(specHash, now.minus(TOUCH_INTERVAL), now);
+                }
+                return stored;
+              });
+      if (result != null && result.isPresent()) {
+        hits.increment();
+        return result;
+      }
+      misses.increment();
+      return Optional.empty();
+    } catch (DataAccessException | TransactionException | JsonProcessingException e) {
+      log.log(Level.WARNING, "Failed to read stored name generator result", e);
+      return Optional.empty();
+    }
+  }
+
+  /** Stores a result, unless the name generator could not produce one. */
+  public void store(NameGeneratorSpec spec, FsnAndPt result) {
+    if (!isEnabled()
+        || result == null
+        || result.getFSN() == null
+        || result.getPT() == null
+        || GENERATED_NAME_UNAVAILABLE.equals(result.getFSN())
+        || GENERATED_NAME_UNAVAILABLE.equals(result.getPT())) {
+      return;
+    }
+    try {
+      String specHash = hash(spec);
+      transactionTemplate.executeWithoutResult(
+          status ->
+              repository.upsert(
+                  specHash, generatorVersion, result.getFSN(), result.getPT(), Instant.now()));
+    } catch (DataAccessException | TransactionException | JsonProcessingException e) {
+      log.log(Level.WARNING, "Failed to store name generator result", e);
+    }
+  }
+
+  /** Deletes entries from other generator versions and trims the store to its maximum size. */
+  @Scheduled(fixedDelayString = "${name.generator.store.maintenance.interval:3600000}")
+  @Transactional
+  public void prune() {
+    if (!isEnabled()) {
+      return;
+    }
+    int otherVersions = repository.deleteOtherVersions(generatorVersion);
+    int leastRecentlyUsed = repository.deleteLeastRecentlyUsed(maxEntries);
+    if (otherVersions + leastRecentlyUsed > 0) {
+      log.info(
+          "Pruned "
+              + otherVersions
+              + " name generator results from other generator versions and "
+              + leastRecentlyUsed
+              + " least recently used");
+    }
+  }
+
+  String hash(NameGeneratorSpec spec) throws JsonProcessingException {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(generatorVersion.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(objectMapper.writeValueAsBytes(spec));
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
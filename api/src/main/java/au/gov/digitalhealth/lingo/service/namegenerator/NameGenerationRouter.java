@@ -19,22 +19,32 @@ import au.csiro.snowstorm_client.model.SnowstormConceptMini;
 import au.gov.digitalhealth.lingo.configuration.ApiWebConfiguration;
 import au.gov.digitalhealth.lingo.product.FsnAndPt;
 import au.gov.digitalhealth.lingo.product.NameGeneratorSpec;
+import au.gov.digitalhealth.lingo.service.RequestScopedBranchTimestampService;
 import au.gov.digitalhealth.lingo.service.SnowstormClient;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.annotation.PostConstruct;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.extern.java.Log;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.bind.Bindable;
 import org.springframework.boot.context.properties.bind.Binder;
@@ -54,6 +64,12 @@ import reactor.netty.http.client.HttpClient;
  * ECL concepts include a PT that appears as a quoted string in pt_owl is used. Falls back to the
  * default name generator if no ECL matches.
  *
+ * <p>The ECL results are held in an index from concept PT to generator, keyed by branch and the
+ * branch version it was built from. Routing is then a lookup per axiom concept PT. When the branch
+ * moves on, the first request to route on the new version builds its index, running the ECL lookups
+ * concurrently and waiting for them. An index missing an ECL whose lookup failed is used once and
+ * not kept, so the next request tries again.
+ *
  * <p>Properties format (no brackets required):
  *
  * <pre>
@@ -75,9 +91,14 @@ public class NameGenerationRouter {
   private final ObjectProvider<WebClient.Builder> webClientBuilderProvider;
   private final ObjectMapper objectMapper;
   private final int timeoutSeconds;
+  private final RequestScopedBranchTimestampService branchTimestampService;
 
   private List<EclClientEntry> eclClients;
 
+  private final Cache<EclPtIndexKey, EclPtIndex> eclPtIndexes =
+      Caffeine.newBuilder().maximumSize(200).expireAfterAccess(Duration.ofHours(12)).build();
+  private final Executor indexExecutor;
+
   @Autowired
   public NameGenerationRouter(
       NameGenerationClient defaultClient,
@@ -85,13 +106,17 @@ public class NameGenerationRouter {
       Environment environment,
       ObjectProvider<WebClient.Builder> webClientBuilderProvider,
       ObjectMapper objectMapper,
-      @Value("${name.generator.api.timeout-seconds:90}") int timeoutSeconds) {
+      @Value("${name.generator.api.timeout-seconds:90}") int timeoutSeconds,
+      RequestScopedBranchTimestampService branchTimestampService,
+      @Qualifier("nameGeneratorIndexExecutor") Executor indexExecutor) {
     this.defaultClient = defaultClient;
     this.snowstormClient = snowstormClient;
     this.environment = environment;
     this.webClientBuilderProvider = webClientBuilderProvider;
     this.objectMapper = objectMapper;
     this.timeoutSeconds = timeoutSeconds;
+    this.branchTimestampService = branchTimestampService;
+    this.indexExecutor = indexExecutor;
   }
 
   @PostConstruct
@@ -152,20 +177,26 @@ public class NameGenerationRouter {
     if (branch != null && !eclClients.isEmpty()) {
       Collection<String> axiomConceptPts = axiomConceptPtsSupplier.get();
       if (axiomConceptPts != null && !axiomConceptPts.isEmpty()) {
-        for (EclClientEntry entry : eclClients) {
-          Set<String> eclPts = getEclConceptPts(branch, entry.ecl);
-          if (eclPts.stream().anyMatch(axiomConceptPts::contains)) {
-            log.info(
-                "Resolved ECL-based name generator for ECL ["
-                    + entry.ecl
-                    + "] — matched an axiom concept PT");
-            String ecl = entry.ecl;
-            Function<NameGeneratorSpec, FsnAndPt> gen = entry.generator;
-            return spec -> {
-              log.info("Calling ECL-based name generator for ECL [" + ecl + "]");
-              return gen.apply(spec);
-            };
-          }
+        Map<String, Integer> generatorByPt = getEclPtIndex(branch).generatorByPt();
+        int match =
+            axiomConceptPts.stream()
+                .map(generatorByPt::get)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .min()
+                .orElse(-1);
+        if (match >= 0) {
+          EclClientEntry entry = eclClients.get(match);
+          log.info(
+              "Resolved ECL-based name generator for ECL ["
+                  + entry.ecl
+                  + "] — matched an axiom concept PT");
+          String ecl = entry.ecl;
+          Function<NameGeneratorSpec, FsnAndPt> gen = entry.generator;
+          return spec -> {
+            log.info("Calling ECL-based name generator for ECL [" + ecl + "]");
+            return gen.apply(spec);
+          };
         }
       }
     }
@@ -175,6 +206,72 @@ public class NameGenerationRouter {
     };
   }
 
+  /**
+   * Returns the PT index for the branch at its current version, building it on first use. An index
+   * that is missing an ECL whose lookup failed is returned but not kept.
+   */
+  private EclPtIndex getEclPtIndex(String branch) {
+    EclPtIndexKey key = new EclPtIndexKey(branch, getBranchTimestamp(branch));
+    EclPtIndex index = eclPtIndexes.get(key, this::buildEclPtIndex);
+    if (!index.complete()) {
+      eclPtIndexes.asMap().remove(key, index);
+    }
+    return index;
+  }
+
+  private Long getBranchTimestamp(String branch) {
+    try {
+      return branchTimestampService.getBranchTimestamp(branch);
+    } catch (IllegalStateException e) {
+      // no request scope, e.g. a scheduled job
+      return snowstormClient.getBranchHeadAndBaseTimestamp(branch);
+    }
+  }
+
+  private EclPtIndex buildEclPtIndex(EclPtIndexKey key) {
+    String branch = key.branch();
+    // the ECL lookups run on the index executor with this request's context, and this thread
+    // waits for them, so the context is still live while they run
+    List<CompletableFuture<Set<String>>> lookups =
+        eclClients.stream()
+            .map(
+                client ->
+                    CompletableFuture.supplyAsync(
+                        () -> getEclConceptPts(branch, client.ecl), indexExecutor))
+            .toList();
+
+    Map<String, Integer> generatorByPt = new HashMap<>();
+    boolean complete = true;
+    for (int i = 0; i < lookups.size(); i++) {
+      Set<String> eclPts = joinLookup(lookups.get(i));
+      if (eclPts == null) {
+        complete = false;
+        continue;
+      }
+      for (String pt : eclPts) {
+        generatorByPt.putIfAbsent(pt, i);
+      }
+    }
+    log.fine(
+        "Indexed "
+            + generatorByPt.size()
+            + " ECL generator PTs for branch "
+            + branch
+            + " at "
+            + key.branchTimestamp());
+    return new EclPtIndex(Map.copyOf(generatorByPt), complete);
+  }
+
+  private static Set<String> joinLookup(CompletableFuture<Set<String>> lookup) {
+    try {
+      return lookup.join();
+    } catch (CompletionException e) {
+      log.warning("ECL lookup for name generator routing failed: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /** Returns the PTs of the ECL's concepts, or null if they could not be fetched. */
   private Set<String> getEclConceptPts(String branch, String ecl) {
     try {
       Collection<SnowstormConceptMini> concepts =
@@ -192,7 +289,7 @@ public class NameGenerationRouter {
               + ": "
               + e.getMessage()
               + ". Defaulting to no match.");
-      return Set.of();
+      return null;
     }
   }
 
@@ -265,6 +362,16 @@ public class NameGenerationRouter {
     }
   }
 
+  /** A branch at the version given by its head and base timestamp. */
+  private record EclPtIndexKey(String branch, Long branchTimestamp) {}
+
+  /**
+   * Maps each PT of a concept matched by an ECL generator to the position of the first such
+   * generator in {@code eclClients}. {@code complete} is false if a generator's ECL could not be
+   * fetched.
+   */
+  private record EclPtIndex(Map<String, Integer> generatorByPt, boolean complete) {}
+
   /** Holds the ECL expression and the name generator function for one configured ECL generator. */
   private static class EclClientEntry {
     final String ecl;
@@ -28,14 +28,20 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import lombok.extern.java.Log;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -47,14 +53,26 @@ public class NameGenerationService {
   NameGenerationRouter router;
   OwlAxiomService owlAxiomService;
 
+  /**
+   * Run the blocking calls to the name generator. Callers chain further calculation work onto the
+   * resulting futures, so both carry the request and security context of the caller.
+   */
+  private final Executor generatorExecutor;
+
+  private final Executor bulkGeneratorExecutor;
+
   @Autowired
   public NameGenerationService(
       NameGenerationRouter router,
       OwlAxiomService owlAxiomService,
-      @Value("${snomio.nameGenerator.failOnBadInput:false}") boolean failOnBadInput) {
+      @Value("${snomio.nameGenerator.failOnBadInput:false}") boolean failOnBadInput,
+      @Qualifier("nameGenerationExecutor") Executor generatorExecutor,
+      @Qualifier("bulkNameGenerationExecutor") Executor bulkGeneratorExecutor) {
     this.router = router;
     this.owlAxiomService = owlAxiomService;
     this.failOnBadInput = failOnBadInput;
+    this.generatorExecutor = generatorExecutor;
+    this.bulkGeneratorExecutor = bulkGeneratorExecutor;
   }
 
   /**
@@ -64,27 +82,64 @@ public class NameGenerationService {
    */
   public NodeNameGenerator resolveNameGenerator(
       String branch, Supplier<Collection<String>> axiomConceptPtsSupplier) {
+    return resolveNameGenerator(branch, axiomConceptPtsSupplier, generatorExecutor);
+  }
+
+  /**
+   * As {@link #resolveNameGenerator(String, Supplier)}, for bulk calculations. Their calls to the
+   * name generator are limited separately, so they cannot hold up interactive calculations.
+   */
+  public NodeNameGenerator resolveBulkNameGenerator(
+      String branch, Supplier<Collection<String>> axiomConceptPtsSupplier) {
+    return resolveNameGenerator(branch, axiomConceptPtsSupplier, bulkGeneratorExecutor);
+  }
+
+  private NodeNameGenerator resolveNameGenerator(
+      String branch, Supplier<Collection<String>> axiomConceptPtsSupplier, Executor executor) {
     Function<NameGeneratorSpec, FsnAndPt> nameGenerator =
         router.resolve(branch, axiomConceptPtsSupplier);
+    // nodes of one calculation that need the same name share a single call
+    Map<String, CompletableFuture<FsnAndPt>> requested = new ConcurrentHashMap<>();
     return (cache, tag, node, config, order) ->
-        addGeneratedFsnAndPt(cache, tag, node, config, order, nameGenerator);
+        addGeneratedFsnAndPt(cache, tag, node, config, order, nameGenerator, requested, executor);
   }
 
-  private void addGeneratedFsnAndPt(
+  /**
+   * Generates names for several specs at once. Specs with the same cache key are sent to the
+   * generator once, and distinct specs are sent concurrently on the interactive executor.
+   *
+   * @return the names, in the order of {@code specs}
+   */
+  List<FsnAndPt> createFsnAndPreferredTerms(
+      Function<NameGeneratorSpec, FsnAndPt> generator, List<NameGeneratorSpec> specs) {
+    Map<String, CompletableFuture<FsnAndPt>> requested = new ConcurrentHashMap<>();
+    List<CompletableFuture<FsnAndPt>> results =
+        specs.stream()
+            .map(spec -> requestFsnAndPreferredTerm(generator, spec, requested, generatorExecutor))
+            .toList();
+    return results.stream().map(NameGenerationService::join).toList();
+  }
+
+  private CompletableFuture<Void> addGeneratedFsnAndPt(
       AtomicCache atomicCache,
       String semanticTag,
       Node node,
       ModelConfiguration modelConfiguration,
       List<String> order,
-      Function<NameGeneratorSpec, FsnAndPt> generator) {
+      Function<NameGeneratorSpec, FsnAndPt> generator,
+      Map<String, CompletableFuture<FsnAndPt>> requested,
+      Executor executor) {
     Instant start = Instant.now();
     Optional<NameGeneratorSpec> nameGeneratorSpec =
         generateNameGeneratorSpec(atomicCache, semanticTag, node, modelConfiguration, order);
-    if (nameGeneratorSpec.isEmpty()) return;
+    if (nameGeneratorSpec.isEmpty()) return CompletableFuture.completedFuture(null);
     node.getNewConceptDetails().setNameGeneratorSpec(nameGeneratorSpec.get());
 
-    FsnAndPt fsnAndPt = createFsnAndPreferredTerm(generator, nameGeneratorSpec.get());
+    return requestFsnAndPreferredTerm(generator, nameGeneratorSpec.get(), requested, executor)
+        .thenAccept(fsnAndPt -> applyFsnAndPt(atomicCache, node, fsnAndPt, start));
+  }
 
+  private void applyFsnAndPt(AtomicCache atomicCache, Node node, FsnAndPt fsnAndPt, Instant start) {
     node.getNewConceptDetails().setFullySpecifiedName(fsnAndPt.getFSN());
     node.getNewConceptDetails().setPreferredTerm(fsnAndPt.getPT());
     atomicCache.addFsnAndPt(node.getConceptId(), fsnAndPt.getFSN(), fsnAndPt.getPT());
@@ -102,6 +157,29 @@ public class NameGenerationService {
     }
   }
 
+  private CompletableFuture<FsnAndPt> requestFsnAndPreferredTerm(
+      Function<NameGeneratorSpec, FsnAndPt> generator,
+      NameGeneratorSpec spec,
+      Map<String, CompletableFuture<FsnAndPt>> requested,
+      Executor executor) {
+    return requested.computeIfAbsent(
+        spec.toString(),
+        key ->
+            CompletableFuture.supplyAsync(
+                () -> createFsnAndPreferredTerm(generator, spec), executor));
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    }
+  }
+
   public Optional<NameGeneratorSpec> generateNameGeneratorSpec(
       AtomicCache atomicCache,
       String semanticTag,
@@ -19,18 +19,46 @@ import au.gov.digitalhealth.lingo.configuration.model.ModelConfiguration;
 import au.gov.digitalhealth.lingo.product.Node;
 import au.gov.digitalhealth.lingo.service.AtomicCache;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Resolved name generator for a specific product. Obtained once per product via {@link
  * NameGenerationService#resolveNameGenerator} and reused for every node of that product.
+ *
+ * <p>Nodes of the same product that need the same name share one call to the name generator, and
+ * calls run in the name generator pool so the calling thread can carry on with other nodes.
  */
 @FunctionalInterface
 public interface NodeNameGenerator {
 
-  void generate(
+  /**
+   * Works out the name generator spec for the node on the calling thread, then fetches the name in
+   * the background.
+   *
+   * @return a future completed once the node has its generated FSN and PT
+   */
+  CompletableFuture<Void> generateAsync(
       AtomicCache atomicCache,
       String semanticTag,
       Node node,
       ModelConfiguration modelConfiguration,
       List<String> order);
+
+  /** Generates the node's FSN and PT, waiting for the name generator. */
+  default void generate(
+      AtomicCache atomicCache,
+      String semanticTag,
+      Node node,
+      ModelConfiguration modelConfiguration,
+      List<String> order) {
+    try {
+      generateAsync(atomicCache, semanticTag, node, modelConfiguration, order).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    }
+  }
 }
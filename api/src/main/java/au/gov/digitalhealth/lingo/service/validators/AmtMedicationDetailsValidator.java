@@ -25,17 +25,20 @@ import static au.gov.digitalhealth.lingo.util.SnowstormDtoUtil.getIdAndFsnTerm;
 import au.csiro.snowstorm_client.model.SnowstormConceptMini;
 import au.gov.digitalhealth.lingo.configuration.FieldBindingConfiguration;
 import au.gov.digitalhealth.lingo.configuration.model.ExternalIdentifierDefinition;
+import au.gov.digitalhealth.lingo.configuration.model.ModelConfiguration;
 import au.gov.digitalhealth.lingo.configuration.model.Models;
 import au.gov.digitalhealth.lingo.configuration.model.enumeration.ProductPackageType;
 import au.gov.digitalhealth.lingo.product.details.Ingredient;
 import au.gov.digitalhealth.lingo.product.details.MedicationProductDetails;
 import au.gov.digitalhealth.lingo.product.details.PackageDetails;
 import au.gov.digitalhealth.lingo.product.details.PackageQuantity;
+import au.gov.digitalhealth.lingo.product.details.ProductDetails;
 import au.gov.digitalhealth.lingo.product.details.ProductQuantity;
 import au.gov.digitalhealth.lingo.product.details.ProductTemplate;
 import au.gov.digitalhealth.lingo.product.details.ProductType;
 import au.gov.digitalhealth.lingo.product.details.Quantity;
 import au.gov.digitalhealth.lingo.product.details.properties.ExternalIdentifier;
+import au.gov.digitalhealth.lingo.service.BulkCalculationScheduler;
 import au.gov.digitalhealth.lingo.service.SnowstormClient;
 import au.gov.digitalhealth.lingo.service.fhir.FhirClient;
 import au.gov.digitalhealth.lingo.util.SnomedConstants;
@@ -44,7 +47,10 @@ import jakarta.validation.Valid;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
@@ -52,6 +58,7 @@ import java.util.stream.Collectors;
 import lombok.extern.java.Log;
 import org.springframework.data.util.Pair;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 @SuppressWarnings("java:S6830")
 @Service("AMT-MedicationDetailsValidator")
@@ -63,16 +70,19 @@ public class AmtMedicationDetailsValidator extends DetailsValidator
   Models models;
   SnowstormClient snowstormClient;
   FieldBindingConfiguration fieldBindingConfiguration;
+  BulkCalculationScheduler bulkCalculationScheduler;
 
   public AmtMedicationDetailsValidator(
       Models models,
       SnowstormClient snowstormClient,
       FieldBindingConfiguration fieldBindingConfiguration,
-      FhirClient fhirClient) {
+      FhirClient fhirClient,
+      BulkCalculationScheduler bulkCalculationScheduler) {
     this.models = models;
     this.snowstormClient = snowstormClient;
     this.fieldBindingConfiguration = fieldBindingConfiguration;
     this.fhirClient = fhirClient;
+    this.bulkCalculationScheduler = bulkCalculationScheduler;
   }
 
   static void validateExternalIdentifier(
@@ -352,6 +362,14 @@ public class AmtMedicationDetailsValidator extends DetailsValidator
 
     ValidationResult result = new ValidationResult();
 
+    prefetch(
+        remoteLookups(
+            branch,
+            packageDetails,
+            snowstormClient,
+            fhirClient,
+            models.getModelConfiguration(branch)));
+
     validateTypeParameters(packageDetails, result);
 
     rejectBrandedProductName(packageDetails, result);
@@ -405,10 +423,12 @@ public class AmtMedicationDetailsValidator extends DetailsValidator
         ExternalIdentifier.filter(packageDetails.getNonDefiningProperties()),
         result);
 
-    for (ProductQuantity<MedicationProductDetails> productQuantity :
-        packageDetails.getContainedProducts()) {
-      validateProductQuantity(branch, productQuantity, result);
-    }
+    validateEach(
+        bulkCalculationScheduler,
+        packageDetails.getContainedProducts(),
+        (productQuantity, productResult) ->
+            validateProductQuantity(branch, productQuantity, productResult),
+        result);
 
     for (@Valid
     PackageQuantity<MedicationProductDetails> packageQuantity :
@@ -419,6 +439,43 @@ public class AmtMedicationDetailsValidator extends DetailsValidator
     return result;
   }
 
+  /**
+   * Adds the unit relationship lookups behind {@link SnowstormClient#isCompositeUnit} and {@link
+   * SnowstormClient#getNumeratorAndDenominatorUnit} for every ingredient's total quantity and
+   * concentration strength units.
+   */
+  @Override
+  protected <T extends ProductDetails> List<Mono<?>> remoteLookups(
+      String branch,
+      PackageDetails<T> packageDetails,
+      SnowstormClient snowstormClient,
+      FhirClient fhirClient,
+      ModelConfiguration modelConfiguration) {
+    List<Mono<?>> lookups =
+        new ArrayList<>(
+            super.remoteLookups(
+                branch, packageDetails, snowstormClient, fhirClient, modelConfiguration));
+    Set<String> unitIds = new HashSet<>();
+    for (T productDetails : allProductDetails(packageDetails)) {
+      if (productDetails instanceof MedicationProductDetails medicationProductDetails) {
+        for (Ingredient ingredient : medicationProductDetails.getActiveIngredients()) {
+          addUnitId(ingredient.getTotalQuantity(), unitIds);
+          addUnitId(ingredient.getConcentrationStrength(), unitIds);
+        }
+      }
+    }
+    unitIds.forEach(unitId -> lookups.add(snowstormClient.getRelationships(branch, unitId)));
+    return lookups;
+  }
+
+  private static void addUnitId(Quantity quantity, Set<String> unitIds) {
+    if (quantity != null
+        && quantity.getUnit() != null
+        && quantity.getUnit().getConceptId() != null) {
+      unitIds.add(quantity.getUnit().getConceptId());
+    }
+  }
+
   private void validateProductQuantity(
       String branch,
       ProductQuantity<MedicationProductDetails> productQuantity,
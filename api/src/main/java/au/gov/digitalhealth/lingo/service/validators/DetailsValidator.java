@@ -32,19 +32,35 @@ import au.gov.digitalhealth.lingo.product.details.properties.ExternalIdentifier;
 import au.gov.digitalhealth.lingo.product.details.properties.FieldValue;
 import au.gov.digitalhealth.lingo.product.details.properties.NonDefiningBase;
 import au.gov.digitalhealth.lingo.product.details.properties.NonDefiningProperty;
+import au.gov.digitalhealth.lingo.service.BulkCalculationScheduler;
 import au.gov.digitalhealth.lingo.service.SnowstormClient;
 import au.gov.digitalhealth.lingo.service.fhir.FhirClient;
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import lombok.extern.java.Log;
 import reactor.core.publisher.Mono;
 
+/**
+ * Base class for the product details validators.
+ *
+ * <p>Rules fall into local rules, which only look at the submitted details, and remote rules, which
+ * look concepts up in Snowstorm or the FHIR server. Every remote lookup goes through a cached
+ * client method, so validators first {@link #prefetch} the lookups their remote rules will make,
+ * concurrently, and then run the rules for each contained product in parallel with {@link
+ * #validateEach}. The rules then only hit the cache, and validation time no longer grows with the
+ * number of products and ingredients.
+ */
 @Log
 public abstract class DetailsValidator {
 
@@ -52,6 +68,133 @@ public abstract class DetailsValidator {
 
   protected abstract Set<ProductTemplate> getSupportedProductTemplates();
 
+  /**
+   * Returns every product in the package, including those in contained packages.
+   *
+   * @param packageDetails the package
+   * @return the contained product details, outer package first
+   */
+  protected static <T extends ProductDetails> List<T> allProductDetails(
+      PackageDetails<T> packageDetails) {
+    List<T> productDetails = new ArrayList<>();
+    packageDetails.getContainedProducts().forEach(pq -> productDetails.add(pq.getProductDetails()));
+    packageDetails
+        .getContainedPackages()
+        .forEach(pq -> productDetails.addAll(allProductDetails(pq.getPackageDetails())));
+    return productDetails;
+  }
+
+  /**
+   * Returns the remote lookups this validator's rules will make for the package. The lookups must
+   * be the same cached client calls the rules make, so that after {@link #prefetch} the rules are
+   * served from the cache.
+   *
+   * <p>This covers the external identifier existence checks made by {@link
+   * #validateNonDefiningProperties}; validators with further remote rules add their own lookups.
+   *
+   * @param branch branch being validated against
+   * @param packageDetails the package being validated
+   * @param snowstormClient Snowstorm client the rules use
+   * @param fhirClient FHIR client the rules use
+   * @param modelConfiguration model configuration of the branch
+   * @return the lookups, not yet subscribed
+   */
+  protected <T extends ProductDetails> List<Mono<?>> remoteLookups(
+      String branch,
+      PackageDetails<T> packageDetails,
+      SnowstormClient snowstormClient,
+      FhirClient fhirClient,
+      ModelConfiguration modelConfiguration) {
+    List<NonDefiningBase> properties = new ArrayList<>(packageDetails.getNonDefiningProperties());
+    packageDetails
+        .getContainedPackages()
+        .forEach(pq -> properties.addAll(pq.getPackageDetails().getNonDefiningProperties()));
+    allProductDetails(packageDetails)
+        .forEach(pd -> properties.addAll(pd.getNonDefiningProperties()));
+
+    Map<String, String> codeSystemByScheme = new HashMap<>();
+    modelConfiguration.getMappings().stream()
+        .filter(definition -> definition.getCodeSystem() != null)
+        .forEach(
+            definition ->
+                codeSystemByScheme.putIfAbsent(definition.getName(), definition.getCodeSystem()));
+
+    List<Mono<?>> lookups = new ArrayList<>();
+    for (ExternalIdentifier externalIdentifier : ExternalIdentifier.filter(properties)) {
+      String codeSystem = codeSystemByScheme.get(externalIdentifier.getIdentifierScheme());
+      if (codeSystem == null) {
+        continue;
+      }
+      if (codeSystem.equals("http://snomed.info/sct")) {
+        if (externalIdentifier.getValue() != null) {
+          lookups.add(snowstormClient.getConceptMono(branch, externalIdentifier.getValue()));
+        }
+      } else if (externalIdentifier.getValueObject() != null
+          && externalIdentifier.getValueObject().getConceptId() != null) {
+        lookups.add(
+            fhirClient.getConcept(externalIdentifier.getValueObject().getConceptId(), codeSystem));
+      }
+    }
+    return lookups;
+  }
+
+  /**
+   * Runs the lookups concurrently and waits for them all to finish, so their results are in the
+   * client caches before the rules run. Failures are ignored here; the rule making the same lookup
+   * sees the failure and reports it as it always has.
+   *
+   * @param lookups lookups from {@link #remoteLookups}
+   */
+  protected static void prefetch(List<Mono<?>> lookups) {
+    List<Mono<Void>> quietLookups =
+        lookups.stream()
+            .filter(Objects::nonNull)
+            .map(lookup -> lookup.then().onErrorResume(e -> Mono.empty()))
+            .toList();
+    if (!quietLookups.isEmpty()) {
+      Mono.when(quietLookups).block();
+    }
+  }
+
+  /**
+   * Applies {@code rules} to each item, in parallel on the bulk calculation scheduler when there is
+   * more than one item, and adds the problems and warnings to {@code result} in item order so the
+   * output is the same as validating the items one after the other.
+   *
+   * @param scheduler scheduler to run the rules on
+   * @param items items to validate, e.g. the contained products of a package
+   * @param rules rules to apply to a single item, adding to the result they are given
+   * @param result result to add each item's problems and warnings to
+   */
+  protected static <T> void validateEach(
+      BulkCalculationScheduler scheduler,
+      List<T> items,
+      BiConsumer<T, ValidationResult> rules,
+      ValidationResult result) {
+    if (items.size() < 2) {
+      items.forEach(item -> rules.accept(item, result));
+      return;
+    }
+
+    BulkCalculationScheduler.Job job = scheduler.startJob("validation");
+    List<CompletableFuture<ValidationResult>> itemResults =
+        items.stream()
+            .map(
+                item ->
+                    job.submit(
+                        () -> {
+                          ValidationResult itemResult = new ValidationResult();
+                          rules.accept(item, itemResult);
+                          return itemResult;
+                        }))
+            .toList();
+    try {
+      itemResults.forEach(itemResult -> result.addAll(itemResult.join()));
+    } catch (CompletionException e) {
+      throw (e.getCause() instanceof RuntimeException runtimeException) ? runtimeException : e;
+    }
+  }
+
   protected static void validateNumeratorDenominatorSet(
       @Valid Quantity strengthNumerator,
       @Valid Quantity strengthDenominator,
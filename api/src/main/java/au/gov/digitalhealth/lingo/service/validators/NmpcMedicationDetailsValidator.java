@@ -29,6 +29,7 @@ import au.gov.digitalhealth.lingo.product.details.ProductTemplate;
 import au.gov.digitalhealth.lingo.product.details.ProductType;
 import au.gov.digitalhealth.lingo.product.details.Quantity;
 import au.gov.digitalhealth.lingo.product.details.VaccineProductDetails;
+import au.gov.digitalhealth.lingo.service.BulkCalculationScheduler;
 import au.gov.digitalhealth.lingo.service.SnowstormClient;
 import au.gov.digitalhealth.lingo.service.fhir.FhirClient;
 import jakarta.validation.Valid;
@@ -48,16 +49,19 @@ public class NmpcMedicationDetailsValidator extends DetailsValidator
   Models models;
   SnowstormClient snowstormClient;
   FieldBindingConfiguration fieldBindingConfiguration;
+  BulkCalculationScheduler bulkCalculationScheduler;
 
   public NmpcMedicationDetailsValidator(
       Models models,
       SnowstormClient snowstormClient,
       FieldBindingConfiguration fieldBindingConfiguration,
-      FhirClient fhirClient) {
+      FhirClient fhirClient,
+      BulkCalculationScheduler bulkCalculationScheduler) {
     this.models = models;
     this.snowstormClient = snowstormClient;
     this.fieldBindingConfiguration = fieldBindingConfiguration;
     this.fhirClient = fhirClient;
+    this.bulkCalculationScheduler = bulkCalculationScheduler;
   }
 
   private static void validateQuantityPopulated(
@@ -76,6 +80,14 @@ public class NmpcMedicationDetailsValidator extends DetailsValidator
       FhirClient fhirClient) {
     ValidationResult result = new ValidationResult();
 
+    prefetch(
+        remoteLookups(
+            branch,
+            packageDetails,
+            snowstormClient,
+            fhirClient,
+            models.getModelConfiguration(branch)));
+
     validateTypeParameters(packageDetails, result);
 
     validateNonDefiningProperties(
@@ -98,20 +110,29 @@ public class NmpcMedicationDetailsValidator extends DetailsValidator
     validateConceptNotSet(
         packageDetails.getProductName(), "Packages cannot have a product name defined", result);
 
-    for (ProductQuantity<MedicationProductDetails> productQuantity :
-        packageDetails.getContainedProducts()) {
-      validateQuantityPopulated(productQuantity, "Product quantity", result);
-      if (productQuantity.getUnit() == null
-          || UNIT_OF_PRESENTATION.getValue().equals(productQuantity.getUnit().getConceptId())
-              && !productQuantity.getValue().equals(BigDecimal.ONE)) {
-        result.addProblem("Product quantity must be one if unit is 'unit of presentation'");
-      }
-      validateProductDetails(productQuantity.getProductDetails(), branch, result);
-    }
+    validateEach(
+        bulkCalculationScheduler,
+        packageDetails.getContainedProducts(),
+        (productQuantity, productResult) ->
+            validateProductQuantity(productQuantity, branch, productResult),
+        result);
 
     return result;
   }
 
+  private void validateProductQuantity(
+      ProductQuantity<MedicationProductDetails> productQuantity,
+      String branch,
+      ValidationResult result) {
+    validateQuantityPopulated(productQuantity, "Product quantity", result);
+    if (productQuantity.getUnit() == null
+        || UNIT_OF_PRESENTATION.getValue().equals(productQuantity.getUnit().getConceptId())
+            && !productQuantity.getValue().equals(BigDecimal.ONE)) {
+      result.addProblem("Product quantity must be one if unit is 'unit of presentation'");
+    }
+    validateProductDetails(productQuantity.getProductDetails(), branch, result);
+  }
+
   private void validateProductDetails(
       @NotNull @Valid MedicationProductDetails productDetails,
       String branch,
@@ -34,6 +34,11 @@ public class ValidationResult {
     warnings.add(new ValidationProblem(message));
   }
 
+  public void addAll(ValidationResult other) {
+    problems.addAll(other.getProblems());
+    warnings.addAll(other.getWarnings());
+  }
+
   public boolean isValid() {
     return problems.isEmpty();
   }
@@ -28,7 +28,6 @@ import au.gov.digitalhealth.tickets.TicketDto;
 import au.gov.digitalhealth.tickets.TicketDtoExtended;
 import au.gov.digitalhealth.tickets.TicketDtoOptionals;
 import au.gov.digitalhealth.tickets.TicketHistoryEntryDto;
-import au.gov.digitalhealth.tickets.TicketImportDto;
 import au.gov.digitalhealth.tickets.TicketMinimalDto;
 import au.gov.digitalhealth.tickets.helper.BulkAddExternalRequestorsRequest;
 import au.gov.digitalhealth.tickets.helper.BulkAddExternalRequestorsResponse;
@@ -50,16 +49,13 @@ import au.gov.digitalhealth.tickets.repository.ScheduleRepository;
 import au.gov.digitalhealth.tickets.repository.StateRepository;
 import au.gov.digitalhealth.tickets.repository.TicketRepository;
 import au.gov.digitalhealth.tickets.service.TicketHistoryService;
+import au.gov.digitalhealth.tickets.service.TicketImportService;
 import au.gov.digitalhealth.tickets.service.TicketServiceImpl;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.querydsl.core.types.Predicate;
 import jakarta.annotation.Nullable;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.transaction.Transactional;
 import java.io.File;
-import java.io.IOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
@@ -96,6 +92,7 @@ public class TicketController {
   private final TicketServiceImpl ticketService;
 
   private final TicketHistoryService ticketHistoryService;
+  private final TicketImportService ticketImportService;
   private final TicketRepository ticketRepository;
   private final StateRepository stateRepository;
 
@@ -113,6 +110,7 @@ public class TicketController {
   public TicketController(
       TicketServiceImpl ticketService,
       TicketHistoryService ticketHistoryService,
+      TicketImportService ticketImportService,
       TicketRepository ticketRepository,
       StateRepository stateRepository,
       ScheduleRepository scheduleRepository,
@@ -121,6 +119,7 @@ public class TicketController {
       TicketProductNameDerivationService ticketProductNameDerivationService) {
     this.ticketService = ticketService;
     this.ticketHistoryService = ticketHistoryService;
+    this.ticketImportService = ticketImportService;
     this.ticketRepository = ticketRepository;
     this.stateRepository = stateRepository;
     this.scheduleRepository = scheduleRepository;
@@ -130,6 +129,7 @@ public class TicketController {
   }
 
   private static final String TICKET_BACKLOG_DTO_EMBEDDED_RELATION = "ticketBacklogDtoList";
+  private static final String TICKET_HISTORY_EMBEDDED_RELATION = "ticketHistoryEntryDtoList";
 
   @GetMapping("/api/tickets")
   public ResponseEntity<HalPageResponse<TicketDto>> getAllTickets(
@@ -145,11 +145,16 @@ public class TicketController {
         HalPageResponse.of(pagedTicketDto, TICKET_BACKLOG_DTO_EMBEDDED_RELATION), HttpStatus.OK);
   }
 
+  /**
+   * Searches the backlog. Passing a {@code cursor} (blank for the first page, then the cursor from
+   * the {@code next} link) pages by seeking past the previous page instead of by page number.
+   */
   @GetMapping("/api/tickets/search")
   public ResponseEntity<HalPageResponse<TicketBacklogDto>> searchTickets(
       HttpServletRequest request,
       @RequestParam(defaultValue = "0") final Integer page,
-      @RequestParam(defaultValue = "20") final Integer size) {
+      @RequestParam(defaultValue = "20") final Integer size,
+      @RequestParam(required = false) final String cursor) {
     Pageable pageable = PageRequest.of(page, size);
 
     String search =
@@ -157,6 +162,13 @@ public class TicketController {
             StringUtils.removePageAndAfter(request.getQueryString()), StandardCharsets.UTF_8);
 
     Predicate predicate = TicketPredicateBuilder.buildPredicate(search);
+    if (cursor != null) {
+      return new ResponseEntity<>(
+          HalPageResponse.of(
+              ticketService.findAllTicketsByQueryParamAfter(predicate, size, null, null, cursor),
+              TICKET_BACKLOG_DTO_EMBEDDED_RELATION),
+          HttpStatus.OK);
+    }
     Page<TicketBacklogDto> ticketDtos =
         ticketService.findAllTicketsByQueryParam(predicate, pageable, null, null);
 
@@ -164,16 +176,33 @@ public class TicketController {
         HalPageResponse.of(ticketDtos, TICKET_BACKLOG_DTO_EMBEDDED_RELATION), HttpStatus.OK);
   }
 
+  /**
+   * Searches the backlog by the conditions and order in the body, paging by {@code cursor} as for
+   * {@link #searchTickets} when one is passed.
+   */
   @PostMapping(value = "/api/tickets/search", consumes = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<HalPageResponse<TicketBacklogDto>> searchTicketsByBody(
       @RequestParam(defaultValue = "0") final Integer page,
       @RequestParam(defaultValue = "20") final Integer size,
+      @RequestParam(required = false) final String cursor,
       @RequestBody final SearchConditionBody searchConditionBody) {
     Pageable pageable = PageRequest.of(page, size);
 
     Predicate predicate =
         TicketPredicateBuilder.buildPredicateFromSearchConditions(
             searchConditionBody.getSearchConditions());
+    if (cursor != null) {
+      return new ResponseEntity<>(
+          HalPageResponse.of(
+              ticketService.findAllTicketsByQueryParamAfter(
+                  predicate,
+                  size,
+                  searchConditionBody.getOrderCondition(),
+                  searchConditionBody.getSearchConditions(),
+                  cursor),
+              TICKET_BACKLOG_DTO_EMBEDDED_RELATION),
+          HttpStatus.OK);
+    }
 
     Page<TicketBacklogDto> ticketDtos =
         ticketService.findAllTicketsByQueryParam(
@@ -295,6 +324,18 @@ public class TicketController {
     }
   }
 
+  /** Returns a page of the ticket's history, oldest change first. */
+  @GetMapping(value = "/api/tickets/ticketNumber/{ticketNumber}/history", params = "page")
+  public ResponseEntity<HalPageResponse<TicketHistoryEntryDto>> getTicketHistoryPage(
+      @PathVariable String ticketNumber,
+      @RequestParam final Integer page,
+      @RequestParam(defaultValue = "50") final Integer size) {
+    Page<TicketHistoryEntryDto> history =
+        ticketHistoryService.getTicketHistory(ticketNumber, PageRequest.of(page, size));
+    return new ResponseEntity<>(
+        HalPageResponse.of(history, TICKET_HISTORY_EMBEDDED_RELATION), HttpStatus.OK);
+  }
+
   @GetMapping("/api/tickets/ticketNumber/{ticketNumber}")
   public ResponseEntity<TicketDtoExtended> getTicketByTicketNumber(
       @PathVariable String ticketNumber) throws BadRequestException {
@@ -482,36 +523,30 @@ public class TicketController {
    * attachments are.
    *
    * @param startAt is the first item to import
+   *
+   * @param size is the number of items to import from startAt, all of them if not set
+   *
+   * @param resume skips the items that an earlier import of the same file has already imported,
+   * to carry on after an import that failed part way through
+   *
+   * @param restart imports every item again after an import of the same file that failed part way
+   * through. Without resume or restart, importing a file whose earlier import did not finish is
+   * refused, as it would duplicate the tickets already imported
    */
   @PostMapping(value = "/api/ticketimport")
   public ResponseEntity<ImportResponse> importTickets(
       @RequestParam() String importPath,
       @RequestParam(required = false) Long startAt,
-      @RequestParam(required = false) Long size) {
+      @RequestParam(required = false) Long size,
+      @RequestParam(defaultValue = "false") boolean resume,
+      @RequestParam(defaultValue = "false") boolean restart) {
 
     long startTime = System.currentTimeMillis();
-    ObjectMapper objectMapper = new ObjectMapper();
-    objectMapper.configure(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true);
-    objectMapper.registerModule(new JavaTimeModule());
-
     File importFile = new File(importPath);
     SafeUtils.checkFile(importFile, allowedImportDirectory, TicketImportProblem.class);
     SafeUtils.loginfo(logger, "Importing tickets using " + importPath);
-    TicketImportDto[] ticketImportDtos;
-    try {
-      ticketImportDtos = objectMapper.readValue(importFile, TicketImportDto[].class);
-    } catch (IOException e) {
-      throw new TicketImportProblem(e.getMessage());
-    }
-    if (startAt == null) {
-      startAt = 0L;
-    }
-    if (size == null) {
-      size = (long) ticketImportDtos.length;
-    }
-    logger.info("Import starting, number of tickets to import: " + size + "...");
     int importedTickets =
-        ticketService.importTickets(ticketImportDtos, startAt.intValue(), size.intValue());
+        ticketImportService.importTickets(importFile, startAt, size, resume, restart);
 
     long endTime = System.currentTimeMillis();
     Long importTime = endTime - startTime;
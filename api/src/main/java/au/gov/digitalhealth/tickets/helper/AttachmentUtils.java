@@ -29,6 +29,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -68,10 +69,12 @@ public class AttachmentUtils {
     File theFileToImport = new File(theFile);
     File newFile = new File(fileLocationToSave);
     if (theFileToImport.exists() && !newFile.exists()) {
-      InputStream fileInputStream = new FileInputStream(theFileToImport);
       newFile.getParentFile().mkdirs();
-      Files.copy(fileInputStream, newFile.toPath());
-      fileInputStream.close();
+      try (InputStream fileInputStream = new FileInputStream(theFileToImport)) {
+        Files.copy(fileInputStream, newFile.toPath());
+      } catch (FileAlreadyExistsException e) {
+        // Copied by another import batch with an attachment of the same content
+      }
     }
   }
 
@@ -67,6 +67,38 @@ public record HalPageResponse<T>(
         new PageMetadata(page.getSize(), page.getTotalElements(), totalPages, number));
   }
 
+  /**
+   * Wraps a keyset paged result. The {@code next} link carries the cursor for the following page;
+   * there is no {@code prev} or {@code last} link, as a cursor only moves forward.
+   */
+  public static <T> HalPageResponse<T> of(KeysetPage<T> page, String embeddedKey) {
+    UriComponentsBuilder uriBuilder = ServletUriComponentsBuilder.fromCurrentRequestUri();
+
+    Map<String, Link> links = new LinkedHashMap<>();
+    links.put("self", new Link(ServletUriComponentsBuilder.fromCurrentRequest().toUriString()));
+    links.put("first", cursorLinkFor(uriBuilder, "", page.size()));
+    if (page.nextCursor() != null) {
+      links.put("next", cursorLinkFor(uriBuilder, page.nextCursor(), page.size()));
+    }
+
+    return new HalPageResponse<>(
+        links,
+        Map.of(embeddedKey, page.content()),
+        new PageMetadata(page.size(), page.totalElements(), page.totalPages(), page.number()));
+  }
+
+  private static Link cursorLinkFor(UriComponentsBuilder builder, String cursor, int size) {
+    String href =
+        builder
+            .cloneBuilder()
+            .replaceQueryParam("page")
+            .replaceQueryParam("cursor", cursor)
+            .replaceQueryParam("size", size)
+            .build()
+            .toUriString();
+    return new Link(href);
+  }
+
   private static Link linkFor(UriComponentsBuilder builder, int page, int size) {
     String href =
         builder
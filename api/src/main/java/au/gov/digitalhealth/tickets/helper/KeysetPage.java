@@ -0,0 +1,34 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.helper;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paged search, with the cursor for the page after it, or null if this is the
+ * last page.
+ */
+public record KeysetPage<T>(
+    List<T> content, int size, int number, long totalElements, String nextCursor) {
+
+  public int totalPages() {
+    return size == 0 ? 1 : (int) Math.ceil((double) totalElements / size);
+  }
+
+  public <R> KeysetPage<R> withContent(List<R> newContent) {
+    return new KeysetPage<>(newContent, size, number, totalElements, nextCursor);
+  }
+}
@@ -23,6 +23,10 @@ public class StringUtils {
 
   public static String removePageAndAfter(String input) {
     int pageIndex = input.indexOf("&page");
+    int cursorIndex = input.indexOf("&cursor");
+    if (cursorIndex != -1 && (pageIndex == -1 || cursorIndex < pageIndex)) {
+      pageIndex = cursorIndex;
+    }
     if (pageIndex != -1) {
       return input.substring(0, pageIndex);
     } else {
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.helper;
+
+import au.gov.digitalhealth.tickets.TicketImportDto;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * Reads a Jira export file one ticket at a time, so that only the batch being imported is held in
+ * memory rather than the whole file.
+ */
+public class TicketImportReader implements Closeable {
+
+  private final JsonParser parser;
+  private final ObjectMapper objectMapper;
+  private final LongPredicate alreadyImported;
+  private final long endIndex;
+  private long index;
+  private boolean finished;
+
+  /**
+   * @param startAt index of the first item to read
+   * @param size number of items to read from {@code startAt}, or null to read to the end
+   * @param alreadyImported items to skip over without reading them, by index
+   */
+  public TicketImportReader(
+      File importFile,
+      ObjectMapper objectMapper,
+      long startAt,
+      Long size,
+      LongPredicate alreadyImported)
+      throws IOException {
+    this.objectMapper = objectMapper;
+    this.alreadyImported = alreadyImported;
+    this.endIndex = size != null ? startAt + size : Long.MAX_VALUE;
+    this.parser = objectMapper.createParser(importFile);
+    if (parser.nextToken() != JsonToken.START_ARRAY) {
+      parser.close();
+      throw new IOException("Expected an array of tickets in " + importFile.getName());
+    }
+    while (index < startAt && nextItem()) {
+      parser.skipChildren();
+      index++;
+    }
+  }
+
+  /**
+   * Reads up to {@code maxSize} tickets, or returns null once there are none left. The batch covers
+   * the items from its first to its end index, less any that were skipped as already imported.
+   */
+  public Batch nextBatch(int maxSize) throws IOException {
+    long firstIndex = index;
+    List<TicketImportDto> tickets = new ArrayList<>(maxSize);
+    while (tickets.size() < maxSize && index < endIndex && nextItem()) {
+      if (alreadyImported.test(index)) {
+        parser.skipChildren();
+      } else {
+        tickets.add(objectMapper.readValue(parser, TicketImportDto.class));
+      }
+      index++;
+    }
+    return tickets.isEmpty() ? null : new Batch(firstIndex, index, tickets);
+  }
+
+  /** The number of bytes of the file read so far, for reporting progress. */
+  public long bytesRead() {
+    return parser.currentLocation().getByteOffset();
+  }
+
+  private boolean nextItem() throws IOException {
+    if (!finished && parser.nextToken() != JsonToken.START_OBJECT) {
+      finished = true;
+    }
+    return !finished;
+  }
+
+  @Override
+  public void close() throws IOException {
+    parser.close();
+  }
+
+  public record Batch(long firstIndex, long endIndex, List<TicketImportDto> tickets) {}
+}
@@ -18,14 +18,19 @@ package au.gov.digitalhealth.tickets.helper;
 import au.gov.digitalhealth.lingo.exception.InvalidSearchProblem;
 import au.gov.digitalhealth.tickets.models.QTicket;
 import au.gov.digitalhealth.tickets.models.QTicketAssociation;
+import au.gov.digitalhealth.tickets.models.QTicketBacklogView;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.dsl.ArrayPath;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.core.types.dsl.DateTimePath;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
 import com.querydsl.core.types.dsl.StringPath;
 import com.querydsl.jpa.JPAExpressions;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -66,6 +71,12 @@ public class TicketPredicateBuilder {
 
   public static final String TICKET_ASSOCIATION = "ticketassociation";
 
+  /**
+   * Sort property that orders tickets by how closely their title or description matches the text
+   * searched for.
+   */
+  public static final String RELEVANCE_SORT = "relevance";
+
   private TicketPredicateBuilder() {} // SonarLint
 
   public static BooleanBuilder buildPredicate(String search) {
@@ -149,27 +160,7 @@ public class TicketPredicateBuilder {
           }
           if (LABELS_PATH.equals(field)) {
             path = QTicket.ticket.labels.any().name;
-
-            if (condition.equalsIgnoreCase("and")) {
-              for (String labelName : valueIn) {
-                if (combinedConditions == null) {
-                  combinedConditions = QTicket.ticket.labels.any().name.eq(labelName);
-                } else {
-                  combinedConditions =
-                      combinedConditions.and(QTicket.ticket.labels.any().name.eq(labelName));
-                }
-              }
-            }
-            if (condition.equalsIgnoreCase("or")) {
-              for (String labelName : valueIn) {
-                if (combinedConditions == null) {
-                  combinedConditions = QTicket.ticket.labels.any().name.eq(labelName);
-                } else {
-                  combinedConditions =
-                      combinedConditions.or(QTicket.ticket.labels.any().name.eq(labelName));
-                }
-              }
-            }
+            combinedConditions = labelsMatch(valueIn, condition);
             addNeNullExpression(combinedConditions, nullExpression, condition);
             if (operation.equals(SearchConditionUtils.NOT_EQUALS) && combinedConditions != null) {
               combinedConditions = combinedConditions.not();
@@ -177,30 +168,7 @@ public class TicketPredicateBuilder {
           }
           if (EXTERNAL_REQUESTORS_PATH.equals(field)) {
             path = QTicket.ticket.externalRequestors.any().name;
-
-            if (condition.equalsIgnoreCase("and")) {
-              for (String labelName : valueIn) {
-                if (combinedConditions == null) {
-                  combinedConditions = QTicket.ticket.externalRequestors.any().name.eq(labelName);
-                } else {
-                  combinedConditions =
-                      combinedConditions.and(
-                          QTicket.ticket.externalRequestors.any().name.eq(labelName));
-                }
-              }
-            }
-
-            if (condition.equalsIgnoreCase("or")) {
-              for (String labelName : valueIn) {
-                if (combinedConditions == null) {
-                  combinedConditions = QTicket.ticket.externalRequestors.any().name.eq(labelName);
-                } else {
-                  combinedConditions =
-                      combinedConditions.or(
-                          QTicket.ticket.externalRequestors.any().name.eq(labelName));
-                }
-              }
-            }
+            combinedConditions = externalRequestorsMatch(valueIn, condition);
             addNeNullExpression(combinedConditions, nullExpression, condition);
             if (operation.equals(SearchConditionUtils.NOT_EQUALS) && combinedConditions != null) {
               combinedConditions = combinedConditions.not();
@@ -265,6 +233,83 @@ public class TicketPredicateBuilder {
     return predicate;
   }
 
+  /**
+   * Matches tickets with all ({@code "and"}) or any ({@code "or"}) of the label names, looked up in
+   * the ticket_backlog_view table rather than joined through ticket_labels.
+   */
+  public static BooleanExpression labelsMatch(Collection<String> names, String condition) {
+    return backlogViewMatches(QTicketBacklogView.ticketBacklogView.labelNames, names, condition);
+  }
+
+  /**
+   * Matches tickets with all ({@code "and"}) or any ({@code "or"}) of the external requestor names,
+   * looked up in the ticket_backlog_view table.
+   */
+  public static BooleanExpression externalRequestorsMatch(
+      Collection<String> names, String condition) {
+    return backlogViewMatches(
+        QTicketBacklogView.ticketBacklogView.externalRequestorNames, names, condition);
+  }
+
+  private static BooleanExpression backlogViewMatches(
+      ArrayPath<String[], String> namesPath, Collection<String> names, String condition) {
+    boolean matchAll = "and".equalsIgnoreCase(condition);
+    if (names == null || names.isEmpty() || !(matchAll || "or".equalsIgnoreCase(condition))) {
+      return null;
+    }
+    BooleanExpression namesMatch = null;
+    for (String name : names) {
+      BooleanExpression contains =
+          Expressions.booleanTemplate("array_contains({0}, {1})", namesPath, name);
+      if (namesMatch == null) {
+        namesMatch = contains;
+      } else {
+        namesMatch = matchAll ? namesMatch.and(contains) : namesMatch.or(contains);
+      }
+    }
+    QTicketBacklogView view = QTicketBacklogView.ticketBacklogView;
+    return QTicket.ticket.id.in(JPAExpressions.select(view.ticketId).from(view).where(namesMatch));
+  }
+
+  /**
+   * Builds the relevance score for the text searched for in the title, description or comments
+   * conditions: the closer of the title and description by Postgres trigram word similarity, served
+   * by the trigram indexes on those columns.
+   *
+   * @return the score, or null if no condition searches for text
+   */
+  public static NumberExpression<Double> relevance(List<SearchCondition> searchConditions) {
+    if (searchConditions == null) return null;
+
+    String text =
+        searchConditions.stream()
+            .filter(
+                searchCondition -> {
+                  String field = searchCondition.getKey().toLowerCase();
+                  return TITLE_PATH.equals(field)
+                      || DESCRIPTION_PATH.equals(field)
+                      || COMMENTS_PATH.equals(field);
+                })
+            .filter(searchCondition -> !searchCondition.getOperation().equals("!="))
+            .map(SearchCondition::getValue)
+            .filter(
+                value ->
+                    value != null
+                        && !value.isBlank()
+                        && !value.equals("null")
+                        && !value.contains("!"))
+            .findFirst()
+            .orElse(null);
+    if (text == null) return null;
+
+    return Expressions.numberTemplate(
+        Double.class,
+        "function('greatest', function('word_similarity', {0}, lower({1})), function('word_similarity', {0}, lower(coalesce({2}, ''))))",
+        Expressions.constant(text.toLowerCase()),
+        QTicket.ticket.title,
+        QTicket.ticket.description);
+  }
+
   private static void createPredicate(
       String field,
       BooleanBuilder predicate,
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.helper;
+
+import au.gov.digitalhealth.lingo.exception.InvalidSearchProblem;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque position in a keyset paged backlog search: the sort value and id of the last ticket on the
+ * previous page, the number of the next page, and the total counted when the first page was read.
+ * Carrying the total saves counting again on every later page, at the cost of it drifting while the
+ * backlog changes.
+ *
+ * <p>Sort values can be strings, timestamps, whole numbers, decimals or booleans, which covers
+ * every sortable backlog column and the relevance score. Decimals keep their precision so that the
+ * seek compares exactly against the stored value.
+ */
+public record TicketSearchCursor(int page, long total, Long lastId, Object sortValue) {
+
+  public static final TicketSearchCursor FIRST = new TicketSearchCursor(0, -1, null, null);
+
+  private static final String SEPARATOR = "|";
+
+  public boolean isFirst() {
+    return lastId == null;
+  }
+
+  public TicketSearchCursor next(long total, Long lastId, Object sortValue) {
+    return new TicketSearchCursor(page + 1, total, lastId, sortValue);
+  }
+
+  public String encode() {
+    String encoded =
+        String.join(
+            SEPARATOR,
+            String.valueOf(page),
+            String.valueOf(total),
+            String.valueOf(lastId),
+            typeOf(sortValue),
+            sortValue == null ? "" : sortValue.toString());
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(encoded.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Decodes a cursor returned by {@link #encode()}; a blank cursor starts from the first page. */
+  public static TicketSearchCursor decode(String cursor) {
+    if (cursor == null || cursor.isBlank()) {
+      return FIRST;
+    }
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = decoded.split("\\|", 5);
+      if (parts.length != 5) {
+        throw new InvalidSearchProblem("Invalid search cursor");
+      }
+      return new TicketSearchCursor(
+          Integer.parseInt(parts[0]),
+          Long.parseLong(parts[1]),
+          Long.valueOf(parts[2]),
+          parseValue(parts[3], parts[4]));
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      throw new InvalidSearchProblem("Invalid search cursor");
+    }
+  }
+
+  private static String typeOf(Object value) {
+    if (value == null) {
+      return "0";
+    } else if (value instanceof String) {
+      return "s";
+    } else if (value instanceof Instant) {
+      return "t";
+    } else if (value instanceof Integer) {
+      return "i";
+    } else if (value instanceof Long) {
+      return "l";
+    } else if (value instanceof Float) {
+      return "f";
+    } else if (value instanceof Double) {
+      return "d";
+    } else if (value instanceof Boolean) {
+      return "b";
+    }
+    throw new InvalidSearchProblem(
+        "Sorting by a " + value.getClass().getSimpleName() + " does not support cursors");
+  }
+
+  private static Object parseValue(String type, String value) {
+    return switch (type) {
+      case "0" -> null;
+      case "s" -> value;
+      case "t" -> Instant.parse(value);
+      case "i" -> Integer.valueOf(value);
+      case "l" -> Long.valueOf(value);
+      case "f" -> Float.valueOf(value);
+      case "d" -> Double.valueOf(value);
+      case "b" -> Boolean.valueOf(value);
+      default -> throw new InvalidSearchProblem("Invalid search cursor");
+    };
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.SuperBuilder;
+
+/** A name generator result, stored so the same spec is not sent to the name generator again. */
+@Getter
+@Setter
+@ToString
+@SuperBuilder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "generated_name")
+@Entity
+public class GeneratedName {
+
+  /** SHA-256 of the generator version and the spec as sent to the name generator. */
+  @Id private String specHash;
+
+  @Column(nullable = false)
+  private String generatorVersion;
+
+  @Column(nullable = false, columnDefinition = "TEXT")
+  private String fsn;
+
+  @Column(nullable = false, columnDefinition = "TEXT")
+  private String pt;
+
+  @Column(nullable = false, updatable = false)
+  private Instant created;
+
+  @Column(nullable = false)
+  private Instant lastUsed;
+}
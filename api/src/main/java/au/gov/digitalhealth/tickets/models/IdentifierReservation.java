@@ -0,0 +1,75 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * An identifier reserved from CIS, tracked so that reservations not yet used can be picked up again
+ * after a restart instead of being abandoned.
+ */
+@Getter
+@Setter
+@ToString
+@SuperBuilder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "identifier_reservation")
+@Entity
+public class IdentifierReservation {
+
+  /** The reserved SCTID. */
+  @Id private Long id;
+
+  @Column(nullable = false)
+  private Integer namespaceId;
+
+  @Column(nullable = false)
+  private String partitionId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  private Status status;
+
+  @Column(nullable = false, updatable = false)
+  private Instant reserved;
+
+  @Column private Instant updated;
+
+  /** The running instance that holds the identifier in its cache. */
+  @Column private String holder;
+
+  /** When the holder's claim lapses if it is not renewed. */
+  @Column private Instant leasedUntil;
+
+  public enum Status {
+    RESERVED,
+    ASSIGNED,
+    RELEASED
+  }
+}
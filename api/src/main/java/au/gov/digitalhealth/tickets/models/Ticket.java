@@ -61,6 +61,20 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
       @NamedAttributeNode("labels"),
       @NamedAttributeNode("externalRequestors"),
     })
+// Everything the ticket detail view shows that can be joined without multiplying rows by more
+// than the label and requestor counts. The remaining collections load with one query each.
+@NamedEntityGraph(
+    name = "Ticket.detail",
+    attributeNodes = {
+      @NamedAttributeNode("state"),
+      @NamedAttributeNode("schedule"),
+      @NamedAttributeNode("iteration"),
+      @NamedAttributeNode("ticketType"),
+      @NamedAttributeNode("priorityBucket"),
+      @NamedAttributeNode("taskAssociation"),
+      @NamedAttributeNode("labels"),
+      @NamedAttributeNode("externalRequestors"),
+    })
 @Entity
 @SuperBuilder
 @Getter
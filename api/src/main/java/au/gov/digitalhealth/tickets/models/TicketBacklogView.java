@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * Read-only, denormalised row of the fields the backlog filters on for one ticket, so that label
+ * and external requestor filters are indexed lookups on one table. Written only by {@link
+ * au.gov.digitalhealth.tickets.repository.TicketBacklogViewRepository}.
+ */
+@Getter
+@ToString
+@NoArgsConstructor
+@Immutable
+@Table(name = "ticket_backlog_view")
+@Entity
+public class TicketBacklogView {
+
+  @Id private Long ticketId;
+
+  @Column private String ticketNumber;
+
+  @Column private String title;
+
+  @Column private String assignee;
+
+  @Column private Instant created;
+
+  @Column private Instant modified;
+
+  @Column private Long stateId;
+
+  @Column private String stateLabel;
+
+  @Column private Long iterationId;
+
+  @Column private String iterationName;
+
+  @Column private Long priorityBucketId;
+
+  @Column private String priorityBucketName;
+
+  @Column private Long scheduleId;
+
+  @Column private String scheduleName;
+
+  @Column private Long taskAssociationId;
+
+  @Column private String taskId;
+
+  @JdbcTypeCode(SqlTypes.ARRAY)
+  @Column(nullable = false, columnDefinition = "text[]")
+  private String[] labelNames;
+
+  @JdbcTypeCode(SqlTypes.ARRAY)
+  @Column(nullable = false, columnDefinition = "text[]")
+  private String[] externalRequestorNames;
+
+  @Column(nullable = false)
+  private Instant refreshed;
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * One change to a ticket as shown in its history, recorded from the audit tables after the revision
+ * that made it commits. Values are stored as they were resolved at the time, so renaming a label or
+ * state later does not rewrite the history.
+ */
+@Getter
+@Setter
+@ToString
+@SuperBuilder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "ticket_history_entry")
+@Entity
+public class TicketHistoryEntry {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(nullable = false, updatable = false)
+  private Long ticketId;
+
+  @Column(nullable = false, updatable = false)
+  private Long revisionNumber;
+
+  @Column(nullable = false, updatable = false)
+  private Instant revisionTimestamp;
+
+  /** INSERT, UPDATE or DELETE. */
+  @Column(nullable = false, updatable = false)
+  private String revisionType;
+
+  @Column(nullable = false, updatable = false)
+  private String fieldName;
+
+  @Column(updatable = false)
+  private Long oldEntityId;
+
+  @Column(updatable = false)
+  private String oldValue;
+
+  @Column(updatable = false)
+  private Long newEntityId;
+
+  @Column(updatable = false)
+  private String newValue;
+
+  @Column(updatable = false)
+  private String changeDescription;
+
+  @Column(updatable = false)
+  private String username;
+}
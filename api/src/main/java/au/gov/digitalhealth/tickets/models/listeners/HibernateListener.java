@@ -29,11 +29,19 @@ public class HibernateListener {
 
   private final AttachmentEntityListener attachmentEntityListener;
 
+  private final TicketBacklogViewListener ticketBacklogViewListener;
+
+  private final TicketHistoryListener ticketHistoryListener;
+
   public HibernateListener(
       EntityManagerFactory entityManagerFactory,
-      AttachmentEntityListener attachmentEntityListener) {
+      AttachmentEntityListener attachmentEntityListener,
+      TicketBacklogViewListener ticketBacklogViewListener,
+      TicketHistoryListener ticketHistoryListener) {
     this.entityManagerFactory = entityManagerFactory;
     this.attachmentEntityListener = attachmentEntityListener;
+    this.ticketBacklogViewListener = ticketBacklogViewListener;
+    this.ticketHistoryListener = ticketHistoryListener;
   }
 
   @PostConstruct
@@ -45,5 +53,23 @@ public class HibernateListener {
     registry.getEventListenerGroup(EventType.POST_DELETE).appendListener(attachmentEntityListener);
     registry.getEventListenerGroup(EventType.POST_INSERT).appendListener(attachmentEntityListener);
     registry.getEventListenerGroup(EventType.POST_UPDATE).appendListener(attachmentEntityListener);
+    registry.getEventListenerGroup(EventType.POST_INSERT).appendListener(ticketBacklogViewListener);
+    registry.getEventListenerGroup(EventType.POST_UPDATE).appendListener(ticketBacklogViewListener);
+    registry.getEventListenerGroup(EventType.POST_DELETE).appendListener(ticketBacklogViewListener);
+    registry
+        .getEventListenerGroup(EventType.POST_COLLECTION_UPDATE)
+        .appendListener(ticketBacklogViewListener);
+    registry
+        .getEventListenerGroup(EventType.POST_COLLECTION_RECREATE)
+        .appendListener(ticketBacklogViewListener);
+    registry.getEventListenerGroup(EventType.POST_INSERT).appendListener(ticketHistoryListener);
+    registry.getEventListenerGroup(EventType.POST_UPDATE).appendListener(ticketHistoryListener);
+    registry.getEventListenerGroup(EventType.POST_DELETE).appendListener(ticketHistoryListener);
+    registry
+        .getEventListenerGroup(EventType.POST_COLLECTION_UPDATE)
+        .appendListener(ticketHistoryListener);
+    registry
+        .getEventListenerGroup(EventType.POST_COLLECTION_RECREATE)
+        .appendListener(ticketHistoryListener);
   }
 }
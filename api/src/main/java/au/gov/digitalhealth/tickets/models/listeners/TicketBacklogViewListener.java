@@ -0,0 +1,128 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.models.listeners;
+
+import au.gov.digitalhealth.tickets.models.AdditionalFieldValue;
+import au.gov.digitalhealth.tickets.models.Comment;
+import au.gov.digitalhealth.tickets.models.ExternalRequestor;
+import au.gov.digitalhealth.tickets.models.Iteration;
+import au.gov.digitalhealth.tickets.models.Label;
+import au.gov.digitalhealth.tickets.models.PriorityBucket;
+import au.gov.digitalhealth.tickets.models.Schedule;
+import au.gov.digitalhealth.tickets.models.State;
+import au.gov.digitalhealth.tickets.models.TaskAssociation;
+import au.gov.digitalhealth.tickets.models.Ticket;
+import au.gov.digitalhealth.tickets.service.TicketBacklogViewService;
+import au.gov.digitalhealth.tickets.service.TicketSearchResultCache;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells {@link TicketBacklogViewService} which tickets to refresh. Label and external requestor
+ * changes on a ticket only raise collection events, so those are listened to as well as entity
+ * events. Comment and additional field value changes are not in the view but can change what a
+ * search matches, so they invalidate the {@link TicketSearchResultCache}.
+ */
+@Component
+public class TicketBacklogViewListener
+    implements PostInsertEventListener,
+        PostUpdateEventListener,
+        PostDeleteEventListener,
+        PostCollectionUpdateEventListener,
+        PostCollectionRecreateEventListener {
+
+  private final TicketBacklogViewService ticketBacklogViewService;
+  private final TicketSearchResultCache ticketSearchResultCache;
+
+  public TicketBacklogViewListener(
+      TicketBacklogViewService ticketBacklogViewService,
+      TicketSearchResultCache ticketSearchResultCache) {
+    this.ticketBacklogViewService = ticketBacklogViewService;
+    this.ticketSearchResultCache = ticketSearchResultCache;
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    entityChanged(event.getEntity(), false);
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    entityChanged(event.getEntity(), true);
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    // Deleted tickets are removed by the foreign key cascade
+    entityChanged(event.getEntity(), true);
+  }
+
+  @Override
+  public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+    collectionChanged(event);
+  }
+
+  @Override
+  public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+    collectionChanged(event);
+  }
+
+  private void entityChanged(Object entity, boolean referenceDataChange) {
+    if (entity instanceof Ticket ticket) {
+      ticketBacklogViewService.ticketChanged(ticket.getId());
+    } else if (entity instanceof TaskAssociation taskAssociation
+        && taskAssociation.getTicket() != null) {
+      ticketBacklogViewService.ticketChanged(taskAssociation.getTicket().getId());
+    } else if (referenceDataChange && isShownInBacklog(entity)) {
+      ticketBacklogViewService.referenceDataChanged();
+    } else if (entity instanceof Comment || entity instanceof AdditionalFieldValue) {
+      ticketSearchResultCache.ticketsChanged();
+    }
+  }
+
+  private void collectionChanged(AbstractCollectionEvent event) {
+    if (event.getAffectedOwnerOrNull() instanceof Ticket ticket) {
+      ticketBacklogViewService.ticketChanged(ticket.getId());
+    } else if (event.getAffectedOwnerOrNull() instanceof AdditionalFieldValue) {
+      ticketSearchResultCache.ticketsChanged();
+    }
+  }
+
+  private static boolean isShownInBacklog(Object entity) {
+    return entity instanceof State
+        || entity instanceof Label
+        || entity instanceof ExternalRequestor
+        || entity instanceof Iteration
+        || entity instanceof PriorityBucket
+        || entity instanceof Schedule;
+  }
+
+  @Override
+  public boolean requiresPostCommitHandling(EntityPersister entityPersister) {
+    return false;
+  }
+}
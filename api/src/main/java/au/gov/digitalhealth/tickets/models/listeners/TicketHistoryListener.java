@@ -0,0 +1,128 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.models.listeners;
+
+import au.gov.digitalhealth.tickets.models.AdditionalFieldValue;
+import au.gov.digitalhealth.tickets.models.Comment;
+import au.gov.digitalhealth.tickets.models.TaskAssociation;
+import au.gov.digitalhealth.tickets.models.Ticket;
+import au.gov.digitalhealth.tickets.models.TicketAssociation;
+import au.gov.digitalhealth.tickets.service.TicketHistoryRecorder;
+import org.hibernate.Hibernate;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells {@link TicketHistoryRecorder} which tickets have new audit revisions: changes to the ticket
+ * itself, its label, external requestor and additional field collections, its comments, its task
+ * association, the additional field values it has and the associations to and from it.
+ */
+@Component
+public class TicketHistoryListener
+    implements PostInsertEventListener,
+        PostUpdateEventListener,
+        PostDeleteEventListener,
+        PostCollectionUpdateEventListener,
+        PostCollectionRecreateEventListener {
+
+  private final TicketHistoryRecorder ticketHistoryRecorder;
+
+  public TicketHistoryListener(TicketHistoryRecorder ticketHistoryRecorder) {
+    this.ticketHistoryRecorder = ticketHistoryRecorder;
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    entityChanged(event.getEntity());
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    entityChanged(event.getEntity());
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    // A deleted ticket's history is removed by the foreign key cascade
+    if (!(event.getEntity() instanceof Ticket)) {
+      entityChanged(event.getEntity());
+    }
+  }
+
+  @Override
+  public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+    collectionChanged(event);
+  }
+
+  @Override
+  public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+    collectionChanged(event);
+  }
+
+  private void entityChanged(Object entity) {
+    if (entity instanceof Ticket ticket) {
+      ticketChanged(ticket);
+    } else if (entity instanceof Comment comment) {
+      ticketChanged(comment.getTicket());
+    } else if (entity instanceof TicketAssociation association) {
+      ticketChanged(association.getAssociationSource());
+      ticketChanged(association.getAssociationTarget());
+    } else if (entity instanceof TaskAssociation taskAssociation) {
+      ticketChanged(taskAssociation.getTicket());
+    } else if (entity instanceof AdditionalFieldValue additionalFieldValue) {
+      additionalFieldValueChanged(additionalFieldValue);
+    }
+  }
+
+  private void collectionChanged(AbstractCollectionEvent event) {
+    if (event.getAffectedOwnerOrNull() instanceof Ticket ticket) {
+      ticketChanged(ticket);
+    } else if (event.getAffectedOwnerOrNull()
+        instanceof AdditionalFieldValue additionalFieldValue) {
+      additionalFieldValueChanged(additionalFieldValue);
+    }
+  }
+
+  private void additionalFieldValueChanged(AdditionalFieldValue additionalFieldValue) {
+    // Loading the tickets during a flush is not allowed; any not loaded are caught up when read
+    if (additionalFieldValue.getTickets() != null
+        && Hibernate.isInitialized(additionalFieldValue.getTickets())) {
+      additionalFieldValue.getTickets().forEach(this::ticketChanged);
+    }
+  }
+
+  private void ticketChanged(Ticket ticket) {
+    if (ticket != null) {
+      ticketHistoryRecorder.ticketChanged(ticket.getId());
+    }
+  }
+
+  @Override
+  public boolean requiresPostCommitHandling(EntityPersister entityPersister) {
+    return false;
+  }
+}
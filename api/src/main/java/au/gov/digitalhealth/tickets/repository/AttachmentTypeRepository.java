@@ -15,12 +15,16 @@
  */
 package au.gov.digitalhealth.tickets.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
 import au.gov.digitalhealth.tickets.models.AttachmentType;
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 public interface AttachmentTypeRepository extends JpaRepository<AttachmentType, Long> {
@@ -34,5 +38,6 @@ public interface AttachmentTypeRepository extends JpaRepository<AttachmentType,
       value =
           "INSERT INTO attachment_type (mime_type, name) VALUES (:mimeType, :name) ON CONFLICT (mime_type) DO NOTHING",
       nativeQuery = true)
+  @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "attachment_type"))
   void upsertAttachmentType(@Param("mimeType") String mimeType, @Param("name") String name);
 }
@@ -15,16 +15,27 @@
  */
 package au.gov.digitalhealth.tickets.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 import au.gov.digitalhealth.tickets.models.ExternalRequestor;
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 public interface ExternalRequestorRepository extends JpaRepository<ExternalRequestor, Long> {
 
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+  @Override
+  List<ExternalRequestor> findAll();
+
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   List<ExternalRequestor> findAllByName(String title);
 
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   Optional<ExternalRequestor> findByName(String title);
 
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   List<ExternalRequestor> findByNameIn(List<String> names);
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.repository;
+
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+import au.gov.digitalhealth.tickets.models.GeneratedName;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+public interface GeneratedNameRepository extends JpaRepository<GeneratedName, String> {
+
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO generated_name (spec_hash, generator_version, fsn, pt, created, last_used) VALUES (:specHash, :generatorVersion, :fsn, :pt, :now, :now) ON CONFLICT (spec_hash) DO UPDATE SET fsn = EXCLUDED.fsn, pt = EXCLUDED.pt, last_used = EXCLUDED.last_used",
+      nativeQuery = true)
+  @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "generated_name"))
+  void upsert(
+      @Param("specHash") String specHash,
+      @Param("generatorVersion") String generatorVersion,
+      @Param("fsn") String fsn,
+      @Param("pt") String pt,
+      @Param("now") Instant now);
+
+  /** Marks an entry as used, skipping the write if it was already marked since {@code before}. */
+  @Modifying
+  @Query(
+      "UPDATE GeneratedName g SET g.lastUsed = :now WHERE g.specHash = :specHash AND g.lastUsed < :before")
+  void touch(
+      @Param("specHash") String specHash,
+      @Param("before") Instant before,
+      @Param("now") Instant now);
+
+  @Modifying
+  @Query("DELETE FROM GeneratedName g WHERE g.generatorVersion <> :generatorVersion")
+  int deleteOtherVersions(@Param("generatorVersion") String generatorVersion);
+
+  /** Deletes all but the {@code maxEntries} most recently used entries. */
+  @Modifying
+  @Query(
+      value =
+          "DELETE FROM generated_name WHERE spec_hash IN (SELECT spec_hash FROM generated_name ORDER BY last_used DESC OFFSET :maxEntries)",
+      nativeQuery = true)
+  @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "generated_name"))
+  int deleteLeastRecentlyUsed(@Param("maxEntries") int maxEntries);
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.repository;
+
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+import au.gov.digitalhealth.tickets.models.IdentifierReservation;
+import au.gov.digitalhealth.tickets.models.IdentifierReservation.Status;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+public interface IdentifierReservationRepository
+    extends JpaRepository<IdentifierReservation, Long> {
+
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO identifier_reservation (id, namespace_id, partition_id, status, reserved, holder, leased_until) VALUES (:id, :namespaceId, :partitionId, 'RESERVED', :reserved, :holder, :leasedUntil) ON CONFLICT (id) DO NOTHING",
+      nativeQuery = true)
+  @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "identifier_reservation"))
+  void insertReserved(
+      @Param("id") Long id,
+      @Param("namespaceId") int namespaceId,
+      @Param("partitionId") String partitionId,
+      @Param("reserved") Instant reserved,
+      @Param("holder") String holder,
+      @Param("leasedUntil") Instant leasedUntil);
+
+  /**
+   * Finds reserved identifiers whose holder's lease has lapsed, locking them so that two instances
+   * cannot claim the same identifier.
+   */
+  @Query(
+      value =
+          "SELECT id FROM identifier_reservation WHERE namespace_id = :namespaceId AND partition_id = :partitionId AND status = 'RESERVED' AND reserved > :reservedAfter AND (leased_until IS NULL OR leased_until < :now) ORDER BY reserved LIMIT :limit FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<Long> lockUnleased(
+      @Param("namespaceId") int namespaceId,
+      @Param("partitionId") String partitionId,
+      @Param("reservedAfter") Instant reservedAfter,
+      @Param("now") Instant now,
+      @Param("limit") int limit);
+
+  @Modifying
+  @Query(
+      "UPDATE IdentifierReservation r SET r.holder = :holder, r.leasedUntil = :leasedUntil WHERE r.id IN :ids")
+  void lease(
+      @Param("ids") Collection<Long> ids,
+      @Param("holder") String holder,
+      @Param("leasedUntil") Instant leasedUntil);
+
+  @Modifying
+  @Query(
+      "UPDATE IdentifierReservation r SET r.leasedUntil = :leasedUntil WHERE r.holder = :holder AND r.status = :status")
+  void renewLeases(
+      @Param("holder") String holder,
+      @Param("status") Status status,
+      @Param("leasedUntil") Instant leasedUntil);
+
+  @Modifying
+  @Query(
+      "UPDATE IdentifierReservation r SET r.status = :status, r.updated = :updated, r.holder = null, r.leasedUntil = null WHERE r.id IN :ids")
+  void updateStatus(
+      @Param("ids") Collection<Long> ids,
+      @Param("status") Status status,
+      @Param("updated") Instant updated);
+
+  /**
+   * Finds reservations past their age limit that no other running instance holds. Those the caller
+   * holds may still be waiting in its caches.
+   */
+  @Query(
+      "SELECT r FROM IdentifierReservation r WHERE r.status = :status AND r.reserved < :reservedBefore AND (r.holder = :holder OR r.leasedUntil IS NULL OR r.leasedUntil < :now)")
+  List<IdentifierReservation> findStale(
+      @Param("status") Status status,
+      @Param("reservedBefore") Instant reservedBefore,
+      @Param("holder") String holder,
+      @Param("now") Instant now);
+
+  /**
+   * Locks those of the given identifiers that are still reserved, so that they can be marked
+   * released without racing an assignment or another instance releasing them.
+   */
+  @Query(
+      value =
+          "SELECT id FROM identifier_reservation WHERE id IN (:ids) AND status = 'RESERVED' FOR UPDATE",
+      nativeQuery = true)
+  List<Long> lockReserved(@Param("ids") Collection<Long> ids);
+}
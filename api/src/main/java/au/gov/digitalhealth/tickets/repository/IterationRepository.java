@@ -15,11 +15,21 @@
  */
 package au.gov.digitalhealth.tickets.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 import au.gov.digitalhealth.tickets.models.Iteration;
+import jakarta.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 public interface IterationRepository extends JpaRepository<Iteration, Long> {
 
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+  @Override
+  List<Iteration> findAll();
+
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   Optional<Iteration> findByName(String title);
 }
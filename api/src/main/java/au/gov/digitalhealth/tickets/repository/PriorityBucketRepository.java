@@ -15,15 +15,25 @@
  */
 package au.gov.digitalhealth.tickets.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 import au.gov.digitalhealth.tickets.models.PriorityBucket;
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 public interface PriorityBucketRepository extends JpaRepository<PriorityBucket, Long> {
 
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+  @Override
+  List<PriorityBucket> findAll();
+
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   List<PriorityBucket> findAllByOrderByOrderIndexAsc();
 
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   Optional<PriorityBucket> findByName(String name);
 
   Optional<List<PriorityBucket>> findByOrderIndexGreaterThan(Integer orderIndex);
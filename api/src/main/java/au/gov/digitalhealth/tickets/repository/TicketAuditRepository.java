@@ -18,134 +18,140 @@ package au.gov.digitalhealth.tickets.repository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
-import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
 
+/** Reads ticket changes from the Envers audit tables. */
 @Repository
 public class TicketAuditRepository {
 
-  @PersistenceContext private EntityManager entityManager;
-
-  public List<Object[]> findAllTicketRevisions(Long ticketId, List<Integer> revisions) {
-    String sql =
-        """
-        SELECT rev, title, description, assignee, state_id,
-               priority_bucket_id, iteration_id, ticket_type_id
-        FROM ticket_aud
-        WHERE id = :ticketId AND rev IN (:revisions)
-        ORDER BY rev
-        """;
-
-    Query query = entityManager.createNativeQuery(sql);
-    query.setParameter("ticketId", ticketId);
-    query.setParameter("revisions", revisions);
-
-    return query.getResultList();
-  }
-
-  public List<Object[]> findLabelChanges(Long ticketId) {
-    String sql =
-        """
-            SELECT tla.label_id, tla.rev, tla.revtype, r.revtstmp, r.username
-            FROM ticket_labels_aud tla
-            JOIN revinfo r ON tla.rev = r.rev
-            WHERE tla.ticket_id = :ticketId
-            ORDER BY r.revtstmp
-            """;
-
-    Query query = entityManager.createNativeQuery(sql);
-    query.setParameter("ticketId", ticketId);
-    return query.getResultList();
-  }
-
-  public List<Object[]> findCommentChanges(Long ticketId) {
-    String sql =
-        """
-            SELECT ca.id, ca.text, ca.rev, r.revtstmp, r.username
-            FROM comment_aud ca
-            JOIN revinfo r ON ca.rev = r.rev
-            WHERE ca.ticket_id = :ticketId
-            ORDER BY r.revtstmp
-            """;
-
-    Query query = entityManager.createNativeQuery(sql);
-    query.setParameter("ticketId", ticketId);
-    return query.getResultList();
-  }
+  /** Rows read from the audit tables at a time. */
+  private static final int FETCH_SIZE = 500;
 
-  public List<Object[]> findExternalRequestorChanges(Long ticketId) {
-    String sql =
-        """
-            SELECT tera.external_requestor_id, tera.rev, tera.revtype, r.revtstmp, r.username
-            FROM ticket_external_requestors_aud tera
-            JOIN revinfo r ON tera.rev = r.rev
-            WHERE tera.ticket_id = :ticketId
-            ORDER BY r.revtstmp
-            """;
-
-    Query query = entityManager.createNativeQuery(sql);
-    query.setParameter("ticketId", ticketId);
-    return query.getResultList();
-  }
-
-  public List<Object[]> findAdditionalFieldValueChanges(Long ticketId) {
-    String sql =
-        """
-            SELECT tafva.additional_field_value_id, tafva.ticket_id, tafva.rev, tafva.revtype,
-                   r.revtstmp, r.username, afv.value_of, aft.name as field_name
-            FROM ticket_additional_field_values_aud tafva
-            JOIN revinfo r ON tafva.rev = r.rev
-            LEFT JOIN additional_field_value afv ON tafva.additional_field_value_id = afv.id
-            LEFT JOIN additional_field_type aft ON afv.additional_field_type_id = aft.id
-            WHERE tafva.ticket_id = :ticketId
-            ORDER BY r.revtstmp
-            """;
-
-    Query query = entityManager.createNativeQuery(sql);
-    query.setParameter("ticketId", ticketId);
-    return query.getResultList();
-  }
+  @PersistenceContext private EntityManager entityManager;
 
-  public List<Object[]> findTicketAssociationChanges(Long ticketId) {
+  /**
+   * Streams every audit row needed to record the ticket's changes after {@code afterRevision}, from
+   * all the audit tables at once, ordered by revision. Each row has the columns of {@link
+   * AuditChangeColumns}.
+   *
+   * <p>Label, comment, external requestor and additional field rows are limited to the later
+   * revisions. Ticket rows start from the last recorded revision, or from the last one with a task
+   * association if that is earlier, as changes are found by comparing with the row before. All rows
+   * of the ticket's associations are returned, as a removal only records the association id.
+   */
+  public Stream<Object[]> streamChanges(Long ticketId, int afterRevision) {
     String sql =
         """
-        SELECT ta.id, ta.ticket_source_id, ta.ticket_target_id, ta.rev, ta.revtype,
-               r.revtstmp, r.username
+        SELECT 0 AS section, t.rev, t.revtype, r.revtstmp, r.username,
+               t.task_association_id AS entity_id, t.title, t.description, t.assignee,
+               t.state_id, t.priority_bucket_id, t.iteration_id,
+               CAST(NULL AS BIGINT) AS source_id, CAST(NULL AS BIGINT) AS target_id,
+               tka.task_id AS value_of, CAST(NULL AS VARCHAR) AS field_name
+        FROM ticket_aud t
+        JOIN revinfo r ON t.rev = r.rev
+        LEFT JOIN task_association tka ON t.task_association_id = tka.id
+        WHERE t.id = :ticketId
+          AND t.rev >= (
+              SELECT coalesce(min(baseline.rev), 0)
+              FROM (
+                  SELECT max(rev) AS rev FROM ticket_aud
+                  WHERE id = :ticketId AND rev <= :afterRevision
+                  UNION ALL
+                  SELECT max(rev) FROM ticket_aud
+                  WHERE id = :ticketId AND rev <= :afterRevision
+                    AND task_association_id IS NOT NULL) baseline)
+        UNION ALL
+        SELECT 1, tla.rev, tla.revtype, r.revtstmp, r.username, tla.label_id,
+               NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL
+        FROM ticket_labels_aud tla
+        JOIN revinfo r ON tla.rev = r.rev
+        WHERE tla.ticket_id = :ticketId AND tla.rev > :afterRevision
+        UNION ALL
+        SELECT 2, ca.rev, ca.revtype, r.revtstmp, r.username, ca.id,
+               NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, ca.text, NULL
+        FROM comment_aud ca
+        JOIN revinfo r ON ca.rev = r.rev
+        WHERE ca.ticket_id = :ticketId AND ca.rev > :afterRevision
+        UNION ALL
+        SELECT 3, tera.rev, tera.revtype, r.revtstmp, r.username, tera.external_requestor_id,
+               NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL
+        FROM ticket_external_requestors_aud tera
+        JOIN revinfo r ON tera.rev = r.rev
+        WHERE tera.ticket_id = :ticketId AND tera.rev > :afterRevision
+        UNION ALL
+        SELECT 4, tafva.rev, tafva.revtype, r.revtstmp, r.username,
+               tafva.additional_field_value_id,
+               NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, afv.value_of, aft.name
+        FROM ticket_additional_field_values_aud tafva
+        JOIN revinfo r ON tafva.rev = r.rev
+        LEFT JOIN additional_field_value afv ON tafva.additional_field_value_id = afv.id
+        LEFT JOIN additional_field_type aft ON afv.additional_field_type_id = aft.id
+        WHERE tafva.ticket_id = :ticketId AND tafva.rev > :afterRevision
+        UNION ALL
+        SELECT 5, ta.rev, ta.revtype, r.revtstmp, r.username, ta.id,
+               NULL, NULL, NULL, NULL, NULL, NULL, ta.ticket_source_id, ta.ticket_target_id,
+               CASE WHEN ta.ticket_source_id = :ticketId THEN target.ticket_number
+                    ELSE source.ticket_number END,
+               NULL
         FROM ticket_association_aud ta
         JOIN revinfo r ON ta.rev = r.rev
-        ORDER BY ta.id, r.revtstmp
+        LEFT JOIN ticket source ON ta.ticket_source_id = source.id
+        LEFT JOIN ticket target ON ta.ticket_target_id = target.id
+        WHERE ta.id IN (
+            SELECT id FROM ticket_association_aud
+            WHERE ticket_source_id = :ticketId OR ticket_target_id = :ticketId)
+        ORDER BY rev, section, entity_id
         """;
 
-    Query query = entityManager.createNativeQuery(sql);
-    return query.getResultList();
-  }
-
-  public List<Object[]> findTaskAssociationChanges(Long ticketId) {
-    String sql =
-        """
-            SELECT ta.task_association_id, ta.rev, r.revtstmp, r.username
-            FROM ticket_aud ta
-            JOIN revinfo r ON ta.rev = r.rev
-            WHERE ta.id = :ticketId AND ta.task_association_id IS NOT NULL
-            ORDER BY r.revtstmp
-            """;
-
     Query query = entityManager.createNativeQuery(sql);
     query.setParameter("ticketId", ticketId);
-    return query.getResultList();
+    query.setParameter("afterRevision", afterRevision);
+    query.setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE);
+    return query.getResultStream();
   }
 
-  public String findTaskIdFromAssociation(Long taskAssociationId) {
-    if (taskAssociationId == null) return null;
-
-    String sql = "SELECT task_id FROM task_association WHERE id = :taskAssociationId";
-    Query query = entityManager.createNativeQuery(sql);
-    query.setParameter("taskAssociationId", taskAssociationId);
-
-    try {
-      return (String) query.getSingleResult();
-    } catch (Exception e) {
-      return "Unknown Task";
-    }
+  /** Positions of the columns in the rows returned by {@link #streamChanges(Long, int)}. */
+  public static final class AuditChangeColumns {
+    /** Which audit table the row came from, one of the {@code SECTION_} values. */
+    public static final int SECTION = 0;
+
+    public static final int REVISION = 1;
+    public static final int REVISION_TYPE = 2;
+    public static final int REVISION_TIMESTAMP = 3;
+    public static final int USERNAME = 4;
+
+    /**
+     * The task association, label, comment, external requestor, additional field value or ticket
+     * association id.
+     */
+    public static final int ENTITY_ID = 5;
+
+    public static final int TITLE = 6;
+    public static final int DESCRIPTION = 7;
+    public static final int ASSIGNEE = 8;
+    public static final int STATE_ID = 9;
+    public static final int PRIORITY_BUCKET_ID = 10;
+    public static final int ITERATION_ID = 11;
+    public static final int SOURCE_ID = 12;
+    public static final int TARGET_ID = 13;
+
+    /**
+     * The task id, comment text, additional field value or the ticket number at the other end of
+     * the association.
+     */
+    public static final int VALUE = 14;
+
+    public static final int FIELD_NAME = 15;
+
+    public static final int SECTION_TICKET = 0;
+    public static final int SECTION_LABEL = 1;
+    public static final int SECTION_COMMENT = 2;
+    public static final int SECTION_EXTERNAL_REQUESTOR = 3;
+    public static final int SECTION_ADDITIONAL_FIELD = 4;
+    public static final int SECTION_TICKET_ASSOCIATION = 5;
+
+    private AuditChangeColumns() {}
   }
 }
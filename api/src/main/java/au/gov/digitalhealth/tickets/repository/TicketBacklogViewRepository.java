@@ -0,0 +1,70 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.repository;
+
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+import au.gov.digitalhealth.tickets.models.TicketBacklogView;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+public interface TicketBacklogViewRepository extends JpaRepository<TicketBacklogView, Long> {
+
+  String REFRESH_SELECT =
+      "INSERT INTO ticket_backlog_view SELECT t.id, t.ticket_number, t.title, t.assignee, t.created, t.modified, s.id, s.label, i.id, i.name, p.id, p.name, sc.id, sc.name, ta.id, ta.task_id,"
+          + " coalesce((SELECT array_agg(l.name ORDER BY l.name) FROM ticket_labels tl JOIN label l ON l.id = tl.label_id WHERE tl.ticket_id = t.id), '{}'),"
+          + " coalesce((SELECT array_agg(er.name ORDER BY er.name) FROM ticket_external_requestors ter JOIN external_requestor er ON er.id = ter.external_requestor_id WHERE ter.ticket_id = t.id), '{}'),"
+          + " now()"
+          + " FROM ticket t LEFT JOIN state s ON s.id = t.state_id LEFT JOIN iteration i ON i.id = t.iteration_id LEFT JOIN priority_bucket p ON p.id = t.priority_bucket_id LEFT JOIN schedule sc ON sc.id = t.schedule_id LEFT JOIN task_association ta ON ta.id = t.task_association_id";
+
+  String ON_CONFLICT_UPDATE =
+      " ON CONFLICT (ticket_id) DO UPDATE SET ticket_number = EXCLUDED.ticket_number, title = EXCLUDED.title, assignee = EXCLUDED.assignee, created = EXCLUDED.created, modified = EXCLUDED.modified,"
+          + " state_id = EXCLUDED.state_id, state_label = EXCLUDED.state_label, iteration_id = EXCLUDED.iteration_id, iteration_name = EXCLUDED.iteration_name,"
+          + " priority_bucket_id = EXCLUDED.priority_bucket_id, priority_bucket_name = EXCLUDED.priority_bucket_name, schedule_id = EXCLUDED.schedule_id, schedule_name = EXCLUDED.schedule_name,"
+          + " task_association_id = EXCLUDED.task_association_id, task_id = EXCLUDED.task_id, label_names = EXCLUDED.label_names,"
+          + " external_requestor_names = EXCLUDED.external_requestor_names, refreshed = EXCLUDED.refreshed"
+          // Rows that already match are left alone, so a reconcile writes only what drifted.
+          + " WHERE (ticket_backlog_view.ticket_number, ticket_backlog_view.title, ticket_backlog_view.assignee, ticket_backlog_view.created, ticket_backlog_view.modified,"
+          + " ticket_backlog_view.state_id, ticket_backlog_view.state_label, ticket_backlog_view.iteration_id, ticket_backlog_view.iteration_name,"
+          + " ticket_backlog_view.priority_bucket_id, ticket_backlog_view.priority_bucket_name, ticket_backlog_view.schedule_id, ticket_backlog_view.schedule_name,"
+          + " ticket_backlog_view.task_association_id, ticket_backlog_view.task_id, ticket_backlog_view.label_names, ticket_backlog_view.external_requestor_names)"
+          + " IS DISTINCT FROM (EXCLUDED.ticket_number, EXCLUDED.title, EXCLUDED.assignee, EXCLUDED.created, EXCLUDED.modified,"
+          + " EXCLUDED.state_id, EXCLUDED.state_label, EXCLUDED.iteration_id, EXCLUDED.iteration_name,"
+          + " EXCLUDED.priority_bucket_id, EXCLUDED.priority_bucket_name, EXCLUDED.schedule_id, EXCLUDED.schedule_name,"
+          + " EXCLUDED.task_association_id, EXCLUDED.task_id, EXCLUDED.label_names, EXCLUDED.external_requestor_names)";
+
+  /**
+   * Rewrites the rows of the tickets from the source tables, returning how many rows were inserted
+   * or changed.
+   */
+  @Modifying
+  @Query(
+      value = REFRESH_SELECT + " WHERE t.id IN (:ticketIds)" + ON_CONFLICT_UPDATE,
+      nativeQuery = true)
+  @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "ticket_backlog_view"))
+  int refresh(@Param("ticketIds") Collection<Long> ticketIds);
+
+  /** Rewrites every row that differs from the source tables, returning how many changed. */
+  @Modifying
+  @Query(value = REFRESH_SELECT + ON_CONFLICT_UPDATE, nativeQuery = true)
+  @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "ticket_backlog_view"))
+  int refreshAll();
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.repository;
+
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+import au.gov.digitalhealth.tickets.models.TicketHistoryEntry;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+public interface TicketHistoryEntryRepository extends JpaRepository<TicketHistoryEntry, Long> {
+
+  List<TicketHistoryEntry> findByTicketIdOrderByRevisionTimestampAscIdAsc(Long ticketId);
+
+  Page<TicketHistoryEntry> findByTicketIdOrderByRevisionTimestampAscIdAsc(
+      Long ticketId, Pageable pageable);
+
+  /** Adds the ticket's progress row, if it has none, so that it can be locked. */
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO ticket_history_progress (ticket_id) VALUES (:ticketId)"
+              + " ON CONFLICT (ticket_id) DO NOTHING",
+      nativeQuery = true)
+  @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "ticket_history_progress"))
+  int initialiseProgress(@Param("ticketId") Long ticketId);
+
+  /**
+   * Locks the ticket's progress row so that concurrent recorders for the same ticket take turns.
+   */
+  @Query(
+      value =
+          "SELECT ticket_id FROM ticket_history_progress WHERE ticket_id = :ticketId FOR UPDATE",
+      nativeQuery = true)
+  Long lockProgress(@Param("ticketId") Long ticketId);
+
+  /**
+   * Returns the earliest audit revision of the ticket, its labels, comments, external requestors,
+   * additional field values or associations that has not been recorded, or null if all have been.
+   */
+  @Query(
+      value =
+          """
+          SELECT min(audited.rev)
+          FROM (
+              SELECT rev FROM ticket_aud WHERE id = :ticketId
+              UNION SELECT rev FROM ticket_labels_aud WHERE ticket_id = :ticketId
+              UNION SELECT rev FROM comment_aud WHERE ticket_id = :ticketId
+              UNION SELECT rev FROM ticket_external_requestors_aud WHERE ticket_id = :ticketId
+              UNION SELECT rev FROM ticket_additional_field_values_aud WHERE ticket_id = :ticketId
+              UNION SELECT rev FROM ticket_association_aud
+                    WHERE id IN (
+                        SELECT id FROM ticket_association_aud
+                        WHERE ticket_source_id = :ticketId OR ticket_target_id = :ticketId)
+          ) audited
+          WHERE NOT EXISTS (
+              SELECT 1 FROM ticket_history_revision h
+              WHERE h.ticket_id = :ticketId AND h.revision = audited.rev)
+          """,
+      nativeQuery = true)
+  Integer findFirstUnrecordedRevision(@Param("ticketId") Long ticketId);
+
+  /** Returns the revisions from {@code fromRevision} on that have been recorded for the ticket. */
+  @Query(
+      value =
+          "SELECT revision FROM ticket_history_revision"
+              + " WHERE ticket_id = :ticketId AND revision >= :fromRevision",
+      nativeQuery = true)
+  List<Integer> findRecordedRevisions(
+      @Param("ticketId") Long ticketId, @Param("fromRevision") int fromRevision);
+
+  /** Marks the revisions as recorded for the ticket. */
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO ticket_history_revision (ticket_id, revision)"
+              + " SELECT :ticketId, rev FROM revinfo WHERE rev IN (:revisions)"
+              + " ON CONFLICT DO NOTHING",
+      nativeQuery = true)
+  @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "ticket_history_revision"))
+  int markRecorded(
+      @Param("ticketId") Long ticketId, @Param("revisions") Collection<Integer> revisions);
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.repository;
+
+import au.gov.digitalhealth.tickets.models.TicketImportCheckpoint;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface TicketImportCheckpointRepository
+    extends JpaRepository<TicketImportCheckpoint, Long> {
+
+  List<TicketImportCheckpoint> findByImportFile(String importFile);
+
+  @Modifying
+  @Query("delete from TicketImportCheckpoint c where c.importFile = :importFile")
+  int deleteByImportFile(@Param("importFile") String importFile);
+}
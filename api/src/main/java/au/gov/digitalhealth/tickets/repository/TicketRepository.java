@@ -64,6 +64,12 @@ public interface TicketRepository
 
   Optional<Ticket> findByTicketNumber(String tic);
 
+  @EntityGraph(value = "Ticket.detail", type = EntityGraphType.LOAD)
+  Optional<Ticket> findDetailById(Long id);
+
+  @EntityGraph(value = "Ticket.detail", type = EntityGraphType.LOAD)
+  Optional<Ticket> findDetailByTicketNumber(String ticketNumber);
+
   @Query(
       nativeQuery = true,
       value =
@@ -15,8 +15,12 @@
  */
 package au.gov.digitalhealth.tickets.repository;
 
+import au.gov.digitalhealth.tickets.TicketBacklogDto;
+import au.gov.digitalhealth.tickets.helper.KeysetPage;
 import au.gov.digitalhealth.tickets.helper.SearchCondition;
+import au.gov.digitalhealth.tickets.helper.TicketSearchCursor;
 import com.querydsl.core.types.Predicate;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -25,4 +29,22 @@ import org.springframework.data.domain.Sort;
 public interface TicketRepositoryCustom {
   Page<Long> findAllIds(
       Predicate predicate, Pageable pageable, Sort sort, List<SearchCondition> searchConditions);
+
+  /**
+   * Finds the ids of the page of tickets after the cursor, seeking past the previous page on the
+   * sort value and id rather than skipping over the rows before it. Only the first order of the
+   * sort is used, with the id as tie breaker.
+   */
+  KeysetPage<Long> findIdsAfter(
+      Predicate predicate,
+      int size,
+      Sort sort,
+      List<SearchCondition> searchConditions,
+      TicketSearchCursor cursor);
+
+  /**
+   * Reads the backlog view of the tickets straight from the database, without loading the ticket
+   * entities. The tickets are returned in no particular order.
+   */
+  List<TicketBacklogDto> findBacklogDtosByIdIn(Collection<Long> ids);
 }
@@ -15,16 +15,32 @@
  */
 package au.gov.digitalhealth.tickets.repository;
 
+import au.gov.digitalhealth.lingo.exception.LingoProblem;
+import au.gov.digitalhealth.tickets.TicketBacklogDto;
+import au.gov.digitalhealth.tickets.helper.KeysetPage;
 import au.gov.digitalhealth.tickets.helper.SearchCondition;
 import au.gov.digitalhealth.tickets.helper.SearchConditionUtils;
 import au.gov.digitalhealth.tickets.helper.TicketPredicateBuilder;
+import au.gov.digitalhealth.tickets.helper.TicketSearchCursor;
 import au.gov.digitalhealth.tickets.models.QTicket;
 import au.gov.digitalhealth.tickets.models.Ticket;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -33,8 +49,59 @@ import org.springframework.data.domain.Sort;
 
 public class TicketRepositoryCustomImpl implements TicketRepositoryCustom {
 
+  /**
+   * Builds each ticket's {@link TicketBacklogDto} as JSON in one statement, with the labels and
+   * external requestors aggregated by correlated subqueries, so a page of the backlog is one round
+   * trip and no entities are loaded into the persistence context.
+   */
+  private static final String BACKLOG_DTO_QUERY =
+      "select json_build_object("
+          + audited("t")
+          + ", 'title', t.title, 'ticketNumber', t.ticket_number, 'description', t.description,"
+          + " 'assignee', t.assignee,"
+          + " 'state', "
+          + nullable("s", "'label', s.label, 'description', s.description, 'grouping', s.grouping")
+          + ", 'iteration', "
+          + nullable(
+              "i",
+              "'name', i.name, 'startDate', i.start_date, 'endDate', i.end_date,"
+                  + " 'active', coalesce(i.active, false), 'completed', coalesce(i.completed, false)")
+          + ", 'priorityBucket', "
+          + nullable(
+              "p", "'name', p.name, 'orderIndex', p.order_index, 'description', p.description")
+          + ", 'taskAssociation', "
+          + nullable("ta", "'taskId', ta.task_id")
+          + ", 'schedule', "
+          + nullable(
+              "sc", "'name', sc.name, 'description', sc.description, 'grouping', sc.grouping")
+          + ", 'labels', coalesce((select json_agg(json_build_object("
+          + audited("l")
+          + ", 'name', l.name, 'description', l.description, 'displayColor', l.display_color))"
+          + " from ticket_labels tl join label l on l.id = tl.label_id"
+          + " where tl.ticket_id = t.id), '[]'::json)"
+          + ", 'externalRequestors', coalesce((select json_agg(json_build_object("
+          + audited("er")
+          + ", 'name', er.name, 'description', er.description, 'displayColor', er.display_color))"
+          + " from ticket_external_requestors ter"
+          + " join external_requestor er on er.id = ter.external_requestor_id"
+          + " where ter.ticket_id = t.id), '[]'::json)"
+          + ")::text"
+          + " from ticket t"
+          + " left join state s on s.id = t.state_id"
+          + " left join iteration i on i.id = t.iteration_id"
+          + " left join priority_bucket p on p.id = t.priority_bucket_id"
+          + " left join task_association ta on ta.id = t.task_association_id"
+          + " left join schedule sc on sc.id = t.schedule_id"
+          + " where t.id in (:ids)";
+
   @PersistenceContext private EntityManager entityManager;
 
+  private final ObjectMapper objectMapper;
+
+  public TicketRepositoryCustomImpl(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
   @Override
   public Page<Long> findAllIds(
       Predicate predicate, Pageable pageable, Sort sort, List<SearchCondition> searchConditions) {
@@ -53,6 +120,10 @@ public class TicketRepositoryCustomImpl implements TicketRepositoryCustom {
     if (sort != null && sort.isSorted()) {
       sort.forEach(
           order -> {
+            if (TicketPredicateBuilder.RELEVANCE_SORT.equalsIgnoreCase(order.getProperty())) {
+              addRelevanceOrder(order, searchConditions, query);
+              return;
+            }
             PathBuilder<Ticket> pathBuilder = new PathBuilder<>(Ticket.class, "ticket");
             addEntityPath(order.getProperty(), query);
             if (order.isAscending()) {
@@ -68,8 +139,145 @@ public class TicketRepositoryCustomImpl implements TicketRepositoryCustom {
     return new PageImpl<>(ids, pageable, total);
   }
 
+  @Override
+  public KeysetPage<Long> findIdsAfter(
+      Predicate predicate,
+      int size,
+      Sort sort,
+      List<SearchCondition> searchConditions,
+      TicketSearchCursor cursor) {
+    QTicket ticket = QTicket.ticket;
+    JPAQuery<Tuple> query = new JPAQuery<>(entityManager);
+
+    Sort.Order order = sort != null && sort.isSorted() ? sort.iterator().next() : null;
+    Expression<?> sortExpression = null;
+    boolean sortsByProperty = false;
+    if (order != null
+        && TicketPredicateBuilder.RELEVANCE_SORT.equalsIgnoreCase(order.getProperty())) {
+      sortExpression = TicketPredicateBuilder.relevance(searchConditions);
+    } else if (order != null) {
+      sortExpression =
+          new PathBuilder<>(Ticket.class, "ticket")
+              .getComparable(order.getProperty(), Comparable.class);
+      sortsByProperty = true;
+    }
+    if (sortExpression == null) {
+      sortExpression = ticket.id;
+    }
+    boolean ascending = order == null || sortExpression == ticket.id || order.isAscending();
+
+    query.select(ticket.id, sortExpression).from(ticket).where(predicate);
+    addLeftJoins(searchConditions, query);
+    if (sortsByProperty) {
+      addEntityPath(order.getProperty(), query);
+    }
+
+    long total = cursor.isFirst() ? countIds(predicate, searchConditions) : cursor.total();
+
+    if (!cursor.isFirst()) {
+      query.where(seekAfter(sortExpression, ascending, cursor.sortValue(), cursor.lastId()));
+    }
+    query
+        .orderBy(orderBy(sortExpression, ascending))
+        .orderBy(ascending ? ticket.id.asc() : ticket.id.desc())
+        .limit(size + 1L);
+
+    List<Tuple> rows = query.fetch();
+    List<Tuple> pageRows = rows.size() > size ? rows.subList(0, size) : rows;
+    List<Long> ids = pageRows.stream().map(row -> row.get(ticket.id)).toList();
+
+    String nextCursor = null;
+    if (rows.size() > size) {
+      Tuple last = pageRows.get(pageRows.size() - 1);
+      nextCursor = cursor.next(total, last.get(ticket.id), last.get(sortExpression)).encode();
+    }
+    return new KeysetPage<>(ids, size, cursor.page(), total, nextCursor);
+  }
+
+  @Override
+  public List<TicketBacklogDto> findBacklogDtosByIdIn(Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    List<?> rows =
+        entityManager
+            .createNativeQuery(BACKLOG_DTO_QUERY, String.class)
+            .setParameter("ids", ids)
+            .getResultList();
+    List<TicketBacklogDto> dtos = new ArrayList<>(rows.size());
+    for (Object row : rows) {
+      try {
+        dtos.add(objectMapper.readValue((String) row, TicketBacklogDto.class));
+      } catch (JsonProcessingException e) {
+        throw new LingoProblem("Failed to read backlog ticket", e);
+      }
+    }
+    return dtos;
+  }
+
+  private static String audited(String alias) {
+    return String.format(
+        "'id', %1$s.id, 'version', %1$s.version, 'created', %1$s.created,"
+            + " 'createdBy', %1$s.created_by, 'modified', %1$s.modified,"
+            + " 'modifiedBy', %1$s.modified_by",
+        alias);
+  }
+
+  private static String nullable(String alias, String fields) {
+    return "case when "
+        + alias
+        + ".id is null then null else json_build_object("
+        + audited(alias)
+        + ", "
+        + fields
+        + ") end";
+  }
+
+  private long countIds(Predicate predicate, List<SearchCondition> searchConditions) {
+    JPAQuery<Long> query = new JPAQuery<>(entityManager);
+    query.select(QTicket.ticket.id).from(QTicket.ticket).where(predicate);
+    addLeftJoins(searchConditions, query);
+    return query.fetchCount();
+  }
+
+  /**
+   * Matches the rows that sort after the given sort value and id, with nulls last when ascending
+   * and first when descending, as for offset paging.
+   */
+  private static BooleanExpression seekAfter(
+      Expression<?> sortExpression, boolean ascending, Object sortValue, Long lastId) {
+    BooleanExpression idAfter =
+        ascending ? QTicket.ticket.id.gt(lastId) : QTicket.ticket.id.lt(lastId);
+    BooleanExpression isNull = Expressions.booleanOperation(Ops.IS_NULL, sortExpression);
+    if (sortValue == null) {
+      BooleanExpression sameNull = isNull.and(idAfter);
+      return ascending ? sameNull : sameNull.or(isNull.not());
+    }
+    Expression<Object> value = Expressions.constant(sortValue);
+    BooleanExpression seek =
+        Expressions.booleanOperation(ascending ? Ops.GT : Ops.LT, sortExpression, value)
+            .or(Expressions.booleanOperation(Ops.EQ, sortExpression, value).and(idAfter));
+    return ascending ? seek.or(isNull) : seek;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static OrderSpecifier<?> orderBy(Expression<?> sortExpression, boolean ascending) {
+    return ascending
+        ? new OrderSpecifier(Order.ASC, sortExpression, OrderSpecifier.NullHandling.NullsLast)
+        : new OrderSpecifier(Order.DESC, sortExpression, OrderSpecifier.NullHandling.NullsFirst);
+  }
+
+  // ranks by similarity to the searched text; without a text search there is nothing to rank by
+  private void addRelevanceOrder(
+      Sort.Order order, List<SearchCondition> searchConditions, JPAQuery<?> query) {
+    NumberExpression<Double> relevance = TicketPredicateBuilder.relevance(searchConditions);
+    if (relevance == null) return;
+    query.orderBy(order.isAscending() ? relevance.asc() : relevance.desc());
+    query.orderBy(QTicket.ticket.id.desc());
+  }
+
   // for entitys that require a left join because of an order condition
-  private void addEntityPath(String order, JPAQuery<Long> query) {
+  private void addEntityPath(String order, JPAQuery<?> query) {
     String lowercaseOrder = order.toLowerCase();
     if (TicketPredicateBuilder.ITERATION_PATH.equals(lowercaseOrder)) {
       query.leftJoin(QTicket.ticket.iteration);
@@ -94,7 +302,7 @@ public class TicketRepositoryCustomImpl implements TicketRepositoryCustom {
     }
   }
 
-  private void addLeftJoins(List<SearchCondition> searchConditions, JPAQuery<Long> query) {
+  private void addLeftJoins(List<SearchCondition> searchConditions, JPAQuery<?> query) {
     if (searchConditions == null) return;
 
     searchConditions.forEach(
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The generation of cached backlog search results, held in a database sequence so that it is shared
+ * by every instance.
+ */
+@Repository
+public class TicketSearchGenerationRepository {
+
+  @PersistenceContext private EntityManager entityManager;
+
+  /**
+   * Returns the current generation. Until its first {@code nextval} a sequence already reports its
+   * start value, so the generation is read as 0 then for the first advance to change it.
+   */
+  public long current() {
+    return ((Number)
+            entityManager
+                .createNativeQuery(
+                    "SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM ticket_search_generation_seq")
+                .getSingleResult())
+        .longValue();
+  }
+
+  /** Moves on to the next generation. */
+  public void advance() {
+    entityManager
+        .createNativeQuery("SELECT nextval('ticket_search_generation_seq')")
+        .getSingleResult();
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.service;
+
+import au.gov.digitalhealth.tickets.repository.TicketBacklogViewRepository;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the ticket_backlog_view table in step with the tickets it summarises.
+ *
+ * <p>Changes are collected per transaction and the affected rows rewritten once it commits, in a
+ * transaction of their own, so a failed refresh never rolls back the change that caused it. Bulk
+ * JPQL updates bypass the entity listeners, so the whole table is also reconciled on a schedule;
+ * only rows that differ from their tickets are written, so a reconcile with nothing to fix is a
+ * read.
+ *
+ * <p>Searches read the table, so cached search results are invalidated after each refresh rather
+ * than at commit, which could let a search between the two cache results from the old rows.
+ */
+@Service
+@Log
+public class TicketBacklogViewService {
+
+  private final TicketBacklogViewRepository repository;
+  private final TicketSearchResultCache ticketSearchResultCache;
+  private final TransactionTemplate transactionTemplate;
+
+  public TicketBacklogViewService(
+      TicketBacklogViewRepository repository,
+      TicketSearchResultCache ticketSearchResultCache,
+      PlatformTransactionManager transactionManager) {
+    this.repository = repository;
+    this.ticketSearchResultCache = ticketSearchResultCache;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  /** Records that the ticket changed, to be refreshed when the current transaction commits. */
+  public void ticketChanged(Long ticketId) {
+    if (ticketId != null) {
+      pendingRefresh().ticketIds.add(ticketId);
+    }
+  }
+
+  /**
+   * Records that a state, label or other value shown in the view changed, so every row is refreshed
+   * when the current transaction commits.
+   */
+  public void referenceDataChanged() {
+    pendingRefresh().all = true;
+  }
+
+  @Scheduled(fixedDelayString = "${snomio.backlog-view.reconcile.interval:900000}")
+  public void reconcile() {
+    refresh(new PendingRefresh(true));
+  }
+
+  private PendingRefresh pendingRefresh() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      // Outside a transaction there is nothing to wait for; reconcile picks the change up.
+      return new PendingRefresh(false);
+    }
+    PendingRefresh pending =
+        (PendingRefresh) TransactionSynchronizationManager.getResource(PendingRefresh.class);
+    if (pending == null) {
+      pending = new PendingRefresh(false);
+      TransactionSynchronizationManager.bindResource(PendingRefresh.class, pending);
+      TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+    return pending;
+  }
+
+  private void refresh(PendingRefresh pending) {
+    Integer rows = null;
+    try {
+      rows =
+          transactionTemplate.execute(
+              status ->
+                  pending.all ? repository.refreshAll() : repository.refresh(pending.ticketIds));
+      log.fine("Refreshed " + rows + " ticket backlog view rows");
+    } catch (DataAccessException e) {
+      log.log(Level.WARNING, "Failed to refresh ticket backlog view, will retry on reconcile", e);
+    }
+    // Unchanged rows are not rewritten, so a reconcile that found nothing to fix keeps the cache.
+    if (rows == null || rows > 0) {
+      ticketSearchResultCache.ticketsChanged();
+    }
+  }
+
+  private class PendingRefresh implements TransactionSynchronization {
+    private final Set<Long> ticketIds = new HashSet<>();
+    private boolean all;
+
+    PendingRefresh(boolean all) {
+      this.all = all;
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(PendingRefresh.class);
+      if (status == STATUS_COMMITTED && (all || !ticketIds.isEmpty())) {
+        refresh(this);
+      }
+    }
+  }
+}
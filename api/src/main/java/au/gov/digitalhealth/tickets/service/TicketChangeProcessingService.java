@@ -15,258 +15,438 @@
  */
 package au.gov.digitalhealth.tickets.service;
 
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.ASSIGNEE;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.DESCRIPTION;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.ENTITY_ID;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.FIELD_NAME;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.ITERATION_ID;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.PRIORITY_BUCKET_ID;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.REVISION;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.REVISION_TIMESTAMP;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.REVISION_TYPE;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SECTION;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SECTION_ADDITIONAL_FIELD;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SECTION_COMMENT;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SECTION_EXTERNAL_REQUESTOR;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SECTION_LABEL;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SECTION_TICKET;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SECTION_TICKET_ASSOCIATION;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SOURCE_ID;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.STATE_ID;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.TARGET_ID;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.TITLE;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.USERNAME;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.VALUE;
+
 import au.gov.digitalhealth.tickets.TicketHistoryEntryDto;
 import au.gov.digitalhealth.tickets.TicketHistoryValueDto;
-import au.gov.digitalhealth.tickets.models.CustomRevInfo;
 import au.gov.digitalhealth.tickets.models.ExternalRequestor;
 import au.gov.digitalhealth.tickets.models.Iteration;
 import au.gov.digitalhealth.tickets.models.Label;
 import au.gov.digitalhealth.tickets.models.PriorityBucket;
 import au.gov.digitalhealth.tickets.models.State;
-import au.gov.digitalhealth.tickets.models.TaskAssociation;
-import au.gov.digitalhealth.tickets.models.Ticket;
 import au.gov.digitalhealth.tickets.repository.ExternalRequestorRepository;
 import au.gov.digitalhealth.tickets.repository.IterationRepository;
 import au.gov.digitalhealth.tickets.repository.LabelRepository;
 import au.gov.digitalhealth.tickets.repository.PriorityBucketRepository;
 import au.gov.digitalhealth.tickets.repository.StateRepository;
-import au.gov.digitalhealth.tickets.repository.TaskAssociationRepository;
-import au.gov.digitalhealth.tickets.repository.TicketRepository;
+import au.gov.digitalhealth.tickets.repository.TicketAuditRepository;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import org.springframework.stereotype.Service;
 
+/**
+ * Turns the audit rows from {@link TicketAuditRepository#streamChanges(Long, int)} into ticket
+ * history entries.
+ */
 @Service
 public class TicketChangeProcessingService {
 
   private final StateRepository stateRepository;
   private final LabelRepository labelRepository;
-
-  private final TaskAssociationRepository taskAssociationRepository;
   private final IterationRepository iterationRepository;
   private final PriorityBucketRepository priorityBucketRepository;
   private final ExternalRequestorRepository externalRequestorRepository;
-  private final TicketRepository ticketRepository;
 
   public TicketChangeProcessingService(
-      TaskAssociationRepository taskAssociationRepository,
       StateRepository stateRepository,
       LabelRepository labelRepository,
       IterationRepository iterationRepository,
       PriorityBucketRepository priorityBucketRepository,
-      ExternalRequestorRepository externalRequestorRepository,
-      TicketRepository ticketRepository) {
-    this.taskAssociationRepository = taskAssociationRepository;
+      ExternalRequestorRepository externalRequestorRepository) {
     this.stateRepository = stateRepository;
     this.labelRepository = labelRepository;
     this.iterationRepository = iterationRepository;
     this.priorityBucketRepository = priorityBucketRepository;
     this.externalRequestorRepository = externalRequestorRepository;
-    this.ticketRepository = ticketRepository;
   }
 
-  public List<TicketHistoryEntryDto> processFieldChanges(
-      Object[] fieldData, CustomRevInfo revInfo) {
-    List<TicketHistoryEntryDto> changes = new ArrayList<>();
-    LocalDateTime timestamp = convertTimestamp(revInfo.getRevtstmp());
-
-    // Process each field change
-    changes.addAll(
-        processStringFieldChange(
-            "title", (String) fieldData[0], (String) fieldData[1], revInfo, timestamp));
-    changes.addAll(
-        processStringFieldChange(
-            "description", (String) fieldData[2], (String) fieldData[3], revInfo, timestamp));
-    changes.addAll(
-        processStringFieldChange(
-            "assignee", (String) fieldData[4], (String) fieldData[5], revInfo, timestamp));
-    changes.addAll(
-        processEntityFieldChange(
-            "state",
-            (Number) fieldData[6],
-            (Number) fieldData[7],
-            this::getStateName,
-            revInfo,
-            timestamp));
-    changes.addAll(
-        processEntityFieldChange(
-            "priority",
-            (Number) fieldData[8],
-            (Number) fieldData[9],
-            this::getPriorityBucketName,
-            revInfo,
-            timestamp));
-    changes.addAll(
-        processEntityFieldChange(
-            "iteration",
-            (Number) fieldData[10],
-            (Number) fieldData[11],
-            this::getIterationName,
-            revInfo,
-            timestamp));
-
-    return changes;
+  /**
+   * Starts the history of a ticket, keeping the changes made after {@code afterRevision}. The names
+   * of the states, labels and other values the changes refer to are loaded up front.
+   */
+  public TicketHistoryBuilder historyBuilder(Long ticketId, int afterRevision) {
+    return historyBuilder(ticketId, afterRevision, Set.of());
   }
 
-  public List<TicketHistoryEntryDto> processLabelChanges(List<Object[]> labelData) {
-    return labelData.stream().map(this::processLabelChange).toList();
+  /**
+   * Starts the history of a ticket, keeping the changes made after {@code afterRevision} other than
+   * those in the {@code recordedRevisions}, which only serve as the baseline for the others.
+   */
+  public TicketHistoryBuilder historyBuilder(
+      Long ticketId, int afterRevision, Set<Integer> recordedRevisions) {
+    return new TicketHistoryBuilder(
+        ticketId, afterRevision, recordedRevisions, loadReferenceNames());
   }
 
-  public List<TicketHistoryEntryDto> processCommentChanges(List<Object[]> commentData) {
-    return commentData.stream().map(this::processCommentChange).toList();
+  private ReferenceNames loadReferenceNames() {
+    return new ReferenceNames(
+        namesById(stateRepository.findAll(), State::getId, State::getLabel),
+        namesById(
+            priorityBucketRepository.findAll(), PriorityBucket::getId, PriorityBucket::getName),
+        namesById(iterationRepository.findAll(), Iteration::getId, Iteration::getName),
+        namesById(labelRepository.findAll(), Label::getId, Label::getName),
+        namesById(
+            externalRequestorRepository.findAll(),
+            ExternalRequestor::getId,
+            ExternalRequestor::getName));
   }
 
-  public List<TicketHistoryEntryDto> processExternalRequestorChanges(List<Object[]> requestorData) {
-    return requestorData.stream().map(this::processExternalRequestorChange).toList();
+  private static <T> Map<Long, String> namesById(
+      List<T> entities, Function<T, Long> id, Function<T, String> name) {
+    Map<Long, String> names = new HashMap<>();
+    entities.forEach(entity -> names.put(id.apply(entity), name.apply(entity)));
+    return names;
   }
 
-  // Private helper methods
-  private List<TicketHistoryEntryDto> processStringFieldChange(
-      String fieldName,
-      String oldValue,
-      String newValue,
-      CustomRevInfo revInfo,
-      LocalDateTime timestamp) {
-    List<TicketHistoryEntryDto> changes = new ArrayList<>();
-
-    if (!Objects.equals(oldValue, newValue)) {
-      TicketHistoryValueDto oldValueDto = TicketHistoryValueDto.builder().value(oldValue).build();
-      TicketHistoryValueDto newValueDto = TicketHistoryValueDto.builder().value(newValue).build();
-
-      changes.add(
-          new TicketHistoryEntryDto(
-              (long) revInfo.getRev(),
-              timestamp,
-              "UPDATE",
-              fieldName,
-              oldValueDto,
-              newValueDto,
-              capitalizeFirst(fieldName) + " changed",
-              revInfo.getUsername()));
+  /**
+   * Builds history entries from audit rows as they are streamed in revision order. Field and task
+   * association changes are found by comparing each ticket row with the one before, and removed
+   * ticket associations are described from the earlier rows of the same association.
+   */
+  public class TicketHistoryBuilder implements Consumer<Object[]> {
+    private final Long ticketId;
+    private final int afterRevision;
+    private final Set<Integer> recordedRevisions;
+    private final Set<Integer> newRevisions = new TreeSet<>();
+    private final ReferenceNames names;
+    private final List<TicketHistoryEntryDto> entries = new ArrayList<>();
+    private final Map<Long, AssociationData> associations = new HashMap<>();
+    private Object[] previousTicketRow;
+    private Object[] previousTaskAssociationRow;
+    private int lastRevision;
+
+    private TicketHistoryBuilder(
+        Long ticketId, int afterRevision, Set<Integer> recordedRevisions, ReferenceNames names) {
+      this.ticketId = ticketId;
+      this.afterRevision = afterRevision;
+      this.recordedRevisions = recordedRevisions;
+      this.lastRevision = afterRevision;
+      this.names = names;
     }
 
-    return changes;
-  }
+    @Override
+    public void accept(Object[] row) {
+      int revision = ((Number) row[REVISION]).intValue();
+      lastRevision = Math.max(lastRevision, revision);
+      boolean recorded = revision > afterRevision && !recordedRevisions.contains(revision);
+      if (recorded) {
+        newRevisions.add(revision);
+      }
+      switch (((Number) row[SECTION]).intValue()) {
+        case SECTION_TICKET -> processTicketRow(row, recorded);
+        case SECTION_LABEL -> {
+          if (recorded) {
+            entries.add(
+                processReferenceChange(row, "label", "Label ", names.labels(), "Unknown Label"));
+          }
+        }
+        case SECTION_COMMENT -> {
+          if (recorded) {
+            entries.add(processCommentChange(row));
+          }
+        }
+        case SECTION_EXTERNAL_REQUESTOR -> {
+          if (recorded) {
+            entries.add(
+                processReferenceChange(
+                    row,
+                    "external_requestor",
+                    "External requestor ",
+                    names.externalRequestors(),
+                    "Unknown Requestor"));
+          }
+        }
+        case SECTION_ADDITIONAL_FIELD -> {
+          if (recorded) {
+            entries.add(processAdditionalFieldChange(row));
+          }
+        }
+        case SECTION_TICKET_ASSOCIATION -> processTicketAssociationRow(row, recorded);
+        default -> throw new IllegalStateException("Unexpected audit section " + row[SECTION]);
+      }
+    }
 
-  private List<TicketHistoryEntryDto> processEntityFieldChange(
-      String fieldName,
-      Number oldId,
-      Number newId,
-      EntityNameResolver resolver,
-      CustomRevInfo revInfo,
-      LocalDateTime timestamp) {
-    List<TicketHistoryEntryDto> changes = new ArrayList<>();
-
-    Long oldEntityId = oldId != null ? oldId.longValue() : null;
-    Long newEntityId = newId != null ? newId.longValue() : null;
-
-    if (!Objects.equals(oldEntityId, newEntityId)) {
-      String oldName = resolver.resolve(oldEntityId);
-      String newName = resolver.resolve(newEntityId);
-
-      TicketHistoryValueDto oldValueDto =
-          TicketHistoryValueDto.builder().entityId(oldEntityId).value(oldName).build();
-      TicketHistoryValueDto newValueDto =
-          TicketHistoryValueDto.builder().entityId(newEntityId).value(newName).build();
-
-      changes.add(
-          new TicketHistoryEntryDto(
-              (long) revInfo.getRev(),
-              timestamp,
+    /** The entries for the revisions not recorded before, in revision order. */
+    public List<TicketHistoryEntryDto> getEntries() {
+      return entries;
+    }
+
+    /** The revisions the entries were kept for, whether or not they produced one. */
+    public Set<Integer> getNewRevisions() {
+      return newRevisions;
+    }
+
+    /** The latest revision seen, whether or not it produced an entry. */
+    public int getLastRevision() {
+      return lastRevision;
+    }
+
+    private void processTicketRow(Object[] row, boolean recorded) {
+      if (recorded && previousTicketRow != null) {
+        processFieldChanges(previousTicketRow, row);
+      }
+      previousTicketRow = row;
+
+      // Only the revisions with a task association are compared, so a removal is not recorded
+      if (row[ENTITY_ID] != null) {
+        if (recorded && previousTaskAssociationRow != null) {
+          processTaskAssociationChange(previousTaskAssociationRow, row);
+        }
+        previousTaskAssociationRow = row;
+      }
+    }
+
+    private void processFieldChanges(Object[] previous, Object[] current) {
+      processStringFieldChange("title", previous, current, TITLE);
+      processStringFieldChange("description", previous, current, DESCRIPTION);
+      processStringFieldChange("assignee", previous, current, ASSIGNEE);
+      processEntityFieldChange(
+          "state", previous, current, STATE_ID, names.states(), "Unknown State");
+      processEntityFieldChange(
+          "priority",
+          previous,
+          current,
+          PRIORITY_BUCKET_ID,
+          names.priorityBuckets(),
+          "Unknown Priority");
+      processEntityFieldChange(
+          "iteration", previous, current, ITERATION_ID, names.iterations(), "Unknown Iteration");
+    }
+
+    private void processStringFieldChange(
+        String fieldName, Object[] previous, Object[] current, int column) {
+      String oldValue = (String) previous[column];
+      String newValue = (String) current[column];
+      if (!Objects.equals(oldValue, newValue)) {
+        TicketHistoryValueDto oldValueDto = TicketHistoryValueDto.builder().value(oldValue).build();
+        TicketHistoryValueDto newValueDto = TicketHistoryValueDto.builder().value(newValue).build();
+
+        entries.add(
+            entry(
+                current,
+                "UPDATE",
+                fieldName,
+                oldValueDto,
+                newValueDto,
+                capitalizeFirst(fieldName) + " changed"));
+      }
+    }
+
+    private void processEntityFieldChange(
+        String fieldName,
+        Object[] previous,
+        Object[] current,
+        int column,
+        Map<Long, String> namesById,
+        String unknownName) {
+      Long oldEntityId = toLong(previous[column]);
+      Long newEntityId = toLong(current[column]);
+
+      if (!Objects.equals(oldEntityId, newEntityId)) {
+        String oldName = resolveName(namesById, oldEntityId, unknownName);
+        String newName = resolveName(namesById, newEntityId, unknownName);
+
+        TicketHistoryValueDto oldValueDto =
+            TicketHistoryValueDto.builder().entityId(oldEntityId).value(oldName).build();
+        TicketHistoryValueDto newValueDto =
+            TicketHistoryValueDto.builder().entityId(newEntityId).value(newName).build();
+
+        entries.add(
+            entry(
+                current,
+                "UPDATE",
+                fieldName,
+                oldValueDto,
+                newValueDto,
+                capitalizeFirst(fieldName) + " changed from " + oldName + " to " + newName));
+      }
+    }
+
+    private void processTaskAssociationChange(Object[] previous, Object[] current) {
+      Long previousId = toLong(previous[ENTITY_ID]);
+      Long currentId = toLong(current[ENTITY_ID]);
+      if (Objects.equals(previousId, currentId)) {
+        return;
+      }
+      TicketHistoryValueDto oldValue =
+          TicketHistoryValueDto.builder().entityId(previousId).value(taskId(previous)).build();
+      TicketHistoryValueDto newValue =
+          TicketHistoryValueDto.builder().entityId(currentId).value(taskId(current)).build();
+
+      entries.add(
+          entry(
+              current,
               "UPDATE",
-              fieldName,
-              oldValueDto,
-              newValueDto,
-              capitalizeFirst(fieldName) + " changed from " + oldName + " to " + newName,
-              revInfo.getUsername()));
+              "task_association",
+              oldValue,
+              newValue,
+              "Task association changed from "
+                  + oldValue.getValue()
+                  + " to "
+                  + newValue.getValue()));
     }
 
-    return changes;
-  }
+    private void processTicketAssociationRow(Object[] row, boolean recorded) {
+      Long associationId = toLong(row[ENTITY_ID]);
+      Long sourceId = toLong(row[SOURCE_ID]);
+      Long targetId = toLong(row[TARGET_ID]);
+      String otherTicketNumber = (String) row[VALUE];
+
+      // Removals only record the association id, so use what was recorded when it was added
+      AssociationData association = associations.get(associationId);
+      if (sourceId != null && targetId != null) {
+        association = new AssociationData(sourceId, targetId, otherTicketNumber);
+        associations.put(associationId, association);
+      }
+      if (!recorded || association == null) {
+        return;
+      }
+
+      Short revType = ((Number) row[REVISION_TYPE]).shortValue();
+      boolean isSource = Objects.equals(association.sourceId(), ticketId);
+      String direction = isSource ? "Associated To" : "Associated From";
+      String otherTicket =
+          association.otherTicketNumber() != null
+              ? association.otherTicketNumber()
+              : "Unknown Ticket";
 
-  private TicketHistoryEntryDto processLabelChange(Object[] result) {
-    Long labelId = ((Number) result[0]).longValue();
-    Integer revisionNumber = ((Number) result[1]).intValue();
-    Short revType = ((Number) result[2]).shortValue();
-    Long revTimestamp = ((Number) result[3]).longValue();
-    String username = (String) result[4];
+      TicketHistoryValueDto value =
+          TicketHistoryValueDto.builder()
+              .entityId(associationId)
+              .value(direction + ": " + otherTicket)
+              .build();
+
+      entries.add(
+          entry(
+              row,
+              getRevisionOperationType(revType),
+              "ticket_association",
+              revType == 2 ? value : null,
+              revType == 0 ? value : null,
+              "Ticket association "
+                  + getRevisionAction(revType)
+                  + " ("
+                  + direction
+                  + ": "
+                  + otherTicket
+                  + ")"));
+    }
+  }
 
-    LocalDateTime timestamp = convertTimestamp(revTimestamp);
-    String labelName = getLabelName(labelId);
-    String action = getRevisionAction(revType);
-    String operationType = getRevisionOperationType(revType);
+  private TicketHistoryEntryDto processReferenceChange(
+      Object[] row,
+      String fieldName,
+      String descriptionPrefix,
+      Map<Long, String> namesById,
+      String unknownName) {
+    Long entityId = toLong(row[ENTITY_ID]);
+    Short revType = ((Number) row[REVISION_TYPE]).shortValue();
+    String name = resolveName(namesById, entityId, unknownName);
 
     TicketHistoryValueDto value =
-        TicketHistoryValueDto.builder().entityId(labelId).value(labelName).build();
+        TicketHistoryValueDto.builder().entityId(entityId).value(name).build();
 
-    return new TicketHistoryEntryDto(
-        revisionNumber.longValue(),
-        timestamp,
-        operationType,
-        "label",
+    return entry(
+        row,
+        getRevisionOperationType(revType),
+        fieldName,
         revType == 0 ? null : value,
         revType == 0 ? value : null,
-        "Label " + labelName + " " + action,
-        username);
+        descriptionPrefix + name + " " + getRevisionAction(revType));
   }
 
-  private TicketHistoryEntryDto processCommentChange(Object[] result) {
-    Long commentId = ((Number) result[0]).longValue();
-    String text = (String) result[1];
-    Integer revisionNumber = ((Number) result[2]).intValue();
-    Long revTimestamp = ((Number) result[3]).longValue();
-    String username = (String) result[4];
-
-    LocalDateTime timestamp = convertTimestamp(revTimestamp);
-    TicketHistoryValueDto changedValue = TicketHistoryValueDto.builder().value(text).build();
+  private TicketHistoryEntryDto processCommentChange(Object[] row) {
+    TicketHistoryValueDto changedValue =
+        TicketHistoryValueDto.builder().value((String) row[VALUE]).build();
 
-    return new TicketHistoryEntryDto(
-        revisionNumber.longValue(),
-        timestamp,
-        "INSERT",
-        "comment",
-        null,
-        changedValue,
-        "Comment added",
-        username);
+    return entry(row, "INSERT", "comment", null, changedValue, "Comment added");
   }
 
-  private TicketHistoryEntryDto processExternalRequestorChange(Object[] result) {
-    Long requestorId = ((Number) result[0]).longValue();
-    Integer revisionNumber = ((Number) result[1]).intValue();
-    Short revType = ((Number) result[2]).shortValue();
-    Long revTimestamp = ((Number) result[3]).longValue();
-    String username = (String) result[4];
-
-    LocalDateTime timestamp = convertTimestamp(revTimestamp);
-    String requestorName = getExternalRequestorName(requestorId);
-    String action = getRevisionAction(revType);
-    String operationType = getRevisionOperationType(revType);
+  private TicketHistoryEntryDto processAdditionalFieldChange(Object[] row) {
+    Short revType = ((Number) row[REVISION_TYPE]).shortValue();
+    String fieldValue = (String) row[VALUE];
+    String fieldName = (String) row[FIELD_NAME];
+    String displayValue = fieldName != null ? fieldName + ": " + fieldValue : fieldValue;
 
     TicketHistoryValueDto value =
-        TicketHistoryValueDto.builder().entityId(requestorId).value(requestorName).build();
-
-    return new TicketHistoryEntryDto(
-        revisionNumber.longValue(),
-        timestamp,
-        operationType,
-        "external_requestor",
+        TicketHistoryValueDto.builder()
+            .entityId(toLong(row[ENTITY_ID]))
+            .value(displayValue)
+            .build();
+
+    return entry(
+        row,
+        getRevisionOperationType(revType),
+        "additional_field",
         revType == 0 ? null : value,
         revType == 0 ? value : null,
-        "External requestor " + requestorName + " " + action,
-        username);
+        "Additional field " + displayValue + " " + getRevisionAction(revType));
+  }
+
+  private TicketHistoryEntryDto entry(
+      Object[] row,
+      String revisionType,
+      String fieldName,
+      TicketHistoryValueDto oldValue,
+      TicketHistoryValueDto newValue,
+      String description) {
+    return new TicketHistoryEntryDto(
+        ((Number) row[REVISION]).longValue(),
+        convertTimestamp(((Number) row[REVISION_TIMESTAMP]).longValue()),
+        revisionType,
+        fieldName,
+        oldValue,
+        newValue,
+        description,
+        (String) row[USERNAME]);
   }
 
   // Utility methods
+  private static Long toLong(Object value) {
+    return value != null ? ((Number) value).longValue() : null;
+  }
+
+  private static String resolveName(Map<Long, String> namesById, Long id, String unknownName) {
+    if (id == null) return null;
+    String name = namesById.get(id);
+    return name != null ? name : unknownName;
+  }
+
+  private static String taskId(Object[] row) {
+    return row[VALUE] != null ? (String) row[VALUE] : "Unknown Task";
+  }
+
   private LocalDateTime convertTimestamp(Long timestamp) {
     return Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()).toLocalDateTime();
   }
@@ -294,337 +474,12 @@ public class TicketChangeProcessingService {
     };
   }
 
-  // Entity name resolvers
-  private String getStateName(Long stateId) {
-    if (stateId == null) return null;
-    return stateRepository.findById(stateId).map(State::getLabel).orElse("Unknown State");
-  }
-
-  private String getPriorityBucketName(Long priorityId) {
-    if (priorityId == null) return null;
-    return priorityBucketRepository
-        .findById(priorityId)
-        .map(PriorityBucket::getName)
-        .orElse("Unknown Priority");
-  }
-
-  private String getIterationName(Long iterationId) {
-    if (iterationId == null) return null;
-    return iterationRepository
-        .findById(iterationId)
-        .map(Iteration::getName)
-        .orElse("Unknown Iteration");
-  }
-
-  private String getLabelName(Long labelId) {
-    if (labelId == null) return null;
-    return labelRepository.findById(labelId).map(Label::getName).orElse("Unknown Label");
-  }
-
-  private String getExternalRequestorName(Long requestorId) {
-    if (requestorId == null) return null;
-    return externalRequestorRepository
-        .findById(requestorId)
-        .map(ExternalRequestor::getName)
-        .orElse("Unknown Requestor");
-  }
-
-  public List<TicketHistoryEntryDto> processAdditionalFieldData(List<Object[]> results) {
-    List<TicketHistoryEntryDto> fieldValueChanges = new ArrayList<>();
-    for (Object[] result : results) {
-      Long fieldValueId = ((Number) result[0]).longValue();
-      Integer revisionNumber = ((Number) result[2]).intValue();
-      Short revType = ((Number) result[3]).shortValue();
-      Long revTimestamp = ((Number) result[4]).longValue();
-      String username = (String) result[5];
-      String fieldValue = (String) result[6];
-      String fieldName = (String) result[7];
-
-      LocalDateTime timestamp =
-          Instant.ofEpochMilli(revTimestamp).atZone(ZoneId.systemDefault()).toLocalDateTime();
-
-      String action = getRevisionAction(revType);
-      String operationType = getRevisionOperationType(revType);
-
-      String displayValue = fieldName != null ? fieldName + ": " + fieldValue : fieldValue;
-
-      TicketHistoryValueDto value =
-          TicketHistoryValueDto.builder().entityId(fieldValueId).value(displayValue).build();
-
-      fieldValueChanges.add(
-          new TicketHistoryEntryDto(
-              revisionNumber.longValue(),
-              timestamp,
-              operationType,
-              "additional_field",
-              revType == 0 ? null : value,
-              revType == 0 ? value : null,
-              "Additional field " + displayValue + " " + action,
-              username));
-    }
-
-    return fieldValueChanges;
-  }
-
-  public List<TicketHistoryEntryDto> processTicketAssociationData(
-      List<Object[]> results, Long ticketId) {
-    List<TicketHistoryEntryDto> associationChanges = new ArrayList<>();
-    Map<Long, AssociationData> associationCache = new HashMap<>();
-
-    // First pass: build cache of association data and identify relevant associations
-    Set<Long> relevantAssociationIds = new HashSet<>();
-    Set<Long> ticketIdsToFetch = new HashSet<>();
-
-    for (Object[] result : results) {
-      Long associationId = ((Number) result[0]).longValue();
-      Long sourceId = result[1] != null ? ((Number) result[1]).longValue() : null;
-      Long targetId = result[2] != null ? ((Number) result[2]).longValue() : null;
-      Short revType = ((Number) result[4]).shortValue();
-
-      // Cache CREATE records
-      if (revType == 0 && sourceId != null && targetId != null) {
-        associationCache.put(associationId, new AssociationData(sourceId, targetId));
-
-        // Check if this association involves our ticket
-        if (Objects.equals(sourceId, ticketId) || Objects.equals(targetId, ticketId)) {
-          relevantAssociationIds.add(associationId);
-          // Add the "other" ticket ID to our fetch set
-          ticketIdsToFetch.add(Objects.equals(sourceId, ticketId) ? targetId : sourceId);
-        }
-      }
-
-      // For UPDATE/DELETE records, use cached data if needed
-      if (revType != 0 && (sourceId == null || targetId == null)) {
-        AssociationData cachedData = associationCache.get(associationId);
-        if (cachedData != null) {
-          sourceId = sourceId != null ? sourceId : cachedData.sourceId;
-          targetId = targetId != null ? targetId : cachedData.targetId;
-
-          // Check if this association involves our ticket
-          if (Objects.equals(sourceId, ticketId) || Objects.equals(targetId, ticketId)) {
-            relevantAssociationIds.add(associationId);
-            ticketIdsToFetch.add(Objects.equals(sourceId, ticketId) ? targetId : sourceId);
-          }
-        }
-      } else if (revType != 0) {
-        // UPDATE record with non-null values
-        if (Objects.equals(sourceId, ticketId) || Objects.equals(targetId, ticketId)) {
-          relevantAssociationIds.add(associationId);
-          ticketIdsToFetch.add(Objects.equals(sourceId, ticketId) ? targetId : sourceId);
-        }
-      }
-    }
-
-    // Batch fetch all needed ticket numbers
-    Map<Long, String> ticketNumberCache = fetchTicketNumbers(ticketIdsToFetch);
-
-    // Second pass: process only relevant associations
-    for (Object[] result : results) {
-      Long associationId = ((Number) result[0]).longValue();
-
-      // Skip if this association doesn't involve our ticket
-      if (!relevantAssociationIds.contains(associationId)) {
-        continue;
-      }
-
-      Long sourceId = result[1] != null ? ((Number) result[1]).longValue() : null;
-      Long targetId = result[2] != null ? ((Number) result[2]).longValue() : null;
-      Integer revisionNumber = ((Number) result[3]).intValue();
-      Short revType = ((Number) result[4]).shortValue();
-      Long revTimestamp = ((Number) result[5]).longValue();
-      String username = (String) result[6];
-
-      // Use cached data for DELETE records if needed
-      if (revType == 2 && (sourceId == null || targetId == null)) {
-        AssociationData cachedData = associationCache.get(associationId);
-        if (cachedData != null) {
-          sourceId = sourceId != null ? sourceId : cachedData.sourceId;
-          targetId = targetId != null ? targetId : cachedData.targetId;
-        }
-      }
-
-      // Skip if we still don't have the IDs we need
-      if (sourceId == null || targetId == null) {
-        continue;
-      }
-
-      LocalDateTime timestamp =
-          Instant.ofEpochMilli(revTimestamp).atZone(ZoneId.systemDefault()).toLocalDateTime();
-
-      // Determine association direction
-      boolean isSource = Objects.equals(sourceId, ticketId);
-      Long otherTicketId = isSource ? targetId : sourceId;
-
-      // Get the other ticket's number from our cache
-      String otherTicketNumber = ticketNumberCache.getOrDefault(otherTicketId, "Unknown Ticket");
-
-      String direction = isSource ? "Associated To" : "Associated From";
-      String action = getRevisionAction(revType);
-      String operationType = getRevisionOperationType(revType);
-
-      TicketHistoryValueDto oldValue = null;
-      TicketHistoryValueDto newValue = null;
-
-      if (revType == 0) { // ADD
-        newValue =
-            TicketHistoryValueDto.builder()
-                .entityId(associationId)
-                .value(direction + ": " + otherTicketNumber)
-                .build();
-      } else if (revType == 2) { // DELETE
-        oldValue =
-            TicketHistoryValueDto.builder()
-                .entityId(associationId)
-                .value(direction + ": " + otherTicketNumber)
-                .build();
-      }
-
-      String description =
-          "Ticket association " + action + " (" + direction + ": " + otherTicketNumber + ")";
-
-      associationChanges.add(
-          new TicketHistoryEntryDto(
-              revisionNumber.longValue(),
-              timestamp,
-              operationType,
-              "ticket_association",
-              oldValue,
-              newValue,
-              description,
-              username));
-    }
-
-    return associationChanges;
-  }
-
-  // Helper method to batch fetch ticket numbers
-  private Map<Long, String> fetchTicketNumbers(Set<Long> ticketIds) {
-    if (ticketIds.isEmpty()) {
-      return new HashMap<>();
-    }
-
-    Map<Long, String> ticketNumbers = new HashMap<>();
-
-    // Batch fetch ticket numbers
-    List<Ticket> tickets = ticketRepository.findAllById(ticketIds);
-    for (Ticket ticket : tickets) {
-      ticketNumbers.put(ticket.getId(), ticket.getTicketNumber());
-    }
-
-    return ticketNumbers;
-  }
-
-  public List<TicketHistoryEntryDto> processTaskAssociationData(List<Object[]> results) {
-    List<TicketHistoryEntryDto> taskAssociationChanges = new ArrayList<>();
-
-    // Process consecutive revisions to detect changes
-    for (int i = 1; i < results.size(); i++) {
-      Object[] previousResult = results.get(i - 1);
-      Object[] currentResult = results.get(i);
-
-      Long prevTaskAssociationId =
-          previousResult[0] != null ? ((Number) previousResult[0]).longValue() : null;
-      Long currTaskAssociationId =
-          currentResult[0] != null ? ((Number) currentResult[0]).longValue() : null;
-
-      // Check if task_association_id changed
-      if (!Objects.equals(prevTaskAssociationId, currTaskAssociationId)) {
-        Integer revisionNumber = ((Number) currentResult[1]).intValue();
-        Long revTimestamp = ((Number) currentResult[2]).longValue();
-        String username = (String) currentResult[3];
-
-        LocalDateTime timestamp =
-            Instant.ofEpochMilli(revTimestamp).atZone(ZoneId.systemDefault()).toLocalDateTime();
-
-        // Determine the type of change
-        String action;
-        String operationType;
-        TicketHistoryValueDto oldValue = null;
-        TicketHistoryValueDto newValue = null;
-
-        if (prevTaskAssociationId == null && currTaskAssociationId != null) {
-          // Task association added
-          action = "added";
-          operationType = "INSERT";
-          String taskId = getTaskIdFromAssociation(currTaskAssociationId);
-          newValue =
-              TicketHistoryValueDto.builder().entityId(currTaskAssociationId).value(taskId).build();
-        } else if (prevTaskAssociationId != null && currTaskAssociationId == null) {
-          // Task association removed
-          action = "removed";
-          operationType = "DELETE";
-          String taskId = getTaskIdFromAssociation(prevTaskAssociationId);
-          oldValue =
-              TicketHistoryValueDto.builder().entityId(prevTaskAssociationId).value(taskId).build();
-        } else {
-          // Task association changed (from one to another)
-          action = "changed";
-          operationType = "UPDATE";
-          String oldTaskId = getTaskIdFromAssociation(prevTaskAssociationId);
-          String newTaskId = getTaskIdFromAssociation(currTaskAssociationId);
-          oldValue =
-              TicketHistoryValueDto.builder()
-                  .entityId(prevTaskAssociationId)
-                  .value(oldTaskId)
-                  .build();
-          newValue =
-              TicketHistoryValueDto.builder()
-                  .entityId(currTaskAssociationId)
-                  .value(newTaskId)
-                  .build();
-        }
-
-        String description = createTaskAssociationDescription(action, oldValue, newValue);
-
-        taskAssociationChanges.add(
-            new TicketHistoryEntryDto(
-                revisionNumber.longValue(),
-                timestamp,
-                operationType,
-                "task_association",
-                oldValue,
-                newValue,
-                description,
-                username));
-      }
-    }
-
-    return taskAssociationChanges;
-  }
-
-  private String getTaskIdFromAssociation(Long taskAssociationId) {
-    if (taskAssociationId == null) return null;
-
-    Optional<TaskAssociation> ta = taskAssociationRepository.findById(taskAssociationId);
-
-    if (ta.isPresent()) {
-      return ta.get().getTaskId();
-    } else {
-      return "Unknown Task";
-    }
-  }
-
-  // Helper method to create appropriate description
-  private String createTaskAssociationDescription(
-      String action, TicketHistoryValueDto oldValue, TicketHistoryValueDto newValue) {
-    switch (action) {
-      case "added":
-        return "Task association added: " + (newValue != null ? newValue.getValue() : "Unknown");
-      case "removed":
-        return "Task association removed: " + (oldValue != null ? oldValue.getValue() : "Unknown");
-      case "changed":
-        String oldTask = oldValue != null ? oldValue.getValue() : "Unknown";
-        String newTask = newValue != null ? newValue.getValue() : "Unknown";
-        return "Task association changed from " + oldTask + " to " + newTask;
-      default:
-        return "Task association " + action;
-    }
-  }
-
-  @FunctionalInterface
-  private interface EntityNameResolver {
-    String resolve(Long entityId);
-  }
+  private record ReferenceNames(
+      Map<Long, String> states,
+      Map<Long, String> priorityBuckets,
+      Map<Long, String> iterations,
+      Map<Long, String> labels,
+      Map<Long, String> externalRequestors) {}
 
-  private record AssociationData(Long sourceId, Long targetId) {}
+  private record AssociationData(Long sourceId, Long targetId, String otherTicketNumber) {}
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.service;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Records the history of the tickets changed in a transaction once it commits.
+ *
+ * <p>Envers writes the audit rows as the transaction completes, so the new revisions can only be
+ * read afterwards. Each ticket is recorded in a transaction of its own, so a failure never rolls
+ * back the change that caused it; the revisions it missed are picked up with the ticket's next
+ * change or the next read of its history.
+ */
+@Service
+@Log
+public class TicketHistoryRecorder {
+
+  private final TicketHistoryService ticketHistoryService;
+  private final TransactionTemplate transactionTemplate;
+
+  public TicketHistoryRecorder(
+      TicketHistoryService ticketHistoryService, PlatformTransactionManager transactionManager) {
+    this.ticketHistoryService = ticketHistoryService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  /** Records that the ticket changed, to have its new revisions recorded on commit. */
+  public void ticketChanged(Long ticketId) {
+    if (ticketId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+      // Outside a transaction Envers writes no revision for the change
+      return;
+    }
+    PendingTickets pending = pendingTickets();
+    if (!pending.deferred) {
+      pending.ticketIds.add(ticketId);
+    }
+  }
+
+  /**
+   * Leaves the tickets changed in the current transaction to be recorded in full the first time
+   * their history is read, for bulk changes such as imports where few are likely to be read.
+   */
+  public void deferToFirstRead() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      PendingTickets pending = pendingTickets();
+      pending.deferred = true;
+      pending.ticketIds.clear();
+    }
+  }
+
+  private PendingTickets pendingTickets() {
+    PendingTickets pending =
+        (PendingTickets) TransactionSynchronizationManager.getResource(PendingTickets.class);
+    if (pending == null) {
+      pending = new PendingTickets();
+      TransactionSynchronizationManager.bindResource(PendingTickets.class, pending);
+      TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+    return pending;
+  }
+
+  private void record(Long ticketId) {
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> ticketHistoryService.recordNewRevisions(ticketId));
+    } catch (DataAccessException e) {
+      log.log(
+          Level.WARNING,
+          "Failed to record history for ticket " + ticketId + ", will retry when it is next read",
+          e);
+    }
+  }
+
+  private class PendingTickets implements TransactionSynchronization {
+    private final Set<Long> ticketIds = new LinkedHashSet<>();
+    private boolean deferred;
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(PendingTickets.class);
+      if (status == STATUS_COMMITTED) {
+        ticketIds.forEach(TicketHistoryRecorder.this::record);
+      }
+    }
+  }
+}
@@ -18,18 +18,35 @@ package au.gov.digitalhealth.tickets.service;
 import au.gov.digitalhealth.lingo.exception.ErrorMessages;
 import au.gov.digitalhealth.lingo.exception.ResourceNotFoundProblem;
 import au.gov.digitalhealth.tickets.TicketHistoryEntryDto;
-import au.gov.digitalhealth.tickets.models.CustomRevInfo;
+import au.gov.digitalhealth.tickets.TicketHistoryValueDto;
 import au.gov.digitalhealth.tickets.models.Ticket;
-import au.gov.digitalhealth.tickets.repository.CustomRevInfoRepository;
+import au.gov.digitalhealth.tickets.models.TicketHistoryEntry;
 import au.gov.digitalhealth.tickets.repository.TicketAuditRepository;
+import au.gov.digitalhealth.tickets.repository.TicketHistoryEntryRepository;
 import au.gov.digitalhealth.tickets.repository.TicketRepository;
+import au.gov.digitalhealth.tickets.service.TicketChangeProcessingService.TicketHistoryBuilder;
 import jakarta.transaction.Transactional;
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+/**
+ * Ticket history, recorded incrementally in the ticket_history_entry table.
+ *
+ * <p>{@link TicketHistoryRecorder} calls {@link #recordNewRevisions(Long)} after each commit that
+ * changes a ticket, which computes entries only for the audit revisions not yet recorded, from a
+ * single query across the audit tables. The recorded revisions are kept individually rather than as
+ * a high-water mark, as comment and association changes do not lock the ticket and can commit out
+ * of revision order. Reading the history records any revisions still missing, such as those of
+ * tickets changed before the table existed or whose recording after commit failed, then queries the
+ * table.
+ */
 @Service
 @Transactional
 public class TicketHistoryService {
@@ -37,123 +54,119 @@ public class TicketHistoryService {
   private final TicketRepository ticketRepository;
   private final TicketAuditRepository ticketAuditRepository;
   private final TicketChangeProcessingService changeProcessor;
-
-  CustomRevInfoRepository customRevInfoRepository;
+  private final TicketHistoryEntryRepository ticketHistoryEntryRepository;
 
   public TicketHistoryService(
       TicketRepository ticketRepository,
       TicketAuditRepository ticketAuditRepository,
       TicketChangeProcessingService changeProcessor,
-      CustomRevInfoRepository customRevInfoRepository) {
+      TicketHistoryEntryRepository ticketHistoryEntryRepository) {
     this.ticketRepository = ticketRepository;
     this.ticketAuditRepository = ticketAuditRepository;
     this.changeProcessor = changeProcessor;
-    this.customRevInfoRepository = customRevInfoRepository;
+    this.ticketHistoryEntryRepository = ticketHistoryEntryRepository;
   }
 
   public List<TicketHistoryEntryDto> getTicketHistory(String ticketNumber) {
-    // Find ticket
-    Ticket ticket =
-        ticketRepository
-            .findByTicketNumber(ticketNumber)
-            .orElseThrow(
-                () ->
-                    new ResourceNotFoundProblem(
-                        String.format(ErrorMessages.TICKET_NUMBER_NOT_FOUND, ticketNumber)));
-
-    Long ticketId = ticket.getId();
-    List<TicketHistoryEntryDto> history = new ArrayList<>();
-
-    // Get all revisions for this ticket
-    List<CustomRevInfo> revisions = customRevInfoRepository.findRevisionsForTicket(ticketId);
-
-    // Process field changes between consecutive revisions
-    history.addAll(processFieldChanges(ticketId, revisions));
-
-    // Process relationship changes
-    history.addAll(processLabelChanges(ticketId));
-    history.addAll(processCommentChanges(ticketId));
-    history.addAll(processExternalRequestorChanges(ticketId));
-    history.addAll(processAdditionalFieldValueChanges(ticketId));
-    history.addAll(processTicketAssociationChanges(ticketId));
-    history.addAll(processTaskAssociationChanges(ticketId));
+    Long ticketId = findRecordedTicketId(ticketNumber);
+    return ticketHistoryEntryRepository
+        .findByTicketIdOrderByRevisionTimestampAscIdAsc(ticketId)
+        .stream()
+        .map(TicketHistoryService::toDto)
+        .toList();
+  }
 
-    // Sort by timestamp
-    return history.stream()
-        .sorted(Comparator.comparing(TicketHistoryEntryDto::getTimestamp))
-        .collect(Collectors.toList());
+  public Page<TicketHistoryEntryDto> getTicketHistory(String ticketNumber, Pageable pageable) {
+    Long ticketId = findRecordedTicketId(ticketNumber);
+    return ticketHistoryEntryRepository
+        .findByTicketIdOrderByRevisionTimestampAscIdAsc(ticketId, pageable)
+        .map(TicketHistoryService::toDto);
   }
 
-  private List<TicketHistoryEntryDto> processFieldChanges(
-      Long ticketId, List<CustomRevInfo> revisions) {
-    if (revisions.size() <= 1) {
-      return new ArrayList<>();
+  /**
+   * Records history entries for the ticket's audit revisions that have not been recorded. Callers
+   * for the same ticket are serialised on its progress row, so each revision is recorded once.
+   */
+  public void recordNewRevisions(Long ticketId) {
+    if (!ticketRepository.existsById(ticketId)) {
+      // Deleted since the change, its history went with it
+      return;
     }
-
-    List<TicketHistoryEntryDto> changes = new ArrayList<>();
-    List<Object[]> auditData =
-        ticketAuditRepository.findAllTicketRevisions(
-            ticketId, revisions.stream().map(CustomRevInfo::getRev).toList());
-
-    // Process consecutive pairs
-    for (int i = 1; i < auditData.size(); i++) {
-      Object[] previous = auditData.get(i - 1);
-      Object[] current = auditData.get(i);
-
-      // Create the comparison data structure your changeProcessor expects
-      Object[] fieldData = createFieldDataArray(previous, current);
-      CustomRevInfo currentRev = revisions.get(i); // Assuming same order
-
-      changes.addAll(changeProcessor.processFieldChanges(fieldData, currentRev));
+    ticketHistoryEntryRepository.initialiseProgress(ticketId);
+    ticketHistoryEntryRepository.lockProgress(ticketId);
+    Integer firstUnrecorded = ticketHistoryEntryRepository.findFirstUnrecordedRevision(ticketId);
+    if (firstUnrecorded == null) {
+      return;
     }
 
-    return changes;
-  }
-
-  private Object[] createFieldDataArray(Object[] previous, Object[] current) {
-
-    return new Object[] {
-      previous[1], current[1], // title (prev, curr)
-      previous[2], current[2], // description (prev, curr)
-      previous[3], current[3], // assignee (prev, curr)
-      previous[4], current[4], // state_id (prev, curr)
-      previous[5], current[5], // priority_bucket_id (prev, curr)
-      previous[6], current[6], // iteration_id (prev, curr)
-      previous[7], current[7] // ticket_type_id (prev, curr)
-    };
-  }
+    // Later revisions may already be recorded if this one committed after them
+    int afterRevision = firstUnrecorded - 1;
+    Set<Integer> recordedRevisions =
+        new HashSet<>(
+            ticketHistoryEntryRepository.findRecordedRevisions(ticketId, firstUnrecorded));
+
+    // The audit rows arrive in revision order, so the entries need no sorting
+    TicketHistoryBuilder history =
+        changeProcessor.historyBuilder(ticketId, afterRevision, recordedRevisions);
+    try (Stream<Object[]> changes = ticketAuditRepository.streamChanges(ticketId, afterRevision)) {
+      changes.forEach(history);
+    }
 
-  private List<TicketHistoryEntryDto> processLabelChanges(Long ticketId) {
-    List<Object[]> labelData = ticketAuditRepository.findLabelChanges(ticketId);
-    return changeProcessor.processLabelChanges(labelData);
+    ticketHistoryEntryRepository.saveAll(
+        history.getEntries().stream().map(entry -> toEntity(ticketId, entry)).toList());
+    if (!history.getNewRevisions().isEmpty()) {
+      ticketHistoryEntryRepository.markRecorded(ticketId, history.getNewRevisions());
+    }
   }
 
-  private List<TicketHistoryEntryDto> processCommentChanges(Long ticketId) {
-    List<Object[]> commentData = ticketAuditRepository.findCommentChanges(ticketId);
-    return changeProcessor.processCommentChanges(commentData);
-  }
+  private Long findRecordedTicketId(String ticketNumber) {
+    Ticket ticket =
+        ticketRepository
+            .findByTicketNumber(ticketNumber)
+            .orElseThrow(
+                () ->
+                    new ResourceNotFoundProblem(
+                        String.format(ErrorMessages.TICKET_NUMBER_NOT_FOUND, ticketNumber)));
 
-  private List<TicketHistoryEntryDto> processExternalRequestorChanges(Long ticketId) {
-    List<Object[]> requestorData = ticketAuditRepository.findExternalRequestorChanges(ticketId);
-    return changeProcessor.processExternalRequestorChanges(requestorData);
+    Long ticketId = ticket.getId();
+    recordNewRevisions(ticketId);
+    return ticketId;
   }
 
-  private List<TicketHistoryEntryDto> processAdditionalFieldValueChanges(Long ticketId) {
-
-    List<Object[]> fieldValueData = ticketAuditRepository.findAdditionalFieldValueChanges(ticketId);
-
-    return changeProcessor.processAdditionalFieldData(fieldValueData);
+  private static TicketHistoryEntry toEntity(Long ticketId, TicketHistoryEntryDto entry) {
+    TicketHistoryValueDto oldValue = entry.getOldValue();
+    TicketHistoryValueDto newValue = entry.getNewValue();
+    return TicketHistoryEntry.builder()
+        .ticketId(ticketId)
+        .revisionNumber(entry.getRevisionNumber())
+        .revisionTimestamp(entry.getTimestamp().atZone(ZoneId.systemDefault()).toInstant())
+        .revisionType(entry.getRevisionType())
+        .fieldName(entry.getFieldName())
+        .oldEntityId(oldValue != null ? oldValue.getEntityId() : null)
+        .oldValue(oldValue != null ? oldValue.getValue() : null)
+        .newEntityId(newValue != null ? newValue.getEntityId() : null)
+        .newValue(newValue != null ? newValue.getValue() : null)
+        .changeDescription(entry.getChangeDescription())
+        .username(entry.getUsername())
+        .build();
   }
 
-  private List<TicketHistoryEntryDto> processTicketAssociationChanges(Long ticketId) {
-    List<Object[]> associationData = ticketAuditRepository.findTicketAssociationChanges(ticketId);
-
-    return changeProcessor.processTicketAssociationData(associationData, ticketId);
+  private static TicketHistoryEntryDto toDto(TicketHistoryEntry entry) {
+    return new TicketHistoryEntryDto(
+        entry.getRevisionNumber(),
+        LocalDateTime.ofInstant(entry.getRevisionTimestamp(), ZoneId.systemDefault()),
+        entry.getRevisionType(),
+        entry.getFieldName(),
+        toValueDto(entry.getOldEntityId(), entry.getOldValue()),
+        toValueDto(entry.getNewEntityId(), entry.getNewValue()),
+        entry.getChangeDescription(),
+        entry.getUsername());
   }
 
-  private List<TicketHistoryEntryDto> processTaskAssociationChanges(Long ticketId) {
-    List<Object[]> taskData = ticketAuditRepository.findTaskAssociationChanges(ticketId);
-
-    return changeProcessor.processTaskAssociationData(taskData);
+  private static TicketHistoryValueDto toValueDto(Long entityId, String value) {
+    if (entityId == null && value == null) {
+      return null;
+    }
+    return TicketHistoryValueDto.builder().entityId(entityId).value(value).build();
   }
 }
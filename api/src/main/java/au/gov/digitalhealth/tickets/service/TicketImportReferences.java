@@ -0,0 +1,79 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.service;
+
+import au.gov.digitalhealth.tickets.models.AdditionalFieldType;
+import au.gov.digitalhealth.tickets.models.AttachmentType;
+import au.gov.digitalhealth.tickets.models.ExternalRequestor;
+import au.gov.digitalhealth.tickets.models.Label;
+import au.gov.digitalhealth.tickets.models.Schedule;
+import au.gov.digitalhealth.tickets.models.State;
+import au.gov.digitalhealth.tickets.models.TicketType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The ids of the labels, states and other reference data a ticket import links tickets to, by the
+ * name used in the import file. Loaded once per import and added to as the import creates new ones,
+ * then turned into references for each batch's own transaction.
+ */
+public class TicketImportReferences {
+
+  final Map<String, Long> externalRequestors = new ConcurrentHashMap<>();
+  final Map<String, Long> labels = new ConcurrentHashMap<>();
+  final Map<String, Long> states = new ConcurrentHashMap<>();
+  final Map<String, Long> attachmentTypes = new ConcurrentHashMap<>();
+  final Map<String, Long> additionalFieldTypes = new ConcurrentHashMap<>();
+  final Map<String, Long> ticketTypes = new ConcurrentHashMap<>();
+  final Map<String, Long> schedules = new ConcurrentHashMap<>();
+
+  void addExternalRequestors(Map<String, ExternalRequestor> entities) {
+    entities.forEach((name, entity) -> externalRequestors.put(name, entity.getId()));
+  }
+
+  void addLabels(Map<String, Label> entities) {
+    entities.forEach((name, entity) -> labels.put(name, entity.getId()));
+  }
+
+  void addStates(Map<String, State> entities) {
+    entities.forEach((name, entity) -> states.put(name, entity.getId()));
+  }
+
+  void addAttachmentTypes(Map<String, AttachmentType> entities) {
+    entities.forEach((name, entity) -> attachmentTypes.put(name, entity.getId()));
+  }
+
+  void addAdditionalFieldTypes(Map<String, AdditionalFieldType> entities) {
+    entities.forEach((name, entity) -> additionalFieldTypes.put(name, entity.getId()));
+  }
+
+  void addTicketTypes(Map<String, TicketType> entities) {
+    entities.forEach((name, entity) -> ticketTypes.put(name, entity.getId()));
+  }
+
+  void addSchedules(Map<String, Schedule> entities) {
+    entities.forEach((name, entity) -> schedules.put(name, entity.getId()));
+  }
+
+  /** Returns references to the entities by name, for use in the current transaction. */
+  static <T> Map<String, T> references(Map<String, Long> ids, Function<Long, T> reference) {
+    Map<String, T> references = new HashMap<>();
+    ids.forEach((name, id) -> references.put(name, reference.apply(id)));
+    return references;
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.service;
+
+import au.gov.digitalhealth.lingo.exception.TicketImportProblem;
+import au.gov.digitalhealth.tickets.helper.TicketImportReader;
+import au.gov.digitalhealth.tickets.helper.TicketImportReader.Batch;
+import au.gov.digitalhealth.tickets.models.Ticket;
+import au.gov.digitalhealth.tickets.models.TicketImportCheckpoint;
+import au.gov.digitalhealth.tickets.repository.TicketImportCheckpointRepository;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongPredicate;
+import lombok.Getter;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.ErrorResponseException;
+
+/**
+ * Imports tickets from a Jira export file in batches.
+ *
+ * <p>The file is read one batch at a time and each batch is imported in a transaction of its own on
+ * a pool of workers, so memory use stays flat however large the file is. Each committed batch
+ * records a checkpoint, so an import that fails part way through can be resumed and skip the items
+ * already imported. The checkpoints are removed once the whole import succeeds; until then the file
+ * can only be imported again by resuming or explicitly restarting, so the imported tickets are not
+ * duplicated by mistake.
+ */
+@Service
+@Log
+public class TicketImportService {
+
+  private final TicketServiceImpl ticketService;
+  private final TicketImportCheckpointRepository checkpointRepository;
+  private final TicketHistoryRecorder ticketHistoryRecorder;
+  private final TransactionTemplate transactionTemplate;
+  private final int batchSize;
+  private final int workers;
+  private final Executor importExecutor;
+
+  /** Percentage of the file read by the running import. */
+  @Getter private volatile double importProgress = 0;
+
+  public TicketImportService(
+      TicketServiceImpl ticketService,
+      TicketImportCheckpointRepository checkpointRepository,
+      TicketHistoryRecorder ticketHistoryRecorder,
+      PlatformTransactionManager transactionManager,
+      @Value("${snomio.import.batch-size:500}") int batchSize,
+      @Value("${snomio.import.workers:4}") int workers,
+      @Qualifier("ticketImportExecutor") Executor importExecutor) {
+    this.ticketService = ticketService;
+    this.checkpointRepository = checkpointRepository;
+    this.ticketHistoryRecorder = ticketHistoryRecorder;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.batchSize = Math.max(1, batchSize);
+    this.workers = Math.max(1, workers);
+    this.importExecutor = importExecutor;
+  }
+
+  /**
+   * Imports the tickets in the file, returning the number imported.
+   *
+   * @param startAt index of the first item to import, or null to start at the beginning
+   * @param size number of items to import, or null to import to the end of the file
+   * @param resume skip the items an unfinished import of the file has already imported, rather than
+   *     importing them again
+   * @param restart import the whole file again even though an unfinished import of it has already
+   *     imported some of the items
+   * @throws TicketImportProblem if an unfinished import of the file has imported items and neither
+   *     {@code resume} nor {@code restart} is set
+   */
+  public int importTickets(
+      File importFile, Long startAt, Long size, boolean resume, boolean restart) {
+    if (resume && restart) {
+      throw new TicketImportProblem(
+          "An import can either resume or restart, not both", HttpStatus.BAD_REQUEST);
+    }
+    String importFileName = importFile.getAbsolutePath();
+    List<TicketImportCheckpoint> checkpoints =
+        transactionTemplate.execute(
+            status -> {
+              List<TicketImportCheckpoint> existing =
+                  checkpointRepository.findByImportFile(importFileName);
+              if (existing.isEmpty() || resume) {
+                return existing;
+              }
+              if (!restart) {
+                throw new TicketImportProblem(
+                    "An earlier import of "
+                        + importFile.getName()
+                        + " did not finish after importing "
+                        + existing.size()
+                        + " batches. Import again with resume=true to import the rest, or with"
+                        + " restart=true to import every item again",
+                    HttpStatus.CONFLICT);
+              }
+              checkpointRepository.deleteByImportFile(importFileName);
+              return List.of();
+            });
+    if (!checkpoints.isEmpty()) {
+      log.info("Resuming import, skipping " + checkpoints.size() + " batches already imported");
+    }
+
+    TicketImportReferences references = ticketService.loadImportReferences();
+    Semaphore batchesInFlight = new Semaphore(workers);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    List<CompletableFuture<Integer>> batches = new ArrayList<>();
+    setImportProgress(0);
+    try (TicketImportReader reader =
+        new TicketImportReader(
+            importFile,
+            importObjectMapper(),
+            startAt != null ? startAt : 0,
+            size,
+            importedItems(checkpoints))) {
+      while (failure.get() == null) {
+        // wait for a worker before reading the next batch, so only the batches being imported are
+        // held in memory
+        batchesInFlight.acquire();
+        if (failure.get() != null) {
+          // a batch failed while waiting, so stop rather than start another
+          batchesInFlight.release();
+          break;
+        }
+        Batch batch = reader.nextBatch(batchSize);
+        if (batch == null) {
+          batchesInFlight.release();
+          break;
+        }
+        // new labels, states and so on are created one batch at a time, so parallel batches
+        // never create the same one twice
+        List<Ticket> tickets = ticketService.toImportTickets(batch.tickets());
+        ticketService.createImportReferences(tickets, references);
+        batches.add(
+            CompletableFuture.supplyAsync(
+                    () -> importBatch(importFileName, batch, tickets, references), importExecutor)
+                .whenComplete(
+                    (imported, e) -> {
+                      // record the failure before freeing the worker, so the reader waiting for it
+                      // sees the failure
+                      if (e != null) {
+                        failure.compareAndSet(null, unwrap(e));
+                      }
+                      batchesInFlight.release();
+                    }));
+        setImportProgress(100.0 * reader.bytesRead() / importFile.length());
+      }
+    } catch (IOException e) {
+      failure.compareAndSet(null, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure.compareAndSet(null, e);
+    } catch (RuntimeException e) {
+      failure.compareAndSet(null, e);
+    } finally {
+      // let the batches already dispatched finish, their checkpoints make the import resumable
+      CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+          .exceptionally(e -> null)
+          .join();
+    }
+
+    int imported =
+        batches.stream()
+            .filter(batch -> !batch.isCompletedExceptionally())
+            .mapToInt(CompletableFuture::join)
+            .sum();
+    if (failure.get() != null) {
+      log.severe("Import failed after importing " + imported + " tickets");
+      throw new TicketImportProblem(
+          describe(failure.get())
+              + ". "
+              + imported
+              + " tickets were imported, import again with resume=true to import the rest");
+    }
+    // finished, so a later import of the file starts afresh
+    transactionTemplate.executeWithoutResult(
+        status -> checkpointRepository.deleteByImportFile(importFileName));
+    setImportProgress(100);
+    return imported;
+  }
+
+  /**
+   * Matches the items the checkpoints cover. The checkpoints are merged into disjoint ranges keyed
+   * by their first index, as a resumed batch's range can span those of the batches before it, so
+   * each item is looked up in the one range that could hold it.
+   */
+  static LongPredicate importedItems(List<TicketImportCheckpoint> checkpoints) {
+    TreeMap<Long, Long> ranges = new TreeMap<>();
+    checkpoints.stream()
+        .sorted(Comparator.comparing(TicketImportCheckpoint::getFirstIndex))
+        .forEach(
+            checkpoint -> {
+              Map.Entry<Long, Long> last = ranges.lastEntry();
+              if (last != null && checkpoint.getFirstIndex() <= last.getValue()) {
+                ranges.put(last.getKey(), Math.max(last.getValue(), checkpoint.getEndIndex()));
+              } else {
+                ranges.put(checkpoint.getFirstIndex(), checkpoint.getEndIndex());
+              }
+            });
+    return index -> {
+      Map.Entry<Long, Long> range = ranges.floorEntry(index);
+      return range != null && index < range.getValue();
+    };
+  }
+
+  private int importBatch(
+      String importFileName, Batch batch, List<Ticket> tickets, TicketImportReferences references) {
+    return transactionTemplate.execute(
+        status -> {
+          ticketHistoryRecorder.deferToFirstRead();
+          int imported = ticketService.importTicketBatch(tickets, references);
+          checkpointRepository.save(
+              TicketImportCheckpoint.builder()
+                  .importFile(importFileName)
+                  .firstIndex(batch.firstIndex())
+                  .endIndex(batch.endIndex())
+                  .completed(Instant.now())
+                  .build());
+          return imported;
+        });
+  }
+
+  private void setImportProgress(double progress) {
+    this.importProgress = progress;
+  }
+
+  private static Throwable unwrap(Throwable e) {
+    return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+  }
+
+  private static String describe(Throwable e) {
+    return e instanceof ErrorResponseException problem
+        ? problem.getBody().getDetail()
+        : e.getMessage();
+  }
+
+  private static ObjectMapper importObjectMapper() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.configure(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true);
+    objectMapper.registerModule(new JavaTimeModule());
+    return objectMapper;
+  }
+}
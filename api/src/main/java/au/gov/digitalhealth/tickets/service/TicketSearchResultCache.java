@@ -0,0 +1,187 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.service;
+
+import au.gov.digitalhealth.lingo.util.CacheConstants;
+import au.gov.digitalhealth.tickets.helper.SearchCondition;
+import au.gov.digitalhealth.tickets.repository.TicketSearchGenerationRepository;
+import com.querydsl.core.types.Predicate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import lombok.extern.java.Log;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Caches the ticket ids found by backlog searches, so that the saved filters and search
+ * configurations the UI re-runs whenever the backlog is shown are answered without querying the
+ * database again.
+ *
+ * <p>The key is the search conditions in a canonical form (field names lower cased and each
+ * condition's values sorted, as the predicate treats them as a set), or the predicate when there
+ * are no conditions, together with the sort, the page and a generation number. The generation moves
+ * on whenever a transaction that changed a ticket, or anything a search can match on, commits,
+ * which invalidates every earlier entry; they are then left to expire. Only ids are cached, the
+ * tickets themselves are always read fresh.
+ *
+ * <p>The generation is a database sequence read on each lookup, so a change committed through any
+ * instance invalidates the results cached by all of them. If it cannot be read the search is run
+ * uncached.
+ */
+@Component
+@Log
+public class TicketSearchResultCache {
+
+  static final String HIT_METRIC = "snomio.ticket.search.cache.hit";
+  static final String MISS_METRIC = "snomio.ticket.search.cache.miss";
+
+  private final CacheManager cacheManager;
+  private final TicketSearchGenerationRepository generationRepository;
+  private final Counter hits;
+  private final Counter misses;
+
+  public TicketSearchResultCache(
+      CacheManager cacheManager,
+      TicketSearchGenerationRepository generationRepository,
+      MeterRegistry meterRegistry) {
+    this.cacheManager = cacheManager;
+    this.generationRepository = generationRepository;
+    this.hits = meterRegistry.counter(HIT_METRIC);
+    this.misses = meterRegistry.counter(MISS_METRIC);
+  }
+
+  /**
+   * Returns the cached result of the search if there is one, otherwise runs it and caches the
+   * result.
+   *
+   * @param predicate predicate the search runs with
+   * @param searchConditions conditions the predicate was built from, if any
+   * @param sort order of the results
+   * @param page identifies the page, e.g. its number and size or the cursor it follows
+   * @param search the search to run on a cache miss
+   */
+  public <T> T get(
+      Predicate predicate,
+      List<SearchCondition> searchConditions,
+      Sort sort,
+      String page,
+      Supplier<T> search) {
+    Cache cache = cacheManager.getCache(CacheConstants.TICKET_SEARCH_CACHE);
+    if (cache == null) {
+      return search.get();
+    }
+
+    long generation;
+    try {
+      generation = generationRepository.current();
+    } catch (DataAccessException e) {
+      log.log(Level.WARNING, "Failed to read the ticket search generation, searching uncached", e);
+      return search.get();
+    }
+
+    String key = key(generation, predicate, searchConditions, sort, page);
+    Cache.ValueWrapper cached = cache.get(key);
+    if (cached != null) {
+      hits.increment();
+      @SuppressWarnings("unchecked")
+      T result = (T) cached.get();
+      return result;
+    }
+
+    misses.increment();
+    T result = search.get();
+    cache.put(key, result);
+    return result;
+  }
+
+  /**
+   * Invalidates the cached results once the current transaction commits, or straight away outside a
+   * transaction.
+   */
+  public void ticketsChanged() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      advanceGeneration();
+      return;
+    }
+    if (TransactionSynchronizationManager.getResource(this) == null) {
+      TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              TransactionSynchronizationManager.unbindResourceIfPossible(
+                  TicketSearchResultCache.this);
+              if (status == STATUS_COMMITTED) {
+                advanceGeneration();
+              }
+            }
+          });
+    }
+  }
+
+  private void advanceGeneration() {
+    try {
+      generationRepository.advance();
+    } catch (DataAccessException e) {
+      log.log(
+          Level.WARNING,
+          "Failed to invalidate cached ticket searches, they will be served until they expire",
+          e);
+    }
+  }
+
+  String key(
+      long generation,
+      Predicate predicate,
+      List<SearchCondition> searchConditions,
+      Sort sort,
+      String page) {
+    String search =
+        searchConditions == null || searchConditions.isEmpty()
+            ? String.valueOf(predicate)
+            : searchConditions.stream()
+                .map(TicketSearchResultCache::canonical)
+                .collect(Collectors.joining("&"));
+    return generation + "|" + search + "|" + sort + "|" + page;
+  }
+
+  private static String canonical(SearchCondition searchCondition) {
+    List<String> valueIn =
+        searchCondition.getValueIn() == null
+            ? List.of()
+            : new ArrayList<>(searchCondition.getValueIn());
+    valueIn.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+    return String.join(
+        "\u0000",
+        Objects.toString(searchCondition.getKey(), "").toLowerCase(),
+        Objects.toString(searchCondition.getOperation(), ""),
+        Objects.toString(searchCondition.getCondition(), ""),
+        Objects.toString(searchCondition.getValue(), ""),
+        valueIn.toString());
+  }
+}
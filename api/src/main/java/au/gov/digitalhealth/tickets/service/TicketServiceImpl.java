@@ -93,7 +93,6 @@ import jakarta.validation.constraints.NotNull;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -106,7 +105,6 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
-import lombok.Getter;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hibernate.Hibernate;
@@ -126,7 +124,6 @@ import org.springframework.stereotype.Service;
 public class TicketServiceImpl implements TicketService {
 
   public static final String ARTGID = "ARTGID";
-  private static final int ITEMS_TO_PROCESS = 60000;
   protected final Log logger = LogFactory.getLog(getClass());
   private final TicketRepository ticketRepository;
   private final AdditionalFieldTypeRepository additionalFieldTypeRepository;
@@ -155,6 +152,7 @@ public class TicketServiceImpl implements TicketService {
   private final LabelMapper labelMapper;
 
   private final AttachmentService attachmentService;
+  private final TicketSearchResultCache ticketSearchResultCache;
 
   @Value("${snomio.attachments.directory}")
   String attachmentsDirConfig;
@@ -162,8 +160,6 @@ public class TicketServiceImpl implements TicketService {
   @Value("${snomio.import.allowed.directory}")
   private String allowedImportDirectory;
 
-  @Getter private double importProgress = 0;
-
   @Autowired
   public TicketServiceImpl(
       TicketRepository ticketRepository,
@@ -190,7 +186,8 @@ public class TicketServiceImpl implements TicketService {
       BulkProductActionMapper bulkProductActionMapper,
       LabelMapper labelMapper,
       ExternalRequestorMapper externalRequestorMapper,
-      AttachmentService attachmentService) {
+      AttachmentService attachmentService,
+      TicketSearchResultCache ticketSearchResultCache) {
     this.ticketRepository = ticketRepository;
     this.additionalFieldTypeRepository = additionalFieldTypeRepository;
     this.additionalFieldValueRepository = additionalFieldValueRepository;
@@ -214,6 +211,7 @@ public class TicketServiceImpl implements TicketService {
     this.bulkProductActionMapper = bulkProductActionMapper;
     this.externalRequestorMapper = externalRequestorMapper;
     this.attachmentService = attachmentService;
+    this.ticketSearchResultCache = ticketSearchResultCache;
     this.labelMapper = labelMapper;
   }
 
@@ -239,12 +237,11 @@ public class TicketServiceImpl implements TicketService {
         "Bulk action '" + name + "' not found for ticket " + ticketId);
   }
 
-  // TODO consider removing transaction and adding in join fetching
   @Transactional
   public TicketDtoExtended findTicket(Long id) {
     return ticketMapper.toExtendedDto(
         ticketRepository
-            .findById(id)
+            .findDetailById(id)
             .orElseThrow(
                 () ->
                     new ResourceNotFoundProblem(
@@ -255,7 +252,7 @@ public class TicketServiceImpl implements TicketService {
   public TicketDtoExtended findTicketByTicketNumber(String ticketNumber) {
     return ticketMapper.toExtendedDto(
         ticketRepository
-            .findByTicketNumber(ticketNumber)
+            .findDetailByTicketNumber(ticketNumber)
             .orElseThrow(
                 () ->
                     new ResourceNotFoundProblem(
@@ -275,21 +272,54 @@ public class TicketServiceImpl implements TicketService {
       List<SearchCondition> searchConditions) {
 
     // First, get the paginated IDs
+    Sort sort = toSpringDataSort(orderCondition);
     Page<Long> ticketIds =
-        ticketRepository.findAllIds(
-            predicate, pageable, toSpringDataSort(orderCondition), searchConditions);
-
-    // Then, fetch the full tickets with associations
-    List<Ticket> tickets = ticketRepository.findByIdIn(ticketIds.getContent());
-    Map<Long, Ticket> ticketMap =
-        tickets.stream().collect(Collectors.toMap(Ticket::getId, Function.identity()));
-    List<Ticket> orderedTickets =
-        ticketIds.getContent().stream().map(ticketMap::get).filter(Objects::nonNull).toList();
+        ticketSearchResultCache.get(
+            predicate,
+            searchConditions,
+            sort,
+            pageable.getPageNumber() + "/" + pageable.getPageSize(),
+            () -> ticketRepository.findAllIds(predicate, pageable, sort, searchConditions));
+
+    return new PageImpl<>(
+        toBacklogDtos(ticketIds.getContent()), pageable, ticketIds.getTotalElements());
+  }
+
+  /**
+   * Finds the page of backlog tickets after the cursor. Unlike offset paging, each page costs the
+   * same however deep into the backlog it is, and the total is counted only for the first page and
+   * carried in the cursor after that.
+   *
+   * @param cursor from the previous page, or blank for the first page
+   */
+  @Transactional
+  public KeysetPage<TicketBacklogDto> findAllTicketsByQueryParamAfter(
+      Predicate predicate,
+      int size,
+      OrderCondition orderCondition,
+      List<SearchCondition> searchConditions,
+      String cursor) {
+    Sort sort = toSpringDataSort(orderCondition);
+    KeysetPage<Long> ticketIds =
+        ticketSearchResultCache.get(
+            predicate,
+            searchConditions,
+            sort,
+            size + "/" + cursor,
+            () ->
+                ticketRepository.findIdsAfter(
+                    predicate, size, sort, searchConditions, TicketSearchCursor.decode(cursor)));
 
-    List<TicketBacklogDto> ticketDtos =
-        orderedTickets.stream().map(ticketMapper::toBacklogDto).toList();
+    return ticketIds.withContent(toBacklogDtos(ticketIds.content()));
+  }
 
-    return new PageImpl<>(ticketDtos, pageable, ticketIds.getTotalElements());
+  // reads the backlog view of the tickets without loading the entities, keeping the order of the
+  // ids
+  private List<TicketBacklogDto> toBacklogDtos(List<Long> ticketIds) {
+    Map<Long, TicketBacklogDto> ticketMap =
+        ticketRepository.findBacklogDtosByIdIn(ticketIds).stream()
+            .collect(Collectors.toMap(TicketBacklogDto::getId, Function.identity()));
+    return ticketIds.stream().map(ticketMap::get).filter(Objects::nonNull).toList();
   }
 
   @Transactional
@@ -465,14 +495,151 @@ public class TicketServiceImpl implements TicketService {
     }
   }
 
+  /**
+   * Loads the ids of the reference data that imported tickets are linked to. This is done once per
+   * import, rather than for each batch.
+   */
+  @Transactional
+  public TicketImportReferences loadImportReferences() {
+    TicketImportReferences references = new TicketImportReferences();
+    references.addExternalRequestors(
+        preloadFields(ExternalRequestor::getName, externalRequestorRepository));
+    references.addLabels(preloadFields(Label::getName, labelRepository));
+    references.addStates(preloadFields(State::getLabel, stateRepository));
+    references.addAttachmentTypes(
+        preloadFields(AttachmentType::getMimeType, attachmentTypeRepository));
+    references.addAdditionalFieldTypes(
+        preloadFields(AdditionalFieldType::getName, additionalFieldTypeRepository));
+    references.addTicketTypes(preloadFields(TicketType::getName, ticketTypeRepository));
+    references.addSchedules(preloadFields(Schedule::getName, scheduleRepository));
+    return references;
+  }
+
+  /** Maps tickets read from an import file to the tickets to create. */
+  public List<Ticket> toImportTickets(List<TicketImportDto> importDtos) {
+    List<Ticket> ticketsToAdd = new ArrayList<>(importDtos.size());
+    for (TicketImportDto dto : importDtos) {
+      // separate out labels and external requestors
+      Set<ExternalRequesterDto> externalRequestorList =
+          dto.getLabels().stream()
+              .filter(label -> !ExportService.NON_EXTERNAL_REQUESTERS.contains(label.getName()))
+              .map(this::mapToExternalRequestor)
+              .collect(Collectors.toSet());
+      Set<LabelDto> filteredLabels =
+          dto.getLabels().stream()
+              .filter(label -> ExportService.NON_EXTERNAL_REQUESTERS.contains(label.getName()))
+              .collect(Collectors.toSet());
+      dto.setExternalRequestors(externalRequestorList);
+      dto.setLabels(filteredLabels);
+
+      Ticket newTicketToAdd = ticketMapper.toEntity(dto);
+      newTicketToAdd.setJiraCreated(dto.getCreated());
+      ticketsToAdd.add(newTicketToAdd);
+    }
+    return ticketsToAdd;
+  }
+
+  /**
+   * Creates the labels, states and other reference data that the tickets need and the import has
+   * not seen yet, and adds them to {@code references}.
+   *
+   * <p>Batches are imported in parallel and would each create the same new reference data, so this
+   * is called for one batch at a time before the batch itself is imported.
+   */
   @Transactional
-  public int importTickets(TicketImportDto[] importDtos, int startAt, int size) {
+  public void createImportReferences(List<Ticket> ticketsToAdd, TicketImportReferences references) {
+    Map<String, State> states =
+        TicketImportReferences.references(references.states, stateRepository::getReferenceById);
+    Map<String, TicketType> ticketTypes =
+        TicketImportReferences.references(
+            references.ticketTypes, ticketTypeRepository::getReferenceById);
+    Map<String, Schedule> schedules =
+        TicketImportReferences.references(
+            references.schedules, scheduleRepository::getReferenceById);
+    Map<String, AttachmentType> attachmentTypes =
+        TicketImportReferences.references(
+            references.attachmentTypes, attachmentTypeRepository::getReferenceById);
+
+    Map<String, Label> labelsToSave = new HashMap<>();
+    Map<String, ExternalRequestor> externalRequestorsToSave = new HashMap<>();
+    Map<String, State> statesToSave = new HashMap<>();
+    Map<String, AttachmentType> attachmentTypesToSave = new HashMap<>();
+    Map<String, AdditionalFieldType> additionalFieldTypesToSave = new HashMap<>();
+    Map<String, TicketType> ticketTypesToSave = new HashMap<>();
+    Map<String, Schedule> schedulesToSave = new HashMap<>();
+    for (Ticket newTicketToAdd : ticketsToAdd) {
+      for (Label label : newTicketToAdd.getLabels()) {
+        if (!references.labels.containsKey(label.getName())) {
+          labelsToSave.computeIfAbsent(
+              label.getName(), name -> labelRepository.save(newLabel(label)));
+        }
+      }
+      for (ExternalRequestor externalRequestor : newTicketToAdd.getExternalRequestors()) {
+        if (!references.externalRequestors.containsKey(externalRequestor.getName())) {
+          externalRequestorsToSave.computeIfAbsent(
+              externalRequestor.getName(),
+              name -> externalRequestorRepository.save(newExternalRequestor(externalRequestor)));
+        }
+      }
+      for (AdditionalFieldValue additionalFieldValue : newTicketToAdd.getAdditionalFieldValues()) {
+        AdditionalFieldType fieldType = additionalFieldValue.getAdditionalFieldType();
+        if (!references.additionalFieldTypes.containsKey(fieldType.getName())) {
+          additionalFieldTypesToSave.computeIfAbsent(
+              fieldType.getName(), name -> additionalFieldTypeRepository.save(fieldType));
+        }
+      }
+      for (Attachment attachment : newTicketToAdd.getAttachments()) {
+        useAttachmentTypeIfAlreadySaved(
+            attachmentTypesToSave,
+            attachmentTypes,
+            attachment,
+            attachment.getAttachmentType().getMimeType());
+      }
+      processState(statesToSave, states, newTicketToAdd);
+      processTicketType(ticketTypesToSave, ticketTypes, newTicketToAdd);
+      processSchedule(schedulesToSave, schedules, newTicketToAdd);
+    }
+
+    references.addLabels(labelsToSave);
+    references.addExternalRequestors(externalRequestorsToSave);
+    references.addStates(statesToSave);
+    references.addAttachmentTypes(attachmentTypesToSave);
+    references.addAdditionalFieldTypes(additionalFieldTypesToSave);
+    references.addTicketTypes(ticketTypesToSave);
+    references.addSchedules(schedulesToSave);
+  }
+
+  /**
+   * Imports a batch of tickets whose reference data has been created by {@link
+   * #createImportReferences(List, TicketImportReferences)}, returning the number imported.
+   */
+  @Transactional
+  public int importTicketBatch(List<Ticket> ticketsToAdd, TicketImportReferences references) {
+    long batchStart = System.currentTimeMillis();
+    // Lookup maps for the existing entities, so no queries are needed to find them
+    Map<String, ExternalRequestor> externalRequestors =
+        TicketImportReferences.references(
+            references.externalRequestors, externalRequestorRepository::getReferenceById);
+    Map<String, Label> labels =
+        TicketImportReferences.references(references.labels, labelRepository::getReferenceById);
+    Map<String, State> states =
+        TicketImportReferences.references(references.states, stateRepository::getReferenceById);
+    Map<String, AttachmentType> attachmentTypes =
+        TicketImportReferences.references(
+            references.attachmentTypes, attachmentTypeRepository::getReferenceById);
+    Map<String, AdditionalFieldType> additionalFieldTypes =
+        TicketImportReferences.references(
+            references.additionalFieldTypes, additionalFieldTypeRepository::getReferenceById);
+    Map<String, TicketType> ticketTypes =
+        TicketImportReferences.references(
+            references.ticketTypes, ticketTypeRepository::getReferenceById);
+    Map<String, Schedule> schedules =
+        TicketImportReferences.references(
+            references.schedules, scheduleRepository::getReferenceById);
+    // Existing Field Type Value lookup with keys that consists of field type + field type
+    // value
+    Map<String, AdditionalFieldValue> additionalFieldTypeValues = new HashMap<>();
 
-    int currentIndex = startAt;
-    int savedNumberOfTickets = 0;
-    long startTime = System.currentTimeMillis();
-    // We are saving in batch because of memory issues for both H2 and PostgreSQL
-    int batchSize = getDefaultBatchSize(size);
     /*
      * These are Maps for fields that need to be managed for primary key violation We can't add
      * duplcate values for these fields
@@ -485,213 +652,136 @@ public class TicketServiceImpl implements TicketService {
     Map<String, AdditionalFieldValue> additionalFieldTypeValuesToSave = new HashMap<>();
     Map<String, TicketType> ticketTypesToSave = new HashMap<>();
     Map<String, Schedule> schedulesToSave = new HashMap<>();
-    while (currentIndex < startAt + size) {
-      batchSize = getBatchSize(startAt, size, currentIndex, batchSize);
-      long batchStart = System.currentTimeMillis();
-      // These are lookup Maps for the existing Entities in the database.
-      // We use them for performance improvement and to avoid stalling queries
-      // because of database locks
-      logger.info("Start caching fields with relationships...");
-      Map<String, ExternalRequestor> externalRequestors =
-          preloadFields(ExternalRequestor::getName, externalRequestorRepository);
-      Map<String, Label> labels = preloadFields(Label::getName, labelRepository);
-      Map<String, State> states = preloadFields(State::getLabel, stateRepository);
-      Map<String, AttachmentType> attachmentTypes =
-          preloadFields(AttachmentType::getMimeType, attachmentTypeRepository);
-      Map<String, AdditionalFieldType> additionalFieldTypes =
-          preloadFields(AdditionalFieldType::getName, additionalFieldTypeRepository);
-      Map<String, TicketType> ticketTypes =
-          preloadFields(TicketType::getName, ticketTypeRepository);
-      Map<String, Schedule> schedules = preloadFields(Schedule::getName, scheduleRepository);
-      // Existing Field Type Value lookup with keys that consists of field type + field type
-      // value
-      Map<String, AdditionalFieldValue> additionalFieldTypeValues = new HashMap<>();
-
-      logger.info(
-          "Finished reading fields with relationships in "
-              + (System.currentTimeMillis() - batchStart)
-              + "ms");
-
-      /*
-       * Here we go...
-       *
-       * From here we copy everything from the DTO to newTicketToSave and make sure we use exsiging
-       * entities from the database for the appropriate fields.
-       *
-       * We also make sure that we don't add duplicated fields in the transaction and break primary
-       * keys so we will use lookup maps from above for that
-       *
-       * We use batch processing to avoid Memory issues especially with H2 database
-       *
-       */
-      List<Ticket> ticketsToSave = new ArrayList<>();
-      logger.info("Start processing " + batchSize + " items from index " + currentIndex);
-      for (int dtoIndex = currentIndex; dtoIndex < currentIndex + batchSize; dtoIndex++) {
-        TicketImportDto dto = importDtos[dtoIndex];
-
-        // separate out labels and external requestors
-        Set<ExternalRequesterDto> externalRequestorList =
-            dto.getLabels().stream()
-                .filter(label -> !ExportService.NON_EXTERNAL_REQUESTERS.contains(label.getName()))
-                .map(this::mapToExternalRequestor)
-                .collect(Collectors.toSet());
-        Set<LabelDto> filteredLabels =
-            dto.getLabels().stream()
-                .filter(label -> ExportService.NON_EXTERNAL_REQUESTERS.contains(label.getName()))
-                .collect(Collectors.toSet());
-        dto.setExternalRequestors(externalRequestorList);
-        dto.setLabels(filteredLabels);
-
-        // Load the Ticket to be added.
-        // Unfortunately we can't just have this, we have to process it
-        // and sort out for existing/duplcated data
-
-        Ticket newTicketToAdd = ticketMapper.toEntity(dto);
-        newTicketToAdd.setJiraCreated(dto.getCreated());
-
-        // This will be the Ticket to save into the DB
-        Ticket newTicket = new Ticket();
-        newTicket.setJiraCreated(newTicketToAdd.getJiraCreated());
-        // Persist ticket with Jira Created Date as Created Date
-        Ticket newTicketToSave = ticketRepository.save(newTicket);
-        newTicketToSave.setDescription(newTicketToAdd.getDescription());
-        newTicketToSave.setTitle(newTicketToAdd.getTitle());
-        newTicketToSave.setAttachments(
-            processAttachments(
-                attachmentTypesToSave, attachmentTypes, newTicketToAdd, newTicketToSave));
-        newTicketToSave.setAdditionalFieldValues(
-            processAdditionalFields(
-                additionalFieldTypesToSave,
-                additionalFieldTypeValuesToSave,
-                additionalFieldTypes,
-                additionalFieldTypeValues,
-                newTicketToAdd));
-        newTicketToSave.setLabels(processLabels(labelsToSave, labels, newTicketToAdd));
-        newTicketToSave.setExternalRequestors(
-            processExternalRequestors(
-                externalRequestorsToSave, externalRequestors, newTicketToAdd));
-
-        newTicketToSave.setState(
-            processEntity(
-                statesToSave,
-                states,
-                newTicketToAdd.getState(),
-                newTicketToAdd.getState().getLabel(),
-                state ->
-                    State.builder()
-                        .label(state.getLabel())
-                        .description(state.getDescription())
-                        .grouping(state.getGrouping())
-                        .build(),
-                stateRepository::save));
-
-        newTicketToSave.setTicketType(
-            processEntity(
-                ticketTypesToSave,
-                ticketTypes,
-                newTicketToAdd.getTicketType(),
-                newTicketToAdd.getTicketType().getName(),
-                ticketType ->
-                    TicketType.builder()
-                        .name(ticketType.getName())
-                        .description(ticketType.getDescription())
-                        .build(),
-                ticketTypeRepository::save));
-
-        newTicketToSave.setSchedule(
-            processEntity(
-                schedulesToSave,
-                schedules,
-                newTicketToAdd.getSchedule(),
-                newTicketToAdd.getSchedule().getName(),
-                schedule ->
-                    Schedule.builder()
-                        .name(schedule.getName())
-                        .description(schedule.getDescription())
-                        .grouping(schedule.getGrouping())
-                        .build(),
-                scheduleRepository::save));
-
-        List<Comment> newComments = new ArrayList<>();
-        if (newTicketToAdd.getComments() != null) {
-          newTicketToAdd
-              .getComments()
-              .forEach(
-                  comment ->
-                      newComments.add(
-                          Comment.builder()
-                              .text(comment.getText())
-                              .jiraCreated(comment.getCreated())
-                              .ticket(newTicketToSave)
-                              .build()));
-        }
-        if (newTicketToAdd.getAssignee() != null) {
-          newComments.add(
-              Comment.builder()
-                  .text(
-                      "<h2>### Import note: Current assignee: "
-                          + newTicketToAdd.getAssignee()
-                          + "</h2")
-                  .ticket(newTicketToSave)
-                  .build());
-        }
-        commentRepository.saveAll(newComments);
-        newTicketToSave.setComments(newComments);
-
-        /*
-         * Batch processing - add ticket to be saved later
-         */
-        ticketsToSave.add(newTicketToSave);
-        int importedTicketNumber = (dtoIndex - startAt) + 1;
-        if (importedTicketNumber > 0 && importedTicketNumber % 5000 == 0) {
-          long batchEnd = System.currentTimeMillis();
-          logger.info(
-              "Processed batch of 5000 Tickets ["
-                  + importedTicketNumber
-                  + "] in "
-                  + (batchEnd - batchStart)
-                  + "ms");
-          batchStart = System.currentTimeMillis();
-        }
-        // Do you like this SonarCloud?
-        setImportProgress((importedTicketNumber / (startAt + size * 1.00)) * 100.00);
+
+    /*
+     * Here we go...
+     *
+     * From here we copy everything from the mapped ticket to newTicketToSave and make sure we use
+     * exsiging entities from the database for the appropriate fields.
+     *
+     * We also make sure that we don't add duplicated fields in the transaction and break primary
+     * keys so we will use lookup maps from above for that
+     */
+    List<Ticket> ticketsToSave = new ArrayList<>();
+    for (Ticket newTicketToAdd : ticketsToAdd) {
+      // This will be the Ticket to save into the DB
+      Ticket newTicket = new Ticket();
+      newTicket.setJiraCreated(newTicketToAdd.getJiraCreated());
+      // Persist ticket with Jira Created Date as Created Date
+      Ticket newTicketToSave = ticketRepository.save(newTicket);
+      newTicketToSave.setDescription(newTicketToAdd.getDescription());
+      newTicketToSave.setTitle(newTicketToAdd.getTitle());
+      newTicketToSave.setAttachments(
+          processAttachments(
+              attachmentTypesToSave, attachmentTypes, newTicketToAdd, newTicketToSave));
+      newTicketToSave.setAdditionalFieldValues(
+          processAdditionalFields(
+              additionalFieldTypesToSave,
+              additionalFieldTypeValuesToSave,
+              additionalFieldTypes,
+              additionalFieldTypeValues,
+              newTicketToAdd));
+      newTicketToSave.setLabels(processLabels(labelsToSave, labels, newTicketToAdd));
+      newTicketToSave.setExternalRequestors(
+          processExternalRequestors(externalRequestorsToSave, externalRequestors, newTicketToAdd));
+      newTicketToSave.setState(processState(statesToSave, states, newTicketToAdd));
+      newTicketToSave.setTicketType(
+          processTicketType(ticketTypesToSave, ticketTypes, newTicketToAdd));
+      newTicketToSave.setSchedule(processSchedule(schedulesToSave, schedules, newTicketToAdd));
+
+      List<Comment> newComments = new ArrayList<>();
+      if (newTicketToAdd.getComments() != null) {
+        newTicketToAdd
+            .getComments()
+            .forEach(
+                comment ->
+                    newComments.add(
+                        Comment.builder()
+                            .text(comment.getText())
+                            .jiraCreated(comment.getCreated())
+                            .ticket(newTicketToSave)
+                            .build()));
       }
-      logger.info(
-          "Processed last batch of tickets. Total processing time: "
-              + (System.currentTimeMillis() - startTime)
-              + "ms");
-
-      additionalFieldTypesToSave.clear();
-      additionalFieldTypeValuesToSave.clear();
-      statesToSave.clear();
-      attachmentTypesToSave.clear();
-      labelsToSave.clear();
-      externalRequestorsToSave.clear();
-      logger.info("Saving Tickets...");
-      int savedTickets = batchSaveEntitiesToRepository(ticketsToSave, ticketRepository);
-      savedNumberOfTickets += savedTickets;
-      // Clean up
-      logger.info("Flushing tickets...");
-      try {
-        ticketRepository.flush();
-      } catch (DataIntegrityViolationException e) {
-        throw new TicketImportProblem(e.getMessage());
+      if (newTicketToAdd.getAssignee() != null) {
+        newComments.add(
+            Comment.builder()
+                .text(
+                    "<h2>### Import note: Current assignee: "
+                        + newTicketToAdd.getAssignee()
+                        + "</h2")
+                .ticket(newTicketToSave)
+                .build());
       }
-      currentIndex += batchSize;
+      commentRepository.saveAll(newComments);
+      newTicketToSave.setComments(newComments);
+
+      ticketsToSave.add(newTicketToSave);
     }
 
-    long endTime = System.currentTimeMillis();
+    ticketRepository.saveAll(ticketsToSave);
+    try {
+      ticketRepository.flush();
+    } catch (DataIntegrityViolationException e) {
+      throw new TicketImportProblem(e.getMessage());
+    }
     logger.info(
-        "Processed "
-            + savedNumberOfTickets
+        "Imported batch of "
+            + ticketsToSave.size()
             + " tickets in "
-            + String.format(
-                "%d min, %d sec",
-                TimeUnit.MILLISECONDS.toMinutes(endTime - startTime),
-                TimeUnit.MILLISECONDS.toSeconds(endTime - startTime)
-                    - TimeUnit.MINUTES.toSeconds(
-                        TimeUnit.MILLISECONDS.toMinutes(endTime - startTime))));
-    return savedNumberOfTickets;
+            + (System.currentTimeMillis() - batchStart)
+            + "ms");
+    return ticketsToSave.size();
+  }
+
+  private State processState(
+      Map<String, State> statesToSave, Map<String, State> states, Ticket newTicketToAdd) {
+    return processEntity(
+        statesToSave,
+        states,
+        newTicketToAdd.getState(),
+        newTicketToAdd.getState().getLabel(),
+        state ->
+            State.builder()
+                .label(state.getLabel())
+                .description(state.getDescription())
+                .grouping(state.getGrouping())
+                .build(),
+        stateRepository::save);
+  }
+
+  private TicketType processTicketType(
+      Map<String, TicketType> ticketTypesToSave,
+      Map<String, TicketType> ticketTypes,
+      Ticket newTicketToAdd) {
+    return processEntity(
+        ticketTypesToSave,
+        ticketTypes,
+        newTicketToAdd.getTicketType(),
+        newTicketToAdd.getTicketType().getName(),
+        ticketType ->
+            TicketType.builder()
+                .name(ticketType.getName())
+                .description(ticketType.getDescription())
+                .build(),
+        ticketTypeRepository::save);
+  }
+
+  private Schedule processSchedule(
+      Map<String, Schedule> schedulesToSave,
+      Map<String, Schedule> schedules,
+      Ticket newTicketToAdd) {
+    return processEntity(
+        schedulesToSave,
+        schedules,
+        newTicketToAdd.getSchedule(),
+        newTicketToAdd.getSchedule().getName(),
+        schedule ->
+            Schedule.builder()
+                .name(schedule.getName())
+                .description(schedule.getDescription())
+                .grouping(schedule.getGrouping())
+                .build(),
+        scheduleRepository::save);
   }
 
   private ExternalRequesterDto mapToExternalRequestor(LabelDto l) {
@@ -702,21 +792,6 @@ public class TicketServiceImpl implements TicketService {
         .build();
   }
 
-  private int getBatchSize(int startAt, int size, int currentIndex, int batchSize) {
-    if (currentIndex + batchSize > startAt + size) {
-      batchSize = (startAt + size) - currentIndex;
-    }
-    return batchSize;
-  }
-
-  private int getDefaultBatchSize(int size) {
-    int batchSize = ITEMS_TO_PROCESS;
-    if (batchSize > size) {
-      batchSize = size;
-    }
-    return batchSize;
-  }
-
   /*
    * Deal with similar entities e.g Schedule, TicketType, State, etc that require looking up
    * existing records in the database and using the existing records if they exist
@@ -763,12 +838,7 @@ public class TicketServiceImpl implements TicketService {
           labelsToAdd.add(labelsToSave.get(labelToAdd));
         } else {
           // Adding completely new label
-          Label newLabel =
-              Label.builder()
-                  .name(label.getName())
-                  .description(label.getDescription())
-                  .displayColor(label.getDisplayColor())
-                  .build();
+          Label newLabel = newLabel(label);
           labelsToSave.put(labelToAdd, newLabel);
           labelsToAdd.add(newLabel);
         }
@@ -778,6 +848,22 @@ public class TicketServiceImpl implements TicketService {
     return labelsToAdd;
   }
 
+  private static Label newLabel(Label label) {
+    return Label.builder()
+        .name(label.getName())
+        .description(label.getDescription())
+        .displayColor(label.getDisplayColor())
+        .build();
+  }
+
+  private static ExternalRequestor newExternalRequestor(ExternalRequestor externalRequestor) {
+    return ExternalRequestor.builder()
+        .name(externalRequestor.getName())
+        .description(externalRequestor.getDescription())
+        .displayColor(externalRequestor.getDisplayColor())
+        .build();
+  }
+
   /*
    * Deal with Labels
    */
@@ -802,12 +888,7 @@ public class TicketServiceImpl implements TicketService {
           externalRequestorsToAdd.add(externalRequestorsToSave.get(externalRequestorToAdd));
         } else {
           // Adding completely new label
-          ExternalRequestor newExternalRequestor =
-              ExternalRequestor.builder()
-                  .name(externalRequestor.getName())
-                  .description(externalRequestor.getDescription())
-                  .displayColor(externalRequestor.getDisplayColor())
-                  .build();
+          ExternalRequestor newExternalRequestor = newExternalRequestor(externalRequestor);
           externalRequestorsToSave.put(externalRequestorToAdd, newExternalRequestor);
           externalRequestorsToAdd.add(newExternalRequestor);
         }
@@ -1038,31 +1119,12 @@ public class TicketServiceImpl implements TicketService {
     return attachmentsToAdd;
   }
 
-  /*
-   * Batching the Save for H2 backend to avoid out of memory errors
-   */
-  private <T> int batchSaveEntitiesToRepository(
-      Collection<T> entities, JpaRepository<T, ?> repository) {
-
-    int savedNumberOfItems = 0;
-    long startSave = System.currentTimeMillis();
-    repository.saveAll(entities);
-    long endSave = System.currentTimeMillis();
-    savedNumberOfItems += entities.size();
-    logger.info("Saved " + entities.size() + " items, in " + (endSave - startSave) + "ms ");
-    return savedNumberOfItems;
-  }
-
   private <T> Map<String, T> preloadFields(
       Function<T, String> compareField, JpaRepository<T, ?> repository) {
     List<T> items = repository.findAll();
     return items.stream().collect(Collectors.toMap(compareField, Function.identity()));
   }
 
-  private void setImportProgress(double progress) {
-    this.importProgress = progress;
-  }
-
   public String generateImportFile(File originalFile, File newFile) {
     SafeUtils.checkFile(originalFile, allowedImportDirectory, TicketImportProblem.class);
     SafeUtils.checkFile(newFile, allowedImportDirectory, TicketImportProblem.class);
@@ -0,0 +1,17 @@
+-- Ledger of identifiers reserved from CIS so that unused reservations survive a restart.
+-- holder and leased_until record which running instance currently has the identifier in memory.
+CREATE TABLE identifier_reservation (
+    id BIGINT NOT NULL,
+    namespace_id INTEGER NOT NULL,
+    partition_id VARCHAR(2) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    reserved TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated TIMESTAMP(6) WITH TIME ZONE,
+    holder VARCHAR(64),
+    leased_until TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_identifier_reservation_reserved
+    ON identifier_reservation (namespace_id, partition_id, reserved)
+    WHERE status = 'RESERVED';
@@ -0,0 +1,13 @@
+-- Name generator results, keyed by a hash of the generator version and the request spec so that
+-- recalculations and re-opened tickets can skip the name generator.
+CREATE TABLE generated_name (
+    spec_hash VARCHAR(64) NOT NULL,
+    generator_version VARCHAR(100) NOT NULL,
+    fsn TEXT NOT NULL,
+    pt TEXT NOT NULL,
+    created TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    last_used TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (spec_hash)
+);
+
+CREATE INDEX idx_generated_name_last_used ON generated_name (last_used);
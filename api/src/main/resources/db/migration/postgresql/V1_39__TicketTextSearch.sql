@@ -0,0 +1,13 @@
+-- Trigram indexes for backlog text search. Title, description and comment conditions are queried
+-- as lower(column) LIKE '%value%', which these indexes serve directly, and word_similarity over the
+-- same expressions ranks results for the relevance sort. pg_trgm is a trusted extension, so the
+-- database owner can create it without superuser rights.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_ticket_title_trgm ON ticket USING gin (lower(title) gin_trgm_ops);
+
+CREATE INDEX idx_ticket_description_trgm ON ticket USING gin (lower(description) gin_trgm_ops);
+
+CREATE INDEX idx_comment_text_trgm ON comment USING gin (lower(text) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_comment_ticket_id ON comment (ticket_id);
@@ -0,0 +1,52 @@
+-- Denormalised copy of the ticket fields the backlog filters on, one row per ticket. Rows are
+-- refreshed from the source tables after each commit that changes a ticket (see
+-- TicketBacklogViewService) and reconciled on a schedule.
+CREATE TABLE ticket_backlog_view (
+    ticket_id BIGINT NOT NULL REFERENCES ticket (id) ON DELETE CASCADE,
+    ticket_number VARCHAR(255),
+    title VARCHAR(255),
+    assignee VARCHAR(255),
+    created TIMESTAMP(6) WITH TIME ZONE,
+    modified TIMESTAMP(6) WITH TIME ZONE,
+    state_id BIGINT,
+    state_label VARCHAR(255),
+    iteration_id BIGINT,
+    iteration_name VARCHAR(255),
+    priority_bucket_id BIGINT,
+    priority_bucket_name VARCHAR(255),
+    schedule_id BIGINT,
+    schedule_name VARCHAR(255),
+    task_association_id BIGINT,
+    task_id VARCHAR(255),
+    label_names TEXT[] NOT NULL,
+    external_requestor_names TEXT[] NOT NULL,
+    refreshed TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (ticket_id)
+);
+
+CREATE INDEX idx_ticket_backlog_view_state ON ticket_backlog_view (state_label);
+CREATE INDEX idx_ticket_backlog_view_iteration ON ticket_backlog_view (iteration_name);
+CREATE INDEX idx_ticket_backlog_view_priority ON ticket_backlog_view (priority_bucket_name);
+CREATE INDEX idx_ticket_backlog_view_schedule ON ticket_backlog_view (schedule_name);
+CREATE INDEX idx_ticket_backlog_view_assignee ON ticket_backlog_view (assignee);
+CREATE INDEX idx_ticket_backlog_view_task ON ticket_backlog_view (task_id);
+CREATE INDEX idx_ticket_backlog_view_created ON ticket_backlog_view (created);
+CREATE INDEX idx_ticket_backlog_view_labels ON ticket_backlog_view USING gin (label_names);
+CREATE INDEX idx_ticket_backlog_view_external_requestors
+    ON ticket_backlog_view USING gin (external_requestor_names);
+
+INSERT INTO ticket_backlog_view
+SELECT t.id, t.ticket_number, t.title, t.assignee, t.created, t.modified,
+       s.id, s.label, i.id, i.name, p.id, p.name, sc.id, sc.name, ta.id, ta.task_id,
+       coalesce((SELECT array_agg(l.name ORDER BY l.name) FROM ticket_labels tl
+                 JOIN label l ON l.id = tl.label_id WHERE tl.ticket_id = t.id), '{}'),
+       coalesce((SELECT array_agg(er.name ORDER BY er.name) FROM ticket_external_requestors ter
+                 JOIN external_requestor er ON er.id = ter.external_requestor_id
+                 WHERE ter.ticket_id = t.id), '{}'),
+       now()
+FROM ticket t
+LEFT JOIN state s ON s.id = t.state_id
+LEFT JOIN iteration i ON i.id = t.iteration_id
+LEFT JOIN priority_bucket p ON p.id = t.priority_bucket_id
+LEFT JOIN schedule sc ON sc.id = t.schedule_id
+LEFT JOIN task_association ta ON ta.id = t.task_association_id;
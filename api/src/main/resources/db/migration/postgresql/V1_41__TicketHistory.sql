@@ -0,0 +1,28 @@
+-- Ticket history entries, computed from the audit tables once per revision after it commits
+-- rather than on every read.
+CREATE TABLE ticket_history_entry (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    ticket_id BIGINT NOT NULL REFERENCES ticket (id) ON DELETE CASCADE,
+    revision_number BIGINT NOT NULL,
+    revision_timestamp TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    revision_type VARCHAR(10) NOT NULL,
+    field_name VARCHAR(50) NOT NULL,
+    old_entity_id BIGINT,
+    old_value TEXT,
+    new_entity_id BIGINT,
+    new_value TEXT,
+    change_description TEXT,
+    username VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_ticket_history_entry_ticket
+    ON ticket_history_entry (ticket_id, revision_timestamp, id);
+
+-- The last revision whose entries have been recorded for each ticket. Tickets without a row have
+-- their history recorded from the start the first time it is read.
+CREATE TABLE ticket_history_progress (
+    ticket_id BIGINT NOT NULL REFERENCES ticket (id) ON DELETE CASCADE,
+    last_revision INTEGER NOT NULL,
+    PRIMARY KEY (ticket_id)
+);
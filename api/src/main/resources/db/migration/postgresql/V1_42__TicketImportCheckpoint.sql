@@ -0,0 +1,12 @@
+-- The ranges of an import file's items that have been imported, written in the same transaction as
+-- each batch of tickets so that a failed import can be resumed without importing any item twice.
+CREATE TABLE ticket_import_checkpoint (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    import_file VARCHAR(1024) NOT NULL,
+    first_index BIGINT NOT NULL,
+    end_index BIGINT NOT NULL,
+    completed TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_ticket_import_checkpoint_file ON ticket_import_checkpoint (import_file);
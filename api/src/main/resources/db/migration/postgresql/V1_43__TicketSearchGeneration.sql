@@ -0,0 +1,3 @@
+-- Moved on whenever tickets change, so that every instance stops using the backlog search results
+-- it cached before the change.
+CREATE SEQUENCE ticket_search_generation_seq;
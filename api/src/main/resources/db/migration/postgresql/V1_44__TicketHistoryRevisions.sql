@@ -0,0 +1,25 @@
+-- The audit revisions whose history entries have been recorded for each ticket. Revisions that
+-- touch a ticket's comments or associations do not lock the ticket row, so they can commit out of
+-- revision order; recording each one, rather than the last, lets a revision that commits late be
+-- recorded instead of skipped.
+CREATE TABLE ticket_history_revision (
+    ticket_id BIGINT NOT NULL REFERENCES ticket (id) ON DELETE CASCADE,
+    revision INTEGER NOT NULL,
+    PRIMARY KEY (ticket_id, revision)
+);
+
+INSERT INTO ticket_history_revision (ticket_id, revision)
+SELECT p.ticket_id, audited.rev
+FROM ticket_history_progress p
+JOIN LATERAL (
+    SELECT rev FROM ticket_aud WHERE id = p.ticket_id
+    UNION SELECT rev FROM ticket_labels_aud WHERE ticket_id = p.ticket_id
+    UNION SELECT rev FROM comment_aud WHERE ticket_id = p.ticket_id
+    UNION SELECT rev FROM ticket_external_requestors_aud WHERE ticket_id = p.ticket_id
+    UNION SELECT rev FROM ticket_additional_field_values_aud WHERE ticket_id = p.ticket_id
+    UNION SELECT rev FROM ticket_association_aud
+          WHERE ticket_source_id = p.ticket_id OR ticket_target_id = p.ticket_id) audited
+    ON audited.rev <= p.last_revision;
+
+-- The progress row is kept only as the lock that serialises recorders of the same ticket.
+ALTER TABLE ticket_history_progress DROP COLUMN last_revision;
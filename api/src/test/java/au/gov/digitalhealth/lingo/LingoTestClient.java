@@ -24,8 +24,10 @@ import au.gov.digitalhealth.lingo.product.ProductCreationDetails;
 import au.gov.digitalhealth.lingo.product.ProductPackSizes;
 import au.gov.digitalhealth.lingo.product.ProductSummary;
 import au.gov.digitalhealth.lingo.product.ProductUpdateDetails;
+import au.gov.digitalhealth.lingo.product.bulk.BrandPackSizeCalculationEvent;
 import au.gov.digitalhealth.lingo.product.bulk.BrandPackSizeCreationDetails;
 import au.gov.digitalhealth.lingo.product.bulk.BulkProductAction;
+import au.gov.digitalhealth.lingo.product.bulk.BulkProductCreationDetails;
 import au.gov.digitalhealth.lingo.product.details.DeviceProductDetails;
 import au.gov.digitalhealth.lingo.product.details.MedicationProductDetails;
 import au.gov.digitalhealth.lingo.product.details.PackageDetails;
@@ -34,6 +36,7 @@ import au.gov.digitalhealth.lingo.product.update.ProductPropertiesUpdateRequest;
 import au.gov.digitalhealth.lingo.product.update.ProductUpdateRequest;
 import au.gov.digitalhealth.tickets.controllers.BulkProductActionDto;
 import au.gov.digitalhealth.tickets.models.Ticket;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -134,6 +137,16 @@ public class LingoTestClient {
         ProductSummary.class);
   }
 
+  public List<ProductSummary> createMedicationProducts(
+      BulkProductCreationDetails<MedicationProductDetails> bulkCreationDetails) {
+    return List.of(
+        postRequest(
+            apiPath("/medications/product/bulk"),
+            bulkCreationDetails,
+            HttpStatus.CREATED,
+            ProductSummary[].class));
+  }
+
   public ProductSummary createNewBrandPackSizes(
       BulkProductAction<BrandPackSizeCreationDetails> action) {
     return postRequest(
@@ -215,6 +228,35 @@ public class LingoTestClient {
         ProductSummary.class);
   }
 
+  public List<BrandPackSizeCalculationEvent> streamNewBrandAndPackSizes(
+      BrandPackSizeCreationDetails brandPackSizeCreationDetails) {
+    String body =
+        withAuth()
+            .contentType(ContentType.JSON)
+            .accept("application/x-ndjson")
+            .when()
+            .body(brandPackSizeCreationDetails)
+            .post(
+                snomioLocation + apiPath("/medications/product/$calculateNewBrandPackSizes/stream"))
+            .then()
+            .statusCode(HttpStatus.OK.value())
+            .extract()
+            .asString();
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.registerModule(new JavaTimeModule());
+    return body.lines()
+        .filter(line -> !line.isBlank())
+        .map(
+            line -> {
+              try {
+                return objectMapper.readValue(line, BrandPackSizeCalculationEvent.class);
+              } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Unparseable event " + line, e);
+              }
+            })
+        .toList();
+  }
+
   public ProductSummary calculateUpdateMedicationProductSummary(
       Long productId, PackageDetails<MedicationProductDetails> packageDetails) {
     final ProductSummary productSummary =
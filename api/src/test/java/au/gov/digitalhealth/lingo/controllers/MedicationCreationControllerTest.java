@@ -34,6 +34,7 @@ import au.gov.digitalhealth.lingo.product.Node;
 import au.gov.digitalhealth.lingo.product.ProductCreationDetails;
 import au.gov.digitalhealth.lingo.product.ProductSummary;
 import au.gov.digitalhealth.lingo.product.ProductUpdateDetails;
+import au.gov.digitalhealth.lingo.product.bulk.BulkProductCreationDetails;
 import au.gov.digitalhealth.lingo.product.details.Ingredient;
 import au.gov.digitalhealth.lingo.product.details.MedicationProductDetails;
 import au.gov.digitalhealth.lingo.product.details.PackageDetails;
@@ -383,6 +384,47 @@ class MedicationCreationControllerTest extends LingoTestBase {
     Assertions.assertThat(packageDetailsPostCreation).isEqualTo(packageDetails);
   }
 
+  @Test
+  void bulkCreateProductsSharingNewSubject() {
+    PackageDetails<MedicationProductDetails> packageDetails =
+        getLingoTestClient()
+            .getMedicationPackDetails(AmtTestData.OXALICCORD_50ML_PER_10ML_IN_10ML_VIAL_CTPP_ID);
+
+    // change pack size to 3
+    packageDetails.getContainedProducts().iterator().next().setValue(new BigDecimal("3.0"));
+
+    ProductSummary firstSummary =
+        getLingoTestClient().calculateMedicationProductSummary(packageDetails);
+    ProductSummary secondSummary =
+        getLingoTestClient().calculateMedicationProductSummary(packageDetails);
+    MedicationAssertions.assertProductSummaryHas(firstSummary, 1, 0, 0, CTPP_LABEL);
+
+    Ticket firstTicket = getLingoTestClient().createTicket("bulkCreateProductsSharingNewSubject-1");
+    Ticket secondTicket =
+        getLingoTestClient().createTicket("bulkCreateProductsSharingNewSubject-2");
+
+    // both products have the same new CTPP as their subject, so it is deduplicated into one node
+    List<ProductSummary> createdProducts =
+        getLingoTestClient()
+            .createMedicationProducts(
+                new BulkProductCreationDetails<>(
+                    List.of(
+                        new ProductCreationDetails<>(
+                            firstSummary, packageDetails, firstTicket.getId(), null, null),
+                        new ProductCreationDetails<>(
+                            secondSummary, packageDetails, secondTicket.getId(), null, null))));
+
+    Assertions.assertThat(createdProducts).hasSize(2);
+    String firstSubjectId = createdProducts.get(0).getSingleSubject().getConceptId();
+    Assertions.assertThat(firstSubjectId).matches("\\d{7,18}");
+    Assertions.assertThat(createdProducts.get(1).getSingleSubject().getConceptId())
+        .isEqualTo(firstSubjectId);
+
+    ProductSummary productModelPostCreation = getLingoTestClient().getProductModel(firstSubjectId);
+    Assertions.assertThat(productModelPostCreation.isContainsNewConcepts()).isFalse();
+    MedicationAssertions.assertProductSummaryHas(productModelPostCreation, 0, 0, 1, CTPP_LABEL);
+  }
+
   @Test
   void testOiiFilterForCalculate() {
     // get Oxaliccord
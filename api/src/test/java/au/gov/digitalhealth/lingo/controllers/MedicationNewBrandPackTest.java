@@ -34,6 +34,7 @@ import au.gov.digitalhealth.lingo.product.PackSizeWithIdentifiers;
 import au.gov.digitalhealth.lingo.product.ProductBrands;
 import au.gov.digitalhealth.lingo.product.ProductPackSizes;
 import au.gov.digitalhealth.lingo.product.ProductSummary;
+import au.gov.digitalhealth.lingo.product.bulk.BrandPackSizeCalculationEvent;
 import au.gov.digitalhealth.lingo.product.bulk.BrandPackSizeCreationDetails;
 import au.gov.digitalhealth.lingo.product.bulk.BulkProductAction;
 import au.gov.digitalhealth.lingo.product.details.properties.ExternalIdentifier;
@@ -286,6 +287,59 @@ class MedicationNewBrandPackTest extends LingoTestBase {
     Assertions.assertThat(newPackSizeFound).isTrue();
   }
 
+  @Test
+  void streamNewPackSizesMatchesCalculation() {
+    ProductPackSizes productPackSizes =
+        getLingoTestClient()
+            .getMedicationProductPackSizes(OESTRADIOL_SCHERING_PLOUGH_100_MG_IMPLANT_1_TUBE);
+
+    for (String size : List.of("16.0", "17.0")) {
+      PackSizeWithIdentifiers packSizeWithIdentifier = new PackSizeWithIdentifiers();
+      packSizeWithIdentifier.setPackSize(new BigDecimal(size));
+      productPackSizes.getPackSizes().add(packSizeWithIdentifier);
+    }
+
+    BrandPackSizeCreationDetails brandPackSizeCreationDetails =
+        BrandPackSizeCreationDetails.builder()
+            .productId(Long.toString(OESTRADIOL_SCHERING_PLOUGH_100_MG_IMPLANT_1_TUBE))
+            .packSizes(productPackSizes)
+            .brands(null)
+            .build();
+
+    ProductSummary calculated =
+        getLingoTestClient().calculateNewBrandAndPackSizes(brandPackSizeCreationDetails);
+    List<BrandPackSizeCalculationEvent> events =
+        getLingoTestClient().streamNewBrandAndPackSizes(brandPackSizeCreationDetails);
+
+    Assertions.assertThat(events).isNotEmpty();
+    BrandPackSizeCalculationEvent last = events.get(events.size() - 1);
+    Assertions.assertThat(last.getType()).isEqualTo(BrandPackSizeCalculationEvent.Type.SUMMARY);
+
+    List<BrandPackSizeCalculationEvent> partials =
+        events.subList(0, events.size() - 1).stream()
+            .filter(e -> e.getType() == BrandPackSizeCalculationEvent.Type.PARTIAL)
+            .toList();
+    Assertions.assertThat(partials).hasSize(events.size() - 1);
+    Assertions.assertThat(partials).hasSize(calculated.getSubjects().size());
+    partials.forEach(
+        partial -> {
+          Assertions.assertThat(partial.getSummary().getSubjects()).hasSize(1);
+          Assertions.assertThat(partial.getSummary().isContainsNewConcepts()).isTrue();
+        });
+
+    ProductSummary streamed = last.getSummary();
+    Assertions.assertThat(streamed.getSubjects()).hasSameSizeAs(calculated.getSubjects());
+    Assertions.assertThat(streamed.getNodes()).hasSameSizeAs(calculated.getNodes());
+    Assertions.assertThat(streamed.getEdges()).hasSameSizeAs(calculated.getEdges());
+    for (String label :
+        List.of(CTPP_LABEL, TPP_LABEL, MPP_LABEL, TPUU_LABEL, MPUU_LABEL, MP_LABEL, TP_LABEL)) {
+      Assertions.assertThat(
+              streamed.getNodes().stream().filter(n -> n.getLabel().equals(label)).toList())
+          .hasSameSizeAs(
+              calculated.getNodes().stream().filter(n -> n.getLabel().equals(label)).toList());
+    }
+  }
+
   @Test
   @Order(1)
   void createSimpleProductFromExistingWithBrandAndPackSizeAdditions()
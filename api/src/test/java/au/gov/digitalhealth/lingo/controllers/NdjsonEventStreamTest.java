@@ -0,0 +1,186 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for NdjsonEventStream. */
+class NdjsonEventStreamTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  /** Events sent from other threads are written in order, one per line, by the writing thread. */
+  @Test
+  void testWritesSentEventsInOrder() throws Exception {
+    RecordingOutputStream out = new RecordingOutputStream(false);
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getOutputStream()).thenReturn(out);
+    NdjsonEventStream events = new NdjsonEventStream(response, objectMapper);
+
+    CompletableFuture<Void> work =
+        CompletableFuture.runAsync(
+            () -> {
+              for (int i = 0; i < 3; i++) {
+                events.send(Map.of("event", i));
+              }
+            });
+
+    assertThat(events.writeUntilDone(work)).isTrue();
+    events.write(Map.of("event", "summary"));
+
+    assertThat(out.written())
+        .isEqualTo("{\"event\":0}\n{\"event\":1}\n{\"event\":2}\n{\"event\":\"summary\"}\n");
+    assertThat(events.isStarted()).isTrue();
+    verify(response).setStatus(200);
+  }
+
+  /**
+   * Once a write fails nothing more is written, and sending another event throws so the work
+   * producing them stops.
+   */
+  @Test
+  void testStopsAfterClientDisconnects() throws Exception {
+    RecordingOutputStream out = new RecordingOutputStream(true);
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getOutputStream()).thenReturn(out);
+    NdjsonEventStream events = new NdjsonEventStream(response, objectMapper);
+
+    events.send(Map.of("event", 0));
+    CompletableFuture<Void> work = new CompletableFuture<>();
+    CompletableFuture.runAsync(
+        () -> {
+          while (true) {
+            try {
+              events.send(Map.of("event", 1));
+              Thread.sleep(1);
+            } catch (CancellationException | InterruptedException e) {
+              work.completeExceptionally(e);
+              return;
+            }
+          }
+        });
+
+    assertThat(events.writeUntilDone(work)).isFalse();
+    assertThatThrownBy(() -> events.send(Map.of("event", 2)))
+        .isInstanceOf(CancellationException.class);
+    events.write(Map.of("event", "error"));
+
+    verify(response, times(1)).getOutputStream();
+  }
+
+  /**
+   * Once the most events allowed are waiting to be written, sending another waits for the writer.
+   */
+  @Test
+  void testSendBlocksWhileEventsAreWaiting() throws Exception {
+    RecordingOutputStream out = new RecordingOutputStream(false);
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getOutputStream()).thenReturn(out);
+    NdjsonEventStream events = new NdjsonEventStream(response, objectMapper, 2);
+
+    CompletableFuture<Void> work =
+        CompletableFuture.runAsync(
+            () -> {
+              for (int i = 0; i < 3; i++) {
+                events.send(Map.of("event", i));
+              }
+            });
+
+    assertThatThrownBy(() -> work.get(200, TimeUnit.MILLISECONDS))
+        .isInstanceOf(TimeoutException.class);
+    assertThat(events.writeUntilDone(work)).isTrue();
+    assertThat(out.written()).isEqualTo("{\"event\":0}\n{\"event\":1}\n{\"event\":2}\n");
+  }
+
+  /** An event written directly is serialised to the response without closing it. */
+  @Test
+  void testWritesEventStraightToResponse() throws Exception {
+    RecordingOutputStream out = new RecordingOutputStream(false);
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getOutputStream()).thenReturn(out);
+    NdjsonEventStream events = new NdjsonEventStream(response, objectMapper);
+
+    events.write(Map.of("event", "summary"));
+    events.write(Map.of("event", "after"));
+
+    assertThat(out.written()).isEqualTo("{\"event\":\"summary\"}\n{\"event\":\"after\"}\n");
+    assertThat(out.closed).isFalse();
+  }
+
+  private static class RecordingOutputStream extends ServletOutputStream {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final boolean disconnected;
+    private boolean closed;
+
+    RecordingOutputStream(boolean disconnected) {
+      this.disconnected = disconnected;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (disconnected) {
+        throw new IOException("Broken pipe");
+      }
+      bytes.write(b);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+      if (disconnected) {
+        throw new IOException("Broken pipe");
+      }
+      bytes.write(b);
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      // writes are blocking
+    }
+
+    String written() {
+      return bytes.toString(StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -30,6 +30,7 @@ import au.gov.digitalhealth.lingo.product.details.properties.ReferenceSet;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import org.junit.jupiter.api.Test;
 
@@ -296,6 +297,27 @@ public class ProductSummaryNodeDeduplicationTest {
             + "numbered in a different order, so they should be merged into a single node");
   }
 
+  /**
+   * The ids of the merged away duplicates are reported along with the id of the node that replaced
+   * them, so callers holding the removed ids (such as bulk creation) can still resolve them.
+   */
+  @Test
+  public void testDeduplicateNewNodes_ShouldReportReplacedIds() {
+    SnowstormRelationship isA = relationship("116680003", "763158003", 0);
+    SnowstormRelationship ingredient = relationship("762949000", "387584000", 1);
+
+    ProductSummary summary = new ProductSummary();
+    summary.addNode(newConceptNode(-1, isA, ingredient));
+    summary.addNode(newConceptNode(-2, isA, ingredient));
+
+    Map<String, String> replacedIds = summary.deduplicateNewNodes(new ModelConfiguration());
+
+    assertEquals(1, summary.getNodes().size());
+    String keptId = summary.getNodes().iterator().next().getConceptId();
+    String removedId = "-1".equals(keptId) ? "-2" : "-1";
+    assertEquals(Map.of(removedId, keptId), replacedIds);
+  }
+
   private static SnowstormRelationship relationship(
       String typeId, String destinationId, int group) {
     SnowstormRelationship relationship = new SnowstormRelationship();
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for BulkCalculationScheduler focusing on per-job limits and fair sharing. */
+class BulkCalculationSchedulerTest {
+
+  private MeterRegistry meterRegistry;
+  private ExecutorService executor;
+  private BulkCalculationScheduler scheduler;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    executor = Executors.newFixedThreadPool(4);
+    scheduler = new BulkCalculationScheduler(4, 3, executor, meterRegistry);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /** A single job never has more than max-in-flight-per-job tasks running at once. */
+  @Test
+  void testJobInFlightLimit() throws Exception {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    BulkCalculationScheduler.Job job = scheduler.startJob("limit");
+
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      final int value = i;
+      futures.add(
+          job.submit(
+              () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(5);
+                running.decrementAndGet();
+                return value;
+              }));
+    }
+
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+    assertThat(futures).extracting(CompletableFuture::join).hasSize(30).doesNotHaveDuplicates();
+    assertThat(maxRunning.get()).isLessThanOrEqualTo(3);
+    assertThat(job.getSubmitted()).isEqualTo(30);
+    assertThat(job.getCompleted()).isEqualTo(30);
+    assertThat(meterRegistry.get("snomio.bulk.calculation.task").timer().count()).isEqualTo(30);
+  }
+
+  /**
+   * A second job started while a large job is mid-flight gets its share of the pool straight away
+   * rather than waiting for the first job's backlog to drain.
+   */
+  @Test
+  void testSecondJobIsNotStarved() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    BulkCalculationScheduler.Job bigJob = scheduler.startJob("big");
+    List<CompletableFuture<Void>> bigFutures = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      bigFutures.add(
+          bigJob.submit(
+              () -> {
+                await(release);
+                return null;
+              }));
+    }
+
+    BulkCalculationScheduler.Job smallJob = scheduler.startJob("small");
+    CompletableFuture<String> small = smallJob.submit(() -> "done");
+
+    assertThat(small.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+    assertThat(bigJob.getCompleted()).isZero();
+
+    release.countDown();
+    CompletableFuture.allOf(bigFutures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+    assertThat(meterRegistry.get("snomio.bulk.calculation.jobs.active").gauge().value()).isZero();
+  }
+
+  /** A failing task fails only its own future and does not stall the rest of the job. */
+  @Test
+  void testFailurePropagatesToFuture() throws Exception {
+    BulkCalculationScheduler.Job job = scheduler.startJob("failure");
+    CompletableFuture<String> failing =
+        job.submit(
+            () -> {
+              throw new IllegalStateException("Simulated failure");
+            });
+    CompletableFuture<String> dependent = failing.thenCompose(s -> job.submit(() -> s + "!"));
+    CompletableFuture<String> other = job.submit(() -> "ok");
+
+    assertThat(other.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+    assertThatThrownBy(() -> dependent.get(5, TimeUnit.SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .hasRootCauseInstanceOf(IllegalStateException.class);
+    assertThat(job.getFailed()).isEqualTo(1);
+  }
+
+  /** Cancelling a job fails its queued tasks without running them, and lets running ones finish. */
+  @Test
+  void testCancelSkipsQueuedTasks() throws Exception {
+    CountDownLatch started = new CountDownLatch(3);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger ran = new AtomicInteger();
+    BulkCalculationScheduler.Job job = scheduler.startJob("cancel");
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      futures.add(
+          job.submit(
+              () -> {
+                started.countDown();
+                await(release);
+                return ran.incrementAndGet();
+              }));
+    }
+
+    await(started);
+    job.cancel();
+    release.countDown();
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+        .exceptionally(e -> null)
+        .get(10, TimeUnit.SECONDS);
+
+    // only the tasks released before the cancel ran
+    assertThat(ran.get()).isEqualTo(3);
+    assertThat(job.getCompleted()).isEqualTo(3);
+    assertThat(job.getFailed()).isEqualTo(7);
+    assertThatThrownBy(() -> futures.get(9).get()).isInstanceOf(CancellationException.class);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+import au.csiro.snowstorm_client.model.SnowstormConceptMini;
+import au.gov.digitalhealth.lingo.configuration.model.ModelConfiguration;
+import au.gov.digitalhealth.lingo.product.Edge;
+import au.gov.digitalhealth.lingo.product.NewConceptDetails;
+import au.gov.digitalhealth.lingo.product.Node;
+import au.gov.digitalhealth.lingo.product.ProductSummary;
+import au.gov.digitalhealth.lingo.product.details.MedicationProductDetails;
+import au.gov.digitalhealth.lingo.product.details.PackageDetails;
+import au.gov.digitalhealth.lingo.util.CacheConstants;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/** Unit tests for ProductCalculationResultCache keying and copy-on-read behaviour. */
+@ExtendWith(MockitoExtension.class)
+class ProductCalculationResultCacheTest {
+
+  private static final String BRANCH = "MAIN/SNOMEDCT-AU/AUAMT/TEST-1";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Mock private CacheManager cacheManager;
+  @Mock private ObjectProvider<RequestScopedBranchTimestampService> branchTimestampProvider;
+  @Mock private RequestScopedBranchTimestampService branchTimestampService;
+
+  private ProductCalculationResultCache resultCache;
+  private final ModelConfiguration modelConfiguration = new ModelConfiguration();
+  private final AtomicInteger calculations = new AtomicInteger();
+  private long branchTimestamp = 1L;
+
+  @BeforeEach
+  void setUp() {
+    lenient()
+        .when(cacheManager.getCache(CacheConstants.PRODUCT_CALCULATION_CACHE))
+        .thenReturn(new ConcurrentMapCache(CacheConstants.PRODUCT_CALCULATION_CACHE));
+    lenient().when(branchTimestampProvider.getObject()).thenReturn(branchTimestampService);
+    lenient()
+        .when(branchTimestampService.getBranchTimestamp(anyString()))
+        .thenAnswer(invocation -> branchTimestamp);
+    RequestContextHolder.setRequestAttributes(mock(RequestAttributes.class));
+    resultCache =
+        new ProductCalculationResultCache(
+            cacheManager, objectMapper, branchTimestampProvider, new SimpleMeterRegistry());
+  }
+
+  @AfterEach
+  void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private ProductSummary calculate() {
+    calculations.incrementAndGet();
+    ProductSummary productSummary = new ProductSummary();
+    Node node =
+        Node.builder()
+            .concept(new SnowstormConceptMini().conceptId("123456789"))
+            .label("CTPP")
+            .displayName("calculated")
+            .build();
+    productSummary.addNode(node);
+    productSummary.addSubject(node);
+    return productSummary;
+  }
+
+  private static PackageDetails<MedicationProductDetails> details(String... identifiers) {
+    PackageDetails<MedicationProductDetails> details = new PackageDetails<>();
+    details.setSelectedConceptIdentifiers(Set.of(identifiers));
+    return details;
+  }
+
+  /** A repeated calculation is served from the cache and returns an independent copy. */
+  @Test
+  void testRepeatedCalculationIsCachedAndCopied() throws Exception {
+    ProductSummary first =
+        resultCache.getOrCalculate(BRANCH, details("ARTG"), modelConfiguration, this::calculate);
+    first.getNodes().clear();
+
+    ProductSummary second =
+        resultCache.getOrCalculate(BRANCH, details("ARTG"), modelConfiguration, this::calculate);
+    ProductSummary third =
+        resultCache.getOrCalculate(BRANCH, details("ARTG"), modelConfiguration, this::calculate);
+
+    assertThat(calculations).hasValue(1);
+    assertThat(second.getNodes()).hasSize(1);
+    assertThat(second).isNotSameAs(third);
+    second.getNodes().clear();
+    assertThat(third.getNodes()).hasSize(1);
+  }
+
+  /** Moving the branch head or changing the details misses the cache. */
+  @Test
+  void testBranchChangeAndDetailChangeMissTheCache() throws Exception {
+    resultCache.getOrCalculate(BRANCH, details("ARTG"), modelConfiguration, this::calculate);
+    resultCache.getOrCalculate(BRANCH, details("PBS"), modelConfiguration, this::calculate);
+    branchTimestamp = 2L;
+    resultCache.getOrCalculate(BRANCH, details("ARTG"), modelConfiguration, this::calculate);
+
+    assertThat(calculations).hasValue(3);
+  }
+
+  /** The key does not depend on the order of set elements in the details. */
+  @Test
+  void testKeyIgnoresCollectionOrder() {
+    assertThat(resultCache.key(BRANCH, details("A", "B", "C"), modelConfiguration))
+        .isEqualTo(resultCache.key(BRANCH, details("C", "B", "A"), modelConfiguration))
+        .isNotEqualTo(resultCache.key(BRANCH, details("A", "B"), modelConfiguration));
+  }
+
+  /**
+   * A reused product level summary gets fresh temporary ids from the current calculation, keeps its
+   * subject linked to its node and has its names registered for naming the package levels.
+   */
+  @Test
+  void testReusedProductIsRenumbered() throws Exception {
+    MedicationProductDetails productDetails = new MedicationProductDetails();
+    Set<String> selected = Set.of();
+    AtomicInteger productCalculations = new AtomicInteger();
+    ResultCacheCalculation productCalculation =
+        atomicCache ->
+            () -> {
+              productCalculations.incrementAndGet();
+              NewConceptDetails newConceptDetails = new NewConceptDetails(atomicCache.getNextId());
+              newConceptDetails.setFullySpecifiedName("Paracetamol (medicinal product)");
+              newConceptDetails.setPreferredTerm("Paracetamol");
+              Node node =
+                  Node.builder()
+                      .label("MP")
+                      .displayName("Medicinal product")
+                      .newConceptDetails(newConceptDetails)
+                      .build();
+              ProductSummary productSummary = new ProductSummary();
+              productSummary.addNode(node);
+              productSummary.addEdge(node.getConceptId(), "123456789", "is a");
+              productSummary.addSubject(node);
+              return productSummary;
+            };
+
+    AtomicCache first = atomicCache();
+    ProductSummary calculated =
+        resultCache.getOrCalculateProduct(
+            BRANCH,
+            productDetails,
+            selected,
+            modelConfiguration,
+            first,
+            productCalculation.with(first));
+
+    AtomicCache second = atomicCache();
+    second.getNextId();
+    ProductSummary reused =
+        resultCache.getOrCalculateProduct(
+            BRANCH,
+            productDetails,
+            selected,
+            modelConfiguration,
+            second,
+            productCalculation.with(second));
+
+    assertThat(productCalculations).hasValue(1);
+    assertThat(calculated.getSingleSubject().getConceptId()).isEqualTo("-2");
+    Node subject = reused.getSingleSubject();
+    assertThat(subject.getConceptId()).isEqualTo("-3");
+    assertThat(reused.getNodes()).containsExactly(subject);
+    assertThat(reused.getNodes().iterator().next()).isSameAs(subject);
+    assertThat(reused.getEdges()).singleElement().extracting(Edge::getSource).isEqualTo("-3");
+    assertThat(second.getPt("-3")).isEqualTo("Paracetamol");
+  }
+
+  private static AtomicCache atomicCache() {
+    return new AtomicCache(new HashMap<>(), new HashMap<>());
+  }
+
+  /** Builds the product calculation for a given atomic cache. */
+  private interface ResultCacheCalculation {
+    ProductCalculationResultCache.Calculation with(AtomicCache atomicCache);
+  }
+
+  /** Outside a web request there is no branch timestamp, so the cache is bypassed. */
+  @Test
+  void testBypassedOutsideRequest() throws Exception {
+    RequestContextHolder.resetRequestAttributes();
+    resultCache.getOrCalculate(BRANCH, details("ARTG"), modelConfiguration, this::calculate);
+    resultCache.getOrCalculate(BRANCH, details("ARTG"), modelConfiguration, this::calculate);
+
+    assertThat(calculations).hasValue(2);
+  }
+}
@@ -346,6 +346,31 @@ class ProductCreationServiceTest {
     return node;
   }
 
+  @Test
+  void refsetMemberLookupForConceptEditUsesOriginalConcept() {
+    // The existing refset members of an edited concept are fetched before the concept batch runs,
+    // while the node still carries its temporary id, so the lookup must use the original id the
+    // node will be given once the batch completes.
+    Node original = existingNode("1234567890", AUTHORING_MODULE);
+    Node editNode =
+        nodeWithNewConceptDetails(OriginalNode.of(original, null, false, AUTHORING_MODULE));
+    assertThat(editNode.isConceptEdit()).isTrue();
+
+    assertThat(ProductCreationService.refsetMemberLookupId(editNode)).isEqualTo("1234567890");
+  }
+
+  @Test
+  void refsetMemberLookupForRetireAndReplaceWithExistingUsesReplacement() {
+    Node original = existingNode("1234567890", AUTHORING_MODULE);
+    Node replacementNode = existingNode("2222222222", AUTHORING_MODULE);
+    replacementNode.setOriginalNode(
+        OriginalNode.of(original, InactivationReason.ERRONEOUS, false, AUTHORING_MODULE));
+    assertThat(replacementNode.isRetireAndReplaceWithExisting()).isTrue();
+
+    assertThat(ProductCreationService.refsetMemberLookupId(replacementNode))
+        .isEqualTo("2222222222");
+  }
+
   @Test
   void retireAndReplaceNodeEmitsInactivationAndHistoricalAssociationMembers() {
     Node original = existingNode("1234567890", AUTHORING_MODULE);
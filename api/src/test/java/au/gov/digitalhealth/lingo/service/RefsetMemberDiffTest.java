@@ -0,0 +1,151 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import au.csiro.snowstorm_client.model.SnowstormReferenceSetMember;
+import au.csiro.snowstorm_client.model.SnowstormReferenceSetMemberViewComponent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for RefsetMemberDiff. */
+class RefsetMemberDiffTest {
+
+  /** Members match on reference set, referenced component and additional fields. */
+  @Test
+  void testExistsMatchesOnRefsetComponentAndAdditionalFields() {
+    RefsetMemberDiff diff =
+        RefsetMemberDiff.of(
+            List.of(existing("1", "100", Map.of("mapTarget", "A")), existing("2", "100", null)));
+
+    assertThat(diff.exists("100", required("1", "100", Map.of("mapTarget", "A")))).isTrue();
+    assertThat(diff.exists("100", required("1", "100", Map.of("mapTarget", "B")))).isFalse();
+    assertThat(diff.exists("200", required("1", "200", Map.of("mapTarget", "A")))).isFalse();
+    assertThat(diff.exists("100", required("3", "100", null))).isFalse();
+    assertThat(diff.exists("100", required(null, "100", null))).isFalse();
+  }
+
+  /** Missing and empty additional fields are the same, so neither side is created or removed. */
+  @Test
+  void testMissingAndEmptyAdditionalFieldsMatch() {
+    SnowstormReferenceSetMember existingMember = existing("2", "100", Map.of());
+    SnowstormReferenceSetMemberViewComponent requiredMember = required("2", "100", null);
+
+    assertThat(RefsetMemberDiff.of(List.of(existingMember)).exists("100", requiredMember)).isTrue();
+    assertThat(
+            RefsetMemberDiff.activeMembersNotRequired(
+                List.of(existingMember), List.of(requiredMember)))
+        .isEmpty();
+  }
+
+  /** Only active existing members that are no longer required are returned for removal. */
+  @Test
+  void testActiveMembersNotRequired() {
+    SnowstormReferenceSetMember kept = existing("1", "100", null);
+    SnowstormReferenceSetMember removed = existing("1", "200", null);
+    SnowstormReferenceSetMember inactive = existing("1", "300", null);
+    inactive.setActive(false);
+
+    assertThat(
+            RefsetMemberDiff.activeMembersNotRequired(
+                List.of(kept, removed, inactive), List.of(required("1", "100", null))))
+        .containsExactly(removed);
+  }
+
+  /**
+   * A diff compares additional fields only for members that already match on reference set and
+   * referenced component, so the number of comparisons grows with the number of members rather than
+   * with every new member times every existing one.
+   */
+  @Test
+  void testLargeDiffIsLinear() {
+    int concepts = 500;
+    AtomicLong comparisons = new AtomicLong();
+    List<SnowstormReferenceSetMember> existingMembers = new ArrayList<>();
+    List<SnowstormReferenceSetMemberViewComponent> requiredMembers = new ArrayList<>();
+    for (int c = 0; c < concepts; c++) {
+      String conceptId = String.valueOf(1_000_000 + c);
+      for (int r = 0; r < 8; r++) {
+        Map<String, String> fields = new CountingFields(comparisons);
+        fields.put("mapTarget", "T" + r);
+        existingMembers.add(existing(String.valueOf(r), conceptId, fields));
+        // every tenth concept has its last member's map target changed
+        Map<String, String> requiredFields = new CountingFields(comparisons);
+        requiredFields.putAll(fields);
+        if (c % 10 == 0 && r == 7) {
+          requiredFields.put("mapTarget", "changed");
+        }
+        requiredMembers.add(required(String.valueOf(r), conceptId, requiredFields));
+      }
+    }
+
+    RefsetMemberDiff diff = RefsetMemberDiff.of(existingMembers);
+    long toCreate =
+        requiredMembers.stream().filter(m -> !diff.exists(m.getReferencedComponentId(), m)).count();
+    List<SnowstormReferenceSetMember> toRemove =
+        RefsetMemberDiff.activeMembersNotRequired(existingMembers, requiredMembers);
+
+    assertThat(toCreate).isEqualTo(concepts / 10);
+    assertThat(toRemove).hasSize(concepts / 10);
+    assertThat(comparisons.get())
+        .isLessThanOrEqualTo(2L * (existingMembers.size() + requiredMembers.size()));
+  }
+
+  private static SnowstormReferenceSetMember existing(
+      String refsetId, String referencedComponentId, Map<String, String> additionalFields) {
+    SnowstormReferenceSetMember m = new SnowstormReferenceSetMember();
+    m.setActive(true);
+    m.setRefsetId(refsetId);
+    m.setReferencedComponentId(referencedComponentId);
+    m.setAdditionalFields(additionalFields);
+    return m;
+  }
+
+  private static SnowstormReferenceSetMemberViewComponent required(
+      String refsetId, String referencedComponentId, Map<String, String> additionalFields) {
+    SnowstormReferenceSetMemberViewComponent m = new SnowstormReferenceSetMemberViewComponent();
+    m.setActive(true);
+    m.setRefsetId(refsetId);
+    m.setReferencedComponentId(referencedComponentId);
+    m.setAdditionalFields(additionalFields);
+    return m;
+  }
+
+  /** Additional fields that count how often they are compared with other additional fields. */
+  private static final class CountingFields extends HashMap<String, String> {
+    private final transient AtomicLong comparisons;
+
+    private CountingFields(AtomicLong comparisons) {
+      this.comparisons = comparisons;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      comparisons.incrementAndGet();
+      return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+      return super.hashCode();
+    }
+  }
+}
@@ -23,6 +23,7 @@ import au.csiro.snowstorm_client.model.SnowstormRelationship;
 import au.gov.digitalhealth.lingo.AmtV4SnowstormExtension;
 import au.gov.digitalhealth.lingo.log.SnowstormLogger;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.lang.reflect.Field;
 import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
@@ -65,6 +66,7 @@ class SnowstormClientDanglingReferenceIntegrationTest {
             url,
             new ObjectMapper(),
             Mockito.mock(SnowstormLogger.class),
+            new BranchWriteQueue(new SimpleMeterRegistry(), false, () -> null),
             Mockito.mock(SnowstormClient.class));
     setField("maxBranchLockChecks", 5);
     setField("delayBetweenBranchLockChecks", 50L);
@@ -19,17 +19,23 @@ import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.any;
 import static com.github.tomakehurst.wiremock.client.WireMock.anyRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.deleteRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import au.csiro.snowstorm_client.model.SnowstormReferenceSetMember;
 import au.csiro.snowstorm_client.model.SnowstormRelationship;
+import au.gov.digitalhealth.lingo.exception.LingoProblem;
 import au.gov.digitalhealth.lingo.log.SnowstormLogger;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Comparator;
 import java.util.List;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -52,6 +58,7 @@ class SnowstormClientWireContractTest {
   // Wire-contract tests focus on the URL/body format the SnowstormClient sends. The branch path
   // here is irrelevant to the wire shape — any string round-trips identically.
   private static final String BRANCH = "MAIN/TEST/TEST-1";
+  private static final int DELETE_DELAY_MILLIS = 100;
 
   private WireMockServer wireMock;
   private SnowstormClient client;
@@ -78,6 +85,7 @@ class SnowstormClientWireContractTest {
             url,
             new ObjectMapper(),
             Mockito.mock(SnowstormLogger.class),
+            new BranchWriteQueue(new SimpleMeterRegistry(), false, () -> null),
             Mockito.mock(SnowstormClient.class));
     // @Value-injected fields default to their Java defaults (0) outside Spring; set them so
     // waitForBranchLock loops at least once and reads the stubbed branch metadata.
@@ -213,6 +221,55 @@ class SnowstormClientWireContractTest {
     assertThat(req.queryParameter("force").firstValue()).isEqualTo("false");
   }
 
+  // Snowstorm locks the branch for every write, so deletes sent at the same time fail on the lock.
+  // Each response is delayed, so a request sent before the previous response arrived would be
+  // logged less than the delay after it.
+  @Test
+  void deleteConcepts_sendsDeletesOneAtATime() {
+    wireMock.stubFor(
+        delete(urlMatching(".*/concepts/c-.*"))
+            .atPriority(1)
+            .willReturn(aResponse().withStatus(200).withFixedDelay(DELETE_DELAY_MILLIS)));
+
+    client.deleteConcepts(BRANCH, List.of("c-1", "c-2", "c-3"));
+
+    List<LoggedRequest> requests =
+        wireMock.findAll(deleteRequestedFor(urlMatching(".*/concepts/c-.*"))).stream()
+            .sorted(Comparator.comparing(LoggedRequest::getLoggedDate))
+            .toList();
+    assertThat(requests)
+        .extracting(request -> request.getUrl().replaceAll(".*/concepts/(c-[0-9]+).*", "$1"))
+        .containsExactly("c-1", "c-2", "c-3");
+    for (int i = 1; i < requests.size(); i++) {
+      assertThat(
+              requests.get(i).getLoggedDate().getTime()
+                  - requests.get(i - 1).getLoggedDate().getTime())
+          .as("delete %s must wait for the response to the previous delete", i)
+          .isGreaterThanOrEqualTo(DELETE_DELAY_MILLIS - 1L);
+    }
+  }
+
+  @Test
+  void deleteConcepts_stopsAtFirstFailure() {
+    wireMock.stubFor(
+        delete(urlMatching(".*/concepts/c-.*"))
+            .atPriority(2)
+            .willReturn(aResponse().withStatus(200)));
+    wireMock.stubFor(
+        delete(urlMatching(".*/concepts/c-2.*"))
+            .atPriority(1)
+            .willReturn(aResponse().withStatus(409)));
+
+    assertThatThrownBy(() -> client.deleteConcepts(BRANCH, List.of("c-1", "c-2", "c-3")))
+        .isInstanceOfSatisfying(
+            LingoProblem.class,
+            problem -> assertThat(problem.getBody().getDetail()).contains("c-2"));
+
+    assertThat(wireMock.findAll(deleteRequestedFor(urlMatching(".*/concepts/c-3.*"))))
+        .as("no delete is sent after one fails")
+        .isEmpty();
+  }
+
   @Test
   void inactivateRelationship_fetchesParentConceptAndPutsActiveFalse() {
     // Mirror Snowstorm's real browser GET shape for a retired concept (IEDC-7423): it returns
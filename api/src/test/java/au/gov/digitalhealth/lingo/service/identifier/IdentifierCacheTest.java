@@ -0,0 +1,159 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service.identifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import au.gov.digitalhealth.lingo.exception.LingoProblem;
+import au.gov.digitalhealth.lingo.service.ServiceStatus.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for the refill behaviour of IdentifierCache. */
+class IdentifierCacheTest {
+
+  /** Callers that find the pool empty together share one reservation rather than making many. */
+  @Test
+  void testConcurrentMissesShareOneReservation() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountingSource source = new CountingSource(release);
+    IdentifierCache cache = cache(source, 10, 100);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<List<Long>>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        results.add(executor.submit(() -> cache.getIdentifiers(1)));
+      }
+      assertThat(source.started.await(5, TimeUnit.SECONDS)).isTrue();
+      Thread.sleep(50);
+      release.countDown();
+
+      Set<Long> identifiers = new HashSet<>();
+      for (Future<List<Long>> result : results) {
+        identifiers.addAll(result.get(5, TimeUnit.SECONDS));
+      }
+      assertThat(identifiers).hasSize(8);
+      assertThat(source.requested).containsExactly(20);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** The pool grows when demand outstrips it and shrinks back when demand drops off. */
+  @Test
+  void testCapacityFollowsDemand() throws Exception {
+    CountingSource source = new CountingSource(new CountDownLatch(0));
+    IdentifierCache cache = cache(source, 10, 40);
+
+    cache.getIdentifiers(25);
+    cache.topUp().get();
+    assertThat(cache.getCapacity()).isEqualTo(20);
+
+    cache.getIdentifiers(30);
+    cache.topUp().get();
+    assertThat(cache.getCapacity()).isEqualTo(40);
+
+    cache.getIdentifiers(50);
+    cache.topUp().get();
+    assertThat(cache.getCapacity()).isEqualTo(40);
+
+    cache.topUp().get();
+    assertThat(cache.getCapacity()).isEqualTo(20);
+    cache.topUp().get();
+    assertThat(cache.getCapacity()).isEqualTo(10);
+    assertThat(cache.size()).isEqualTo(20);
+  }
+
+  /** A failed refill reaches the waiting caller and the identifiers it had already taken return. */
+  @Test
+  void testFailedRefillReturnsTakenIdentifiers() throws Exception {
+    CountingSource source = new CountingSource(new CountDownLatch(0));
+    IdentifierCache cache = cache(source, 10, 10);
+    cache.topUp().get();
+    source.fail = true;
+
+    assertThatThrownBy(() -> cache.getIdentifiers(15))
+        .isInstanceOf(LingoProblem.class)
+        .hasMessageContaining("CIS unavailable");
+    assertThat(cache.size()).isEqualTo(10);
+
+    source.fail = false;
+    assertThat(cache.getIdentifiers(10)).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+  }
+
+  /** Identifiers carried over from the ledger are used before anything is reserved from CIS. */
+  @Test
+  void testPreloadedIdentifiersAreUsedFirst() throws Exception {
+    CountingSource source = new CountingSource(new CountDownLatch(0));
+    IdentifierCache cache = cache(source, 10, 10);
+    cache.preload(List.of(100L, 101L, 102L, 103L, 104L, 105L, 106L, 107L, 108L, 109L));
+    assertThat(cache.discard(List.of(101L, 200L))).containsExactly(101L);
+
+    assertThat(cache.size()).isEqualTo(9);
+    assertThat(cache.getIdentifiers(5)).containsExactly(100L, 102L, 103L, 104L, 105L);
+    assertThat(source.requested).isEmpty();
+  }
+
+  private static IdentifierCache cache(IdentifierSource source, int min, int max) {
+    return new IdentifierCache(1000036, "10", min, max, 0.2f, source, new SimpleMeterRegistry());
+  }
+
+  private static class CountingSource implements IdentifierSource {
+    private final CountDownLatch release;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final List<Integer> requested = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong next = new AtomicLong(1);
+    private volatile boolean fail;
+
+    CountingSource(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public Status getStatus() {
+      return null;
+    }
+
+    @Override
+    public List<Long> reserveIds(int namespace, String partitionId, int quantity)
+        throws InterruptedException {
+      started.countDown();
+      release.await();
+      if (fail) {
+        throw new LingoProblem("CIS unavailable");
+      }
+      requested.add(quantity);
+      List<Long> identifiers = new ArrayList<>(quantity);
+      for (int i = 0; i < quantity; i++) {
+        identifiers.add(next.getAndIncrement());
+      }
+      return identifiers;
+    }
+  }
+}
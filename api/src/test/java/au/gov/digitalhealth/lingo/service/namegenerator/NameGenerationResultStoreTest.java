@@ -0,0 +1,142 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service.namegenerator;
+
+import static au.gov.digitalhealth.lingo.service.namegenerator.NameGenerationClient.GENERATED_NAME_UNAVAILABLE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import au.gov.digitalhealth.lingo.product.FsnAndPt;
+import au.gov.digitalhealth.lingo.product.NameGeneratorSpec;
+import au.gov.digitalhealth.tickets.models.GeneratedName;
+import au.gov.digitalhealth.tickets.repository.GeneratedNameRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+/** Unit tests for NameGenerationResultStore. */
+class NameGenerationResultStoreTest {
+
+  private final GeneratedNameRepository repository = mock(GeneratedNameRepository.class);
+  private final PlatformTransactionManager transactionManager =
+      mock(PlatformTransactionManager.class);
+  private final NameGeneratorSpec spec =
+      new NameGeneratorSpec("product", "owl", "pt owl", List.of("1", "2"));
+
+  /** A stored result is returned and the repository is asked to record the use. */
+  @Test
+  void testStoredResultIsReturned() throws Exception {
+    NameGenerationResultStore store = store("1.0");
+    String hash = store.hash(spec);
+    when(repository.findById(hash))
+        .thenReturn(
+            Optional.of(
+                GeneratedName.builder()
+                    .specHash(hash)
+                    .generatorVersion("1.0")
+                    .fsn("fsn")
+                    .pt("pt")
+                    .created(Instant.now())
+                    .lastUsed(Instant.now())
+                    .build()));
+
+    assertThat(store.find(spec)).contains(FsnAndPt.builder().FSN("fsn").PT("pt").build());
+    verify(repository).touch(eq(hash), any(), any());
+  }
+
+  /** The same spec hashes differently for another generator version, so old results never match. */
+  @Test
+  void testHashDependsOnGeneratorVersion() throws Exception {
+    assertThat(store("1.0").hash(spec)).isEqualTo(store("1.0").hash(spec));
+    assertThat(store("1.0").hash(spec)).isNotEqualTo(store("1.1").hash(spec));
+    assertThat(store("1.0").hash(spec))
+        .isNotEqualTo(
+            store("1.0")
+                .hash(new NameGeneratorSpec("product", "owl", "pt owl", List.of("2", "1"))));
+  }
+
+  /**
+   * A failed read is reported as a miss, and only the store's own transaction is rolled back, so
+   * the caller's transaction can still commit.
+   */
+  @Test
+  void testFailedReadRollsBackOwnTransaction() throws Exception {
+    TransactionStatus status = mock(TransactionStatus.class);
+    when(transactionManager.getTransaction(
+            argThat(
+                definition ->
+                    definition.getPropagationBehavior()
+                        == TransactionDefinition.PROPAGATION_REQUIRES_NEW)))
+        .thenReturn(status);
+    NameGenerationResultStore store = store("1.0");
+    when(repository.findById(store.hash(spec)))
+        .thenThrow(new DataAccessResourceFailureException("database unavailable"));
+
+    assertThat(store.find(spec)).isEmpty();
+    verify(transactionManager).rollback(status);
+    verify(transactionManager, never()).commit(any());
+  }
+
+  /** Placeholders returned when the name generator fails are not stored. */
+  @Test
+  void testUnavailableResultIsNotStored() {
+    store("1.0")
+        .store(
+            spec,
+            FsnAndPt.builder()
+                .FSN(GENERATED_NAME_UNAVAILABLE)
+                .PT(GENERATED_NAME_UNAVAILABLE)
+                .build());
+
+    verify(repository, never()).upsert(anyString(), anyString(), anyString(), anyString(), any());
+  }
+
+  /** Without a configured generator version the store is not used at all. */
+  @Test
+  void testDisabledWithoutGeneratorVersion() {
+    NameGenerationResultStore store = store("");
+
+    assertThat(store.find(spec)).isEmpty();
+    store.store(spec, FsnAndPt.builder().FSN("fsn").PT("pt").build());
+    store.prune();
+    verifyNoInteractions(repository);
+  }
+
+  private NameGenerationResultStore store(String version) {
+    return new NameGenerationResultStore(
+        repository,
+        new ObjectMapper(),
+        version,
+        100,
+        new SimpleMeterRegistry(),
+        transactionManager);
+  }
+}
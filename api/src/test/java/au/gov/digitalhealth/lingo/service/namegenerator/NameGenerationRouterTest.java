@@ -0,0 +1,188 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service.namegenerator;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import au.csiro.snowstorm_client.model.SnowstormConceptMini;
+import au.csiro.snowstorm_client.model.SnowstormTermLangPojo;
+import au.gov.digitalhealth.lingo.product.FsnAndPt;
+import au.gov.digitalhealth.lingo.product.NameGeneratorSpec;
+import au.gov.digitalhealth.lingo.service.RequestScopedBranchTimestampService;
+import au.gov.digitalhealth.lingo.service.SnowstormClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/** Unit tests for routing names to ECL-based generators in NameGenerationRouter. */
+class NameGenerationRouterTest {
+
+  private static final String BRANCH = "MAIN/SNOMEDCT-AU/AUAMT";
+  private static final String ECL = "<< 123456789";
+
+  private final NameGenerationClient defaultClient = mock(NameGenerationClient.class);
+  private final SnowstormClient snowstormClient = mock(SnowstormClient.class);
+  private final RequestScopedBranchTimestampService branchTimestampService =
+      mock(RequestScopedBranchTimestampService.class);
+  private final ExecutorService indexExecutor = Executors.newFixedThreadPool(2);
+  private WireMockServer wireMock;
+  private NameGenerationRouter router;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    wireMock =
+        new WireMockServer(
+            WireMockConfiguration.wireMockConfig().dynamicPort().bindAddress("127.0.0.1"));
+    wireMock.start();
+    wireMock.stubFor(
+        post(urlEqualTo("/"))
+            .willReturn(
+                aResponse()
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"FSN\": \"ecl fsn\", \"PT\": \"ecl pt\"}")));
+
+    MockEnvironment environment =
+        new MockEnvironment()
+            .withProperty("snomio.name-generators.ecl.test.ecl", ECL)
+            .withProperty(
+                "snomio.name-generators.ecl.test.url", "http://127.0.0.1:" + wireMock.port() + "/");
+    ObjectProvider<WebClient.Builder> webClientBuilders = mock(ObjectProvider.class);
+    when(webClientBuilders.getObject()).thenAnswer(invocation -> WebClient.builder());
+    when(defaultClient.generateNames(any()))
+        .thenReturn(FsnAndPt.builder().FSN("default fsn").PT("default pt").build());
+    when(branchTimestampService.getBranchTimestamp(BRANCH)).thenReturn(1L);
+
+    router =
+        new NameGenerationRouter(
+            defaultClient,
+            snowstormClient,
+            environment,
+            webClientBuilders,
+            new ObjectMapper(),
+            5,
+            branchTimestampService,
+            indexExecutor);
+    router.init();
+  }
+
+  @AfterEach
+  void tearDown() {
+    wireMock.stop();
+    indexExecutor.shutdownNow();
+  }
+
+  /** A product whose axiom uses a concept matched by the ECL is named by the ECL generator. */
+  @Test
+  void testRoutesToEclGeneratorWhenAxiomPtMatches() {
+    eclReturns(BRANCH, "Paracetamol");
+
+    FsnAndPt names = router.resolve(BRANCH, () -> List.of("Tablet", "Paracetamol")).apply(spec());
+
+    assertThat(names.getPT()).isEqualTo("ecl pt");
+    verify(defaultClient, never()).generateNames(any());
+  }
+
+  /** A product whose axiom uses no concept matched by the ECL is named by the default generator. */
+  @Test
+  void testFallsBackToDefaultGeneratorWithoutMatch() {
+    eclReturns(BRANCH, "Paracetamol");
+
+    FsnAndPt names = router.resolve(BRANCH, () -> List.of("Ibuprofen")).apply(spec());
+
+    assertThat(names.getPT()).isEqualTo("default pt");
+  }
+
+  /** The index is reused while the branch is unchanged, and rebuilt once it moves on. */
+  @Test
+  void testRebuildsIndexWhenBranchMovesOn() {
+    eclReturns(BRANCH, "Paracetamol");
+    router.resolve(BRANCH, () -> List.of("Ibuprofen"));
+    router.resolve(BRANCH, () -> List.of("Ibuprofen"));
+    verify(snowstormClient, times(1)).getConceptsFromEcl(BRANCH, ECL, 0, 1000, false);
+
+    when(branchTimestampService.getBranchTimestamp(BRANCH)).thenReturn(2L);
+    eclReturns(BRANCH, "Ibuprofen");
+
+    FsnAndPt names = router.resolve(BRANCH, () -> List.of("Ibuprofen")).apply(spec());
+
+    assertThat(names.getPT()).isEqualTo("ecl pt");
+    verify(snowstormClient, times(2)).getConceptsFromEcl(BRANCH, ECL, 0, 1000, false);
+  }
+
+  /** An index built while the ECL lookup failed is not kept, so the next request retries it. */
+  @Test
+  void testRetriesIndexAfterFailedLookup() {
+    when(snowstormClient.getConceptsFromEcl(BRANCH, ECL, 0, 1000, false))
+        .thenThrow(new IllegalStateException("Snowstorm unavailable"))
+        .thenReturn(List.of(concept("Paracetamol")));
+
+    FsnAndPt first = router.resolve(BRANCH, () -> List.of("Paracetamol")).apply(spec());
+    FsnAndPt second = router.resolve(BRANCH, () -> List.of("Paracetamol")).apply(spec());
+
+    assertThat(first.getPT()).isEqualTo("default pt");
+    assertThat(second.getPT()).isEqualTo("ecl pt");
+  }
+
+  /** Each branch is routed by the ECL results on that branch. */
+  @Test
+  void testIndexesBranchesSeparately() {
+    String otherBranch = BRANCH + "/TASK-1";
+    when(branchTimestampService.getBranchTimestamp(otherBranch)).thenReturn(1L);
+    eclReturns(BRANCH, "Paracetamol");
+    eclReturns(otherBranch, "Ibuprofen");
+
+    FsnAndPt onBranch = router.resolve(BRANCH, () -> List.of("Ibuprofen")).apply(spec());
+    FsnAndPt onOtherBranch = router.resolve(otherBranch, () -> List.of("Ibuprofen")).apply(spec());
+
+    assertThat(onBranch.getPT()).isEqualTo("default pt");
+    assertThat(onOtherBranch.getPT()).isEqualTo("ecl pt");
+  }
+
+  private void eclReturns(String branch, String... pts) {
+    when(snowstormClient.getConceptsFromEcl(branch, ECL, 0, 1000, false))
+        .thenReturn(Set.of(pts).stream().map(NameGenerationRouterTest::concept).toList());
+  }
+
+  private static SnowstormConceptMini concept(String pt) {
+    SnowstormConceptMini concept = new SnowstormConceptMini();
+    concept.setPt(new SnowstormTermLangPojo().term(pt).lang("en"));
+    return concept;
+  }
+
+  private static NameGeneratorSpec spec() {
+    return new NameGeneratorSpec("medicinal product", "owl", "owl", List.of());
+  }
+}
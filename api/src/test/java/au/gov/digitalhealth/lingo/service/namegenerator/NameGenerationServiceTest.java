@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service.namegenerator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import au.gov.digitalhealth.lingo.product.FsnAndPt;
+import au.gov.digitalhealth.lingo.product.NameGeneratorSpec;
+import au.gov.digitalhealth.lingo.util.OwlAxiomService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for batch name generation in NameGenerationService. */
+class NameGenerationServiceTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+  private final ExecutorService bulkExecutor = Executors.newFixedThreadPool(1);
+  private final NameGenerationService service =
+      new NameGenerationService(
+          mock(NameGenerationRouter.class),
+          mock(OwlAxiomService.class),
+          false,
+          executor,
+          bulkExecutor);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+    bulkExecutor.shutdownNow();
+  }
+
+  /** Repeated specs are sent once and every spec gets its name back in request order. */
+  @Test
+  void testBatchDeduplicatesSpecs() {
+    List<String> calls = new ArrayList<>();
+    Function<NameGeneratorSpec, FsnAndPt> generator =
+        spec -> {
+          synchronized (calls) {
+            calls.add(spec.getOwl());
+          }
+          return FsnAndPt.builder().FSN(spec.getOwl() + " (fsn)").PT(spec.getOwl()).build();
+        };
+
+    List<FsnAndPt> names =
+        service.createFsnAndPreferredTerms(
+            generator, List.of(spec("a"), spec("b"), spec("a"), spec("c"), spec("b")));
+
+    assertThat(names).extracting(FsnAndPt::getPT).containsExactly("a", "b", "a", "c", "b");
+    assertThat(calls).containsExactlyInAnyOrder("a", "b", "c");
+  }
+
+  /** No more calls than the configured parallelism reach the generator at once. */
+  @Test
+  void testBatchBoundsParallelism() {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    Function<NameGeneratorSpec, FsnAndPt> generator =
+        spec -> {
+          maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+          try {
+            Thread.sleep(20);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } finally {
+            inFlight.decrementAndGet();
+          }
+          return FsnAndPt.builder().FSN(spec.getOwl()).PT(spec.getOwl()).build();
+        };
+
+    List<NameGeneratorSpec> specs = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      specs.add(spec("owl " + i));
+    }
+    List<FsnAndPt> names = service.createFsnAndPreferredTerms(generator, specs);
+
+    assertThat(names).hasSize(8);
+    assertThat(maxInFlight.get()).isEqualTo(2);
+  }
+
+  /** A generator failure reaches the caller as thrown, not wrapped. */
+  @Test
+  void testBatchRethrowsGeneratorException() {
+    Function<NameGeneratorSpec, FsnAndPt> generator =
+        spec -> {
+          throw new IllegalArgumentException("bad spec " + spec.getOwl());
+        };
+
+    assertThatThrownBy(() -> service.createFsnAndPreferredTerms(generator, List.of(spec("x"))))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("bad spec x");
+  }
+
+  private static NameGeneratorSpec spec(String owl) {
+    return new NameGeneratorSpec("medicinal product", owl, owl, List.of());
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service.validators;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import au.gov.digitalhealth.lingo.exception.ProductAtomicDataValidationProblem;
+import au.gov.digitalhealth.lingo.service.BulkCalculationScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+/** Unit tests for the prefetch and parallel rule helpers in DetailsValidator. */
+class DetailsValidatorTest {
+
+  private final BulkCalculationScheduler scheduler =
+      new BulkCalculationScheduler(
+          4, 4, Executors.newFixedThreadPool(4), new SimpleMeterRegistry());
+
+  /** Results from parallel rules are merged in item order, not completion order. */
+  @Test
+  void testValidateEachKeepsItemOrder() {
+    List<Integer> items = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      items.add(i);
+    }
+    ValidationResult result = new ValidationResult();
+    result.addProblem("package");
+
+    DetailsValidator.validateEach(
+        scheduler,
+        items,
+        (item, itemResult) -> {
+          try {
+            Thread.sleep((20 - item) % 5);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          itemResult.addProblem("problem " + item);
+          itemResult.addWarning("warning " + item);
+        },
+        result);
+
+    assertThat(result.getProblems()).hasSize(21);
+    assertThat(result.getProblems().get(0).getMessage()).isEqualTo("package");
+    for (int i = 0; i < 20; i++) {
+      assertThat(result.getProblems().get(i + 1).getMessage()).isEqualTo("problem " + i);
+      assertThat(result.getWarnings().get(i).getMessage()).isEqualTo("warning " + i);
+    }
+  }
+
+  /** An exception thrown by a rule surfaces unwrapped, as it did when rules ran in sequence. */
+  @Test
+  void testValidateEachRethrowsRuleException() {
+    ValidationResult result = new ValidationResult();
+
+    assertThatThrownBy(
+            () ->
+                DetailsValidator.validateEach(
+                    scheduler,
+                    List.of(1, 2),
+                    (item, itemResult) -> {
+                      if (item == 2) {
+                        throw new ProductAtomicDataValidationProblem("bad unit");
+                      }
+                    },
+                    result))
+        .isInstanceOf(ProductAtomicDataValidationProblem.class)
+        .hasMessageContaining("bad unit");
+  }
+
+  /** Prefetch subscribes to every lookup and ignores failed and missing ones. */
+  @Test
+  void testPrefetchIgnoresFailures() {
+    AtomicInteger subscribed = new AtomicInteger();
+    List<Mono<?>> lookups = new ArrayList<>();
+    lookups.add(Mono.fromSupplier(subscribed::incrementAndGet));
+    lookups.add(
+        Mono.defer(
+            () -> {
+              subscribed.incrementAndGet();
+              return Mono.error(new IllegalStateException("not found"));
+            }));
+    lookups.add(null);
+
+    DetailsValidator.prefetch(lookups);
+
+    assertThat(subscribed).hasValue(2);
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.helper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import au.gov.digitalhealth.tickets.TicketImportDto;
+import au.gov.digitalhealth.tickets.helper.TicketImportReader.Batch;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongPredicate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for TicketImportReader. */
+class TicketImportReaderTest {
+
+  @TempDir Path tempDir;
+
+  /** The file is read in batches of at most the requested size, in file order. */
+  @Test
+  void testReadsInBatches() throws IOException {
+    List<Batch> batches = readAll(importFile(5), 0, null, index -> false, 2);
+
+    assertThat(batches).extracting(Batch::firstIndex).containsExactly(0L, 2L, 4L);
+    assertThat(batches).extracting(Batch::endIndex).containsExactly(2L, 4L, 5L);
+    assertThat(titles(batches)).containsExactly("0", "1", "2", "3", "4");
+  }
+
+  /** Only the items from startAt, up to size of them, are read. */
+  @Test
+  void testReadsFromStartAtForSize() throws IOException {
+    List<Batch> batches = readAll(importFile(10), 3, 4L, index -> false, 3);
+
+    assertThat(batches).extracting(Batch::firstIndex).containsExactly(3L, 6L);
+    assertThat(batches).extracting(Batch::endIndex).containsExactly(6L, 7L);
+    assertThat(titles(batches)).containsExactly("3", "4", "5", "6");
+  }
+
+  /** Items already imported are skipped, and batches are filled from the items after them. */
+  @Test
+  void testSkipsItemsAlreadyImported() throws IOException {
+    List<Batch> batches = readAll(importFile(6), 0, null, index -> index >= 1 && index < 4, 2);
+
+    assertThat(batches).extracting(Batch::firstIndex).containsExactly(0L, 5L);
+    assertThat(batches).extracting(Batch::endIndex).containsExactly(5L, 6L);
+    assertThat(titles(batches)).containsExactly("0", "4", "5");
+  }
+
+  /** A file that is not an array of tickets is rejected. */
+  @Test
+  void testRejectsFileThatIsNotAnArray() throws IOException {
+    File file = tempDir.resolve("not-an-array.json").toFile();
+    Files.writeString(file.toPath(), "{\"title\":\"0\"}");
+
+    assertThatThrownBy(
+            () -> new TicketImportReader(file, new ObjectMapper(), 0, null, index -> false))
+        .isInstanceOf(IOException.class);
+  }
+
+  private File importFile(int items) throws IOException {
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < items; i++) {
+      json.append(i == 0 ? "" : ",")
+          .append("{\"title\":\"")
+          .append(i)
+          .append("\",\"ticket-comment\":[{\"text\":\"comment\"}]}");
+    }
+    File file = tempDir.resolve("import.json").toFile();
+    Files.writeString(file.toPath(), json.append("]"));
+    return file;
+  }
+
+  private static List<Batch> readAll(
+      File file, long startAt, Long size, LongPredicate alreadyImported, int batchSize)
+      throws IOException {
+    List<Batch> batches = new ArrayList<>();
+    try (TicketImportReader reader =
+        new TicketImportReader(file, new ObjectMapper(), startAt, size, alreadyImported)) {
+      Batch batch;
+      while ((batch = reader.nextBatch(batchSize)) != null) {
+        batches.add(batch);
+      }
+    }
+    return batches;
+  }
+
+  private static List<String> titles(List<Batch> batches) {
+    return batches.stream()
+        .flatMap(batch -> batch.tickets().stream())
+        .map(TicketImportDto::getTitle)
+        .toList();
+  }
+}
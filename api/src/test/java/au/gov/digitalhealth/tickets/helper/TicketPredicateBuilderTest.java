@@ -15,7 +15,14 @@
  */
 package au.gov.digitalhealth.tickets.helper;
 
+import au.gov.digitalhealth.tickets.models.QTicket;
+import au.gov.digitalhealth.tickets.models.QTicketBacklogView;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAExpressions;
 import java.util.List;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -79,6 +86,7 @@ class TicketPredicateBuilderTest {
     Assertions.assertEquals(
         "containsIc(ticket.priorityBucket.name,priorityTest)", priority.getValue().toString());
 
+    QTicketBacklogView view = QTicketBacklogView.ticketBacklogView;
     SearchCondition labelSearchCondition =
         SearchCondition.builder()
             .condition("or")
@@ -90,7 +98,17 @@ class TicketPredicateBuilderTest {
 
     BooleanBuilder labels =
         TicketPredicateBuilder.buildPredicateFromSearchConditions(List.of(labelSearchCondition));
-    Assertions.assertEquals("any(ticket.labels).name = labelsTest", labels.getValue().toString());
+    Assertions.assertEquals(
+        QTicket.ticket.id.in(
+            JPAExpressions.select(view.ticketId)
+                .from(view)
+                .where(
+                    Expressions.booleanTemplate(
+                        "array_contains({0}, {1})", view.labelNames, "labelsTest"))),
+        labels.getValue());
+    Assertions.assertEquals(
+        "array_contains(ticketBacklogView.labelNames, labelsTest)",
+        backlogViewWhere(labels).toString());
 
     SearchCondition externalRequestorSearchCondition =
         SearchCondition.builder()
@@ -104,8 +122,17 @@ class TicketPredicateBuilderTest {
         TicketPredicateBuilder.buildPredicateFromSearchConditions(
             List.of(externalRequestorSearchCondition));
     Assertions.assertEquals(
-        "any(ticket.externalRequestors).name = externalRequestorTest",
-        externalRequestor.getValue().toString());
+        QTicket.ticket.id.in(
+            JPAExpressions.select(view.ticketId)
+                .from(view)
+                .where(
+                    Expressions.booleanTemplate(
+                        "array_contains({0}, {1})",
+                        view.externalRequestorNames, "externalRequestorTest"))),
+        externalRequestor.getValue());
+    Assertions.assertEquals(
+        "array_contains(ticketBacklogView.externalRequestorNames, externalRequestorTest)",
+        backlogViewWhere(externalRequestor).toString());
 
     SearchCondition scheduleSearchCondition =
         SearchCondition.builder()
@@ -406,4 +433,36 @@ class TicketPredicateBuilderTest {
         "ticket.taskAssociation.taskId = taskTest || ticket.taskAssociation is null",
         task.getValue().toString());
   }
+
+  @Test
+  void relevanceUsesSearchedText() {
+    SearchCondition titleSearchCondition =
+        SearchCondition.builder()
+            .condition("or")
+            .value("Paracetamol")
+            .operation("=")
+            .key("title")
+            .build();
+    SearchCondition stateSearchCondition =
+        SearchCondition.builder()
+            .condition("and")
+            .value("Open")
+            .operation("=")
+            .key("state.label")
+            .build();
+
+    Assertions.assertTrue(
+        TicketPredicateBuilder.relevance(List.of(stateSearchCondition, titleSearchCondition))
+            .toString()
+            .contains("paracetamol"));
+    Assertions.assertNull(TicketPredicateBuilder.relevance(List.of(stateSearchCondition)));
+
+    titleSearchCondition.setOperation("!=");
+    Assertions.assertNull(TicketPredicateBuilder.relevance(List.of(titleSearchCondition)));
+  }
+
+  private static Predicate backlogViewWhere(BooleanBuilder builder) {
+    Operation<?> in = (Operation<?>) builder.getValue();
+    return ((SubQueryExpression<?>) in.getArg(1)).getMetadata().getWhere();
+  }
 }
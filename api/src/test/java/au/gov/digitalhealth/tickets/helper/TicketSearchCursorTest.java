@@ -0,0 +1,63 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.helper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import au.gov.digitalhealth.lingo.exception.InvalidSearchProblem;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for TicketSearchCursor. */
+class TicketSearchCursorTest {
+
+  /** Each kind of sort value comes back as the same type, so the seek compares like with like. */
+  @Test
+  void testRoundTripKeepsSortValueType() {
+    for (Object sortValue :
+        new Object[] {
+          null,
+          "Title | with separator",
+          Instant.parse("2024-03-01T10:15:30.123456Z"),
+          7,
+          7L,
+          0.3f,
+          0.3d,
+          true
+        }) {
+      TicketSearchCursor cursor = new TicketSearchCursor(3, 1200, 42L, sortValue);
+
+      assertThat(TicketSearchCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+  }
+
+  /** A blank cursor starts at the first page. */
+  @Test
+  void testBlankCursorIsFirstPage() {
+    assertThat(TicketSearchCursor.decode("")).isEqualTo(TicketSearchCursor.FIRST);
+    assertThat(TicketSearchCursor.decode("").isFirst()).isTrue();
+  }
+
+  /** A cursor that was not produced by encode is rejected as an invalid search. */
+  @Test
+  void testInvalidCursorIsRejected() {
+    assertThatThrownBy(() -> TicketSearchCursor.decode("not a cursor"))
+        .isInstanceOf(InvalidSearchProblem.class);
+    assertThatThrownBy(() -> TicketSearchCursor.decode("MXwy"))
+        .isInstanceOf(InvalidSearchProblem.class);
+  }
+}
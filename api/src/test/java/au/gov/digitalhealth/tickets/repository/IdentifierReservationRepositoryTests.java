@@ -0,0 +1,263 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.repository;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import au.gov.digitalhealth.lingo.exception.LingoProblem;
+import au.gov.digitalhealth.lingo.service.identifier.IdentifierReservationLedger;
+import au.gov.digitalhealth.lingo.service.identifier.IdentifierSource;
+import au.gov.digitalhealth.tickets.TicketTestBase;
+import au.gov.digitalhealth.tickets.models.IdentifierReservation;
+import au.gov.digitalhealth.tickets.models.IdentifierReservation.Status;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Tests for the identifier reservation ledger queries against Postgres. */
+class IdentifierReservationRepositoryTests extends TicketTestBase {
+
+  private static final String PARTITION = "10";
+
+  @Autowired IdentifierReservationRepository repository;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  @PersistenceContext EntityManager entityManager;
+
+  private TransactionTemplate transaction;
+  private int namespace;
+  private long nextId;
+  private Instant now;
+
+  @BeforeEach
+  void setUp() {
+    transaction = new TransactionTemplate(transactionManager);
+    // each test works in its own namespace so that it only sees its own reservations
+    namespace = ThreadLocalRandom.current().nextInt(1_000_000, 9_999_999);
+    nextId = namespace * 1_000_000_000L;
+    now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+  }
+
+  /** A claim skips reservations another claim has locked, rather than waiting for them. */
+  @Test
+  void claimSkipsRowsLockedByAnotherClaim() throws Exception {
+    List<Long> ids = List.of(reserve(hoursAgo(3), null, null), reserve(hoursAgo(2), null, null));
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    CompletableFuture<List<Long>> first =
+        CompletableFuture.supplyAsync(
+            () ->
+                transaction.execute(
+                    status -> {
+                      List<Long> claimed =
+                          repository.lockUnleased(namespace, PARTITION, hoursAgo(24), now, 1);
+                      locked.countDown();
+                      await(release);
+                      return claimed;
+                    }));
+    Assertions.assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+    List<Long> second =
+        transaction.execute(
+            status -> repository.lockUnleased(namespace, PARTITION, hoursAgo(24), now, 2));
+    release.countDown();
+
+    Assertions.assertEquals(List.of(ids.get(0)), first.get(10, TimeUnit.SECONDS));
+    Assertions.assertEquals(List.of(ids.get(1)), second);
+  }
+
+  /** A claim only returns reservations nobody leases that are younger than the stale age. */
+  @Test
+  void claimSkipsLeasedAndStaleRows() {
+    Long lapsed = reserve(hoursAgo(2), "stopped", now.minusSeconds(60));
+    reserve(hoursAgo(2), "running", now.plusSeconds(60));
+    reserve(hoursAgo(48), null, null);
+    Long free = reserve(hoursAgo(1), null, null);
+
+    List<Long> claimed =
+        transaction.execute(
+            status -> repository.lockUnleased(namespace, PARTITION, hoursAgo(24), now, 10));
+
+    Assertions.assertEquals(List.of(lapsed, free), claimed);
+  }
+
+  /** Renewing leases only extends the holder's own reservations that are still reserved. */
+  @Test
+  void renewLeasesExtendsOnlyTheHoldersReservedRows() {
+    String holder = "holder-" + namespace;
+    Long held = reserve(hoursAgo(1), holder, now.plusSeconds(10));
+    Long assigned = reserve(hoursAgo(1), holder, now.plusSeconds(10));
+    Long other = reserve(hoursAgo(1), "other-" + namespace, now.plusSeconds(10));
+    transaction.executeWithoutResult(
+        status -> repository.updateStatus(List.of(assigned), Status.ASSIGNED, now));
+
+    Instant renewed = now.plus(Duration.ofMinutes(5));
+    transaction.executeWithoutResult(
+        status -> repository.renewLeases(holder, Status.RESERVED, renewed));
+
+    Assertions.assertEquals(renewed, leasedUntil(held));
+    Assertions.assertNull(leasedUntil(assigned));
+    Assertions.assertEquals(now.plusSeconds(10), leasedUntil(other));
+  }
+
+  /**
+   * Stale reservations are the old reserved ones held by the caller or by nobody, never those
+   * another running instance still leases.
+   */
+  @Test
+  void findStaleIgnoresRowsLeasedByOtherInstances() {
+    String holder = "holder-" + namespace;
+    Long own = reserve(hoursAgo(48), holder, now.plusSeconds(60));
+    Long unleased = reserve(hoursAgo(48), null, null);
+    Long lapsed = reserve(hoursAgo(48), "stopped", now.minusSeconds(60));
+    reserve(hoursAgo(48), "running", now.plusSeconds(60));
+    reserve(hoursAgo(1), null, null);
+
+    List<Long> stale =
+        repository.findStale(Status.RESERVED, hoursAgo(24), holder, now).stream()
+            .filter(reservation -> reservation.getNamespaceId() == namespace)
+            .map(IdentifierReservation::getId)
+            .sorted()
+            .toList();
+
+    Assertions.assertEquals(List.of(own, unleased, lapsed), stale);
+  }
+
+  /**
+   * Stale reservations are marked released and committed before the identifier source is called,
+   * and go back to reserved when the source fails to release them.
+   */
+  @Test
+  void releaseStaleMarksReleasedBeforeCallingSource() throws Exception {
+    Long stale = reserve(Instant.now().minus(Duration.ofHours(48)), null, null);
+    IdentifierReservationLedger ledger =
+        new IdentifierReservationLedger(repository, transactionManager, 180, 24);
+    IdentifierSource source = mock(IdentifierSource.class);
+    doAnswer(
+            invocation -> {
+              // read in a separate transaction, so only committed changes are visible
+              Assertions.assertEquals(Status.RELEASED, status(stale));
+              throw new LingoProblem("CIS unavailable", null);
+            })
+        .when(source)
+        .releaseIds(eq(namespace), anyList());
+
+    Assertions.assertFalse(releaseStale(ledger, source, held -> held).contains(stale));
+    verify(source).releaseIds(eq(namespace), anyList());
+    Assertions.assertEquals(Status.RESERVED, status(stale));
+
+    IdentifierSource working = mock(IdentifierSource.class);
+    Assertions.assertTrue(releaseStale(ledger, working, held -> held).contains(stale));
+    verify(working).releaseIds(namespace, List.of(stale));
+    Assertions.assertEquals(Status.RELEASED, status(stale));
+  }
+
+  /**
+   * Stale reservations this instance holds are only released once they have been taken out of its
+   * caches, so one already handed out is never released.
+   */
+  @Test
+  void releaseStaleOnlyReleasesHeldIdentifiersDiscardedFromTheCaches() throws Exception {
+    IdentifierReservationLedger ledger =
+        new IdentifierReservationLedger(repository, transactionManager, 180, 24);
+    Long discarded = nextId++;
+    Long handedOut = nextId++;
+    transaction.executeWithoutResult(
+        status -> {
+          ledger.recordReserved(namespace, PARTITION, List.of(discarded, handedOut));
+          entityManager
+              .createNativeQuery(
+                  "UPDATE identifier_reservation SET reserved = ? WHERE id IN (?, ?)")
+              .setParameter(1, hoursAgo(48))
+              .setParameter(2, discarded)
+              .setParameter(3, handedOut)
+              .executeUpdate();
+        });
+    IdentifierSource source = mock(IdentifierSource.class);
+
+    List<Long> released =
+        releaseStale(
+            ledger,
+            source,
+            held -> held.stream().filter(identifier -> identifier.equals(discarded)).toList());
+
+    Assertions.assertTrue(released.contains(discarded));
+    Assertions.assertFalse(released.contains(handedOut));
+    verify(source).releaseIds(namespace, List.of(discarded));
+    Assertions.assertEquals(Status.RELEASED, status(discarded));
+    Assertions.assertEquals(Status.RESERVED, status(handedOut));
+  }
+
+  private Long reserve(Instant reserved, String holder, Instant leasedUntil) {
+    Long id = nextId++;
+    transaction.executeWithoutResult(
+        status ->
+            repository.insertReserved(id, namespace, PARTITION, reserved, holder, leasedUntil));
+    return id;
+  }
+
+  private Instant hoursAgo(int hours) {
+    return now.minus(Duration.ofHours(hours));
+  }
+
+  private Instant leasedUntil(Long id) {
+    return repository.findById(id).orElseThrow().getLeasedUntil();
+  }
+
+  private Status status(Long id) {
+    return repository.findById(id).orElseThrow().getStatus();
+  }
+
+  private static List<Long> releaseStale(
+      IdentifierReservationLedger ledger,
+      IdentifierSource source,
+      UnaryOperator<List<Long>> discardHeld) {
+    try {
+      return ledger.releaseStale(source, discardHeld);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.repository;
+
+import au.gov.digitalhealth.tickets.TicketTestBase;
+import au.gov.digitalhealth.tickets.helper.TicketPredicateBuilder;
+import au.gov.digitalhealth.tickets.models.ExternalRequestor;
+import au.gov.digitalhealth.tickets.models.Label;
+import au.gov.digitalhealth.tickets.models.Ticket;
+import com.querydsl.core.types.Predicate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/** Tests that label and external requestor searches through ticket_backlog_view stay current. */
+class TicketBacklogViewTests extends TicketTestBase {
+
+  @Autowired TicketRepository ticketRepository;
+  @Autowired LabelRepository labelRepository;
+  @Autowired ExternalRequestorRepository externalRequestorRepository;
+
+  private Label first;
+  private Label second;
+  private ExternalRequestor firstRequestor;
+  private ExternalRequestor secondRequestor;
+
+  @BeforeEach
+  void createReferenceData() {
+    String suffix = UUID.randomUUID().toString();
+    first = labelRepository.save(Label.builder().name("First " + suffix).build());
+    second = labelRepository.save(Label.builder().name("Second " + suffix).build());
+    firstRequestor =
+        externalRequestorRepository.save(
+            ExternalRequestor.builder().name("First requestor " + suffix).build());
+    secondRequestor =
+        externalRequestorRepository.save(
+            ExternalRequestor.builder().name("Second requestor " + suffix).build());
+  }
+
+  /** A new ticket is found by its labels and external requestors once it is saved. */
+  @Test
+  void findsNewTicketByLabelAndRequestor() {
+    Ticket ticket = saveTicket(Set.of(first), Set.of(firstRequestor));
+    Ticket other = saveTicket(Set.of(first, second), Set.of(secondRequestor));
+
+    Assertions.assertEquals(
+        List.of(ticket.getId(), other.getId()), ids(labels("or", first.getName())));
+    Assertions.assertEquals(
+        List.of(other.getId()), ids(labels("and", first.getName(), second.getName())));
+    Assertions.assertEquals(
+        List.of(ticket.getId()), ids(requestors("or", firstRequestor.getName())));
+    Assertions.assertEquals(
+        List.of(ticket.getId(), other.getId()),
+        ids(requestors("or", firstRequestor.getName(), secondRequestor.getName())));
+  }
+
+  /** Replacing a ticket's labels and external requestors moves it between the search results. */
+  @Test
+  void findsTicketByChangedLabelAndRequestor() {
+    Ticket ticket = saveTicket(Set.of(first), Set.of(firstRequestor));
+
+    ticket.setLabels(new HashSet<>(Set.of(second)));
+    ticket.setExternalRequestors(new HashSet<>(Set.of(secondRequestor)));
+    ticketRepository.save(ticket);
+
+    Assertions.assertEquals(List.of(), ids(labels("or", first.getName())));
+    Assertions.assertEquals(List.of(ticket.getId()), ids(labels("or", second.getName())));
+    Assertions.assertEquals(List.of(), ids(requestors("or", firstRequestor.getName())));
+    Assertions.assertEquals(
+        List.of(ticket.getId()), ids(requestors("or", secondRequestor.getName())));
+  }
+
+  /** Renaming a label changes which name the ticket is found by. */
+  @Test
+  void findsTicketByRenamedLabel() {
+    Ticket ticket = saveTicket(Set.of(first), Set.of());
+    String oldName = first.getName();
+
+    first.setName("Renamed " + UUID.randomUUID());
+    labelRepository.save(first);
+
+    Assertions.assertEquals(List.of(), ids(labels("or", oldName)));
+    Assertions.assertEquals(List.of(ticket.getId()), ids(labels("or", first.getName())));
+  }
+
+  private Ticket saveTicket(Set<Label> labels, Set<ExternalRequestor> externalRequestors) {
+    return ticketRepository.save(
+        Ticket.builder()
+            .title("Backlog view " + UUID.randomUUID())
+            .description("A test")
+            .labels(new HashSet<>(labels))
+            .externalRequestors(new HashSet<>(externalRequestors))
+            .build());
+  }
+
+  private static Predicate labels(String condition, String... names) {
+    return TicketPredicateBuilder.labelsMatch(List.of(names), condition);
+  }
+
+  private static Predicate requestors(String condition, String... names) {
+    return TicketPredicateBuilder.externalRequestorsMatch(List.of(names), condition);
+  }
+
+  private List<Long> ids(Predicate predicate) {
+    List<Long> ids = new ArrayList<>();
+    ticketRepository.findAll(predicate).forEach(ticket -> ids.add(ticket.getId()));
+    ids.sort(null);
+    return ids;
+  }
+}
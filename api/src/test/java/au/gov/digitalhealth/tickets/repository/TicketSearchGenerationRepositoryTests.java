@@ -0,0 +1,90 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.repository;
+
+import au.gov.digitalhealth.tickets.TicketTestBase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Tests that the shared ticket search generation moves on each time it is advanced. */
+class TicketSearchGenerationRepositoryTests extends TicketTestBase {
+
+  @Autowired TicketSearchGenerationRepository repository;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  @PersistenceContext EntityManager entityManager;
+
+  private TransactionTemplate transaction;
+
+  @BeforeEach
+  void setUp() {
+    transaction = new TransactionTemplate(transactionManager);
+  }
+
+  /** Each advance gives a new generation. */
+  @Test
+  void advanceChangesCurrentGeneration() {
+    long before = current();
+
+    advance();
+    long first = current();
+    advance();
+
+    Assertions.assertNotEquals(before, first);
+    Assertions.assertNotEquals(first, current());
+  }
+
+  /** The first advance of a sequence that has never been used still gives a new generation. */
+  @Test
+  void firstAdvanceOfFreshSequenceChangesCurrentGeneration() {
+    long before = current();
+    try {
+      transaction.executeWithoutResult(
+          status ->
+              entityManager
+                  .createNativeQuery("ALTER SEQUENCE ticket_search_generation_seq RESTART")
+                  .executeUpdate());
+      long fresh = current();
+
+      advance();
+
+      Assertions.assertNotEquals(fresh, current());
+    } finally {
+      // never hand out a generation other tests may already have cached results under
+      transaction.executeWithoutResult(
+          status ->
+              entityManager
+                  .createNativeQuery("SELECT setval('ticket_search_generation_seq', ?)")
+                  .setParameter(1, before + 1)
+                  .getSingleResult());
+    }
+  }
+
+  private long current() {
+    return transaction.execute(status -> repository.current());
+  }
+
+  private void advance() {
+    transaction.executeWithoutResult(status -> repository.advance());
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.repository;
+
+import au.gov.digitalhealth.tickets.TicketTestBase;
+import au.gov.digitalhealth.tickets.helper.KeysetPage;
+import au.gov.digitalhealth.tickets.helper.TicketSearchCursor;
+import au.gov.digitalhealth.tickets.models.QTicket;
+import au.gov.digitalhealth.tickets.models.Ticket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+
+/** Tests for keyset paging of ticket ids against Postgres. */
+class TicketSeekPagingTests extends TicketTestBase {
+
+  private static final int PAGE_SIZE = 2;
+
+  @Autowired TicketRepository ticketRepository;
+
+  private String title;
+  private List<Ticket> tickets;
+
+  @BeforeEach
+  void createTickets() {
+    // tied and null assignees, saved out of sort order, so pages break inside runs of equal values
+    title = "Seek paging " + UUID.randomUUID();
+    tickets = new ArrayList<>();
+    for (String assignee : Arrays.asList("a", "b", null, "a", "a", null, "b")) {
+      tickets.add(
+          ticketRepository.save(
+              Ticket.builder().title(title).description("A test").assignee(assignee).build()));
+    }
+  }
+
+  /**
+   * Walking the cursors returns every ticket once, in ascending order of the sort value with ties
+   * broken by id and nulls last.
+   */
+  @Test
+  void seeksAscendingThroughTiesAndNulls() {
+    Comparator<Ticket> order =
+        Comparator.comparing(Ticket::getAssignee, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Ticket::getId);
+
+    Assertions.assertEquals(expectedIds(order), walk(Sort.by(Sort.Order.asc("assignee"))));
+  }
+
+  /**
+   * Walking the cursors returns every ticket once, in descending order of the sort value with ties
+   * broken by id and nulls first.
+   */
+  @Test
+  void seeksDescendingThroughTiesAndNulls() {
+    Comparator<Ticket> order =
+        Comparator.comparing(
+                Ticket::getAssignee, Comparator.nullsFirst(Comparator.<String>reverseOrder()))
+            .thenComparing(Ticket::getId, Comparator.reverseOrder());
+
+    Assertions.assertEquals(expectedIds(order), walk(Sort.by(Sort.Order.desc("assignee"))));
+  }
+
+  /** Sorting by id alone seeks on the id. */
+  @Test
+  void seeksById() {
+    Assertions.assertEquals(
+        expectedIds(Comparator.comparing(Ticket::getId)), walk(Sort.unsorted()));
+  }
+
+  private List<Long> expectedIds(Comparator<Ticket> order) {
+    return tickets.stream().sorted(order).map(Ticket::getId).toList();
+  }
+
+  /** Fetches every page, passing each cursor through its encoded form as a client would. */
+  private List<Long> walk(Sort sort) {
+    List<Long> ids = new ArrayList<>();
+    TicketSearchCursor cursor = TicketSearchCursor.FIRST;
+    for (int page = 0; page <= tickets.size(); page++) {
+      KeysetPage<Long> result =
+          ticketRepository.findIdsAfter(
+              QTicket.ticket.title.eq(title), PAGE_SIZE, sort, List.of(), cursor);
+      Assertions.assertEquals(tickets.size(), result.totalElements());
+      Assertions.assertTrue(result.content().size() <= PAGE_SIZE);
+      ids.addAll(result.content());
+      if (result.nextCursor() == null) {
+        return ids;
+      }
+      cursor = TicketSearchCursor.decode(result.nextCursor());
+    }
+    throw new AssertionError("Paging did not finish after " + tickets.size() + " pages: " + ids);
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.service;
+
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.ENTITY_ID;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.REVISION;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.REVISION_TIMESTAMP;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.REVISION_TYPE;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SECTION;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SECTION_COMMENT;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SECTION_LABEL;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SECTION_TICKET;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SECTION_TICKET_ASSOCIATION;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.SOURCE_ID;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.STATE_ID;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.TARGET_ID;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.TITLE;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.USERNAME;
+import static au.gov.digitalhealth.tickets.repository.TicketAuditRepository.AuditChangeColumns.VALUE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import au.gov.digitalhealth.tickets.TicketHistoryEntryDto;
+import au.gov.digitalhealth.tickets.models.Label;
+import au.gov.digitalhealth.tickets.models.State;
+import au.gov.digitalhealth.tickets.repository.ExternalRequestorRepository;
+import au.gov.digitalhealth.tickets.repository.IterationRepository;
+import au.gov.digitalhealth.tickets.repository.LabelRepository;
+import au.gov.digitalhealth.tickets.repository.PriorityBucketRepository;
+import au.gov.digitalhealth.tickets.repository.StateRepository;
+import au.gov.digitalhealth.tickets.service.TicketChangeProcessingService.TicketHistoryBuilder;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/** Checks how audit rows are turned into ticket history entries. */
+@ExtendWith(MockitoExtension.class)
+class TicketChangeProcessingServiceTest {
+
+  private static final long TICKET_ID = 1L;
+
+  @Mock StateRepository stateRepository;
+  @Mock LabelRepository labelRepository;
+  @Mock IterationRepository iterationRepository;
+  @Mock PriorityBucketRepository priorityBucketRepository;
+  @Mock ExternalRequestorRepository externalRequestorRepository;
+
+  @InjectMocks TicketChangeProcessingService changeProcessor;
+
+  /** Names are resolved from one load of each reference table rather than a lookup per row. */
+  @Test
+  void resolvesNamesFromOneLoad() {
+    when(stateRepository.findAll())
+        .thenReturn(
+            List.of(
+                State.builder().id(10L).label("To Do").build(),
+                State.builder().id(11L).label("Done").build()));
+    when(labelRepository.findAll())
+        .thenReturn(List.of(Label.builder().id(20L).name("urgent").build()));
+
+    List<TicketHistoryEntryDto> entries =
+        build(
+            0,
+            ticketRow(1, "Title", 10L),
+            ticketRow(2, "Title", 11L),
+            row(SECTION_LABEL, 2, 0, 20L),
+            ticketRow(3, "Title", 12L));
+
+    assertThat(entries)
+        .extracting(TicketHistoryEntryDto::getChangeDescription)
+        .containsExactly(
+            "State changed from To Do to Done",
+            "Label urgent added",
+            "State changed from Done to Unknown State");
+    verify(stateRepository).findAll();
+  }
+
+  /** Rows up to the last recorded revision are only used as the baseline for later ones. */
+  @Test
+  void recordsOnlyLaterRevisions() {
+    TicketHistoryBuilder history = changeProcessor.historyBuilder(TICKET_ID, 2);
+    Stream.of(ticketRow(1, "One", null), ticketRow(2, "Two", null), ticketRow(4, "Four", null))
+        .forEach(history);
+
+    assertThat(history.getEntries()).hasSize(1);
+    assertThat(history.getEntries().get(0).getOldValue().getValue()).isEqualTo("Two");
+    assertThat(history.getEntries().get(0).getNewValue().getValue()).isEqualTo("Four");
+    assertThat(history.getLastRevision()).isEqualTo(4);
+  }
+
+  /**
+   * A revision that committed after later ones were recorded is kept, and the recorded revisions
+   * only serve as the baseline.
+   */
+  @Test
+  void recordsLateRevisionBetweenRecordedOnes() {
+    Object[] comment = row(SECTION_COMMENT, 3, 0, 40L);
+    comment[VALUE] = "Late comment";
+
+    TicketHistoryBuilder history = changeProcessor.historyBuilder(TICKET_ID, 2, Set.of(4));
+    Stream.of(
+            ticketRow(1, "One", null),
+            ticketRow(2, "Two", null),
+            comment,
+            ticketRow(4, "Four", null),
+            ticketRow(5, "Five", null))
+        .forEach(history);
+
+    assertThat(history.getEntries())
+        .extracting(TicketHistoryEntryDto::getRevisionNumber)
+        .containsExactly(3L, 5L);
+    assertThat(history.getEntries().get(1).getOldValue().getValue()).isEqualTo("Four");
+    assertThat(history.getNewRevisions()).containsExactly(3, 5);
+  }
+
+  /** A removed association is described from the row recorded when it was added. */
+  @Test
+  void describesRemovedAssociationFromEarlierRow() {
+    Object[] added = row(SECTION_TICKET_ASSOCIATION, 1, 0, 30L);
+    added[SOURCE_ID] = TICKET_ID;
+    added[TARGET_ID] = 2L;
+    added[VALUE] = "AMT-2";
+
+    List<TicketHistoryEntryDto> entries =
+        build(0, added, row(SECTION_TICKET_ASSOCIATION, 2, 2, 30L));
+
+    assertThat(entries)
+        .extracting(TicketHistoryEntryDto::getChangeDescription)
+        .containsExactly(
+            "Ticket association added (Associated To: AMT-2)",
+            "Ticket association removed (Associated To: AMT-2)");
+  }
+
+  private List<TicketHistoryEntryDto> build(int afterRevision, Object[]... rows) {
+    TicketHistoryBuilder history = changeProcessor.historyBuilder(TICKET_ID, afterRevision);
+    Stream.of(rows).forEach(history);
+    return history.getEntries();
+  }
+
+  private static Object[] ticketRow(int revision, String title, Long stateId) {
+    Object[] row = row(SECTION_TICKET, revision, 1, null);
+    row[TITLE] = title;
+    row[STATE_ID] = stateId;
+    return row;
+  }
+
+  private static Object[] row(int section, int revision, int revisionType, Long entityId) {
+    Object[] row = new Object[16];
+    row[SECTION] = section;
+    row[REVISION] = revision;
+    row[REVISION_TYPE] = (short) revisionType;
+    row[REVISION_TIMESTAMP] = 1_700_000_000_000L + revision;
+    row[USERNAME] = "user";
+    row[ENTITY_ID] = entityId;
+    return row;
+  }
+}
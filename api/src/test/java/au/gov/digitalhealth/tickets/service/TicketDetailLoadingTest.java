@@ -0,0 +1,123 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import au.gov.digitalhealth.tickets.TicketDtoExtended;
+import au.gov.digitalhealth.tickets.TicketTestBase;
+import au.gov.digitalhealth.tickets.models.Attachment;
+import au.gov.digitalhealth.tickets.models.Comment;
+import au.gov.digitalhealth.tickets.models.ExternalRequestor;
+import au.gov.digitalhealth.tickets.models.JsonField;
+import au.gov.digitalhealth.tickets.models.Label;
+import au.gov.digitalhealth.tickets.models.Ticket;
+import au.gov.digitalhealth.tickets.repository.AttachmentRepository;
+import au.gov.digitalhealth.tickets.repository.CommentRepository;
+import au.gov.digitalhealth.tickets.repository.JsonFieldRepository;
+import au.gov.digitalhealth.tickets.repository.TicketRepository;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/** Checks how many statements it takes to load a ticket for the ticket detail view. */
+class TicketDetailLoadingTest extends TicketTestBase {
+
+  /** The ticket with its references, labels and requestors, then one per remaining collection. */
+  private static final long MAX_STATEMENTS = 5;
+
+  @Autowired TicketServiceImpl ticketService;
+  @Autowired TicketRepository ticketRepository;
+  @Autowired CommentRepository commentRepository;
+  @Autowired AttachmentRepository attachmentRepository;
+  @Autowired JsonFieldRepository jsonFieldRepository;
+  @Autowired EntityManagerFactory entityManagerFactory;
+
+  private Ticket ticket;
+
+  @BeforeEach
+  void createTicketWithManyChildren() {
+    String suffix = UUID.randomUUID().toString();
+    Set<Label> labels = new HashSet<>();
+    Set<ExternalRequestor> externalRequestors = new HashSet<>();
+    for (int i = 0; i < 10; i++) {
+      labels.add(Label.builder().name("detail-label-" + i + "-" + suffix).build());
+      externalRequestors.add(
+          ExternalRequestor.builder().name("detail-requestor-" + i + "-" + suffix).build());
+    }
+    ticket =
+        ticketRepository.save(
+            Ticket.builder()
+                .title("Ticket detail loading test")
+                .description("A ticket with many children")
+                .labels(labels)
+                .externalRequestors(externalRequestors)
+                .build());
+    for (int i = 0; i < 30; i++) {
+      commentRepository.save(Comment.builder().text("Comment " + i).ticket(ticket).build());
+      attachmentRepository.save(
+          Attachment.builder().filename("attachment-" + i + ".txt").ticket(ticket).build());
+    }
+    for (int i = 0; i < 10; i++) {
+      jsonFieldRepository.save(
+          JsonField.builder()
+              .name("field-" + i)
+              .value(JsonNodeFactory.instance.objectNode().put("index", i))
+              .ticket(ticket)
+              .build());
+    }
+  }
+
+  /** Loading by id takes a fixed number of statements however many children the ticket has. */
+  @Test
+  void findTicketUsesFixedNumberOfStatements() {
+    Statistics statistics = statistics();
+
+    TicketDtoExtended dto = ticketService.findTicket(ticket.getId());
+
+    assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS);
+    assertThat(dto.getLabels()).hasSize(10);
+    assertThat(dto.getExternalRequestors()).hasSize(10);
+    assertThat(dto.getComments()).hasSize(30);
+    assertThat(dto.getAttachments()).hasSize(30);
+    assertThat(dto.getJsonFields()).hasSize(10);
+  }
+
+  /** Loading by ticket number takes the same fixed number of statements. */
+  @Test
+  void findTicketByTicketNumberUsesFixedNumberOfStatements() {
+    String ticketNumber = ticketRepository.findById(ticket.getId()).orElseThrow().getTicketNumber();
+    Statistics statistics = statistics();
+
+    TicketDtoExtended dto = ticketService.findTicketByTicketNumber(ticketNumber);
+
+    assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS);
+    assertThat(dto.getComments()).hasSize(30);
+  }
+
+  private Statistics statistics() {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+    return statistics;
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import au.gov.digitalhealth.tickets.TicketHistoryEntryDto;
+import au.gov.digitalhealth.tickets.TicketTestBase;
+import au.gov.digitalhealth.tickets.models.Comment;
+import au.gov.digitalhealth.tickets.models.Ticket;
+import au.gov.digitalhealth.tickets.repository.CommentRepository;
+import au.gov.digitalhealth.tickets.repository.TicketHistoryEntryRepository;
+import au.gov.digitalhealth.tickets.repository.TicketRepository;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Checks that ticket history is recorded once per revision and read back from the table. */
+class TicketHistoryServiceTest extends TicketTestBase {
+
+  @Autowired TicketHistoryService ticketHistoryService;
+  @Autowired TicketRepository ticketRepository;
+  @Autowired CommentRepository commentRepository;
+  @Autowired TicketHistoryEntryRepository ticketHistoryEntryRepository;
+  @Autowired TicketHistoryRecorder ticketHistoryRecorder;
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private Ticket ticket;
+
+  @BeforeEach
+  void createTicketWithChanges() {
+    ticket = ticketRepository.save(Ticket.builder().title("History test").build());
+    for (int i = 1; i <= 3; i++) {
+      ticket.setTitle("History test " + i);
+      ticket = ticketRepository.save(ticket);
+    }
+    commentRepository.save(Comment.builder().text("History comment").ticket(ticket).build());
+  }
+
+  /** Each change is recorded as it commits, in the order it was made. */
+  @Test
+  void recordsChangesAfterCommit() {
+    List<TicketHistoryEntryDto> history =
+        ticketHistoryService.getTicketHistory(ticket.getTicketNumber());
+
+    assertThat(history)
+        .extracting(TicketHistoryEntryDto::getFieldName)
+        .containsExactly("title", "title", "title", "comment");
+    assertThat(history.get(2).getNewValue().getValue()).isEqualTo("History test 3");
+    assertThat(
+            ticketHistoryEntryRepository.findByTicketIdOrderByRevisionTimestampAscIdAsc(
+                ticket.getId()))
+        .hasSize(4);
+  }
+
+  /** Recording again without new revisions adds nothing, and later changes are appended. */
+  @Test
+  void recordsEachRevisionOnce() {
+    ticketHistoryService.recordNewRevisions(ticket.getId());
+    ticket.setTitle("History test 4");
+    ticketRepository.save(ticket);
+    ticketHistoryService.recordNewRevisions(ticket.getId());
+
+    List<TicketHistoryEntryDto> history =
+        ticketHistoryService.getTicketHistory(ticket.getTicketNumber());
+
+    assertThat(history).hasSize(5);
+    assertThat(history.get(4).getOldValue().getValue()).isEqualTo("History test 3");
+    assertThat(history.get(4).getNewValue().getValue()).isEqualTo("History test 4");
+  }
+
+  /** A change whose recording after commit was missed is recorded when the history is read. */
+  @Test
+  void recordsMissedChangeOnRead() {
+    ticketHistoryService.getTicketHistory(ticket.getTicketNumber());
+    new TransactionTemplate(transactionManager)
+        .executeWithoutResult(
+            status -> {
+              commentRepository.save(
+                  Comment.builder().text("Missed comment").ticket(ticket).build());
+              ticketHistoryRecorder.deferToFirstRead();
+            });
+
+    List<TicketHistoryEntryDto> history =
+        ticketHistoryService.getTicketHistory(ticket.getTicketNumber());
+
+    assertThat(history)
+        .extracting(TicketHistoryEntryDto::getFieldName)
+        .containsExactly("title", "title", "title", "comment", "comment");
+    assertThat(history.get(4).getNewValue().getValue()).isEqualTo("Missed comment");
+  }
+
+  /** History can be read a page at a time. */
+  @Test
+  void readsHistoryInPages() {
+    Page<TicketHistoryEntryDto> page =
+        ticketHistoryService.getTicketHistory(ticket.getTicketNumber(), PageRequest.of(1, 3));
+
+    assertThat(page.getTotalElements()).isEqualTo(4);
+    assertThat(page.getContent())
+        .extracting(TicketHistoryEntryDto::getFieldName)
+        .containsExactly("comment");
+  }
+}
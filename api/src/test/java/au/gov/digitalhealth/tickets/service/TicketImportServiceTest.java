@@ -0,0 +1,259 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import au.gov.digitalhealth.lingo.exception.TicketImportProblem;
+import au.gov.digitalhealth.tickets.TicketImportDto;
+import au.gov.digitalhealth.tickets.models.Ticket;
+import au.gov.digitalhealth.tickets.models.TicketImportCheckpoint;
+import au.gov.digitalhealth.tickets.repository.TicketImportCheckpointRepository;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/** Unit tests for {@link TicketImportService}. */
+@ExtendWith(MockitoExtension.class)
+class TicketImportServiceTest {
+
+  private static final int ITEMS = 5;
+  private static final int BATCH_SIZE = 2;
+
+  @Mock TicketServiceImpl ticketService;
+  @Mock TicketImportCheckpointRepository checkpointRepository;
+  @Mock TicketHistoryRecorder ticketHistoryRecorder;
+  @Mock PlatformTransactionManager transactionManager;
+
+  @TempDir Path tempDir;
+
+  private File importFile;
+  private TicketImportService importService;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    importFile = tempDir.resolve("export.json").toFile();
+    Files.writeString(
+        importFile.toPath(),
+        IntStream.range(0, ITEMS)
+            .mapToObj(index -> "{\"title\":\"Ticket " + index + "\"}")
+            .toList()
+            .toString());
+    // the batches run on the calling thread, one at a time
+    importService =
+        new TicketImportService(
+            ticketService,
+            checkpointRepository,
+            ticketHistoryRecorder,
+            transactionManager,
+            BATCH_SIZE,
+            1,
+            Runnable::run);
+  }
+
+  /** Each batch is imported with a checkpoint, and the checkpoints go once the import finishes. */
+  @Test
+  void checkpointsEachBatchUntilFinished() {
+    stubImport();
+
+    int imported = importService.importTickets(importFile, null, null, false, false);
+
+    assertThat(imported).isEqualTo(ITEMS);
+    ArgumentCaptor<TicketImportCheckpoint> checkpoints =
+        ArgumentCaptor.forClass(TicketImportCheckpoint.class);
+    verify(checkpointRepository, times(3)).save(checkpoints.capture());
+    assertThat(checkpoints.getAllValues())
+        .extracting(TicketImportCheckpoint::getFirstIndex, TicketImportCheckpoint::getEndIndex)
+        .containsExactly(tuple(0L, 2L), tuple(2L, 4L), tuple(4L, 5L));
+    verify(checkpointRepository).deleteByImportFile(importFile.getAbsolutePath());
+  }
+
+  /** Resuming imports only the items the checkpoints of the unfinished import do not cover. */
+  @Test
+  void resumeSkipsImportedItems() {
+    stubImport();
+    when(checkpointRepository.findByImportFile(anyString()))
+        .thenReturn(List.of(checkpoint(0, 2), checkpoint(2, 4)));
+
+    int imported = importService.importTickets(importFile, null, null, true, false);
+
+    assertThat(imported).isEqualTo(1);
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<TicketImportDto>> batches = ArgumentCaptor.forClass(List.class);
+    verify(ticketService).toImportTickets(batches.capture());
+    assertThat(batches.getValue())
+        .extracting(TicketImportDto::getTitle)
+        .containsExactly("Ticket 4");
+  }
+
+  /** A plain import of a file whose import did not finish is refused rather than duplicated. */
+  @Test
+  void refusesToImportUnfinishedImportAgain() {
+    when(checkpointRepository.findByImportFile(anyString())).thenReturn(List.of(checkpoint(0, 2)));
+
+    assertThatThrownBy(() -> importService.importTickets(importFile, null, null, false, false))
+        .isInstanceOfSatisfying(
+            TicketImportProblem.class,
+            problem -> {
+              assertThat(problem.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+              assertThat(problem.getBody().getDetail())
+                  .contains("resume=true")
+                  .contains("restart=true");
+            });
+    verify(checkpointRepository, never()).deleteByImportFile(anyString());
+    verify(ticketService, never()).importTicketBatch(anyList(), any());
+  }
+
+  /** Restarting drops the checkpoints of the unfinished import and imports every item. */
+  @Test
+  void restartImportsEveryItem() {
+    stubImport();
+    when(checkpointRepository.findByImportFile(anyString())).thenReturn(List.of(checkpoint(0, 2)));
+
+    int imported = importService.importTickets(importFile, null, null, false, true);
+
+    assertThat(imported).isEqualTo(ITEMS);
+    // once to restart, once on finishing
+    verify(checkpointRepository, times(2)).deleteByImportFile(importFile.getAbsolutePath());
+  }
+
+  /** A failed batch stops the import and keeps the checkpoints of the batches before it. */
+  @Test
+  void failedBatchKeepsCheckpoints() {
+    stubConversion();
+    AtomicInteger batchCount = new AtomicInteger();
+    when(ticketService.importTicketBatch(anyList(), any()))
+        .thenAnswer(
+            invocation -> {
+              if (batchCount.incrementAndGet() == 2) {
+                throw new IllegalStateException("Batch failed");
+              }
+              return invocation.<List<Ticket>>getArgument(0).size();
+            });
+
+    assertThatThrownBy(() -> importService.importTickets(importFile, null, null, false, false))
+        .isInstanceOfSatisfying(
+            TicketImportProblem.class,
+            problem ->
+                assertThat(problem.getBody().getDetail())
+                    .contains("Batch failed")
+                    .contains("2 tickets were imported")
+                    .contains("resume=true"));
+    verify(checkpointRepository).save(any(TicketImportCheckpoint.class));
+    verify(checkpointRepository, never()).deleteByImportFile(anyString());
+  }
+
+  /** A batch that fails while the next is waiting for a worker stops the next being read. */
+  @Test
+  void failedBatchStopsWaitingBatch() {
+    stubConversion();
+    when(ticketService.importTicketBatch(anyList(), any()))
+        .thenThrow(new IllegalStateException("Batch failed"));
+    Thread importThread = Thread.currentThread();
+    // the batch runs once the import is waiting for its worker to read the next one
+    importService =
+        new TicketImportService(
+            ticketService,
+            checkpointRepository,
+            ticketHistoryRecorder,
+            transactionManager,
+            BATCH_SIZE,
+            1,
+            task ->
+                Thread.ofVirtual()
+                    .start(
+                        () -> {
+                          while (importThread.getState() != Thread.State.WAITING) {
+                            Thread.onSpinWait();
+                          }
+                          task.run();
+                        }));
+
+    assertThatThrownBy(() -> importService.importTickets(importFile, null, null, false, false))
+        .isInstanceOf(TicketImportProblem.class);
+    verify(ticketService, times(1)).toImportTickets(anyList());
+  }
+
+  /** Resuming and restarting at once is refused. */
+  @Test
+  void refusesResumeWithRestart() {
+    assertThatThrownBy(() -> importService.importTickets(importFile, null, null, true, true))
+        .isInstanceOfSatisfying(
+            TicketImportProblem.class,
+            problem -> assertThat(problem.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+  }
+
+  /**
+   * The imported items are matched across checkpoints whose ranges nest or touch, as those of a
+   * resumed batch span the batches imported before it.
+   */
+  @Test
+  void matchesItemsOfOverlappingCheckpoints() {
+    LongPredicate imported =
+        TicketImportService.importedItems(
+            List.of(checkpoint(4, 6), checkpoint(0, 2), checkpoint(2, 7), checkpoint(10, 12)));
+
+    assertThat(LongStream.range(0, 14).filter(imported).toArray())
+        .containsExactly(0, 1, 2, 3, 4, 5, 6, 10, 11);
+  }
+
+  private void stubImport() {
+    stubConversion();
+    when(ticketService.importTicketBatch(anyList(), any()))
+        .thenAnswer(invocation -> invocation.<List<Ticket>>getArgument(0).size());
+  }
+
+  private void stubConversion() {
+    when(ticketService.toImportTickets(anyList()))
+        .thenAnswer(
+            invocation ->
+                invocation.<List<TicketImportDto>>getArgument(0).stream()
+                    .map(dto -> Ticket.builder().title(dto.getTitle()).build())
+                    .toList());
+  }
+
+  private static TicketImportCheckpoint checkpoint(long firstIndex, long endIndex) {
+    return TicketImportCheckpoint.builder()
+        .importFile("export.json")
+        .firstIndex(firstIndex)
+        .endIndex(endIndex)
+        .build();
+  }
+}
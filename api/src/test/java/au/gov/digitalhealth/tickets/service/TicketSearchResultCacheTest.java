@@ -0,0 +1,177 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.tickets.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import au.gov.digitalhealth.lingo.util.CacheConstants;
+import au.gov.digitalhealth.tickets.helper.SearchCondition;
+import au.gov.digitalhealth.tickets.repository.TicketSearchGenerationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/** Tests for {@link TicketSearchResultCache}. */
+class TicketSearchResultCacheTest {
+
+  private final AtomicInteger searches = new AtomicInteger();
+  private final Supplier<List<Long>> search = () -> List.of((long) searches.incrementAndGet());
+
+  private final AtomicLong generation = new AtomicLong();
+  private TicketSearchGenerationRepository generationRepository;
+  private TicketSearchResultCache cache;
+
+  @BeforeEach
+  void setUp() {
+    CaffeineCacheManager cacheManager =
+        new CaffeineCacheManager(CacheConstants.TICKET_SEARCH_CACHE);
+    generationRepository = mock(TicketSearchGenerationRepository.class);
+    when(generationRepository.current()).thenAnswer(invocation -> generation.get());
+    doAnswer(invocation -> generation.incrementAndGet()).when(generationRepository).advance();
+    cache =
+        new TicketSearchResultCache(cacheManager, generationRepository, new SimpleMeterRegistry());
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    TransactionSynchronizationManager.unbindResourceIfPossible(cache);
+  }
+
+  /** The same search for the same page is answered from the cache. */
+  @Test
+  void repeatedSearchIsCached() {
+    List<Long> first = run(labels("[a, b]"), "0/20");
+    List<Long> second = run(labels("[a, b]"), "0/20");
+
+    assertThat(second).isEqualTo(first);
+    assertThat(searches).hasValue(1);
+  }
+
+  /** The order of a condition's values does not matter, but the page and the values do. */
+  @Test
+  void keyIsNormalisedSearchConditionsAndPage() {
+    run(labels("[a, b]"), "0/20");
+
+    run(labels("[b, a]"), "0/20");
+    assertThat(searches).hasValue(1);
+
+    run(labels("[a, b]"), "1/20");
+    run(labels("[a, c]"), "0/20");
+    assertThat(searches).hasValue(3);
+  }
+
+  /** Outside a transaction a change invalidates the cached results straight away. */
+  @Test
+  void ticketChangeInvalidatesResults() {
+    run(labels("[a]"), "0/20");
+
+    cache.ticketsChanged();
+    run(labels("[a]"), "0/20");
+
+    assertThat(searches).hasValue(2);
+  }
+
+  /** Within a transaction the cached results stay valid until it commits. */
+  @Test
+  void ticketChangeInTransactionInvalidatesOnCommit() {
+    run(labels("[a]"), "0/20");
+    TransactionSynchronizationManager.initSynchronization();
+
+    cache.ticketsChanged();
+    cache.ticketsChanged();
+    run(labels("[a]"), "0/20");
+    assertThat(searches).hasValue(1);
+
+    List<TransactionSynchronization> synchronizations =
+        TransactionSynchronizationManager.getSynchronizations();
+    assertThat(synchronizations).hasSize(1);
+    TransactionSynchronizationManager.clearSynchronization();
+    synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+    run(labels("[a]"), "0/20");
+    assertThat(searches).hasValue(2);
+  }
+
+  /** A rolled back transaction leaves the cached results in place. */
+  @Test
+  void rolledBackChangeKeepsResults() {
+    run(labels("[a]"), "0/20");
+    TransactionSynchronizationManager.initSynchronization();
+
+    cache.ticketsChanged();
+    List<TransactionSynchronization> synchronizations =
+        TransactionSynchronizationManager.getSynchronizations();
+    TransactionSynchronizationManager.clearSynchronization();
+    synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+    run(labels("[a]"), "0/20");
+    assertThat(searches).hasValue(1);
+  }
+
+  /** A change committed through another instance moves the shared generation on. */
+  @Test
+  void changeOnAnotherInstanceInvalidatesResults() {
+    run(labels("[a]"), "0/20");
+
+    generation.incrementAndGet();
+    run(labels("[a]"), "0/20");
+
+    assertThat(searches).hasValue(2);
+  }
+
+  /** Searches are still answered, uncached, while the generation cannot be read. */
+  @Test
+  void unreadableGenerationSearchesUncached() {
+    run(labels("[a]"), "0/20");
+    when(generationRepository.current())
+        .thenThrow(new DataAccessResourceFailureException("Database unavailable"));
+
+    run(labels("[a]"), "0/20");
+    run(labels("[a]"), "0/20");
+
+    assertThat(searches).hasValue(3);
+  }
+
+  private List<Long> run(List<SearchCondition> searchConditions, String page) {
+    return cache.get(null, searchConditions, Sort.unsorted(), page, search);
+  }
+
+  private static List<SearchCondition> labels(String valueIn) {
+    return List.of(
+        SearchCondition.builder()
+            .key("labels.name")
+            .operation("=")
+            .condition("or")
+            .valueIn(valueIn)
+            .build());
+  }
+}
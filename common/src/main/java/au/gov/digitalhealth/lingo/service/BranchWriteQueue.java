@@ -0,0 +1,271 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service;
+
+import au.gov.digitalhealth.lingo.exception.LingoProblem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serialises Lingo's own writes to each Snowstorm branch.
+ *
+ * <p>Snowstorm locks a branch while it applies a write, and a second write arriving in the meantime
+ * has to poll the branch metadata until the lock is released. Queuing writes per branch in process
+ * means concurrent authors on the same branch wait their turn here, in arrival order, and the
+ * Snowstorm lock check before each write normally passes first time. Locks taken by Snowstorm
+ * itself, such as for classification or rebase, are still waited out by {@link
+ * SnowstormClient#waitForBranchLock(String)}.
+ *
+ * <p>With {@code snomio.snowstorm.branch-write.combine=true}, refset member creates that queue up
+ * behind another write are combined into one bulk request by whichever of the waiting callers
+ * reaches the front of the queue first. The combined request is sent with that caller's
+ * credentials, so only writes from the same caller, as given by {@link CallerIdentity}, are
+ * combined. Combining is off by default.
+ */
+@Component
+@Log
+public class BranchWriteQueue {
+
+  static final String METRIC_PREFIX = "snomio.snowstorm.branch.write";
+
+  private final Map<String, BranchQueue> queues = new ConcurrentHashMap<>();
+  private final AtomicInteger waiting = new AtomicInteger();
+  private final MeterRegistry meterRegistry;
+  private final boolean combine;
+  private final CallerIdentity callerIdentity;
+  private final Counter combinedWrites;
+
+  public BranchWriteQueue(
+      MeterRegistry meterRegistry,
+      @Value("${snomio.snowstorm.branch-write.combine:false}") boolean combine,
+      CallerIdentity callerIdentity) {
+    this.meterRegistry = meterRegistry;
+    this.combine = combine;
+    this.callerIdentity = callerIdentity;
+    Gauge.builder(METRIC_PREFIX + ".queued", waiting, AtomicInteger::get)
+        .description("Writes waiting for their turn on a Snowstorm branch")
+        .register(meterRegistry);
+    Gauge.builder(METRIC_PREFIX + ".branches", queues, Map::size)
+        .description("Snowstorm branches with a write in progress or waiting")
+        .register(meterRegistry);
+    this.combinedWrites =
+        Counter.builder(METRIC_PREFIX + ".combined")
+            .description("Writes sent to Snowstorm as part of another caller's combined request")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Runs a write once every earlier write to the branch has finished. Writes on the same thread may
+   * nest.
+   *
+   * @param operation a short name for the write, used to tag the wait time metric
+   */
+  public <T> T write(String branch, String operation, BranchWrite<T> write)
+      throws InterruptedException {
+    BranchQueue queue = join(branch);
+    try {
+      acquire(queue, operation);
+      try {
+        return write.run();
+      } finally {
+        queue.lock.unlock();
+      }
+    } finally {
+      leave(branch);
+    }
+  }
+
+  /**
+   * Runs a write of several items that can be combined with other writes of the same operation
+   * queued on the branch by the same caller. Whichever of those queued writes gets to the front
+   * first sends the items of all of them in one request, then hands each back its share of the
+   * results. Writes without a known caller are never combined.
+   *
+   * @param write sends the items and returns one result per item, in the same order
+   * @return the results for {@code items}, in order
+   */
+  public <I, R> List<R> writeCombinable(
+      String branch, String operation, List<I> items, CombinableWrite<I, R> write)
+      throws InterruptedException {
+    Object caller = combine ? callerIdentity.current() : null;
+    if (caller == null) {
+      return write(branch, operation, () -> write.run(items));
+    }
+
+    PendingKey key = new PendingKey(operation, caller);
+    BranchQueue queue = join(branch);
+    try {
+      PendingWrite<I, R> pending = new PendingWrite<>(items);
+      queue.pending(key).add(pending);
+      try {
+        acquire(queue, operation);
+      } catch (InterruptedException e) {
+        queue.pending(key).remove(pending);
+        throw e;
+      }
+      try {
+        if (!pending.result.isDone()) {
+          sendPending(queue.pending(key), write);
+        } else {
+          combinedWrites.increment();
+        }
+      } finally {
+        queue.lock.unlock();
+      }
+      return pending.result.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    } finally {
+      leave(branch);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <I, R> void sendPending(
+      Queue<PendingWrite<?, ?>> pendingWrites, CombinableWrite<I, R> write)
+      throws InterruptedException {
+    List<PendingWrite<I, R>> batch = new ArrayList<>();
+    List<I> items = new ArrayList<>();
+    PendingWrite<?, ?> next;
+    while ((next = pendingWrites.poll()) != null) {
+      PendingWrite<I, R> pending = (PendingWrite<I, R>) next;
+      batch.add(pending);
+      items.addAll(pending.items);
+    }
+    if (batch.size() > 1) {
+      log.fine("Combining " + batch.size() + " writes of " + items.size() + " items");
+    }
+
+    try {
+      List<R> results = write.run(items);
+      if (results.size() != items.size()) {
+        throw new LingoProblem(
+            "Combined write returned "
+                + results.size()
+                + " results for "
+                + items.size()
+                + " items");
+      }
+      int offset = 0;
+      for (PendingWrite<I, R> pending : batch) {
+        pending.result.complete(
+            List.copyOf(results.subList(offset, offset + pending.items.size())));
+        offset += pending.items.size();
+      }
+    } catch (RuntimeException e) {
+      batch.forEach(pending -> pending.result.completeExceptionally(e));
+    } catch (InterruptedException e) {
+      LingoProblem problem = new LingoProblem("Interrupted while writing to branch", e);
+      batch.forEach(pending -> pending.result.completeExceptionally(problem));
+      throw e;
+    }
+  }
+
+  private BranchQueue join(String branch) {
+    return queues.compute(
+        branch,
+        (key, queue) -> {
+          BranchQueue joined = queue == null ? new BranchQueue() : queue;
+          joined.callers++;
+          return joined;
+        });
+  }
+
+  private void leave(String branch) {
+    queues.computeIfPresent(branch, (key, queue) -> --queue.callers == 0 ? null : queue);
+  }
+
+  private void acquire(BranchQueue queue, String operation) throws InterruptedException {
+    long start = System.nanoTime();
+    waiting.incrementAndGet();
+    try {
+      queue.lock.lockInterruptibly();
+    } finally {
+      waiting.decrementAndGet();
+      Timer.builder(METRIC_PREFIX + ".wait")
+          .description("Time a write waited for earlier writes to the same branch")
+          .tag("operation", operation)
+          .register(meterRegistry)
+          .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /** A write to a Snowstorm branch. */
+  @FunctionalInterface
+  public interface BranchWrite<T> {
+    T run() throws InterruptedException;
+  }
+
+  /** A write of several items returning one result per item, in order. */
+  @FunctionalInterface
+  public interface CombinableWrite<I, R> {
+    List<R> run(List<I> items) throws InterruptedException;
+  }
+
+  /**
+   * Identifies the caller of a write, such as the user and the credentials Snowstorm requests are
+   * sent with. Only writes with equal callers are combined.
+   */
+  @FunctionalInterface
+  public interface CallerIdentity {
+    /**
+     * @return the current thread's caller, or {@code null} if it is not known
+     */
+    Object current();
+  }
+
+  private record PendingKey(String operation, Object caller) {}
+
+  private static final class BranchQueue {
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Map<PendingKey, Queue<PendingWrite<?, ?>>> pending = new ConcurrentHashMap<>();
+
+    /** Guarded by the queues map, only changed inside compute. */
+    private int callers;
+
+    private Queue<PendingWrite<?, ?>> pending(PendingKey pendingKey) {
+      return pending.computeIfAbsent(pendingKey, key -> new ConcurrentLinkedQueue<>());
+    }
+  }
+
+  private static final class PendingWrite<I, R> {
+    private final List<I> items;
+    private final CompletableFuture<List<R>> result = new CompletableFuture<>();
+
+    private PendingWrite(List<I> items) {
+      this.items = items;
+    }
+  }
+}
@@ -106,6 +106,7 @@ public class SnowstormClient {
   private final WebClient snowStormApiClient;
   private final ObjectMapper objectMapper;
   private final SnowstormLogger logger;
+  private final BranchWriteQueue branchWriteQueue;
   private final SnowstormClient self;
 
   @Value("${snomio.snowstorm.batch.checks.delay:500}")
@@ -129,11 +130,13 @@ public class SnowstormClient {
       @Value("${ihtsdo.snowstorm.api.url}") String snowstormUrl,
       ObjectMapper objectMapper,
       SnowstormLogger snowstormLogger,
+      BranchWriteQueue branchWriteQueue,
       @Lazy SnowstormClient self) {
     this.snowStormApiClient = snowStormApiClient;
     this.snowstormUrl = snowstormUrl;
     this.objectMapper = objectMapper;
     this.logger = snowstormLogger;
+    this.branchWriteQueue = branchWriteQueue;
     this.self = self;
   }
 
@@ -803,7 +806,10 @@ public class SnowstormClient {
    */
   public void deleteConcept(String branch, String conceptId) {
     try {
-      getConceptsApi().deleteConcept(branch, conceptId, false).block();
+      serialised(
+          branch,
+          "delete-concept",
+          () -> getConceptsApi().deleteConcept(branch, conceptId, false).block());
     } catch (RuntimeException e) {
       throw new LingoProblem(
           "Failed to delete concept " + conceptId + " on branch " + branch + ": " + e.getMessage(),
@@ -811,6 +817,36 @@ public class SnowstormClient {
     }
   }
 
+  /**
+   * Deletes several unreleased concepts from the branch, see {@link #deleteConcept}. Snowstorm
+   * locks the branch for each delete, so they are sent one after another, each blocking on the
+   * calling thread (which carries the security context the IMS cookie filter needs). The first
+   * failure stops the rest.
+   */
+  public void deleteConcepts(String branch, Collection<String> conceptIds) {
+    ConceptsApi api = getConceptsApi();
+    serialised(
+        branch,
+        "delete-concept",
+        () -> {
+          for (String conceptId : conceptIds) {
+            try {
+              api.deleteConcept(branch, conceptId, false).block();
+            } catch (RuntimeException e) {
+              throw new LingoProblem(
+                  "Failed to delete concept "
+                      + conceptId
+                      + " on branch "
+                      + branch
+                      + ": "
+                      + e.getMessage(),
+                  e);
+            }
+          }
+          return null;
+        });
+  }
+
   public void deleteRelationship(String branch, String relationshipId) {
     try {
       new RelationshipsApi(getApiClient())
@@ -973,12 +1009,23 @@ public class SnowstormClient {
 
   public SnowstormConceptView createConcept(
       String branch, SnowstormConceptView concept, boolean validate) {
-    waitForBranchLock(branch);
-    return getConceptsApi().createConcept(branch, concept, validate, languageHeader).block();
+    return serialised(
+        branch,
+        "create-concept",
+        () -> {
+          waitForBranchLock(branch);
+          return getConceptsApi().createConcept(branch, concept, validate, languageHeader).block();
+        });
   }
 
   public SnowstormConceptView updateConceptView(
       String branch, String conceptId, SnowstormConceptView concept, boolean validate) {
+    return serialised(
+        branch, "update-concept", () -> sendConceptView(branch, conceptId, concept, validate));
+  }
+
+  private SnowstormConceptView sendConceptView(
+      String branch, String conceptId, SnowstormConceptView concept, boolean validate) {
     waitForBranchLock(branch);
     try {
       // Serialize the concept to JSON string to see what's being sent
@@ -995,6 +1042,12 @@ public class SnowstormClient {
 
   public SnowstormConcept updateConcept(
       String branch, String conceptId, SnowstormConcept concept, boolean validate) {
+    return serialised(
+        branch, "update-concept", () -> sendConcept(branch, conceptId, concept, validate));
+  }
+
+  private SnowstormConcept sendConcept(
+      String branch, String conceptId, SnowstormConcept concept, boolean validate) {
     waitForBranchLock(branch);
     ObjectMapper customMapper =
         new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
@@ -1019,9 +1072,15 @@ public class SnowstormClient {
         .block();
   }
 
-  @SuppressWarnings("java:S1192")
   public List<SnowstormConceptMini> createUpdateBulkConcepts(
       String branch, Collection<SnowstormConceptView> concepts) throws InterruptedException {
+    return branchWriteQueue.write(
+        branch, "bulk-concepts", () -> sendBulkConcepts(branch, concepts));
+  }
+
+  @SuppressWarnings("java:S1192")
+  private List<SnowstormConceptMini> sendBulkConcepts(
+      String branch, Collection<SnowstormConceptView> concepts) throws InterruptedException {
     waitForBranchLock(branch);
 
     if (log.isLoggable(Level.FINE)) {
@@ -1127,10 +1186,27 @@ public class SnowstormClient {
     return self.getConceptsById(branch, ids);
   }
 
+  /**
+   * Creates or updates refset members in a bulk batch. When enabled, creates by the same user
+   * queued behind other writes to the same branch are sent together, see {@link BranchWriteQueue}.
+   *
+   * @return the ids of the members, in the order Snowstorm reports them
+   */
   public List<String> createRefsetMembers(
       String branch,
       List<SnowstormReferenceSetMemberViewComponent> referenceSetMemberViewComponents)
       throws InterruptedException {
+    return branchWriteQueue.writeCombinable(
+        branch,
+        "bulk-refset-members",
+        referenceSetMemberViewComponents,
+        members -> sendRefsetMembers(branch, members));
+  }
+
+  private List<String> sendRefsetMembers(
+      String branch,
+      List<SnowstormReferenceSetMemberViewComponent> referenceSetMemberViewComponents)
+      throws InterruptedException {
     waitForBranchLock(branch);
 
     log.fine(
@@ -1217,6 +1293,17 @@ public class SnowstormClient {
 
   public void removeRefsetMembers(String branch, Set<SnowstormReferenceSetMember> members)
       throws InterruptedException {
+    branchWriteQueue.write(
+        branch,
+        "remove-refset-members",
+        () -> {
+          sendRemoveRefsetMembers(branch, members);
+          return null;
+        });
+  }
+
+  private void sendRemoveRefsetMembers(String branch, Set<SnowstormReferenceSetMember> members)
+      throws InterruptedException {
     waitForBranchLock(branch);
 
     Set<SnowstormReferenceSetMember> memberToDeactivate =
@@ -1656,6 +1743,19 @@ public class SnowstormClient {
         .mapNotNull(SnowstormItemsPageReferenceSetMember::getItems);
   }
 
+  /**
+   * Runs a write once Lingo's earlier writes to the branch have finished, see {@link
+   * BranchWriteQueue}.
+   */
+  private <T> T serialised(String branch, String operation, BranchWriteQueue.BranchWrite<T> write) {
+    try {
+      return branchWriteQueue.write(branch, operation, write);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LingoProblem("Interrupted while waiting to write to branch " + branch, e);
+    }
+  }
+
   public void waitForBranchLock(String branch) {
     // check if the branch is locked
     // if it is, wait until it is unlocked
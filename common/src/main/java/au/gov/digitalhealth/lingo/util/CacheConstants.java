@@ -41,6 +41,9 @@ public class CacheConstants {
   public static final String SNOWSTORM_HIST_ASSOC_FOR_BRANCH =
       "snowstorm-historical-associations-for-branch";
   public static final String FHIR_CONCEPTS = "fhir-concepts";
+  public static final String PRODUCT_CALCULATION_CACHE = "product-calculation";
+  public static final String PRODUCT_LEVEL_CALCULATION_CACHE = "product-level-calculation";
+  public static final String TICKET_SEARCH_CACHE = "ticket-search";
 
   private CacheConstants() {
     throw new IllegalStateException("Utility class");
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2024 Australian Digital Health Agency ABN 84 425 496 912.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.digitalhealth.lingo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import au.gov.digitalhealth.lingo.exception.LingoProblem;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the per-branch write queue. */
+class BranchWriteQueueTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ThreadLocal<String> caller = new ThreadLocal<>();
+  private final BranchWriteQueue queue = new BranchWriteQueue(meterRegistry, true, caller::get);
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /** Writes to the same branch never overlap. */
+  @Test
+  void writesToOneBranchAreSerialised() throws Exception {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<Future<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      futures.add(
+          executor.submit(
+              () ->
+                  queue.write(
+                      "MAIN/TASK",
+                      "test",
+                      () -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        Thread.sleep(5);
+                        running.decrementAndGet();
+                        return 1;
+                      })));
+    }
+    for (Future<Integer> future : futures) {
+      assertEquals(1, future.get(10, TimeUnit.SECONDS));
+    }
+
+    assertEquals(1, maxRunning.get());
+    assertEquals(8, meterRegistry.get(BranchWriteQueue.METRIC_PREFIX + ".wait").timer().count());
+  }
+
+  /**
+   * Writes from the same caller queued behind a running write are sent in one combined request, and
+   * each write gets back the results for its own items.
+   */
+  @Test
+  void queuedCombinableWritesAreSentTogether() throws Exception {
+    List<List<String>> requests = queueBehindBlocker("alice", "alice");
+
+    assertEquals(1, requests.size());
+    assertEquals(3, requests.get(0).size());
+  }
+
+  /** Writes from different callers are never combined, even when queued together. */
+  @Test
+  void writesFromDifferentCallersAreSentSeparately() throws Exception {
+    List<List<String>> requests = queueBehindBlocker("alice", "bob");
+
+    assertEquals(2, requests.size());
+    assertEquals(Set.of(List.of("a", "b"), List.of("c")), Set.copyOf(requests));
+  }
+
+  /** Writes without a known caller are never combined. */
+  @Test
+  void writesWithoutCallerAreSentSeparately() throws Exception {
+    List<List<String>> requests = queueBehindBlocker(null, null);
+
+    assertEquals(2, requests.size());
+  }
+
+  /**
+   * Queues a write of items a and b from one caller and a write of item c from another behind a
+   * running write, then releases them.
+   *
+   * @return the requests sent by the combinable writes
+   */
+  private List<List<String>> queueBehindBlocker(String firstCaller, String secondCaller)
+      throws Exception {
+    CountDownLatch holding = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<Object> blocker =
+        executor.submit(
+            () ->
+                queue.write(
+                    "MAIN/TASK",
+                    "blocker",
+                    () -> {
+                      holding.countDown();
+                      release.await();
+                      return null;
+                    }));
+    holding.await();
+
+    List<List<String>> requests = Collections.synchronizedList(new ArrayList<>());
+    BranchWriteQueue.CombinableWrite<String, String> write =
+        items -> {
+          requests.add(List.copyOf(items));
+          return items.stream().map(item -> "id-" + item).toList();
+        };
+    Future<List<String>> first =
+        executor.submit(
+            () -> {
+              caller.set(firstCaller);
+              return queue.writeCombinable("MAIN/TASK", "members", List.of("a", "b"), write);
+            });
+    Future<List<String>> second =
+        executor.submit(
+            () -> {
+              caller.set(secondCaller);
+              return queue.writeCombinable("MAIN/TASK", "members", List.of("c"), write);
+            });
+    while (meterRegistry.get(BranchWriteQueue.METRIC_PREFIX + ".queued").gauge().value() < 2) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+    blocker.get(10, TimeUnit.SECONDS);
+
+    assertEquals(List.of("id-a", "id-b"), first.get(10, TimeUnit.SECONDS));
+    assertEquals(List.of("id-c"), second.get(10, TimeUnit.SECONDS));
+    return requests;
+  }
+
+  /** A failed combined request fails every caller whose items it carried. */
+  @Test
+  void failedCombinedWriteFailsEachCaller() {
+    assertThrows(
+        LingoProblem.class,
+        () ->
+            queue.writeCombinable(
+                "MAIN/TASK",
+                "members",
+                List.of("a"),
+                items -> {
+                  throw new LingoProblem("batch failed");
+                }));
+    assertEquals(
+        0, meterRegistry.get(BranchWriteQueue.METRIC_PREFIX + ".branches").gauge().value());
+  }
+}